@@ -0,0 +1,132 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+import com.fasterxml.jackson.core.util.BufferRecycler;
+
+/**
+ * {@link TextOutput} implementation that writes extracted leaf values into a
+ * caller-provided {@link Appendable} (like {@link StringBuilder} or {@link Writer}),
+ * decoding UTF-8 encoded values as necessary, and keeping count of {@code char}s written.
+ *<p>
+ * Decoding buffer (if needed) is obtained from Jackson {@link BufferRecycler}:
+ * {@link #release()} must be called once extraction is complete.
+ */
+final class AppendableOutput extends TextOutput {
+    private final Appendable target;
+
+    // Type-specific references to target, if applicable, to avoid wrapping
+    private final StringBuilder sb;
+    private final Writer writer;
+
+    private final BufferRecycler bufferRecycler;
+
+    private int count;
+
+    // Buffer for decoding UTF-8 content, allocated if and as needed
+    private char[] decodeBuffer;
+
+    // Wrapper for appending content to generic Appendables, reused for the same array
+    private CharBuffer wrapper;
+
+    AppendableOutput(Appendable target, BufferRecycler bufferRecycler) {
+        this.target = target;
+        sb = (target instanceof StringBuilder) ? (StringBuilder) target : null;
+        writer = (target instanceof Writer) ? (Writer) target : null;
+        this.bufferRecycler = bufferRecycler;
+    }
+
+    /*
+    /**********************************************************
+    /* Accessors, life-cycle
+    /**********************************************************
+     */
+
+    /**
+     * @return Number of {@code char}s written, including separators
+     */
+    public int count() {
+        return count;
+    }
+
+    @Override
+    PooledBuffers pooledBuffers() {
+        return (bufferRecycler instanceof PooledBuffers) ? (PooledBuffers) bufferRecycler : null;
+    }
+
+    public void release() {
+        char[] buf = decodeBuffer;
+        if (buf != null) {
+            decodeBuffer = null;
+            bufferRecycler.releaseCharBuffer(BufferRecycler.CHAR_CONCAT_BUFFER, buf);
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* TextOutput implementation
+    /**********************************************************
+     */
+
+    @Override
+    public void appendValue(char[] src, int offset, int len) throws IOException {
+        if (len > 0) {
+            _appendSeparatorIfNeeded();
+            _append(src, offset, len);
+        }
+    }
+
+    @Override
+    public void appendUtf8Value(byte[] src, int offset, int len) throws IOException {
+        if (len > 0) {
+            _appendSeparatorIfNeeded();
+            char[] buf = decodeBuffer;
+            if (buf == null) {
+                decodeBuffer = buf = bufferRecycler.allocCharBuffer(BufferRecycler.CHAR_CONCAT_BUFFER);
+            }
+            // Each byte decodes into at most one char; decode in chunks that do not
+            // split multi-byte UTF-8 sequences
+            final int end = offset + len;
+            while (offset < end) {
+                int chunkEnd = Math.min(end, offset + buf.length);
+                if (chunkEnd < end) {
+                    while ((chunkEnd > offset + 1) && ((src[chunkEnd] & 0xC0) == 0x80)) {
+                        --chunkEnd;
+                    }
+                }
+                _append(buf, 0, Utf8Util.decode(src, offset, chunkEnd, buf, 0));
+                offset = chunkEnd;
+            }
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods
+    /**********************************************************
+     */
+
+    private void _appendSeparatorIfNeeded() throws IOException {
+        if (count > 0) {
+            target.append(' ');
+            ++count;
+        }
+    }
+
+    private void _append(char[] src, int offset, int len) throws IOException {
+        if (sb != null) {
+            sb.append(src, offset, len);
+        } else if (writer != null) {
+            writer.write(src, offset, len);
+        } else {
+            CharBuffer cb = wrapper;
+            if ((cb == null) || (cb.array() != src)) {
+                wrapper = cb = CharBuffer.wrap(src);
+            }
+            target.append(cb, offset, offset + len);
+        }
+        count += len;
+    }
+}
@@ -0,0 +1,66 @@
+package com.datastax.jsonapi;
+
+/**
+ * Classifier of 64-byte blocks of UTF-8 encoded JSON for {@link StructuralIndex}:
+ * produces one bit mask per character class (bit {@code i} set if byte at
+ * {@code offset + i} is of that class). Vectorized implementation
+ * ({@code VectorBlockClassifier}, using {@code jdk.incubator.vector}) is used if
+ * the module is available (JVM started with {@code --add-modules jdk.incubator.vector});
+ * otherwise scalar implementation is used.
+ */
+abstract class BlockClassifier {
+    final static int BLOCK_SIZE = 64;
+
+    final static int QUOTES = 0;
+    final static int BACKSLASHES = 1;
+    // Opening markers: '{', '['
+    final static int OPENS = 2;
+    // Closing markers: '}', ']'
+    final static int CLOSES = 3;
+
+    final static int MASK_COUNT = 4;
+
+    private final static String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private final static String VECTOR_IMPL = "com.datastax.jsonapi.VectorBlockClassifier";
+
+    private final static BlockClassifier INSTANCE = _find();
+
+    /**
+     * @return Classifier to use: vectorized one if available, scalar otherwise
+     */
+    static BlockClassifier instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return Whether this classifier uses vector instructions
+     */
+    abstract boolean isVectorized();
+
+    /**
+     * Method for classifying a full block of {@link #BLOCK_SIZE} bytes starting at
+     * given offset, into given masks (indexed by class).
+     */
+    abstract void classify(byte[] input, int offset, long[] masks);
+
+    /**
+     * Method for classifying a partial block (at the end of input): bits for
+     * bytes past {@code len} are left clear.
+     */
+    void classifyPartial(byte[] input, int offset, int len, long[] masks) {
+        ScalarBlockClassifier.classifyScalar(input, offset, len, masks);
+    }
+
+    private static BlockClassifier _find() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (BlockClassifier) Class.forName(VECTOR_IMPL)
+                        .getDeclaredConstructor().newInstance();
+            } catch (Throwable t) {
+                // Not compiled in, or unsupported vector shape: fall through
+            }
+        }
+        return new ScalarBlockClassifier();
+    }
+}
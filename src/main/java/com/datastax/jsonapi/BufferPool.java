@@ -0,0 +1,190 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.util.BufferRecycler;
+
+/**
+ * Bounded, lock-free pool of {@link PooledBuffers} shared by all extractors built by a
+ * {@link JsonFieldExtractorFactory} (see {@link JsonFieldExtractorFactory#withBufferPool(int)}).
+ * Unlike Jackson's default {@link BufferRecycler} handling (one recycler per thread,
+ * via {@code ThreadLocal}), buffers are leased for the duration of an extraction and
+ * returned after it; this keeps recycling effective when extractions run on short-lived
+ * threads (like virtual threads, one per task).
+ *<p>
+ * Pool is a fixed-size array of slots: acquiring swaps a pooled instance out of a
+ * slot (probing from a random slot to spread contention), releasing compare-and-sets
+ * it into an empty slot. If no pooled instance is available a new one is created;
+ * if pool is full on release, instance is simply dropped. Instances not released
+ * (due to failed extraction) are likewise just garbage collected.
+ *<p>
+ * Pool also creates JSON parsers that use leased buffers: this requires a
+ * {@link JsonFactory} sub-class (copy of the factory extractors use, with same
+ * configuration), since Jackson 2.14 has no public API for passing a recycler.
+ */
+final class BufferPool {
+    private final AtomicReferenceArray<PooledBuffers> slots;
+
+    private final int maxSize;
+
+    private final ParserFactory parserFactory;
+
+    private final LongAdder created = new LongAdder();
+
+    BufferPool(JsonFactory jsonFactory, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximum buffer pool size must be at least 1, was "+maxSize);
+        }
+        this.maxSize = maxSize;
+        slots = new AtomicReferenceArray<>(maxSize);
+        parserFactory = new ParserFactory(jsonFactory);
+    }
+
+    /*
+    /**********************************************************
+    /* Leasing buffers
+    /**********************************************************
+     */
+
+    public PooledBuffers acquire() {
+        final int size = maxSize;
+        int ix = (size == 1) ? 0 : ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; ++i) {
+            if (slots.get(ix) != null) {
+                PooledBuffers buffers = slots.getAndSet(ix, null);
+                if (buffers != null) {
+                    return buffers;
+                }
+            }
+            if (++ix == size) {
+                ix = 0;
+            }
+        }
+        created.increment();
+        return new PooledBuffers();
+    }
+
+    public void release(PooledBuffers buffers) {
+        buffers.trim();
+        final int size = maxSize;
+        int ix = (size == 1) ? 0 : ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; ++i) {
+            if ((slots.get(ix) == null) && slots.compareAndSet(ix, null, buffers)) {
+                return;
+            }
+            if (++ix == size) {
+                ix = 0;
+            }
+        }
+        // Pool full: let it be GC'd
+    }
+
+    /*
+    /**********************************************************
+    /* Parser construction
+    /**********************************************************
+     */
+
+    public JsonParser createParser(BufferRecycler br, String json) throws IOException {
+        return parserFactory.createParser(br, json);
+    }
+
+    public JsonParser createParser(BufferRecycler br, byte[] json, int offset, int len) throws IOException {
+        return parserFactory.createParser(br, json, offset, len);
+    }
+
+    public JsonParser createParser(BufferRecycler br, InputStream in) throws IOException {
+        return parserFactory.createParser(br, in);
+    }
+
+    /*
+    /**********************************************************
+    /* Statistics
+    /**********************************************************
+     */
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return Number of buffer sets currently in pool (not leased)
+     */
+    public int pooledCount() {
+        int count = 0;
+        for (int i = 0; i < maxSize; ++i) {
+            if (slots.get(i) != null) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Number of buffer sets created (due to pool being empty on acquire)
+     */
+    public long createdCount() {
+        return created.sum();
+    }
+
+    /*
+    /**********************************************************
+    /* Helper classes
+    /**********************************************************
+     */
+
+    /**
+     * Copy of {@link JsonFactory} extractors use (with same configuration), extended to
+     * create parsers using given {@link BufferRecycler}; does the same as
+     * {@link JsonFactory} methods it mirrors, except for recycler used.
+     * If an {@link com.fasterxml.jackson.core.io.InputDecorator} is configured,
+     * default parser construction (and recycling) is used as-is.
+     */
+    @SuppressWarnings("serial")
+    private final static class ParserFactory extends JsonFactory {
+        // Same as JsonFactory: longer Strings are read using Reader, not copied as a whole
+        private final static int MAX_COPIED_STRING_LENGTH = 0x8000;
+
+        ParserFactory(JsonFactory src) {
+            super(src, src.getCodec());
+        }
+
+        JsonParser createParser(BufferRecycler br, String content) throws IOException {
+            if (_inputDecorator != null) {
+                return createParser(content);
+            }
+            final int strLen = content.length();
+            if ((strLen > MAX_COPIED_STRING_LENGTH) || !canUseCharArrays()) {
+                final StringReader r = new StringReader(content);
+                return _createParser(r, new IOContext(br, _createContentReference(r), false));
+            }
+            final IOContext ctxt = new IOContext(br, _createContentReference(content), true);
+            final char[] buf = ctxt.allocTokenBuffer(strLen);
+            content.getChars(0, strLen, buf, 0);
+            return _createParser(buf, 0, strLen, ctxt, true);
+        }
+
+        JsonParser createParser(BufferRecycler br, byte[] data, int offset, int len) throws IOException {
+            if (_inputDecorator != null) {
+                return createParser(data, offset, len);
+            }
+            return _createParser(data, offset, len,
+                    new IOContext(br, _createContentReference(data, offset, len), true));
+        }
+
+        JsonParser createParser(BufferRecycler br, InputStream in) throws IOException {
+            if (_inputDecorator != null) {
+                return createParser(in);
+            }
+            return _createParser(in, new IOContext(br, _createContentReference(in), false));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.datastax.jsonapi;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable summary of a single {@link BulkExtractor} (or {@link NdjsonFileExtractor}) run:
+ * counts of documents and bytes processed, and elapsed (wall-clock) time, from which
+ * throughput can be calculated.
+ */
+public final class BulkExtractionStats {
+    private final long documentCount;
+
+    private final long nonJsonCount;
+
+    private final long inputBytes;
+
+    private final long outputLength;
+
+    private final long elapsedNanos;
+
+    BulkExtractionStats(long documentCount, long nonJsonCount, long inputBytes,
+            long outputLength, long elapsedNanos) {
+        this.documentCount = documentCount;
+        this.nonJsonCount = nonJsonCount;
+        this.inputBytes = inputBytes;
+        this.outputLength = outputLength;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return Number of documents processed (including ones that were not JSON)
+     */
+    public long documentCount() { return documentCount; }
+
+    /**
+     * @return Number of documents that were not JSON (for which {@code null} result was passed)
+     */
+    public long nonJsonCount() { return nonJsonCount; }
+
+    /**
+     * @return Total length of input documents, in bytes
+     */
+    public long inputBytes() { return inputBytes; }
+
+    /**
+     * @return Total length of extracted results: in {@code char}s for {@code String}
+     *    results, in bytes for UTF-8 encoded results
+     */
+    public long outputLength() { return outputLength; }
+
+    public long elapsedNanos() { return elapsedNanos; }
+
+    public long elapsedMillis() { return TimeUnit.NANOSECONDS.toMillis(elapsedNanos); }
+
+    public double documentsPerSecond() {
+        return _perSecond(documentCount);
+    }
+
+    public double inputMegabytesPerSecond() {
+        return _perSecond(inputBytes) / (1024.0 * 1024.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d documents (%d not JSON), %d input bytes, %d output length, in %d msecs:"
+                +" %.1f docs/s, %.2f MB/s",
+                documentCount, nonJsonCount, inputBytes, outputLength, elapsedMillis(),
+                documentsPerSecond(), inputMegabytesPerSecond());
+    }
+
+    private double _perSecond(long count) {
+        if (elapsedNanos <= 0L) {
+            return 0.0;
+        }
+        return count * 1_000_000_000.0 / elapsedNanos;
+    }
+}
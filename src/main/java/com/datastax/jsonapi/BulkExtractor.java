@@ -0,0 +1,350 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Engine for extracting contents of a large number of (UTF-8 encoded) JSON documents
+ * in parallel, using a single {@link JsonFieldExtractor}. Documents are read from
+ * the source by the calling thread, grouped into batches, and extracted by tasks
+ * run on an {@link Executor}: by default {@link ForkJoinPool#commonPool()}, but any
+ * executor may be used (including one that runs each task on a virtual thread, on
+ * JDK 21 and above).
+ *<p>
+ * Amount of work in flight is bounded (see {@link #withMaxInFlightBatches(int)}):
+ * reading from the source blocks when the limit is reached, until some batch
+ * completes. Results are passed to a {@link ResultHandler}, either in the order
+ * of documents ({@link #withOrderPreserved(boolean)}), or as soon as each batch
+ * completes. Each batch reuses a single output buffer for all of its documents.
+ *<p>
+ * Instances are immutable and thread-safe; configuration is changed using
+ * "mutant factory" methods that create new instances.
+ */
+public class BulkExtractor {
+    /**
+     * Callback interface for receiving extraction results.
+     */
+    @FunctionalInterface
+    public interface ResultHandler {
+        /**
+         * Method called with result of extracting contents of a single document.
+         * If order is not preserved, may be called concurrently from multiple
+         * threads; if order is preserved, calls are serialized, in document order.
+         *
+         * @param index Index of the document in source (0-based)
+         * @param result Extracted contents; or {@code null} if document was not JSON
+         */
+        void handleResult(long index, String result) throws IOException;
+    }
+
+    private final static int DEFAULT_BATCH_SIZE = 64;
+
+    private final static String[] NO_RESULTS = new String[0];
+
+    private final JsonFieldExtractor extractor;
+
+    private final Executor executor;
+
+    private final int batchSize;
+
+    private final int maxInFlightBatches;
+
+    private final boolean preserveOrder;
+
+    private BulkExtractor(JsonFieldExtractor extractor, Executor executor, int batchSize,
+            int maxInFlightBatches, boolean preserveOrder) {
+        this.extractor = extractor;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxInFlightBatches = maxInFlightBatches;
+        this.preserveOrder = preserveOrder;
+    }
+
+    /**
+     * Factory method for constructing engine with default settings: using
+     * {@link ForkJoinPool#commonPool()}, batches of 64 documents, at most
+     * twice as many batches in flight as there are available processors,
+     * and without preserving order of results.
+     */
+    public static BulkExtractor construct(JsonFieldExtractor extractor) {
+        return new BulkExtractor(Objects.requireNonNull(extractor), ForkJoinPool.commonPool(),
+                DEFAULT_BATCH_SIZE, 2 * Runtime.getRuntime().availableProcessors(), false);
+    }
+
+    /*
+    /**********************************************************
+    /* Mutant factories
+    /**********************************************************
+     */
+
+    /**
+     * @param executor Executor to run extraction tasks on; for example
+     *    {@code Executors.newVirtualThreadPerTaskExecutor()} (JDK 21+), or a dedicated
+     *    {@link ForkJoinPool}
+     */
+    public BulkExtractor withExecutor(Executor executor) {
+        return new BulkExtractor(extractor, Objects.requireNonNull(executor), batchSize,
+                maxInFlightBatches, preserveOrder);
+    }
+
+    /**
+     * @param batchSize Number of documents each extraction task processes; 1 or above
+     */
+    public BulkExtractor withBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be 1 or above (was "+batchSize+")");
+        }
+        return new BulkExtractor(extractor, executor, batchSize, maxInFlightBatches, preserveOrder);
+    }
+
+    /**
+     * @param maxInFlightBatches Maximum number of batches submitted but not yet completed
+     *    (including delivery of results); 1 or above
+     */
+    public BulkExtractor withMaxInFlightBatches(int maxInFlightBatches) {
+        if (maxInFlightBatches < 1) {
+            throw new IllegalArgumentException("Maximum in-flight batches must be 1 or above (was "
+                    +maxInFlightBatches+")");
+        }
+        return new BulkExtractor(extractor, executor, batchSize, maxInFlightBatches, preserveOrder);
+    }
+
+    /**
+     * @param preserveOrder Whether results are to be passed to {@link ResultHandler} in
+     *    the same order as documents are read from source (true); or as soon as they are
+     *    available (false)
+     */
+    public BulkExtractor withOrderPreserved(boolean preserveOrder) {
+        return new BulkExtractor(extractor, executor, batchSize, maxInFlightBatches, preserveOrder);
+    }
+
+    public int batchSize() { return batchSize; }
+
+    public int maxInFlightBatches() { return maxInFlightBatches; }
+
+    public boolean isOrderPreserved() { return preserveOrder; }
+
+    /*
+    /**********************************************************
+    /* Public API
+    /**********************************************************
+     */
+
+    /**
+     * Method for extracting contents of all documents from given source, passing results
+     * to given handler. Blocks until all documents have been processed and results
+     * delivered. If extraction of any document (or result handling) fails, no more
+     * documents are read or results delivered, and the first failure is thrown
+     * once all in-flight batches have completed.
+     *
+     * @return Statistics for the run, including throughput
+     */
+    public BulkExtractionStats run(Iterator<byte[]> documents, ResultHandler handler)
+        throws IOException
+    {
+        return new Run(handler).execute(documents);
+    }
+
+    public BulkExtractionStats run(Spliterator<byte[]> documents, ResultHandler handler)
+        throws IOException
+    {
+        return run(Spliterators.iterator(documents), handler);
+    }
+
+    /**
+     * Note: given stream is consumed sequentially by the calling thread (parallelism comes
+     * from this engine), and is not closed.
+     */
+    public BulkExtractionStats run(Stream<byte[]> documents, ResultHandler handler)
+        throws IOException
+    {
+        return run(documents.iterator(), handler);
+    }
+
+    /*
+    /**********************************************************
+    /* Helper types
+    /**********************************************************
+     */
+
+    /**
+     * State of a single {@link #run} call.
+     */
+    private final class Run {
+        private final ResultHandler handler;
+
+        private final Semaphore permits = new Semaphore(maxInFlightBatches);
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private final LongAdder nonJsonCount = new LongAdder();
+
+        private final LongAdder outputLength = new LongAdder();
+
+        // For ordered delivery: completed batches waiting for earlier ones, guarded by itself
+        private final Map<Long, String[]> pending;
+
+        private long nextBatchToDeliver;
+
+        Run(ResultHandler handler) {
+            this.handler = handler;
+            pending = preserveOrder ? new HashMap<>() : null;
+        }
+
+        BulkExtractionStats execute(Iterator<byte[]> documents) throws IOException {
+            final long start = System.nanoTime();
+            long documentCount = 0L;
+            long inputBytes = 0L;
+            long batchIndex = 0L;
+
+            try {
+                while (documents.hasNext() && (failure.get() == null)) {
+                    final byte[][] batch = _nextBatch(documents);
+                    for (byte[] doc : batch) {
+                        inputBytes += doc.length;
+                    }
+                    permits.acquire();
+                    final BatchTask task = new BatchTask(batchIndex++, batch);
+                    documentCount += batch.length;
+                    try {
+                        executor.execute(task);
+                    } catch (RuntimeException e) {
+                        permits.release();
+                        throw e;
+                    }
+                }
+                // Wait for all in-flight batches to complete
+                permits.acquire(maxInFlightBatches);
+                permits.release(maxInFlightBatches);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException ioe = new InterruptedIOException("Bulk extraction interrupted");
+                ioe.initCause(e);
+                throw ioe;
+            }
+            _throwIfFailed();
+            return new BulkExtractionStats(documentCount, nonJsonCount.sum(), inputBytes,
+                    outputLength.sum(), System.nanoTime() - start);
+        }
+
+        private byte[][] _nextBatch(Iterator<byte[]> documents) {
+            byte[][] batch = new byte[batchSize][];
+            int count = 0;
+            while ((count < batchSize) && documents.hasNext()) {
+                batch[count++] = Objects.requireNonNull(documents.next(), "null document");
+            }
+            if (count < batchSize) {
+                byte[][] trimmed = new byte[count][];
+                System.arraycopy(batch, 0, trimmed, 0, count);
+                batch = trimmed;
+            }
+            return batch;
+        }
+
+        void completeBatch(long batchIndex, String[] results) {
+            if (pending == null) {
+                try {
+                    _deliver(batchIndex, results);
+                } finally {
+                    permits.release();
+                }
+                return;
+            }
+            synchronized (pending) {
+                // Failed batches are marked with empty results to keep sequence going
+                pending.put(batchIndex, (results == null) ? NO_RESULTS : results);
+                String[] ready;
+                while ((ready = pending.remove(nextBatchToDeliver)) != null) {
+                    try {
+                        _deliver(nextBatchToDeliver++, ready);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            }
+        }
+
+        private void _deliver(long batchIndex, String[] results) {
+            if (failure.get() != null) {
+                return;
+            }
+            // All batches except for the last one are full
+            final long firstDocIndex = batchIndex * batchSize;
+            try {
+                for (int i = 0; i < results.length; ++i) {
+                    final String result = results[i];
+                    if (result == null) {
+                        nonJsonCount.increment();
+                    } else {
+                        outputLength.add(result.length());
+                    }
+                    handler.handleResult(firstDocIndex + i, result);
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }
+
+        void fail(Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+
+        private void _throwIfFailed() throws IOException {
+            final Throwable t = failure.get();
+            if (t == null) {
+                return;
+            }
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new UncheckedIOException(new IOException(t));
+        }
+
+        /**
+         * Task for extracting contents of a single batch of documents.
+         */
+        private final class BatchTask implements Runnable {
+            private final long batchIndex;
+
+            private final byte[][] documents;
+
+            BatchTask(long batchIndex, byte[][] documents) {
+                this.batchIndex = batchIndex;
+                this.documents = documents;
+            }
+
+            @Override
+            public void run() {
+                String[] results = NO_RESULTS;
+                try {
+                    // No point in extracting if already failed
+                    if (failure.get() == null) {
+                        results = extractor.extractAllAsString(documents);
+                    }
+                } catch (Throwable t) {
+                    fail(t);
+                }
+                completeBatch(batchIndex, results);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.datastax.jsonapi;
+
+/**
+ * {@link TextOutput} implementation that aggregates extracted leaf values
+ * in a {@link StringBuilder}, decoding UTF-8 encoded values as necessary.
+ */
+final class CharOutputBuffer extends TextOutput {
+    private final StringBuilder sb;
+
+    // Pooled buffers this buffer belongs to, if any
+    private final PooledBuffers pooledBuffers;
+
+    // Lazily allocated buffer for decoding non-ASCII UTF-8 content
+    private char[] decodeBuffer;
+
+    CharOutputBuffer(int initialCapacity) {
+        this(initialCapacity, null);
+    }
+
+    CharOutputBuffer(int initialCapacity, PooledBuffers pooledBuffers) {
+        sb = new StringBuilder(initialCapacity);
+        this.pooledBuffers = pooledBuffers;
+    }
+
+    /*
+    /**********************************************************
+    /* Accessors
+    /**********************************************************
+     */
+
+    public int length() {
+        return sb.length();
+    }
+
+    public int capacity() {
+        return sb.capacity();
+    }
+
+    @Override
+    PooledBuffers pooledBuffers() {
+        return pooledBuffers;
+    }
+
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+
+    /**
+     * Method for clearing contents, to allow reuse of the buffer.
+     */
+    public void reset() {
+        sb.setLength(0);
+    }
+
+    /*
+    /**********************************************************
+    /* TextOutput implementation
+    /**********************************************************
+     */
+
+    @Override
+    public void appendValue(char[] src, int offset, int len) {
+        if (len > 0) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(src, offset, len);
+        }
+    }
+
+    @Override
+    public void appendUtf8Value(byte[] src, int offset, int len) {
+        if (len > 0) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            final int end = offset + len;
+            // ASCII fast path first: no need for decoding buffer
+            int i = offset;
+            for (; i < end; ++i) {
+                final byte b = src[i];
+                if (b < 0) {
+                    break;
+                }
+                sb.append((char) b);
+            }
+            if (i < end) {
+                _appendNonAscii(src, i, end);
+            }
+        }
+    }
+
+    @Override
+    public void appendAsciiValue(byte[] src, int offset, int len) {
+        if (len > 0) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            for (int end = offset + len; offset < end; ++offset) {
+                sb.append((char) src[offset]);
+            }
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods
+    /**********************************************************
+     */
+
+    private void _appendNonAscii(byte[] src, int ptr, final int end) {
+        // Each byte decodes to at most one char
+        final int maxLen = end - ptr;
+        char[] buf = decodeBuffer;
+        if ((buf == null) || (buf.length < maxLen)) {
+            decodeBuffer = buf = new char[Math.max(maxLen, 200)];
+        }
+        sb.append(buf, 0, Utf8Util.decode(src, ptr, end, buf, 0));
+    }
+}
@@ -0,0 +1,99 @@
+package com.datastax.jsonapi;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Immutable 128-bit hash of extracted content, calculated while extracting (see
+ * {@link JsonFieldExtractor#extractHash(String)} and
+ * {@link JsonFieldExtractor#extractAsStringWithHash(String)}): can be stored along
+ * with indexed content, and compared to hash of re-extracted content to find out
+ * whether content has changed (and needs to be re-indexed).
+ *<p>
+ * Hash is 128-bit MurmurHash3 (x64 variant, seed 0) of UTF-8 encoding of the content:
+ * so it is the same regardless of input and output type, and hash of content
+ * extracted earlier may be calculated using {@link #of(String)}.
+ * If 64 bits are enough, {@link #asLong()} may be used instead of the full hash.
+ * Note that the hash is not cryptographic: it only guards against accidental
+ * collisions, not deliberate ones.
+ */
+public final class ContentHash {
+    private final long h1;
+
+    private final long h2;
+
+    ContentHash(long h1, long h2) {
+        this.h1 = h1;
+        this.h2 = h2;
+    }
+
+    /**
+     * Factory method for calculating hash of given content (like content extracted
+     * earlier)
+     */
+    public static ContentHash of(String content) {
+        return of(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Factory method for calculating hash of given UTF-8 encoded content (like content
+     * extracted earlier)
+     */
+    public static ContentHash of(byte[] utf8Content) {
+        Murmur3Hash128 hash = new Murmur3Hash128();
+        hash.update(utf8Content, 0, utf8Content.length);
+        return hash.finish();
+    }
+
+    /**
+     * @return First 64 bits of hash (which may be used as a 64-bit hash)
+     */
+    public long asLong() { return h1; }
+
+    /**
+     * @return Last 64 bits of hash
+     */
+    public long secondLong() { return h2; }
+
+    /**
+     * @return Hash as 16 bytes (first 64 bits followed by last 64 bits, both
+     *    little-endian), same as other MurmurHash3 implementations produce
+     */
+    public byte[] toBytes() {
+        final byte[] result = new byte[16];
+        for (int i = 0; i < 8; ++i) {
+            result[i] = (byte) (h1 >>> (8 * i));
+            result[i + 8] = (byte) (h2 >>> (8 * i));
+        }
+        return result;
+    }
+
+    /**
+     * @return Hash as 32 hex digits (of bytes returned by {@link #toBytes()})
+     */
+    public String toHexString() {
+        final StringBuilder sb = new StringBuilder(32);
+        for (byte b : toBytes()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+                .append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof ContentHash)) return false;
+        ContentHash other = (ContentHash) o;
+        return (h1 == other.h1) && (h2 == other.h2);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) h1;
+    }
+
+    @Override
+    public String toString() {
+        return "[ContentHash: "+toHexString()+"]";
+    }
+}
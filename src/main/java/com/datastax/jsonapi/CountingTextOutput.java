@@ -0,0 +1,119 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+
+/**
+ * {@link TextOutput} decorator used when an {@link ExtractionListener} is installed:
+ * counts leaf values included, and (via {@link #countTokens}) tokens read by parser.
+ * Only used for instrumented extraction so that regular extraction has no
+ * per-token overhead.
+ *<p>
+ * Instances are not thread-safe, and are only used for a single extraction.
+ */
+final class CountingTextOutput extends TextOutput {
+    private final TextOutput target;
+
+    private int valueCount;
+
+    // -1 until parser is wrapped (raw UTF-8 scanning does not tokenize)
+    private int tokenCount = -1;
+
+    CountingTextOutput(TextOutput target) {
+        this.target = target;
+    }
+
+    /**
+     * Method for wrapping given parser so that tokens it reads (including
+     * ones skipped over) are counted.
+     */
+    public JsonParser countTokens(JsonParser p) {
+        tokenCount = 0;
+        return new TokenCountingParser(p);
+    }
+
+    /**
+     * @return Number of leaf values included (appended into output)
+     */
+    public int valueCount() {
+        return valueCount;
+    }
+
+    /**
+     * @return Number of tokens read by parser; -1 if not known (no parser wrapped)
+     */
+    public int tokenCount() {
+        return tokenCount;
+    }
+
+    /*
+    /**********************************************************
+    /* TextOutput implementation
+    /**********************************************************
+     */
+
+    @Override
+    public void appendValue(char[] src, int offset, int len) throws IOException {
+        ++valueCount;
+        target.appendValue(src, offset, len);
+    }
+
+    @Override
+    public void appendUtf8Value(byte[] src, int offset, int len) throws IOException {
+        ++valueCount;
+        target.appendUtf8Value(src, offset, len);
+    }
+
+    @Override
+    public void appendAsciiValue(byte[] src, int offset, int len) throws IOException {
+        ++valueCount;
+        target.appendAsciiValue(src, offset, len);
+    }
+
+    /*
+    /**********************************************************
+    /* Helper classes
+    /**********************************************************
+     */
+
+    private final class TokenCountingParser extends JsonParserDelegate {
+        TokenCountingParser(JsonParser p) {
+            super(p);
+        }
+
+        @Override
+        public JsonToken nextToken() throws IOException {
+            JsonToken t = delegate.nextToken();
+            if (t != null) {
+                ++tokenCount;
+            }
+            return t;
+        }
+
+        @Override
+        public String nextFieldName() throws IOException {
+            // Need to go through nextToken() (not delegate's method) to count
+            return (nextToken() == JsonToken.FIELD_NAME) ? getCurrentName() : null;
+        }
+
+        @Override
+        public JsonParser skipChildren() throws IOException {
+            // Need to skip token by token (instead of letting delegate skip) to count
+            JsonToken t = currentToken();
+            if ((t == JsonToken.START_OBJECT) || (t == JsonToken.START_ARRAY)) {
+                int open = 1;
+                while ((t = nextToken()) != null) {
+                    if (t.isStructStart()) {
+                        ++open;
+                    } else if (t.isStructEnd() && (--open == 0)) {
+                        break;
+                    }
+                }
+            }
+            return this;
+        }
+    }
+}
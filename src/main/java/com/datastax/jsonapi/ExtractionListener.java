@@ -0,0 +1,57 @@
+package com.datastax.jsonapi;
+
+/**
+ * Callback interface for observing extractions done by {@link JsonFieldExtractor}s,
+ * for metrics: installed either for individual extractors
+ * ({@link JsonFieldExtractor#withListener(ExtractionListener)}) or for all extractors
+ * a factory builds ({@link JsonFieldExtractorFactory#withListener(ExtractionListener)}).
+ * {@link ExtractionMetrics} is a ready-made implementation that aggregates
+ * calls into counters and a latency histogram.
+ *<p>
+ * Methods are called synchronously by the thread doing extraction (possibly
+ * by multiple threads concurrently), so implementations need to be thread-safe
+ * and should be fast (lock-free).
+ * When no listener is installed, extraction does no instrumentation at all.
+ *<p>
+ * Note that for each document {@link #valuesExtracted} is called (if at all) before
+ * {@link #documentExtracted}; incremental extraction ({@link ExtractionSession})
+ * is not instrumented.
+ */
+public interface ExtractionListener
+{
+    /**
+     * Method called after extraction of a document has completed successfully.
+     *
+     * @param extractor Extractor that was used
+     * @param inputLength Length of input document: in {@code char}s for {@code String}
+     *    input, in bytes otherwise
+     * @param outputLength Length of extracted content: in {@code char}s for textual
+     *    ({@code String}, {@link Appendable}) output, in bytes for UTF-8 output
+     * @param durationNanos Time taken by extraction, in nanoseconds
+     */
+    void documentExtracted(JsonFieldExtractor extractor, int inputLength, int outputLength,
+            long durationNanos);
+
+    /**
+     * Method called when content passed for extraction was not a document of
+     * accepted format (that is, would be indicated as "not JSON").
+     *
+     * @param extractor Extractor that was used
+     * @param inputLength Length of input: in {@code char}s for {@code String}
+     *    input, in bytes otherwise
+     */
+    void documentRejected(JsonFieldExtractor extractor, int inputLength);
+
+    /**
+     * Method called during extraction of a document, once all content has been
+     * read, with counts of tokens read and leaf values included.
+     *
+     * @param extractor Extractor that was used
+     * @param tokensSeen Number of tokens read from parser, including ones within
+     *    skipped (excluded) content; -1 if not known (raw UTF-8 scanning, see
+     *    {@link ExtractorFeature#RAW_UTF8_SCANNING}, skips excluded content without
+     *    tokenizing it)
+     * @param valuesIncluded Number of leaf values included in output
+     */
+    void valuesExtracted(JsonFieldExtractor extractor, int tokensSeen, int valuesIncluded);
+}
@@ -0,0 +1,181 @@
+package com.datastax.jsonapi;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ExtractionListener} implementation that aggregates extraction metrics:
+ * counts of documents, input and output lengths, tokens and values, and a histogram
+ * of extraction latencies (with power-of-two buckets). Recording is lock-free
+ * (using {@link LongAdder}s) so instances may be shared by any number of threads
+ * and extractors; typically one instance is used per collection (or other
+ * unit metrics are reported for), and its counters periodically read by
+ * (or exported into) metrics system used.
+ *<p>
+ * Note that counters are read individually, so a snapshot taken while extraction
+ * is in progress may not be exactly consistent across counters.
+ */
+public final class ExtractionMetrics implements ExtractionListener
+{
+    /**
+     * Number of buckets in latency histogram: bucket {@code i} counts
+     * latencies of {@code [2^i, 2^(i+1))} nanoseconds (bucket 0 also 0 ns)
+     */
+    public final static int LATENCY_BUCKETS = 63;
+
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder inputLength = new LongAdder();
+    private final LongAdder outputLength = new LongAdder();
+    private final LongAdder tokensSeen = new LongAdder();
+    private final LongAdder valuesIncluded = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAdder[] latencyBuckets = new LongAdder[LATENCY_BUCKETS];
+    {
+        for (int i = 0; i < LATENCY_BUCKETS; ++i) {
+            latencyBuckets[i] = new LongAdder();
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* ExtractionListener implementation
+    /**********************************************************
+     */
+
+    @Override
+    public void documentExtracted(JsonFieldExtractor extractor, int inputLen, int outputLen,
+            long durationNanos) {
+        documents.increment();
+        inputLength.add(inputLen);
+        outputLength.add(outputLen);
+        totalNanos.add(durationNanos);
+        latencyBuckets[_bucketFor(durationNanos)].increment();
+    }
+
+    @Override
+    public void documentRejected(JsonFieldExtractor extractor, int inputLen) {
+        rejected.increment();
+    }
+
+    @Override
+    public void valuesExtracted(JsonFieldExtractor extractor, int tokens, int values) {
+        if (tokens > 0) {
+            tokensSeen.add(tokens);
+        }
+        valuesIncluded.add(values);
+    }
+
+    /*
+    /**********************************************************
+    /* Accessors
+    /**********************************************************
+     */
+
+    /**
+     * @return Number of documents extracted
+     */
+    public long documentCount() { return documents.sum(); }
+
+    /**
+     * @return Number of inputs rejected as not being JSON (or other accepted format)
+     */
+    public long rejectedCount() { return rejected.sum(); }
+
+    /**
+     * @return Total length of documents extracted (in {@code char}s or bytes)
+     */
+    public long totalInputLength() { return inputLength.sum(); }
+
+    /**
+     * @return Total length of extracted contents (in {@code char}s or bytes)
+     */
+    public long totalOutputLength() { return outputLength.sum(); }
+
+    /**
+     * @return Total number of tokens read by parser (not including documents
+     *    processed with raw UTF-8 scanning)
+     */
+    public long tokensSeen() { return tokensSeen.sum(); }
+
+    /**
+     * @return Total number of leaf values included in extracted contents
+     */
+    public long valuesIncluded() { return valuesIncluded.sum(); }
+
+    /**
+     * @return Total time spent in extraction of documents, in nanoseconds
+     */
+    public long totalNanos() { return totalNanos.sum(); }
+
+    /**
+     * @return Copy of latency histogram: entry {@code i} contains number of
+     *    extractions that took {@code [2^i, 2^(i+1))} nanoseconds
+     */
+    public long[] latencyHistogram() {
+        long[] counts = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; ++i) {
+            counts[i] = latencyBuckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Method for estimating latency percentile from histogram: returns upper
+     * bound of the bucket that contains given percentile (so estimate is at most
+     * twice the actual latency).
+     *
+     * @param percentile Percentile to estimate, between 0.0 and 100.0
+     *
+     * @return Estimated latency in nanoseconds; 0 if no documents recorded
+     */
+    public long latencyPercentileNanos(double percentile) {
+        final long[] counts = latencyHistogram();
+        long total = 0L;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        final long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0L;
+        for (int i = 0; i < LATENCY_BUCKETS; ++i) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (1L << (i + 1)) - 1L;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Method for resetting all counters (for example, after exporting them).
+     * Note that updates concurrent with reset may be lost.
+     */
+    public void reset() {
+        for (LongAdder adder : new LongAdder[] { documents, rejected, inputLength,
+                outputLength, tokensSeen, valuesIncluded, totalNanos }) {
+            adder.reset();
+        }
+        for (LongAdder adder : latencyBuckets) {
+            adder.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d documents (%d rejected), %d -> %d chars/bytes, %d/%d values/tokens,"
+                +" latency p50 < %d ns, p99 < %d ns",
+                documentCount(), rejectedCount(), totalInputLength(), totalOutputLength(),
+                valuesIncluded(), tokensSeen(),
+                latencyPercentileNanos(50.0), latencyPercentileNanos(99.0));
+    }
+
+    private static int _bucketFor(long nanos) {
+        if (nanos <= 1L) {
+            return 0;
+        }
+        return Math.min(LATENCY_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos));
+    }
+}
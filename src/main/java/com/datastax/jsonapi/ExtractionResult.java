@@ -0,0 +1,49 @@
+package com.datastax.jsonapi;
+
+/**
+ * Result of extraction that also indicates whether extracted content was truncated
+ * due to {@link OutputLimit} of the extractor: returned by
+ * {@link JsonFieldExtractor#extractAsStringResult(String)} and related methods.
+ * Results of {@link JsonFieldExtractor#extractAsStringWithHash(String)} (and
+ * related methods) also contain {@link ContentHash} of extracted content.
+ *
+ * @param <T> Type of extracted content ({@code String} or {@code byte[]})
+ */
+public final class ExtractionResult<T> {
+    private final T value;
+
+    private final boolean truncated;
+
+    private final ContentHash hash;
+
+    ExtractionResult(T value, boolean truncated) {
+        this(value, truncated, null);
+    }
+
+    ExtractionResult(T value, boolean truncated, ContentHash hash) {
+        this.value = value;
+        this.truncated = truncated;
+        this.hash = hash;
+    }
+
+    /**
+     * @return Extracted content (possibly truncated)
+     */
+    public T value() { return value; }
+
+    /**
+     * @return Whether some of included content was left out, due to
+     *    {@link OutputLimit} being reached
+     */
+    public boolean isTruncated() { return truncated; }
+
+    /**
+     * @return Hash of extracted content, if calculated; {@code null} if not
+     */
+    public ContentHash hash() { return hash; }
+
+    @Override
+    public String toString() {
+        return "[ExtractionResult: truncated="+truncated+", hash="+hash+", value="+value+"]";
+    }
+}
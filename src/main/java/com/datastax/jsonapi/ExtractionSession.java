@@ -0,0 +1,468 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.JsonTokenId;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+
+/**
+ * Incremental (non-blocking) extraction of contents of a single UTF-8 encoded JSON
+ * document that becomes available in chunks (like HTTP request body): chunks are fed
+ * as they arrive, and are processed right away using Jackson's non-blocking parser,
+ * so that the whole document never needs to be buffered. Extracted text is
+ * accumulated progressively, and result is available once end of input is indicated
+ * with {@link #finish()}.
+ *<p>
+ * Results are identical to those of {@link JsonFieldExtractor#extractAsString(byte[])}
+ * for the full document, and {@link ExtractorFeature}s apply the same way: with
+ * {@link ExtractorFeature#EARLY_TERMINATION}, input after the point where all
+ * included paths have been seen is not parsed at all.
+ *<p>
+ * Sessions can also be used as {@link Flow.Subscriber}s of {@link ByteBuffer}s,
+ * in which case result is available via {@link #result()}. As subscriber,
+ * session requests one chunk at a time.
+ *<p>
+ * Sessions are created using {@link JsonFieldExtractor#startSession()}; they are not
+ * thread-safe (except for {@link Flow.Subscriber} methods being called serially,
+ * as required by the {@link Flow} protocol) and can only be used once.
+ */
+public final class ExtractionSession
+    implements Flow.Subscriber<ByteBuffer>, AutoCloseable
+{
+    private final static int INITIAL_STACK_SIZE = 16;
+
+    private final static int INITIAL_OUTPUT_SIZE = 100;
+
+    // Markers for "_remaining" of levels with no tracked branches
+    private final static int NOT_TRACKED = -1;
+    private final static int ARRAY = Integer.MIN_VALUE;
+
+    private final JsonFactory _jsonFactory;
+
+    private final TokenFilter _rootFilter;
+
+    private final boolean _earlyTermination;
+
+    private final boolean _strictDuplicates;
+
+    private final CharOutputBuffer _output;
+
+    private final CompletableFuture<Optional<String>> _result = new CompletableFuture<>();
+
+    // Lazily created when first non-empty chunk is fed
+    private JsonParser _parser;
+
+    private ByteBufferFeeder _feeder;
+
+    private Flow.Subscription _subscription;
+
+    /**
+     * Whether input has been found not to be JSON
+     */
+    private boolean _notJson;
+
+    /**
+     * Whether all included content has been seen (with early termination): if so,
+     * rest of input is ignored
+     */
+    private boolean _done;
+
+    private boolean _finished;
+
+    /*
+    /**********************************************************
+    /* Traversal state (instead of call stack of a blocking walker)
+    /**********************************************************
+     */
+
+    private int _rootIndex;
+
+    /**
+     * Number of open filtered containers (ones with a filter other than
+     * {@code INCLUDE_ALL}); their state is kept in the arrays below.
+     */
+    private int _depth;
+
+    private TokenFilter[] _filters = new TokenFilter[INITIAL_STACK_SIZE];
+
+    // For Arrays: index of the next element
+    private int[] _indexes = new int[INITIAL_STACK_SIZE];
+
+    // For Objects with tracked branches: bit set of branches seen, number not seen
+    // (NOT_TRACKED for other Objects, ARRAY for Arrays)
+    private long[] _seen = new long[INITIAL_STACK_SIZE];
+    private int[] _remaining = new int[INITIAL_STACK_SIZE];
+
+    // For Objects: filter for the value of the current property
+    private TokenFilter _propertyFilter;
+
+    // Nesting depth within a skipped subtree (0 if not skipping)
+    private int _skipDepth;
+
+    // Nesting depth within a fully included subtree (0 if not within one)
+    private int _collectDepth;
+
+    ExtractionSession(JsonFactory jsonFactory, TokenFilter rootFilter, int features) {
+        _jsonFactory = jsonFactory;
+        _rootFilter = rootFilter;
+        _earlyTermination = ExtractorFeature.EARLY_TERMINATION.enabledIn(features);
+        _strictDuplicates = ExtractorFeature.STRICT_DUPLICATE_PATH_PROPERTIES.enabledIn(features);
+        _output = new CharOutputBuffer(INITIAL_OUTPUT_SIZE);
+    }
+
+    /*
+    /**********************************************************
+    /* Public API
+    /**********************************************************
+     */
+
+    /**
+     * Method for feeding next chunk of input. Chunk is fully processed before method
+     * returns, so caller may reuse the array afterwards.
+     */
+    public void feed(byte[] chunk, int offset, int len) throws IOException {
+        feed(ByteBuffer.wrap(chunk, offset, len));
+    }
+
+    /**
+     * Method for feeding next chunk of input (between position and limit of the buffer).
+     * Chunk is fully processed before method returns, so caller may reuse the buffer
+     * afterwards; position of the buffer is not modified.
+     */
+    public void feed(ByteBuffer chunk) throws IOException {
+        if (_finished) {
+            throw new IllegalStateException("Session already finished");
+        }
+        if (_done || _notJson || !chunk.hasRemaining()) {
+            return;
+        }
+        if (_parser == null) {
+            // Same check as for full documents: must start with Object or Array
+            final byte b = chunk.get(chunk.position());
+            if ((b != '{') && (b != '[')) {
+                _notJson = true;
+                return;
+            }
+            _parser = _jsonFactory.createNonBlockingByteBufferParser();
+            _feeder = (ByteBufferFeeder) _parser.getNonBlockingInputFeeder();
+        }
+        _feeder.feedInput(chunk.duplicate());
+        _processAvailable();
+    }
+
+    /**
+     * @return Length (in {@code char}s) of contents extracted so far
+     */
+    public int extractedLength() {
+        return _output.length();
+    }
+
+    /**
+     * Method for indicating end of input, and getting extracted contents.
+     *
+     * @return Extracted contents; or {@link Optional#empty()} if content is not JSON
+     *    (or was empty)
+     *
+     * @throws IOException If content is not valid JSON (including truncated content)
+     */
+    public Optional<String> finish() throws IOException {
+        if (_finished) {
+            throw new IllegalStateException("Session already finished");
+        }
+        _finished = true;
+        final Optional<String> result;
+        try {
+            if ((_parser == null) || _notJson) {
+                result = Optional.empty();
+            } else {
+                if (!_done) {
+                    _feeder.endOfInput();
+                    _processAvailable();
+                }
+                result = Optional.of(_output.toString());
+            }
+        } catch (IOException | RuntimeException e) {
+            _result.completeExceptionally(e);
+            throw e;
+        } finally {
+            close();
+        }
+        _result.complete(result);
+        return result;
+    }
+
+    /**
+     * @return Future that is completed with the result when session is finished
+     *    (either by {@link #finish()} or {@link #onComplete()}), or exceptionally
+     *    if processing fails (or {@link #onError} is called)
+     */
+    public CompletableFuture<Optional<String>> result() {
+        return _result;
+    }
+
+    /**
+     * Method for releasing resources without finishing: needed only if neither
+     * {@link #finish()} nor {@link #onComplete()} is called.
+     */
+    @Override
+    public void close() throws IOException {
+        if (_parser != null) {
+            _parser.close();
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Flow.Subscriber implementation
+    /**********************************************************
+     */
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (_subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        _subscription = subscription;
+        subscription.request(1L);
+    }
+
+    @Override
+    public void onNext(ByteBuffer chunk) {
+        if (_result.isDone()) {
+            return;
+        }
+        try {
+            feed(chunk);
+        } catch (IOException | RuntimeException e) {
+            _fail(e);
+            _subscription.cancel();
+            return;
+        }
+        _subscription.request(1L);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        _fail(t);
+    }
+
+    @Override
+    public void onComplete() {
+        if (_result.isDone()) {
+            return;
+        }
+        try {
+            finish();
+        } catch (IOException | RuntimeException e) {
+            // already reported via future
+        }
+    }
+
+    private void _fail(Throwable t) {
+        _finished = true;
+        _result.completeExceptionally(t);
+        try {
+            close();
+        } catch (IOException e) { // should never happen; and nothing to report to
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Token processing
+    /**********************************************************
+     */
+
+    private void _processAvailable() throws IOException {
+        final JsonParser p = _parser;
+        JsonToken t;
+        while (!_done && ((t = p.nextToken()) != null) && (t != JsonToken.NOT_AVAILABLE)) {
+            _handleToken(t);
+        }
+    }
+
+    private void _handleToken(JsonToken t) throws IOException {
+        final int id = t.id();
+        if (_skipDepth > 0) {
+            if (t.isStructStart()) {
+                ++_skipDepth;
+            } else if (t.isStructEnd() && (--_skipDepth == 0)) {
+                _valueCompleted();
+            }
+            return;
+        }
+        if (_collectDepth > 0) {
+            if (t.isStructStart()) {
+                ++_collectDepth;
+            } else if (t.isStructEnd()) {
+                if (--_collectDepth == 0) {
+                    _valueCompleted();
+                }
+            } else {
+                _collectScalar(id);
+            }
+            return;
+        }
+        switch (id) {
+        case JsonTokenId.ID_FIELD_NAME:
+            _propertyFilter = _propertyFilter(_parser.currentName());
+            return;
+        case JsonTokenId.ID_END_OBJECT:
+        case JsonTokenId.ID_END_ARRAY:
+            _filters[--_depth] = null;
+            _valueCompleted();
+            return;
+        default:
+        }
+        // Otherwise start of a value: find filter to use for it
+        final TokenFilter filter;
+        if (_depth == 0) {
+            filter = _rootFilter.includeRootValue(_rootIndex++);
+        } else if (_remaining[_depth-1] == ARRAY) {
+            filter = _filters[_depth-1].includeElement(_indexes[_depth-1]++);
+        } else {
+            filter = _propertyFilter;
+        }
+        _startValue(t, filter);
+    }
+
+    private void _startValue(JsonToken t, TokenFilter filter) throws IOException {
+        if (filter == null) {
+            _skipOrComplete(t);
+        } else if (filter == TokenFilter.INCLUDE_ALL) {
+            _collectOrComplete(t);
+        } else if (t == JsonToken.START_OBJECT) {
+            filter = filter.filterStartObject();
+            if (filter == null) {
+                _skipDepth = 1;
+            } else if (filter == TokenFilter.INCLUDE_ALL) {
+                _collectDepth = 1;
+            } else {
+                _push(filter, true);
+            }
+        } else if (t == JsonToken.START_ARRAY) {
+            filter = filter.filterStartArray();
+            if (filter == null) {
+                _skipDepth = 1;
+            } else if (filter == TokenFilter.INCLUDE_ALL) {
+                _collectDepth = 1;
+            } else {
+                _push(filter, false);
+            }
+        } else {
+            // Scalars only included via INCLUDE_ALL (PathBasedFilter excludes
+            // them at intermediate levels)
+            _valueCompleted();
+        }
+    }
+
+    private void _skipOrComplete(JsonToken t) throws IOException {
+        if (t.isStructStart()) {
+            _skipDepth = 1;
+        } else {
+            _valueCompleted();
+        }
+    }
+
+    private void _collectOrComplete(JsonToken t) throws IOException {
+        if (t.isStructStart()) {
+            _collectDepth = 1;
+        } else {
+            _collectScalar(t.id());
+            _valueCompleted();
+        }
+    }
+
+    private TokenFilter _propertyFilter(String name) throws IOException {
+        final int level = _depth - 1;
+        final TokenFilter filter = _filters[level];
+        if (_remaining[level] == NOT_TRACKED) {
+            return filter.includeProperty(name);
+        }
+        final PathBasedFilter pathFilter = (PathBasedFilter) filter;
+        final int ix = pathFilter.branchIndex(name);
+        if (ix < 0) {
+            return null;
+        }
+        final long bit = 1L << ix;
+        if ((_seen[level] & bit) == 0L) {
+            _seen[level] |= bit;
+            --_remaining[level];
+        } else if (_strictDuplicates) {
+            throw new JsonParseException(_parser, "Duplicate field '"+name+"'");
+        }
+        return pathFilter.branchFilter(ix);
+    }
+
+    /**
+     * Method called when a value (scalar, or the end of a container) has been fully
+     * processed: checks whether rest of input (or enclosing Object) can be ignored.
+     */
+    private void _valueCompleted() {
+        if (!_earlyTermination) {
+            return;
+        }
+        if (_depth == 0) { // root value: only first one matters
+            _done = true;
+            return;
+        }
+        final int level = _depth - 1;
+        if (_remaining[level] == 0) {
+            // Nothing more to find at root level: can stop right away
+            if (level == 0) {
+                _done = true;
+            } else if (!_strictDuplicates) {
+                // Nested Object: skip the rest, unless need to check for duplicates
+                _filters[--_depth] = null;
+                _skipDepth = 1;
+            }
+        }
+    }
+
+    private void _push(TokenFilter filter, boolean isObject) {
+        if (_depth == _filters.length) {
+            final int newSize = _depth * 2;
+            _filters = Arrays.copyOf(_filters, newSize);
+            _indexes = Arrays.copyOf(_indexes, newSize);
+            _seen = Arrays.copyOf(_seen, newSize);
+            _remaining = Arrays.copyOf(_remaining, newSize);
+        }
+        _filters[_depth] = filter;
+        _indexes[_depth] = 0;
+        _seen[_depth] = 0L;
+        if (!isObject) {
+            _remaining[_depth] = ARRAY;
+        } else if ((_earlyTermination || _strictDuplicates) && (filter instanceof PathBasedFilter)
+                && (((PathBasedFilter) filter).branchCount() <= 64)) {
+            _remaining[_depth] = ((PathBasedFilter) filter).branchCount();
+        } else {
+            _remaining[_depth] = NOT_TRACKED;
+        }
+        ++_depth;
+    }
+
+    private void _collectScalar(int tokenId) throws IOException {
+        switch (tokenId) {
+        case JsonTokenId.ID_STRING:
+        case JsonTokenId.ID_NUMBER_FLOAT:
+        case JsonTokenId.ID_NUMBER_INT:
+        case JsonTokenId.ID_FALSE:
+        case JsonTokenId.ID_TRUE:
+            final JsonParser p = _parser;
+            _output.appendValue(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            break;
+        default: // null
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.datastax.jsonapi;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded concurrent cache for {@link JsonFieldExtractor}s, used by
+ * {@link JsonFieldExtractorFactory} when caching is enabled.
+ *<p>
+ * Lookups are done in two steps:
+ *<ol>
+ * <li>First by path definition as passed by caller ({@code String} or {@code List}):
+ *   this is the hot path and does not allocate anything
+ *  </li>
+ * <li>If not found, by canonical inclusion tree built from definition: this way
+ *   equivalent definitions (like {@code "a.b, c"} and {@code "c,a.b"}) share
+ *   the same extractor (and its filter graph)
+ *  </li>
+ *</ol>
+ * Both levels are bounded to the same maximum number of entries; eviction uses
+ * CLOCK ("second chance") approximation of LRU so that cache hits only need
+ * to (conditionally) set a flag, with no locking.
+ *<p>
+ * Definitions are bound to entries of inclusion trees (not directly to extractors),
+ * so that there is only ever one live extractor for equivalent definitions: a hit
+ * by definition also counts as use of the inclusion tree entry, and once that
+ * entry is evicted, definitions bound to it no longer match (and are re-bound on
+ * next lookup).
+ */
+final class ExtractorCache {
+    private final BoundedMap<Object, DefinitionEntry> byDefinition;
+
+    private final BoundedMap<PathBasedFilterFactory.InclusionTreeNode, ExtractorEntry> byInclusionTree;
+
+    private final int maxEntries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder equivalentHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    ExtractorCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Maximum cache size must be at least 1, was "+maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        byDefinition = new BoundedMap<>(maxEntries);
+        byInclusionTree = new BoundedMap<>(maxEntries);
+    }
+
+    /*
+    /**********************************************************
+    /* Lookup, addition
+    /**********************************************************
+     */
+
+    /**
+     * Method for finding extractor by path definition as given by caller, if one
+     * exists.
+     *
+     * @return Extractor cached for given definition, if any; {@code null} if none
+     */
+    public JsonFieldExtractor findByDefinition(Object definition) {
+        final DefinitionEntry link = byDefinition.get(definition);
+        if (link == null) {
+            return null;
+        }
+        final ExtractorEntry target = link.target;
+        if (target.evicted) {
+            return null;
+        }
+        target.markReferenced();
+        hits.increment();
+        return target.extractor;
+    }
+
+    /**
+     * Method called after {@link #findByDefinition} fails to find extractor:
+     * will see if extractor with equivalent definition exists and if so,
+     * binds definition to that extractor.
+     *
+     * @return Extractor cached for equivalent definition, if any; {@code null} if none
+     */
+    public JsonFieldExtractor findByInclusionTree(Object definition,
+            PathBasedFilterFactory.InclusionTreeNode inclusionTree) {
+        final ExtractorEntry entry = byInclusionTree.get(inclusionTree);
+        if (entry == null) {
+            return null;
+        }
+        equivalentHits.increment();
+        return _bind(definition, entry);
+    }
+
+    /**
+     * Method called to add newly constructed extractor, after neither
+     * {@link #findByDefinition} nor {@link #findByInclusionTree} found one.
+     *
+     * @return Extractor to use: either {@code newExtractor} or, in case of
+     *    a race with another thread, one that was added by that thread.
+     */
+    public JsonFieldExtractor add(Object definition,
+            PathBasedFilterFactory.InclusionTreeNode inclusionTree,
+            JsonFieldExtractor newExtractor) {
+        final ExtractorEntry entry = byInclusionTree.putIfAbsent(inclusionTree,
+                new ExtractorEntry(newExtractor));
+        if (entry.extractor == newExtractor) {
+            misses.increment();
+        } else { // lost a race, but found equivalent
+            equivalentHits.increment();
+        }
+        return _bind(definition, entry);
+    }
+
+    /**
+     * Helper method for binding definition to given inclusion tree entry, replacing
+     * binding to an evicted entry if one exists.
+     *
+     * @return Extractor definition is bound to: that of given entry, unless another
+     *    thread bound definition first
+     */
+    private JsonFieldExtractor _bind(Object definition, ExtractorEntry target) {
+        final DefinitionEntry link = new DefinitionEntry(target);
+        DefinitionEntry old = byDefinition.putIfAbsent(definition, link);
+        while (old != link) {
+            if (!old.target.evicted) {
+                return old.target.extractor;
+            }
+            if (byDefinition.replace(definition, old, link)) {
+                break;
+            }
+            old = byDefinition.putIfAbsent(definition, link);
+        }
+        return target.extractor;
+    }
+    /*
+    /**********************************************************
+    /* Statistics
+    /**********************************************************
+     */
+
+    /**
+     * @return Number of lookups for which extractor was found by exact definition
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Number of lookups for which no extractor was found by exact definition,
+     *    but one was found by equivalent definition (canonical inclusion tree)
+     */
+    public long equivalentHitCount() {
+        return equivalentHits.sum();
+    }
+
+    /**
+     * @return Number of lookups for which no cached extractor was found and
+     *    a new one had to be constructed
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public int maxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return Number of distinct extractors currently cached
+     */
+    public int size() {
+        return byInclusionTree.size();
+    }
+
+    /*
+    /**********************************************************
+    /* Helper classes
+    /**********************************************************
+     */
+
+    /**
+     * Concurrent map bounded in size, using CLOCK replacement policy.
+     * Evicted entries are marked as such.
+     */
+    final static class BoundedMap<K, E extends Entry> {
+        private final ConcurrentHashMap<K, E> map = new ConcurrentHashMap<>();
+
+        private final int maxEntries;
+
+        // "Clock hand" for eviction; guarded by 'this'
+        private Iterator<Map.Entry<K, E>> hand;
+
+        BoundedMap(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public E get(K key) {
+            final E entry = map.get(key);
+            if (entry != null) {
+                entry.markReferenced();
+            }
+            return entry;
+        }
+
+        /**
+         * @return Entry mapped to the key: either given entry, if none existed, or
+         *    existing one
+         */
+        public E putIfAbsent(K key, E entry) {
+            final E old = map.putIfAbsent(key, entry);
+            if (old != null) {
+                old.markReferenced();
+                return old;
+            }
+            if (map.size() > maxEntries) {
+                _evict(entry);
+            }
+            return entry;
+        }
+
+        public boolean replace(K key, E oldEntry, E newEntry) {
+            return map.replace(key, oldEntry, newEntry);
+        }
+
+        public int size() {
+            return map.size();
+        }
+
+        /**
+         * @param added Entry just added, which is not evicted (even if another thread
+         *    cleared its reference flag)
+         */
+        private synchronized void _evict(E added) {
+            while (map.size() > maxEntries) {
+                if ((hand == null) || !hand.hasNext()) {
+                    hand = map.entrySet().iterator();
+                    if (!hand.hasNext()) { // should not occur but just in case
+                        return;
+                    }
+                }
+                final Map.Entry<K, E> curr = hand.next();
+                final E entry = curr.getValue();
+                if (entry.referenced || (entry == added)) { // give second chance
+                    entry.referenced = false;
+                } else if (map.remove(curr.getKey(), entry)) {
+                    entry.evicted = true;
+                }
+            }
+        }
+    }
+
+    static class Entry {
+        // Set on access, cleared by eviction "clock hand"; new entries start as referenced
+        volatile boolean referenced = true;
+
+        volatile boolean evicted;
+
+        void markReferenced() {
+            // Avoid writes (and cache line invalidation) for already referenced entries
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+    }
+
+    /**
+     * Entry for an extractor, keyed by its inclusion tree
+     */
+    final static class ExtractorEntry extends Entry {
+        final JsonFieldExtractor extractor;
+
+        ExtractorEntry(JsonFieldExtractor extractor) {
+            this.extractor = extractor;
+        }
+    }
+
+    /**
+     * Entry for a path definition, bound to entry of its inclusion tree
+     */
+    final static class DefinitionEntry extends Entry {
+        final ExtractorEntry target;
+
+        DefinitionEntry(ExtractorEntry target) {
+            this.target = target;
+        }
+    }
+}
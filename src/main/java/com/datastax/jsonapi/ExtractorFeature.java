@@ -0,0 +1,110 @@
+package com.datastax.jsonapi;
+
+/**
+ * Enumeration of on/off features that can be enabled for {@link JsonFieldExtractor}s
+ * built by {@link JsonFieldExtractorFactory}: see
+ * {@link JsonFieldExtractorFactory#with(ExtractorFeature)} and
+ * {@link JsonFieldExtractorFactory#without(ExtractorFeature)}.
+ */
+public enum ExtractorFeature {
+    /**
+     * Feature that enables use of alternate extraction engine for UTF-8 encoded
+     * input ({@code byte[]} and heap {@link java.nio.ByteBuffer}s): one that scans
+     * raw bytes directly instead of using Jackson {@code JsonParser}, and that skips
+     * excluded Objects and Arrays at byte level (tracking only nesting and String/escape
+     * state), without tokenization or decoding of contents.
+     * This is usually much faster for sparse extraction, where most of the document
+     * is excluded.
+     *<p>
+     * Note that excluded content is only validated to the degree needed to find its end
+     * (for example, excluded numbers like {@code 01} are not rejected): so some malformed
+     * documents that would fail with the default engine may be processed without error.
+     * Included values are validated the same way as by the default engine. Other inputs (like {@code String}s) are always handled
+     * by the default engine.
+     *<p>
+     * Feature is disabled by default.
+     */
+    RAW_UTF8_SCANNING(false),
+
+    /**
+     * Feature that enables early termination of extraction: keeping track of which
+     * inclusion path branches have been seen at each Object level, and stopping
+     * parsing as soon as all branches of the root-level Object have been seen
+     * (similarly, the rest of nested Objects is skipped once all their branches
+     * have been seen). This can significantly reduce latency for documents where
+     * included properties come before large excluded content.
+     *<p>
+     * Note that this assumes there are no duplicate property names: by default
+     * (lenient handling) the first occurrence is considered to complete its branch,
+     * and any duplicates that occur after termination are ignored. See
+     * {@link #STRICT_DUPLICATE_PATH_PROPERTIES} for strict handling.
+     * Content after the first root-level value is also ignored.
+     *<p>
+     * Feature is disabled by default.
+     */
+    EARLY_TERMINATION(false),
+
+    /**
+     * Feature that enables strict handling of duplicate property names for
+     * properties that match inclusion paths: if enabled, a duplicate causes extraction
+     * to fail with {@link com.fasterxml.jackson.core.JsonParseException}; if disabled,
+     * values of all occurrences are extracted (or, with {@link #EARLY_TERMINATION},
+     * those seen before termination).
+     * Note that when combined with {@link #EARLY_TERMINATION}, duplicates are only
+     * detected within content parsed before termination; nested Objects are not skipped
+     * but checked fully.
+     *<p>
+     * Feature is disabled by default.
+     */
+    STRICT_DUPLICATE_PATH_PROPERTIES(false),
+
+    /**
+     * Experimental feature that enables use of a structural index for skipping
+     * excluded Objects and Arrays with the raw UTF-8 scanning engine (see
+     * {@link #RAW_UTF8_SCANNING}; enabling this feature also enables use of that
+     * engine). Instead of checking excluded content byte by byte, input is classified
+     * 64 bytes at a time into bit masks of double-quotes, backslashes and Object/Array
+     * markers, String contents are masked out with bit operations, and remaining
+     * markers are counted (similar to "stage 1" of simdjson).
+     * Classification uses Vector API ({@code jdk.incubator.vector}) if the module
+     * is available (JVM started with {@code --add-modules jdk.incubator.vector}),
+     * and falls back to scalar classification (with same results) otherwise:
+     * see {@link JsonFieldExtractorFactory#isVectorApiAvailable()}.
+     * Mostly useful for large documents with big excluded subtrees.
+     *<p>
+     * Feature is disabled by default.
+     */
+    VECTORIZED_SCANNING(false),
+    ;
+
+    private final boolean _defaultState;
+
+    private final int _mask;
+
+    ExtractorFeature(boolean defaultState) {
+        _defaultState = defaultState;
+        _mask = (1 << ordinal());
+    }
+
+    /**
+     * Method that calculates bit set (flags) of all features that
+     * are enabled by default.
+     *
+     * @return Bit field of features enabled by default
+     */
+    public static int collectDefaults() {
+        int flags = 0;
+        for (ExtractorFeature f : values()) {
+            if (f.enabledByDefault()) {
+                flags |= f.getMask();
+            }
+        }
+        return flags;
+    }
+
+    public boolean enabledByDefault() { return _defaultState; }
+
+    public boolean enabledIn(int flags) { return (flags & _mask) != 0; }
+
+    public int getMask() { return _mask; }
+}
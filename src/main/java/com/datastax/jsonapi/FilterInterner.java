@@ -0,0 +1,131 @@
+package com.datastax.jsonapi;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.core.filter.TokenFilter;
+
+/**
+ * Concurrent "hash-consing" table for {@link PathBasedFilter}s, used by
+ * {@link JsonFieldExtractorFactory} when filter sharing is enabled (see
+ * {@link JsonFieldExtractorFactory#withFilterSharing(int)}): filters for identical
+ * inclusion subtrees are only built once, and shared by all extractors of the factory.
+ *<p>
+ * Filter graphs are built bottom-up, so by the time a filter is interned, filters for
+ * its branches have already been interned: filter is then identified by its (sorted)
+ * branch names and identities of its branch filters, without needing to compare
+ * subgraphs further down.
+ *<p>
+ * Table is bounded by number of filters (graph nodes) retained: once full, filters for
+ * new subtrees are still built, but not retained (and so not shared).
+ * Since filters are immutable and stateless, sharing them is safe.
+ */
+final class FilterInterner {
+    private final ConcurrentHashMap<Key, PathBasedFilter> filters = new ConcurrentHashMap<>();
+
+    private final int maxNodes;
+
+    private final LongAdder shared = new LongAdder();
+
+    FilterInterner(int maxNodes) {
+        if (maxNodes < 1) {
+            throw new IllegalArgumentException("Maximum number of filter nodes must be at least 1, was "
+                    +maxNodes);
+        }
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Method for finding filter with given branches, if one has been built already;
+     * or if not, building (and retaining, if there is room) one.
+     *
+     * @param names Property names of branches, sorted
+     * @param branchFilters (Interned) filters for branches, in the same order as names
+     */
+    public PathBasedFilter intern(String[] names, TokenFilter[] branchFilters) {
+        final Key key = new Key(names, branchFilters);
+        PathBasedFilter filter = filters.get(key);
+        if (filter != null) {
+            shared.increment();
+            return filter;
+        }
+        filter = PathBasedFilterFactory.createPathFilter(names, branchFilters);
+        // Bound is approximate under concurrent additions, which is fine
+        if (filters.size() < maxNodes) {
+            final PathBasedFilter old = filters.putIfAbsent(key, filter);
+            if (old != null) { // lost a race: use one that was added
+                shared.increment();
+                return old;
+            }
+        }
+        return filter;
+    }
+
+    public int maxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * @return Number of distinct filters (graph nodes) retained
+     */
+    public int size() {
+        return filters.size();
+    }
+
+    /**
+     * @return Number of times an already built filter was returned (instead of
+     *    building a new one)
+     */
+    public long sharedCount() {
+        return shared.sum();
+    }
+
+    /*
+    /**********************************************************
+    /* Helper classes
+    /**********************************************************
+     */
+
+    /**
+     * Key for filters: branch names by value, branch filters by identity.
+     */
+    private final static class Key {
+        private final String[] names;
+
+        private final TokenFilter[] branchFilters;
+
+        private final int hashCode;
+
+        Key(String[] names, TokenFilter[] branchFilters) {
+            this.names = names;
+            this.branchFilters = branchFilters;
+            int h = Arrays.hashCode(names);
+            for (TokenFilter f : branchFilters) {
+                h = 31 * h + System.identityHashCode(f);
+            }
+            hashCode = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            if ((hashCode != other.hashCode) || !Arrays.equals(names, other.names)) {
+                return false;
+            }
+            for (int i = 0; i < branchFilters.length; ++i) {
+                if (branchFilters[i] != other.branchFilters[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
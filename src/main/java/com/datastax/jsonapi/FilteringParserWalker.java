@@ -0,0 +1,235 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.JsonTokenId;
+import com.fasterxml.jackson.core.base.ParserBase;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+
+/**
+ * Extraction engine used (instead of {@code FilteringParserDelegate}) when
+ * {@link ExtractorFeature#EARLY_TERMINATION} and/or
+ * {@link ExtractorFeature#STRICT_DUPLICATE_PATH_PROPERTIES} is enabled.
+ * Walks the {@link TokenFilter} graph over a regular {@link JsonParser} the same way
+ * {@code FilteringParserDelegate} would, but keeps track of which branches of
+ * {@link PathBasedFilter}s have been seen at each Object level, which allows
+ * stopping the parsing as soon as every branch of the root-level Object has been
+ * seen (and skipping the rest of nested Objects similarly).
+ *<p>
+ * Tracking is only done for Objects with at most 64 matching branches
+ * (one bit per branch); others are processed without early termination.
+ *<p>
+ * Instances are not thread-safe, and are only used for a single extraction.
+ */
+final class FilteringParserWalker {
+    private final JsonParser _parser;
+
+    private final TextOutput _output;
+
+    private final boolean _earlyTermination;
+
+    private final boolean _strictDuplicates;
+
+    // Raw UTF-8 input parser reads, if available, for copying String values as-is
+    private final ParserBase _rawParser;
+    private final byte[] _rawInput;
+    private final int _rawOffset;
+    private final int _rawEnd;
+
+    private FilteringParserWalker(JsonParser p, JsonParser srcParser, TextOutput output,
+            int features, byte[] rawInput, int rawOffset, int rawEnd) {
+        _parser = p;
+        _output = output;
+        _earlyTermination = ExtractorFeature.EARLY_TERMINATION.enabledIn(features);
+        _strictDuplicates = ExtractorFeature.STRICT_DUPLICATE_PATH_PROPERTIES.enabledIn(features);
+        _rawParser = ScalarValues.rawParser(srcParser, rawInput);
+        _rawInput = rawInput;
+        _rawOffset = rawOffset;
+        _rawEnd = rawEnd;
+    }
+
+    /**
+     * Main entry point: reads content using given parser, appending included
+     * values into given output.
+     *
+     * @param srcParser Parser that actually decodes content: same as {@code p}, unless
+     *    latter is a wrapper (for instrumentation)
+     * @param rawInput Raw UTF-8 encoded input that parser reads, if available
+     *    (and output is UTF-8 based); {@code null} if not
+     * @param rawOffset Offset of the first byte of content parser reads within {@code rawInput}
+     * @param rawEnd Offset after the last byte of content parser reads within {@code rawInput}
+     */
+    public static void extract(TokenFilter rootFilter, JsonParser p, JsonParser srcParser,
+            TextOutput output, int features, byte[] rawInput, int rawOffset, int rawEnd)
+        throws IOException
+    {
+        new FilteringParserWalker(p, srcParser, output, features, rawInput, rawOffset, rawEnd)
+                ._walkRoot(rootFilter);
+    }
+
+    /*
+    /**********************************************************
+    /* Filter-based traversal
+    /**********************************************************
+     */
+
+    private void _walkRoot(TokenFilter filter) throws IOException {
+        // Similar to JsonParser, allow a sequence of root-level values; except
+        // that with early termination we stop after the first one
+        int index = 0;
+        JsonToken t;
+        while ((t = _parser.nextToken()) != null) {
+            _handleValue(t, filter.includeRootValue(index++), true);
+            if (_earlyTermination) {
+                break;
+            }
+        }
+    }
+
+    private void _handleValue(JsonToken t, TokenFilter filter, boolean rootLevel)
+        throws IOException
+    {
+        if (filter == null) {
+            _parser.skipChildren();
+        } else if (filter == TokenFilter.INCLUDE_ALL) {
+            _collectValue(t);
+        } else if (t == JsonToken.START_OBJECT) {
+            filter = filter.filterStartObject();
+            if (filter == null) {
+                _parser.skipChildren();
+            } else if (filter == TokenFilter.INCLUDE_ALL) {
+                _collectValue(t);
+            } else {
+                _walkObject(filter, rootLevel);
+            }
+        } else if (t == JsonToken.START_ARRAY) {
+            filter = filter.filterStartArray();
+            if (filter == null) {
+                _parser.skipChildren();
+            } else if (filter == TokenFilter.INCLUDE_ALL) {
+                _collectValue(t);
+            } else {
+                _walkArray(filter);
+            }
+        }
+        // Scalars only included via INCLUDE_ALL (PathBasedFilter excludes
+        // them at intermediate levels)
+    }
+
+    private void _walkObject(TokenFilter filter, boolean rootLevel) throws IOException {
+        final JsonParser p = _parser;
+        final PathBasedFilter pathFilter = _trackableFilter(filter);
+        int remaining = (pathFilter == null) ? -1 : pathFilter.branchCount();
+        long seen = 0L;
+        String name;
+
+        while ((name = p.nextFieldName()) != null) {
+            TokenFilter next;
+            if (pathFilter == null) {
+                next = filter.includeProperty(name);
+            } else {
+                final int ix = pathFilter.branchIndex(name);
+                if (ix < 0) {
+                    next = null;
+                } else {
+                    final long bit = 1L << ix;
+                    if ((seen & bit) == 0L) {
+                        seen |= bit;
+                        --remaining;
+                    } else if (_strictDuplicates) {
+                        _reportDuplicate(name);
+                    }
+                    next = pathFilter.branchFilter(ix);
+                }
+            }
+            _handleValue(p.nextToken(), next, false);
+            if ((remaining == 0) && _earlyTermination) {
+                // Nothing more to find at root level: can stop right away
+                if (rootLevel) {
+                    return;
+                }
+                // Nested Object: skip the rest, unless need to check for duplicates
+                if (!_strictDuplicates) {
+                    _skipObjectEntries();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void _walkArray(TokenFilter filter) throws IOException {
+        int index = 0;
+        JsonToken t;
+        while ((t = _parser.nextToken()) != JsonToken.END_ARRAY) {
+            _handleValue(t, filter.includeElement(index++), false);
+        }
+    }
+
+    private PathBasedFilter _trackableFilter(TokenFilter filter) {
+        if (filter instanceof PathBasedFilter) {
+            PathBasedFilter pathFilter = (PathBasedFilter) filter;
+            if (pathFilter.branchCount() <= 64) {
+                return pathFilter;
+            }
+        }
+        return null;
+    }
+
+    // Skips remaining entries of the current Object, including END_OBJECT
+    private void _skipObjectEntries() throws IOException {
+        final JsonParser p = _parser;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            p.nextToken();
+            p.skipChildren();
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Inclusion of full subtrees
+    /**********************************************************
+     */
+
+    private void _collectValue(JsonToken t) throws IOException {
+        if (!t.isStructStart()) {
+            _collectScalar(t.id());
+            return;
+        }
+        final JsonParser p = _parser;
+        int depth = 1;
+        while (true) {
+            final int id = p.nextToken().id();
+            switch (id) {
+            case JsonTokenId.ID_START_OBJECT:
+            case JsonTokenId.ID_START_ARRAY:
+                ++depth;
+                break;
+            case JsonTokenId.ID_END_OBJECT:
+            case JsonTokenId.ID_END_ARRAY:
+                if (--depth == 0) {
+                    return;
+                }
+                break;
+            default:
+                _collectScalar(id);
+            }
+        }
+    }
+
+    private void _collectScalar(int tokenId) throws IOException {
+        ScalarValues.append(_parser, tokenId, _output, _rawParser, _rawInput, _rawOffset, _rawEnd);
+    }
+
+    /*
+    /**********************************************************
+    /* Error reporting
+    /**********************************************************
+     */
+
+    private void _reportDuplicate(String name) throws IOException {
+        throw new JsonParseException(_parser, "Duplicate field '"+name+"'");
+    }
+}
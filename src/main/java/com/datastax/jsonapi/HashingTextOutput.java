@@ -0,0 +1,112 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+
+/**
+ * {@link TextOutput} that calculates {@link ContentHash} of content appended (as if
+ * it was UTF-8 encoded, including separators between values), and optionally also
+ * passes it to a delegate. Without a delegate, content is only hashed, and no
+ * output is aggregated at all.
+ *<p>
+ * UTF-8 values are hashed as-is; {@code char} values are encoded into a small
+ * scratch buffer in chunks (the same way {@link Utf8Util#encode} does), so hash is
+ * the same regardless of how values are passed.
+ *<p>
+ * Instances are not thread-safe, and are only used for a single extraction.
+ */
+final class HashingTextOutput extends TextOutput {
+    private final static byte SEPARATOR = ' ';
+
+    // Max chars to encode at a time; 3 bytes per char is always enough
+    private final static int CHUNK_LENGTH = 256;
+
+    private final TextOutput delegate;
+
+    private final Murmur3Hash128 hash = new Murmur3Hash128();
+
+    private byte[] encodeBuffer;
+
+    /**
+     * @param delegate Output to pass content to, if any; {@code null} for hashing only
+     */
+    HashingTextOutput(TextOutput delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return Hash of content appended; should only be called once, after extraction
+     */
+    public ContentHash hash() {
+        return hash.finish();
+    }
+
+    /**
+     * @return Length of content appended, in UTF-8 encoded bytes
+     */
+    public int length() {
+        return (int) hash.length();
+    }
+
+    /*
+    /**********************************************************
+    /* TextOutput implementation
+    /**********************************************************
+     */
+
+    @Override
+    public void appendValue(char[] src, int offset, int len) throws IOException {
+        if (len > 0) {
+            if (delegate != null) {
+                delegate.appendValue(src, offset, len);
+            }
+            _separator();
+            byte[] buf = encodeBuffer;
+            if (buf == null) {
+                encodeBuffer = buf = new byte[CHUNK_LENGTH * 3];
+            }
+            final int end = offset + len;
+            while (offset < end) {
+                int chunkEnd = Math.min(end, offset + CHUNK_LENGTH);
+                // Do not split surrogate pairs
+                if ((chunkEnd < end) && Character.isHighSurrogate(src[chunkEnd - 1])) {
+                    --chunkEnd;
+                }
+                hash.update(buf, 0, Utf8Util.encode(src, offset, chunkEnd, buf, 0));
+                offset = chunkEnd;
+            }
+        }
+    }
+
+    @Override
+    public void appendUtf8Value(byte[] src, int offset, int len) throws IOException {
+        if (len > 0) {
+            if (delegate != null) {
+                delegate.appendUtf8Value(src, offset, len);
+            }
+            _separator();
+            hash.update(src, offset, len);
+        }
+    }
+
+    @Override
+    public void appendAsciiValue(byte[] src, int offset, int len) throws IOException {
+        if (len > 0) {
+            if (delegate != null) {
+                delegate.appendAsciiValue(src, offset, len);
+            }
+            _separator();
+            hash.update(src, offset, len);
+        }
+    }
+
+    @Override
+    PooledBuffers pooledBuffers() {
+        return (delegate == null) ? null : delegate.pooledBuffers();
+    }
+
+    private void _separator() {
+        if (hash.length() > 0) {
+            hash.update(SEPARATOR);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.datastax.jsonapi;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * Helper class for detecting format of a (byte-based) input document, to find
+ * {@link JsonFactory} to use for parsing it: textual JSON (document starting with
+ * {@code {} or {@code [}) is always accepted; Smile and CBOR documents are accepted
+ * if factories for these formats have been configured.
+ *<p>
+ * Detection is based on the first bytes of each document (and not on Jackson's
+ * {@code JsonFactory.hasFormat()}, which is not reliable for CBOR Arrays):
+ *<ul>
+ * <li>Smile documents must start with the Smile header ({@code :)\n}); header is
+ *   written by default by Smile generators
+ *  </li>
+ * <li>CBOR documents must start with a Map or Array (major type 5 or 4), optionally
+ *   preceded by the "self-describe" tag ({@code 0xD9 0xD9 0xF7})
+ *  </li>
+ *</ul>
+ * None of these lead bytes can start a textual JSON document, so detection is unambiguous.
+ *<p>
+ * Instances are immutable.
+ */
+final class InputFormatDetector {
+    /**
+     * Format name of Smile factories ({@code SmileFactory.FORMAT_NAME_SMILE})
+     */
+    final static String FORMAT_NAME_SMILE = "Smile";
+
+    /**
+     * Format name of CBOR factories ({@code CBORFactory.FORMAT_NAME})
+     */
+    final static String FORMAT_NAME_CBOR = "CBOR";
+
+    private final static byte[] SMILE_HEADER = { ':', ')', '\n' };
+
+    private final static byte[] CBOR_SELF_DESCRIBE_TAG = { (byte) 0xD9, (byte) 0xD9, (byte) 0xF7 };
+
+    private final JsonFactory jsonFactory;
+
+    private final JsonFactory smileFactory;
+
+    private final JsonFactory cborFactory;
+
+    private InputFormatDetector(JsonFactory jsonFactory, JsonFactory smileFactory,
+            JsonFactory cborFactory) {
+        this.jsonFactory = jsonFactory;
+        this.smileFactory = smileFactory;
+        this.cborFactory = cborFactory;
+    }
+
+    /**
+     * @return Detector that only accepts textual JSON
+     */
+    static InputFormatDetector forJson(JsonFactory jsonFactory) {
+        return new InputFormatDetector(jsonFactory, null, null);
+    }
+
+    /**
+     * "Mutant factory" method for constructing detector that also accepts documents of
+     * the format of given binary factory (replacing factory previously configured for
+     * the same format, if any).
+     *
+     * @throws IllegalArgumentException If factory is not for Smile or CBOR
+     */
+    InputFormatDetector withBinaryFactory(JsonFactory binaryFactory) {
+        final String formatName = binaryFactory.getFormatName();
+        if (FORMAT_NAME_SMILE.equals(formatName)) {
+            return new InputFormatDetector(jsonFactory, binaryFactory, cborFactory);
+        }
+        if (FORMAT_NAME_CBOR.equals(formatName)) {
+            return new InputFormatDetector(jsonFactory, smileFactory, binaryFactory);
+        }
+        throw new IllegalArgumentException("Unsupported binary format '"+formatName
+                +"' (factory of type "+binaryFactory.getClass().getName()
+                +"): only Smile and CBOR supported");
+    }
+
+    JsonFactory jsonFactory() { return jsonFactory; }
+
+    boolean hasBinaryFormats() {
+        return (smileFactory != null) || (cborFactory != null);
+    }
+
+    /**
+     * Method for detecting format of given document.
+     *
+     * @return Factory to use for parsing document; {@link #jsonFactory()} for textual JSON;
+     *    or {@code null} if document is not of any accepted format (or is empty)
+     */
+    JsonFactory factoryFor(byte[] input, int offset, int len) {
+        if (len == 0) {
+            return null;
+        }
+        final byte b = input[offset];
+        if ((b == '{') || (b == '[')) {
+            return jsonFactory;
+        }
+        if (smileFactory != null && _startsWith(input, offset, len, SMILE_HEADER)) {
+            return smileFactory;
+        }
+        if (cborFactory != null) {
+            if (_startsWith(input, offset, len, CBOR_SELF_DESCRIBE_TAG)) {
+                if (len == CBOR_SELF_DESCRIBE_TAG.length) {
+                    return null;
+                }
+                return _isCborStructStart(input[offset + CBOR_SELF_DESCRIBE_TAG.length])
+                        ? cborFactory : null;
+            }
+            if (_isCborStructStart(b)) {
+                return cborFactory;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Same as {@link #factoryFor(byte[], int, int)} but for document contained in given
+     * {@link ByteBuffer} (between its position and limit). Position of the buffer is
+     * not modified.
+     */
+    JsonFactory factoryFor(ByteBuffer input) {
+        if (input.hasArray()) {
+            return factoryFor(input.array(), input.arrayOffset() + input.position(),
+                    input.remaining());
+        }
+        if (!input.hasRemaining()) {
+            return null;
+        }
+        final byte b = input.get(input.position());
+        if ((b == '{') || (b == '[')) {
+            return jsonFactory;
+        }
+        if (!hasBinaryFormats()) {
+            return null;
+        }
+        // Only need a few leading bytes for detection
+        final byte[] lead = new byte[Math.min(input.remaining(), 4)];
+        input.get(input.position(), lead);
+        return factoryFor(lead, 0, lead.length);
+    }
+
+    /**
+     * Method for checking whether given (textual) document may be JSON: String inputs
+     * are never binary, so only needs to start with {@code {} or {@code [}.
+     */
+    static boolean isJson(String input) {
+        if (input.isEmpty()) {
+            return false;
+        }
+        final char c = input.charAt(0);
+        return (c == '{') || (c == '[');
+    }
+
+    /**
+     * Method for constructing stream for reading document contained in given
+     * {@link ByteBuffer} (between its position and limit), for buffers that have no
+     * accessible backing array. Position of the buffer is not modified.
+     */
+    static InputStream inputStreamFor(ByteBuffer input) {
+        // Use a duplicate to keep position of the caller's buffer unchanged
+        return new ByteBufferBackedInputStream(input.duplicate());
+    }
+
+    private static boolean _startsWith(byte[] input, int offset, int len, byte[] prefix) {
+        if (len < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; ++i) {
+            if (input[offset+i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // CBOR major types 4 (Array; 0x80 - 0x9F) and 5 (Map; 0xA0 - 0xBF)
+    private static boolean _isCborStructStart(byte b) {
+        final int majorType = (b >> 5) & 0x7;
+        return (majorType == 4) || (majorType == 5);
+    }
+}
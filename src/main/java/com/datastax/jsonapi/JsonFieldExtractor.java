@@ -2,18 +2,23 @@ package com.datastax.jsonapi;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.RandomAccess;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonTokenId;
+import com.fasterxml.jackson.core.base.ParserBase;
 import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
 import com.fasterxml.jackson.core.filter.TokenFilter;
-import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.core.util.BufferRecycler;
 
 /**
  * Main class that handles extraction of JSON field contents from JSON documents,
@@ -26,32 +31,169 @@ import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
  * and {@link Optional#empty()} is returned. Otherwise {@link Optional} of extract result is
  * returned.
  *</p>
+ *<p>
+ * If binary formats (Smile, CBOR) are enabled (see
+ * {@link JsonFieldExtractorFactory#withBinaryFormat(JsonFactory)}), byte-based content
+ * ({@code byte[]}, {@link ByteBuffer}) may also be a document in one of these formats:
+ * format is detected separately for each document, based on its header, and extracted
+ * contents are the same as for the equivalent JSON document.
+ *</p>
+ *<p>
+ * Extractions may be observed (for metrics) by installing an {@link ExtractionListener}
+ * (see {@link #withListener(ExtractionListener)}); without one, no instrumentation
+ * is done.
+ *</p>
+ *<p>
+ * Length of extracted content may be limited (see {@link #withOutputLimit(OutputLimit)}):
+ * if so, extraction stops once the limit is reached, and content is cut at a character
+ * boundary. Methods like {@link #extractAsStringResult(String)} also indicate whether
+ * content was truncated.
+ *</p>
+ *<p>
+ * To find out whether extracted content has changed without comparing content itself,
+ * a {@link ContentHash} of it may be calculated during extraction (see
+ * {@link #extractAsStringWithHash(String)}), or instead of aggregating content at all
+ * (see {@link #extractHash(String)}).
+ *</p>
+ *<p>
+ * Whether a document has any included content at all may be checked without extracting
+ * it (see {@link #hasIncludedContent(String)}).
+ *</p>
+ *<p>
+ * If factory that built extractor uses a buffer pool (see
+ * {@link JsonFieldExtractorFactory#withBufferPool(int)}), parser and output buffers are
+ * leased from the pool for each extraction, instead of relying on Jackson's per-thread
+ * buffer recycling.
+ *</p>
  */
 public class JsonFieldExtractor {
+    /**
+     * Value returned by {@code extractTo()} methods to indicate that content
+     * passed is not JSON (and nothing was extracted).
+     */
+    public final static int NOT_JSON = -1;
+
+    private final static int RAW_SCANNING_FEATURES = ExtractorFeature.RAW_UTF8_SCANNING.getMask()
+            | ExtractorFeature.VECTORIZED_SCANNING.getMask();
+
+    private final static int TRACKING_FEATURES = ExtractorFeature.EARLY_TERMINATION.getMask()
+            | ExtractorFeature.STRICT_DUPLICATE_PATH_PROPERTIES.getMask();
+
     private final JsonFactory jsonFactory;
     private final TokenFilter filter;
 
+    /**
+     * Detector for format of byte-based input documents
+     */
+    private final InputFormatDetector formats;
+
+    /**
+     * Bit set of {@link ExtractorFeature}s enabled
+     */
+    private final int features;
+
+    /**
+     * Output to input length ratio learned from extractions, used for sizing
+     * output buffers
+     */
+    private final OutputSizeEstimator sizeEstimator = new OutputSizeEstimator();
+
+    /**
+     * Listener to notify of extractions, if any; {@code null} if none (in which
+     * case no instrumentation is done)
+     */
+    private final ExtractionListener listener;
+
+    /**
+     * Limit for length of extracted content, if any; {@code null} if none
+     */
+    private final OutputLimit outputLimit;
+
+    /**
+     * Pool for parser and output buffers, if one is used (shared by extractors of
+     * the same factory); {@code null} if buffers are recycled by Jackson per-thread
+     * {@code BufferRecycler} as usual
+     */
+    private final BufferPool bufferPool;
+
     /*
     /**********************************************************
     /* Construction
     /**********************************************************
      */
 
-    private JsonFieldExtractor(JsonFactory jsonFactory, TokenFilter filter) {
-        this.jsonFactory = jsonFactory;
+    private JsonFieldExtractor(InputFormatDetector formats, TokenFilter filter, int features,
+            ExtractionListener listener, OutputLimit outputLimit, BufferPool bufferPool) {
+        this.jsonFactory = formats.jsonFactory();
+        this.formats = formats;
         this.filter = filter;
+        this.features = features;
+        this.listener = listener;
+        this.outputLimit = outputLimit;
+        this.bufferPool = bufferPool;
     }
 
     public static JsonFieldExtractor construct(JsonFactory jsonFactory,
                                                String commaSeparatedInclusionPaths) {
-        return new JsonFieldExtractor(jsonFactory,
-                PathBasedFilterFactory.filterForPaths(commaSeparatedInclusionPaths));
+        return new JsonFieldExtractor(InputFormatDetector.forJson(jsonFactory),
+                PathBasedFilterFactory.filterForPaths(commaSeparatedInclusionPaths),
+                ExtractorFeature.collectDefaults(), null, null, null);
     }
 
     public static JsonFieldExtractor construct(JsonFactory jsonFactory,
                                                List<String> inclusionPaths) {
-        return new JsonFieldExtractor(jsonFactory,
-                PathBasedFilterFactory.filterForPaths(inclusionPaths));
+        return new JsonFieldExtractor(InputFormatDetector.forJson(jsonFactory),
+                PathBasedFilterFactory.filterForPaths(inclusionPaths),
+                ExtractorFeature.collectDefaults(), null, null, null);
+    }
+
+    static JsonFieldExtractor construct(InputFormatDetector formats,
+                                        PathBasedFilterFactory.InclusionTreeNode inclusionTree,
+                                        int features, ExtractionListener listener,
+                                        OutputLimit outputLimit, BufferPool bufferPool,
+                                        FilterInterner filterInterner) {
+        return new JsonFieldExtractor(formats,
+                PathBasedFilterFactory.filterForInclusionTree(inclusionTree, filterInterner),
+                features, listener, outputLimit, bufferPool);
+    }
+
+    /**
+     * "Mutant factory" method for constructing an extractor that is otherwise identical
+     * to this one (and shares its filter), but notifies given listener of extractions
+     * (instead of listener this extractor has, if any).
+     * Note that learned output size statistics (see {@link #outputSizeStats()}) are
+     * not shared.
+     *
+     * @param l Listener to notify; {@code null} for none
+     *
+     * @return Extractor that notifies given listener (this instance if it already does)
+     */
+    public JsonFieldExtractor withListener(ExtractionListener l) {
+        if (l == listener) {
+            return this;
+        }
+        return new JsonFieldExtractor(formats, filter, features, l, outputLimit, bufferPool);
+    }
+
+    /**
+     * "Mutant factory" method for constructing an extractor that is otherwise identical
+     * to this one (and shares its filter), but limits length of content extracted from
+     * a document as specified (instead of limit this extractor has, if any): once limit
+     * is reached, extraction stops. Limit applies to all extraction methods (except for
+     * incremental extraction, {@link #startSession()}); methods like
+     * {@link #extractAsStringResult(String)} also indicate whether content was truncated.
+     * Note that learned output size statistics (see {@link #outputSizeStats()}) are
+     * not shared.
+     *
+     * @param limit Limit to use; {@code null} for none
+     *
+     * @return Extractor that uses given limit (this instance if it already does)
+     */
+    public JsonFieldExtractor withOutputLimit(OutputLimit limit) {
+        if (Objects.equals(limit, outputLimit)) {
+            return this;
+        }
+        return new JsonFieldExtractor(formats, filter, features, listener, limit, bufferPool);
     }
 
     /*
@@ -70,67 +212,798 @@ public class JsonFieldExtractor {
         return filter == PathBasedFilterFactory.EMPTY_DOC_FILTER;
     }
 
+    public boolean isEnabled(ExtractorFeature f) {
+        return f.enabledIn(features);
+    }
+
+    /**
+     * @return Listener notified of extractions, if any; {@code null} if none
+     */
+    public ExtractionListener listener() {
+        return listener;
+    }
+
+    /**
+     * @return Limit for length of extracted content, if any; {@code null} if none
+     */
+    public OutputLimit outputLimit() {
+        return outputLimit;
+    }
+
+    /**
+     * Accessor for statistics on output size (relative to input size) this extractor
+     * has learned from extractions into buffers it allocates, and uses for sizing
+     * these buffers.
+     */
+    public OutputSizeStats outputSizeStats() {
+        return sizeEstimator.stats();
+    }
+
+    // Accessed from same package, tests
+    TokenFilter filter() {
+        return filter;
+    }
+
     public Optional<String> extractAsString(String json) throws IOException {
-        if (!_hasJson(json)) {
-            return Optional.empty();
-        }
-        try (JsonParser p = jsonFactory.createParser(json)) {
-            return Optional.of(_extractAsString(p, json.length()));
+        final long startTime = _startTime();
+        if (!InputFormatDetector.isJson(json)) {
+            return _rejected(json.length());
         }
+        final CharOutputBuffer out = _charOutput(json.length());
+        _extract(json, out);
+        return _extracted(startTime, json.length(), _toString(json.length(), out));
     }
 
     public Optional<String> extractAsString(byte[] json) throws IOException {
-        if (!_hasJson(json)) {
-            return Optional.empty();
-        }
-        try (JsonParser p = jsonFactory.createParser(json)) {
-            return Optional.of(_extractAsString(p, json.length));
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json, 0, json.length);
+        if (f == null) {
+            return _rejected(json.length);
         }
+        final CharOutputBuffer out = _charOutput(json.length);
+        _extract(f, json, 0, json.length, out, false);
+        return _extracted(startTime, json.length, _toString(json.length, out));
     }
 
+    /**
+     * Method for extracting contents of JSON document contained in given {@link ByteBuffer}
+     * (between its position and limit). Heap buffers are parsed directly from their
+     * backing array; direct (and memory-mapped) buffers are read in chunks.
+     * Position of the buffer is not modified.
+     */
     public Optional<String> extractAsString(ByteBuffer json) throws IOException {
-        if (!_hasJson(json)) {
-            return Optional.empty();
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json);
+        final int len = json.remaining();
+        if (f == null) {
+            return _rejected(len);
+        }
+        final CharOutputBuffer out = _charOutput(len);
+        _extract(f, json, out, false);
+        return _extracted(startTime, len, _toString(len, out));
+    }
+
+    public Optional<byte[]> extractAsBytes(String json) throws IOException {
+        final long startTime = _startTime();
+        if (!InputFormatDetector.isJson(json)) {
+            return _rejected(json.length());
+        }
+        final Utf8OutputBuffer out = _utf8Output(json.length());
+        _extract(json, out);
+        return _extracted(startTime, json.length(), _toBytes(json.length(), out));
+    }
+
+    public Optional<byte[]> extractAsBytes(byte[] json) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json, 0, json.length);
+        if (f == null) {
+            return _rejected(json.length);
         }
-        try (InputStream in = new ByteBufferBackedInputStream(json)) {
-            try (JsonParser p = jsonFactory.createParser(in)) {
-                return Optional.of(_extractAsString(p, json.remaining()));
+        final Utf8OutputBuffer out = _utf8Output(json.length);
+        _extract(f, json, 0, json.length, out, true);
+        return _extracted(startTime, json.length, _toBytes(json.length, out));
+    }
+
+    /**
+     * Method for extracting contents of JSON document contained in given {@link ByteBuffer}
+     * (between its position and limit), as UTF-8 encoded bytes. Heap buffers are parsed
+     * directly from their backing array (and values may be copied as-is); direct
+     * (and memory-mapped) buffers are read in chunks.
+     * Position of the buffer is not modified.
+     */
+    public Optional<byte[]> extractAsBytes(ByteBuffer json) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json);
+        final int len = json.remaining();
+        if (f == null) {
+            return _rejected(len);
+        }
+        final Utf8OutputBuffer out = _utf8Output(len);
+        _extract(f, json, out, true);
+        return _extracted(startTime, len, _toBytes(len, out));
+    }
+
+    /**
+     * Method for starting incremental extraction of a single UTF-8 encoded JSON document
+     * that is fed in chunks (see {@link ExtractionSession} for details).
+     */
+    public ExtractionSession startSession() {
+        return new ExtractionSession(jsonFactory, filter, features);
+    }
+
+    /*
+    /**********************************************************
+    /* Public API, path overlap checks
+    /**********************************************************
+     */
+
+    /**
+     * Method for checking whether content at given dotted path (like one modified by
+     * a partial update of a document) overlaps content this extractor includes: that is,
+     * whether path is one of inclusion paths, or a descendant or an ancestor of one.
+     * If not, changes to content at the path cannot change extracted content.
+     * Numeric path segments are considered to possibly be array indexes (as well as
+     * property names), since arrays are transparent to inclusion paths:
+     * so {@code "a.0"} overlaps inclusion path {@code "a.b"}.
+     *<p>
+     * Check is done against filter of the extractor, without allocations.
+     *
+     * @param dottedPath Path to check, in dotted notation (like {@code "a.b.c"}); empty
+     *    String for the whole document (which overlaps unless extractor is empty)
+     *
+     * @return True if content at path may overlap extracted content; false if it can not
+     */
+    public boolean overlapsPath(String dottedPath) {
+        return PathBasedFilter.overlapsPath(filter, dottedPath, 0);
+    }
+
+    /**
+     * Method for checking whether content at any of given dotted paths overlaps content
+     * this extractor includes (see {@link #overlapsPath(String)} for details).
+     * {@link List}s with random access are iterated by index, to avoid allocating
+     * an {@link java.util.Iterator}.
+     *
+     * @return True if content at any of paths may overlap extracted content; false
+     *    if none can
+     */
+    public boolean overlapsAnyPath(Collection<String> dottedPaths) {
+        if ((dottedPaths instanceof List) && (dottedPaths instanceof RandomAccess)) {
+            final List<String> list = (List<String>) dottedPaths;
+            for (int i = 0, end = list.size(); i < end; ++i) {
+                if (overlapsPath(list.get(i))) {
+                    return true;
+                }
             }
+            return false;
         }
+        for (String path : dottedPaths) {
+            if (overlapsPath(path)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    public Optional<byte[]> extractAsBytes(String json) throws IOException {
-        if (!_hasJson(json)) {
-            return Optional.empty();
+    /*
+    /**********************************************************
+    /* Public API, extraction with truncation status
+    /**********************************************************
+     */
+
+    /**
+     * Same as {@link #extractAsString(String)} except that result also indicates
+     * whether extracted content was truncated due to {@link OutputLimit} of this
+     * extractor (see {@link #withOutputLimit(OutputLimit)}).
+     */
+    public Optional<ExtractionResult<String>> extractAsStringResult(String json) throws IOException {
+        final long startTime = _startTime();
+        if (!InputFormatDetector.isJson(json)) {
+            return _rejected(json.length());
         }
-        try (JsonParser p = jsonFactory.createParser(json)) {
-            return Optional.of(_extractAsBytes(p, json.length()));
+        final CharOutputBuffer out = _charOutput(json.length());
+        final boolean truncated = _extract(json, out);
+        return _extracted(startTime, json.length(),
+                new ExtractionResult<>(_toString(json.length(), out), truncated));
+    }
+
+    /**
+     * Same as {@link #extractAsString(byte[])} except that result also indicates
+     * whether extracted content was truncated due to {@link OutputLimit} of this
+     * extractor.
+     */
+    public Optional<ExtractionResult<String>> extractAsStringResult(byte[] json) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json, 0, json.length);
+        if (f == null) {
+            return _rejected(json.length);
         }
+        final CharOutputBuffer out = _charOutput(json.length);
+        final boolean truncated = _extract(f, json, 0, json.length, out, false);
+        return _extracted(startTime, json.length,
+                new ExtractionResult<>(_toString(json.length, out), truncated));
     }
 
-    public Optional<byte[]> extractAsBytes(byte[] json) throws IOException {
-        if (!_hasJson(json)) {
-            return Optional.empty();
+    /**
+     * Same as {@link #extractAsString(ByteBuffer)} except that result also indicates
+     * whether extracted content was truncated due to {@link OutputLimit} of this
+     * extractor.
+     */
+    public Optional<ExtractionResult<String>> extractAsStringResult(ByteBuffer json) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json);
+        final int len = json.remaining();
+        if (f == null) {
+            return _rejected(len);
+        }
+        final CharOutputBuffer out = _charOutput(len);
+        final boolean truncated = _extract(f, json, out, false);
+        return _extracted(startTime, len, new ExtractionResult<>(_toString(len, out), truncated));
+    }
+
+    /**
+     * Same as {@link #extractAsBytes(String)} except that result also indicates
+     * whether extracted content was truncated due to {@link OutputLimit} of this
+     * extractor.
+     */
+    public Optional<ExtractionResult<byte[]>> extractAsBytesResult(String json) throws IOException {
+        final long startTime = _startTime();
+        if (!InputFormatDetector.isJson(json)) {
+            return _rejected(json.length());
+        }
+        final Utf8OutputBuffer out = _utf8Output(json.length());
+        final boolean truncated = _extract(json, out);
+        return _extracted(startTime, json.length(),
+                new ExtractionResult<>(_toBytes(json.length(), out), truncated));
+    }
+
+    /**
+     * Same as {@link #extractAsBytes(byte[])} except that result also indicates
+     * whether extracted content was truncated due to {@link OutputLimit} of this
+     * extractor.
+     */
+    public Optional<ExtractionResult<byte[]>> extractAsBytesResult(byte[] json) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json, 0, json.length);
+        if (f == null) {
+            return _rejected(json.length);
+        }
+        final Utf8OutputBuffer out = _utf8Output(json.length);
+        final boolean truncated = _extract(f, json, 0, json.length, out, true);
+        return _extracted(startTime, json.length,
+                new ExtractionResult<>(_toBytes(json.length, out), truncated));
+    }
+
+    /**
+     * Same as {@link #extractAsBytes(ByteBuffer)} except that result also indicates
+     * whether extracted content was truncated due to {@link OutputLimit} of this
+     * extractor.
+     */
+    public Optional<ExtractionResult<byte[]>> extractAsBytesResult(ByteBuffer json) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json);
+        final int len = json.remaining();
+        if (f == null) {
+            return _rejected(len);
+        }
+        final Utf8OutputBuffer out = _utf8Output(len);
+        final boolean truncated = _extract(f, json, out, true);
+        return _extracted(startTime, len, new ExtractionResult<>(_toBytes(len, out), truncated));
+    }
+
+    /*
+    /**********************************************************
+    /* Public API, extraction with content hash
+    /**********************************************************
+     */
+
+    /**
+     * Method for calculating {@link ContentHash} of content that would be extracted
+     * from given document, without aggregating extracted content at all: hash is
+     * calculated as values are extracted. Hash is the same as the one
+     * {@link #extractAsStringWithHash(String)} would return (and that
+     * {@link ContentHash#of(String)} calculates for extracted content), so it may be
+     * compared to hash stored earlier to check whether extracted content has changed.
+     * Output limit (if any) is applied same as for other methods.
+     */
+    public Optional<ContentHash> extractHash(String json) throws IOException {
+        final long startTime = _startTime();
+        if (!InputFormatDetector.isJson(json)) {
+            return _rejected(json.length());
+        }
+        final HashingTextOutput out = new HashingTextOutput(null);
+        _extract(json, out);
+        return _hashed(startTime, json.length(), out);
+    }
+
+    /**
+     * Same as {@link #extractHash(String)} but for content passed as {@code byte[]}:
+     * String values without escapes are hashed as-is, without decoding.
+     */
+    public Optional<ContentHash> extractHash(byte[] json) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json, 0, json.length);
+        if (f == null) {
+            return _rejected(json.length);
+        }
+        final HashingTextOutput out = new HashingTextOutput(null);
+        _extract(f, json, 0, json.length, out, true);
+        return _hashed(startTime, json.length, out);
+    }
+
+    /**
+     * Same as {@link #extractHash(String)} but for content contained in given
+     * {@link ByteBuffer} (between its position and limit).
+     * Position of the buffer is not modified.
+     */
+    public Optional<ContentHash> extractHash(ByteBuffer json) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json);
+        final int len = json.remaining();
+        if (f == null) {
+            return _rejected(len);
+        }
+        final HashingTextOutput out = new HashingTextOutput(null);
+        _extract(f, json, out, true);
+        return _hashed(startTime, len, out);
+    }
+
+    /**
+     * Same as {@link #extractAsStringResult(String)} except that {@link ContentHash}
+     * of extracted content is also calculated (during extraction, not as a separate
+     * pass) and included in the result.
+     */
+    public Optional<ExtractionResult<String>> extractAsStringWithHash(String json) throws IOException {
+        final long startTime = _startTime();
+        if (!InputFormatDetector.isJson(json)) {
+            return _rejected(json.length());
+        }
+        final CharOutputBuffer buffer = _charOutput(json.length());
+        final HashingTextOutput out = new HashingTextOutput(buffer);
+        final boolean truncated = _extract(json, out);
+        final ContentHash hash = out.hash();
+        return _extracted(startTime, json.length(),
+                new ExtractionResult<>(_toString(json.length(), buffer), truncated, hash));
+    }
+
+    /**
+     * Same as {@link #extractAsStringResult(byte[])} except that {@link ContentHash}
+     * of extracted content is also calculated and included in the result.
+     */
+    public Optional<ExtractionResult<String>> extractAsStringWithHash(byte[] json) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json, 0, json.length);
+        if (f == null) {
+            return _rejected(json.length);
+        }
+        final CharOutputBuffer buffer = _charOutput(json.length);
+        final HashingTextOutput out = new HashingTextOutput(buffer);
+        final boolean truncated = _extract(f, json, 0, json.length, out, false);
+        final ContentHash hash = out.hash();
+        return _extracted(startTime, json.length,
+                new ExtractionResult<>(_toString(json.length, buffer), truncated, hash));
+    }
+
+    /**
+     * Same as {@link #extractAsStringResult(ByteBuffer)} except that {@link ContentHash}
+     * of extracted content is also calculated and included in the result.
+     */
+    public Optional<ExtractionResult<String>> extractAsStringWithHash(ByteBuffer json) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json);
+        final int len = json.remaining();
+        if (f == null) {
+            return _rejected(len);
+        }
+        final CharOutputBuffer buffer = _charOutput(len);
+        final HashingTextOutput out = new HashingTextOutput(buffer);
+        final boolean truncated = _extract(f, json, out, false);
+        final ContentHash hash = out.hash();
+        return _extracted(startTime, len,
+                new ExtractionResult<>(_toString(len, buffer), truncated, hash));
+    }
+
+    /*
+    /**********************************************************
+    /* Public API, presence probe
+    /**********************************************************
+     */
+
+    /**
+     * Method for checking whether given document has any content this extractor
+     * would extract: that is, whether {@link #extractAsString(String)} would return
+     * non-empty content. Nothing is aggregated, and processing stops as soon as the first
+     * non-empty included value is found; otherwise at the end of document (or earlier,
+     * if {@link ExtractorFeature#EARLY_TERMINATION} is enabled and all inclusion paths
+     * have been seen).
+     * Useful for cheaply dropping documents that have nothing to index.
+     *<p>
+     * Note that probing is not considered extraction: listener (if any) is not notified,
+     * and output limit (if any) does not matter.
+     *
+     * @return True if document has included content; false if not (or if content is
+     *    not JSON)
+     */
+    public boolean hasIncludedContent(String json) throws IOException {
+        if (!InputFormatDetector.isJson(json) || isEmpty()) {
+            return false;
         }
         try (JsonParser p = jsonFactory.createParser(json)) {
-            return Optional.of(_extractAsBytes(p, json.length));
+            return _probe(p, null, 0, 0);
         }
     }
 
-    public Optional<byte[]> extractAsBytes(ByteBuffer json) throws IOException {
-        if (!_hasJson(json)) {
-            return Optional.empty();
+    /**
+     * Same as {@link #hasIncludedContent(String)} but for content passed as {@code byte[]}
+     * (JSON or one of enabled binary formats).
+     */
+    public boolean hasIncludedContent(byte[] json) throws IOException {
+        final JsonFactory f = formats.factoryFor(json, 0, json.length);
+        if ((f == null) || isEmpty()) {
+            return false;
+        }
+        return _probe(f, json, 0, json.length);
+    }
+
+    /**
+     * Same as {@link #hasIncludedContent(String)} but for content contained in given
+     * {@link ByteBuffer} (between its position and limit).
+     * Position of the buffer is not modified.
+     */
+    public boolean hasIncludedContent(ByteBuffer json) throws IOException {
+        final JsonFactory f = formats.factoryFor(json);
+        if ((f == null) || isEmpty()) {
+            return false;
+        }
+        if (json.hasArray()) {
+            return _probe(f, json.array(), json.arrayOffset() + json.position(), json.remaining());
+        }
+        try (JsonParser p = f.createParser(InputFormatDetector.inputStreamFor(json))) {
+            return _probe(p, null, 0, 0);
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Public API, extraction into caller-provided sinks
+    /**********************************************************
+     */
+
+    /**
+     * Method for extracting contents of given JSON document, appending extracted
+     * text into given {@link Appendable} (like {@link StringBuilder} or
+     * {@link java.io.Writer}) instead of constructing a new {@code String}.
+     * Writers are not flushed.
+     *
+     * @return Number of {@code char}s appended; or {@link #NOT_JSON} if content
+     *    is not JSON (in which case nothing is appended)
+     */
+    public int extractTo(String json, Appendable out) throws IOException {
+        final long startTime = _startTime();
+        if (!InputFormatDetector.isJson(json)) {
+            return _rejectedCount(json.length());
+        }
+        final AppendableOutput output = new AppendableOutput(out, _sinkRecycler());
+        try {
+            _extract(json, output);
+        } finally {
+            output.release();
+            _release(output);
+        }
+        return _extracted(startTime, json.length(), output.count());
+    }
+
+    /**
+     * Same as {@link #extractTo(String, Appendable)} but for UTF-8 encoded JSON document.
+     */
+    public int extractTo(byte[] json, Appendable out) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json, 0, json.length);
+        if (f == null) {
+            return _rejectedCount(json.length);
+        }
+        final AppendableOutput output = new AppendableOutput(out, _sinkRecycler());
+        try {
+            _extract(f, json, 0, json.length, output, false);
+        } finally {
+            output.release();
+            _release(output);
+        }
+        return _extracted(startTime, json.length, output.count());
+    }
+
+    /**
+     * Same as {@link #extractTo(String, Appendable)} but for JSON document contained in
+     * given {@link ByteBuffer} (between its position and limit).
+     * Position of the buffer is not modified.
+     */
+    public int extractTo(ByteBuffer json, Appendable out) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json);
+        if (f == null) {
+            return _rejectedCount(json.remaining());
+        }
+        final AppendableOutput output = new AppendableOutput(out, _sinkRecycler());
+        try {
+            _extract(f, json, output, false);
+        } finally {
+            output.release();
+            _release(output);
+        }
+        return _extracted(startTime, json.remaining(), output.count());
+    }
+
+    /**
+     * Method for extracting contents of given JSON document, writing extracted
+     * text as UTF-8 encoded bytes into given {@link OutputStream} instead of
+     * constructing a new {@code byte[]}. Output is written in chunks; stream is
+     * not flushed.
+     *
+     * @return Number of bytes written; or {@link #NOT_JSON} if content
+     *    is not JSON (in which case nothing is written)
+     */
+    public int extractTo(String json, OutputStream out) throws IOException {
+        final long startTime = _startTime();
+        if (!InputFormatDetector.isJson(json)) {
+            return _rejectedCount(json.length());
+        }
+        final Utf8SinkOutput output = Utf8SinkOutput.forStream(out, _sinkRecycler());
+        try {
+            _extract(json, output);
+            output.finish();
+        } finally {
+            output.release();
+            _release(output);
+        }
+        return _extracted(startTime, json.length(), output.count());
+    }
+
+    /**
+     * Same as {@link #extractTo(String, OutputStream)} but for UTF-8 encoded JSON document.
+     */
+    public int extractTo(byte[] json, OutputStream out) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json, 0, json.length);
+        if (f == null) {
+            return _rejectedCount(json.length);
+        }
+        final Utf8SinkOutput output = Utf8SinkOutput.forStream(out, _sinkRecycler());
+        try {
+            _extract(f, json, 0, json.length, output, true);
+            output.finish();
+        } finally {
+            output.release();
+            _release(output);
+        }
+        return _extracted(startTime, json.length, output.count());
+    }
+
+    /**
+     * Same as {@link #extractTo(String, OutputStream)} but for JSON document contained in
+     * given {@link ByteBuffer} (between its position and limit).
+     * Position of the input buffer is not modified.
+     */
+    public int extractTo(ByteBuffer json, OutputStream out) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json);
+        if (f == null) {
+            return _rejectedCount(json.remaining());
+        }
+        final Utf8SinkOutput output = Utf8SinkOutput.forStream(out, _sinkRecycler());
+        try {
+            _extract(f, json, output, true);
+            output.finish();
+        } finally {
+            output.release();
+            _release(output);
+        }
+        return _extracted(startTime, json.remaining(), output.count());
+    }
+
+    /**
+     * Method for extracting contents of given JSON document, writing extracted
+     * text as UTF-8 encoded bytes into given (reusable) {@link ByteBuffer},
+     * starting at its position; position is advanced past the content written.
+     *<p>
+     * If there is not enough room in the buffer, {@link BufferOverflowException}
+     * is thrown and position of the buffer is reset to what it was before call
+     * (contents after position are undefined).
+     *
+     * @return Number of bytes written; or {@link #NOT_JSON} if content
+     *    is not JSON (in which case nothing is written)
+     */
+    public int extractTo(String json, ByteBuffer out) throws IOException {
+        final long startTime = _startTime();
+        if (!InputFormatDetector.isJson(json)) {
+            return _rejectedCount(json.length());
+        }
+        final int origPosition = out.position();
+        final Utf8SinkOutput output = Utf8SinkOutput.forByteBuffer(out, _sinkRecycler());
+        try {
+            _extract(json, output);
+            output.finish();
+        } catch (BufferOverflowException e) {
+            out.position(origPosition);
+            throw e;
+        } finally {
+            output.release();
+            _release(output);
+        }
+        return _extracted(startTime, json.length(), output.count());
+    }
+
+    /**
+     * Same as {@link #extractTo(String, ByteBuffer)} but for UTF-8 encoded JSON document.
+     */
+    public int extractTo(byte[] json, ByteBuffer out) throws IOException {
+        return _extractTo(json, 0, json.length, out);
+    }
+
+    /**
+     * Same as {@link #extractTo(byte[], ByteBuffer)} but for JSON document contained in
+     * given section of the array; used by {@link NdjsonFileExtractor} for lines copied
+     * into a reused buffer.
+     */
+    int _extractTo(byte[] json, int offset, int len, ByteBuffer out) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json, offset, len);
+        if (f == null) {
+            return _rejectedCount(len);
+        }
+        final int origPosition = out.position();
+        final Utf8SinkOutput output = Utf8SinkOutput.forByteBuffer(out, _sinkRecycler());
+        try {
+            _extract(f, json, offset, len, output, true);
+            output.finish();
+        } catch (BufferOverflowException e) {
+            out.position(origPosition);
+            throw e;
+        } finally {
+            output.release();
+            _release(output);
+        }
+        return _extracted(startTime, len, output.count());
+    }
+
+    /**
+     * Same as {@link #extractTo(String, ByteBuffer)} but for JSON document contained in
+     * given {@link ByteBuffer} (between its position and limit).
+     * Position of the input buffer is not modified.
+     */
+    public int extractTo(ByteBuffer json, ByteBuffer out) throws IOException {
+        final long startTime = _startTime();
+        final JsonFactory f = formats.factoryFor(json);
+        if (f == null) {
+            return _rejectedCount(json.remaining());
+        }
+        final int origPosition = out.position();
+        final Utf8SinkOutput output = Utf8SinkOutput.forByteBuffer(out, _sinkRecycler());
+        try {
+            _extract(f, json, output, true);
+            output.finish();
+        } catch (BufferOverflowException e) {
+            out.position(origPosition);
+            throw e;
+        } finally {
+            output.release();
+            _release(output);
+        }
+        return _extracted(startTime, json.remaining(), output.count());
+    }
+
+    /*
+    /**********************************************************
+    /* Public API, batch extraction
+    /**********************************************************
+     */
+
+    /**
+     * Method for extracting contents of a batch of JSON documents: equivalent to calling
+     * {@link #extractAsString(String)} for each document, but without per-document
+     * {@link Optional} wrappers or output buffers: a single output buffer, sized once
+     * based on the longest document, is reused for the whole batch (and leaf values
+     * are copied into it without constructing intermediate {@code String}s).
+     *
+     * @return Array of extracted contents, in the same order as input documents;
+     *    {@code null} for entries that are not JSON
+     */
+    public String[] extractAllAsString(String[] jsons) throws IOException {
+        final String[] results = new String[jsons.length];
+        CharOutputBuffer out = null;
+        for (int i = 0, end = jsons.length; i < end; ++i) {
+            final long startTime = _startTime();
+            final String json = jsons[i];
+            if (InputFormatDetector.isJson(json)) {
+                if (out == null) {
+                    out = _charOutput(_maxLength(jsons));
+                } else {
+                    out.reset();
+                }
+                _extract(json, out);
+                sizeEstimator.record(json.length(), out.length());
+                results[i] = out.toString();
+                _extracted(startTime, json.length(), out.length());
+            } else {
+                _rejectedCount(json.length());
+            }
         }
-        try (InputStream in = new ByteBufferBackedInputStream(json)) {
-            try (JsonParser p = jsonFactory.createParser(in)) {
-                return Optional.of(_extractAsBytes(p, json.remaining()));
+        _release(out);
+        return results;
+    }
+
+    /**
+     * Same as {@link #extractAllAsString(String[])} but for a {@link List} of documents.
+     *
+     * @return List of extracted contents, in the same order as input documents;
+     *    {@code null} for entries that are not JSON
+     */
+    public List<String> extractAllAsString(List<String> jsons) throws IOException {
+        return Arrays.asList(extractAllAsString(jsons.toArray(new String[0])));
+    }
+
+    /**
+     * Same as {@link #extractAllAsString(String[])} but for UTF-8 encoded documents.
+     */
+    public String[] extractAllAsString(byte[][] jsons) throws IOException {
+        final String[] results = new String[jsons.length];
+        CharOutputBuffer out = null;
+        for (int i = 0, end = jsons.length; i < end; ++i) {
+            final long startTime = _startTime();
+            final byte[] json = jsons[i];
+            final JsonFactory f = formats.factoryFor(json, 0, json.length);
+            if (f != null) {
+                if (out == null) {
+                    out = _charOutput(_maxLength(jsons));
+                } else {
+                    out.reset();
+                }
+                _extract(f, json, 0, json.length, out, false);
+                sizeEstimator.record(json.length, out.length());
+                results[i] = out.toString();
+                _extracted(startTime, json.length, out.length());
+            } else {
+                _rejectedCount(json.length);
             }
         }
+        _release(out);
+        return results;
+    }
+
+    /**
+     * Method for extracting contents of a batch of UTF-8 encoded JSON documents
+     * as UTF-8 encoded bytes: equivalent to calling {@link #extractAsBytes(byte[])}
+     * for each document, but reusing a single output buffer for the whole batch.
+     *
+     * @return Array of extracted contents, in the same order as input documents;
+     *    {@code null} for entries that are not JSON
+     */
+    public byte[][] extractAllAsBytes(byte[][] jsons) throws IOException {
+        final byte[][] results = new byte[jsons.length][];
+        Utf8OutputBuffer out = null;
+        for (int i = 0, end = jsons.length; i < end; ++i) {
+            final long startTime = _startTime();
+            final byte[] json = jsons[i];
+            final JsonFactory f = formats.factoryFor(json, 0, json.length);
+            if (f != null) {
+                if (out == null) {
+                    out = _utf8Output(_maxLength(jsons));
+                } else {
+                    out.reset();
+                }
+                _extract(f, json, 0, json.length, out, true);
+                sizeEstimator.record(json.length, out.length());
+                results[i] = out.toByteArray();
+                _extracted(startTime, json.length, out.length());
+            } else {
+                _rejectedCount(json.length);
+            }
+        }
+        _release(out);
+        return results;
     }
 
     // Method mostly useful for testing purposes
     public Optional<JsonParser> extractingParser(String json) throws IOException {
-        if (!_hasJson(json)) {
+        if (!InputFormatDetector.isJson(json)) {
             return Optional.empty();
         }
         JsonParser p = jsonFactory.createParser(json);
@@ -153,82 +1026,397 @@ public class JsonFieldExtractor {
     /**********************************************************
      */
 
-    private boolean _hasJson(String json) {
-        if (json.isEmpty()) {
-            return false;
+    /**
+     * Helper method for constructing parser for reading content from a {@link ByteBuffer}
+     * that is not backed by an accessible array (direct, memory-mapped or read-only buffer).
+     * Content is read in chunks into parser's (recycled) input buffer so that the
+     * whole document is never copied at once. This was measured to be faster than
+     * feeding the buffer as-is to Jackson's non-blocking parser.
+     */
+    private JsonParser _createDirectBufferParser(JsonFactory f, ByteBuffer json, TextOutput out)
+            throws IOException {
+        final InputStream in = InputFormatDetector.inputStreamFor(json);
+        final PooledBuffers buffers = _pooledBuffers(f, out);
+        return (buffers == null) ? f.createParser(in) : bufferPool.createParser(buffers, in);
+    }
+
+    /*
+    /**********************************************************
+    /* Internal helper methods, buffer pooling
+    /**********************************************************
+     */
+
+    /**
+     * @return Pooled buffers to use for parser that reads content of given format
+     *    into given output, if any; {@code null} if no pooling (or not JSON)
+     */
+    private PooledBuffers _pooledBuffers(JsonFactory f, TextOutput out) {
+        return ((bufferPool == null) || (f != jsonFactory)) ? null : out.pooledBuffers();
+    }
+
+    private JsonParser _createParser(String json, TextOutput out) throws IOException {
+        final PooledBuffers buffers = _pooledBuffers(jsonFactory, out);
+        return (buffers == null) ? jsonFactory.createParser(json)
+                : bufferPool.createParser(buffers, json);
+    }
+
+    private JsonParser _createParser(JsonFactory f, byte[] json, int offset, int len, TextOutput out)
+            throws IOException {
+        final PooledBuffers buffers = _pooledBuffers(f, out);
+        return (buffers == null) ? f.createParser(json, offset, len)
+                : bufferPool.createParser(buffers, json, offset, len);
+    }
+
+    private CharOutputBuffer _charOutput(int jsonLength) {
+        if (bufferPool == null) {
+            return new CharOutputBuffer(estimateResultLength(jsonLength));
         }
-        char c = json.charAt(0);
-        return (c == '{') || (c == '[');
+        return bufferPool.acquire().charOutput(estimateResultLength(jsonLength));
     }
 
-    private boolean _hasJson(byte[] json) {
-        if (json.length == 0) {
-            return false;
+    private Utf8OutputBuffer _utf8Output(int jsonLength) {
+        if (bufferPool == null) {
+            return new Utf8OutputBuffer(estimateResultLength(jsonLength));
         }
-        char c = (char) json[0];
-        return (c == '{') || (c == '[');
+        return bufferPool.acquire().utf8Output(estimateResultLength(jsonLength));
     }
 
-    private boolean _hasJson(ByteBuffer bb) {
-        if (!bb.hasRemaining()) {
-            return false;
+    // Recycler for intermediate buffers of caller-provided sinks
+    private BufferRecycler _sinkRecycler() {
+        return (bufferPool == null) ? jsonFactory._getBufferRecycler() : bufferPool.acquire();
+    }
+
+    /**
+     * Method for returning pooled buffers given output uses (if any) to the pool,
+     * once extraction is complete. Note that if extraction fails, buffers are not
+     * returned: this is fine, as pool simply creates new ones as needed.
+     */
+    private void _release(TextOutput out) {
+        if ((bufferPool != null) && (out != null)) {
+            final PooledBuffers buffers = out.pooledBuffers();
+            if (buffers != null) {
+                bufferPool.release(buffers);
+            }
         }
-        char c = (char) bb.get(bb.position());
-        return (c == '{') || (c == '[');
     }
 
+    /*
+    /**********************************************************
+    /* Internal helper methods, instrumentation
+    /**********************************************************
+     */
+
+    // Start time for extraction, if listener installed (0 if not)
+    private long _startTime() {
+        return (listener == null) ? 0L : System.nanoTime();
+    }
+
+    private <T> Optional<T> _extracted(long startTime, int inputLength, T result) {
+        if (listener != null) {
+            final Object value = (result instanceof ExtractionResult<?>)
+                    ? ((ExtractionResult<?>) result).value() : result;
+            final int outputLength = (value instanceof String) ? ((String) value).length()
+                    : ((byte[]) value).length;
+            listener.documentExtracted(this, inputLength, outputLength, System.nanoTime() - startTime);
+        }
+        return Optional.of(result);
+    }
+
+    private int _extracted(long startTime, int inputLength, int outputLength) {
+        if (listener != null) {
+            listener.documentExtracted(this, inputLength, outputLength, System.nanoTime() - startTime);
+        }
+        return outputLength;
+    }
+
+    private Optional<ContentHash> _hashed(long startTime, int inputLength, HashingTextOutput out) {
+        _extracted(startTime, inputLength, out.length());
+        return Optional.of(out.hash());
+    }
+
+    private <T> Optional<T> _rejected(int inputLength) {
+        _rejectedCount(inputLength);
+        return Optional.empty();
+    }
+
+    private int _rejectedCount(int inputLength) {
+        if (listener != null) {
+            listener.documentRejected(this, inputLength);
+        }
+        return NOT_JSON;
+    }
+
+    /**
+     * Leaf values are copied from parser's text buffer into output directly,
+     * without constructing intermediate {@link String}s.
+     */
     String _extractAsString(JsonParser p, int jsonLength) throws IOException {
-        StringBuilder sb = new StringBuilder(estimateResultLength(jsonLength));
+        final CharOutputBuffer out = _charOutput(jsonLength);
+        _extract(p, out, null, 0, 0);
+        return _toString(jsonLength, out);
+    }
+
+    private String _toString(int jsonLength, CharOutputBuffer out) {
+        sizeEstimator.record(jsonLength, out.length());
+        final String result = out.toString();
+        _release(out);
+        return result;
+    }
+
+    private byte[] _toBytes(int jsonLength, Utf8OutputBuffer out) {
+        sizeEstimator.record(jsonLength, out.length());
+        final byte[] result = out.toByteArray();
+        _release(out);
+        return result;
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods, extraction into TextOutput
+    /**********************************************************
+     */
+
+    /**
+     * @return Whether extracted content was truncated due to output limit
+     */
+    private boolean _extract(String json, TextOutput out) throws IOException {
+        try (JsonParser p = _createParser(json, out)) {
+            return _extract(p, out, null, 0, 0);
+        }
+    }
+
+    /**
+     * @param f Factory for format of the content (as detected by caller)
+     * @param rawCopy Whether String values may be copied as raw UTF-8 from input
+     *    (only makes sense for UTF-8 based output)
+     *
+     * @return Whether extracted content was truncated due to output limit
+     */
+    private boolean _extract(JsonFactory f, byte[] json, int offset, int len, TextOutput out,
+            boolean rawCopy) throws IOException {
+        if (f != jsonFactory) {
+            try (JsonParser p = f.createParser(json, offset, len)) {
+                return _extract(p, out, null, 0, 0);
+            }
+        }
+        if (_useRawScanner(json, offset, len)) {
+            return _scan(json, offset, len, out);
+        }
+        try (JsonParser p = _createParser(jsonFactory, json, offset, len, out)) {
+            return _extract(p, out, rawCopy ? json : null, offset, offset + len);
+        }
+    }
+
+    /**
+     * Heap buffers are parsed directly from their backing array; others read in chunks.
+     */
+    private boolean _extract(JsonFactory f, ByteBuffer json, TextOutput out, boolean rawCopy)
+            throws IOException {
+        if (json.hasArray()) {
+            return _extract(f, json.array(), json.arrayOffset() + json.position(), json.remaining(),
+                    out, rawCopy);
+        }
+        try (JsonParser p = _createDirectBufferParser(f, json, out)) {
+            return _extract(p, out, null, 0, 0);
+        }
+    }
+
+    /**
+     * Method for extracting included leaf values into given {@link TextOutput}.
+     * If {@code rawInput} is passed (and parser is decoding it as UTF-8), String values
+     * that contain no escapes are copied as-is from input, without decoding (and
+     * possible re-encoding).
+     * If output limit is used and reached, extraction stops right away.
+     *
+     * @param p Parser to read content from
+     * @param out Output to append extracted values to
+     * @param rawInput Raw UTF-8 encoded input that parser reads, if available; {@code null} if not
+     * @param rawOffset Offset of the first byte of content parser reads within {@code rawInput}
+     * @param rawEnd Offset after the last byte of content parser reads within {@code rawInput}
+     *
+     * @return Whether extracted content was truncated due to output limit
+     */
+    boolean _extract(JsonParser p, TextOutput out, byte[] rawInput, int rawOffset, int rawEnd)
+            throws IOException {
+        if (outputLimit == null) {
+            _extractCounted(p, out, rawInput, rawOffset, rawEnd);
+            return false;
+        }
+        final LimitingTextOutput limiting = new LimitingTextOutput(out, outputLimit);
+        try {
+            _extractCounted(p, limiting, rawInput, rawOffset, rawEnd);
+        } catch (LimitingTextOutput.LimitReached e) {
+            // fine: content up to limit has been extracted
+        }
+        return limiting.isTruncated();
+    }
+
+    private void _extractCounted(JsonParser p, TextOutput out, byte[] rawInput, int rawOffset,
+            int rawEnd) throws IOException {
+        if (listener != null) {
+            final CountingTextOutput counting = new CountingTextOutput(out);
+            try {
+                _extractFiltered(counting.countTokens(p), p, counting, rawInput, rawOffset, rawEnd);
+            } catch (LimitingTextOutput.LimitReached e) {
+                // Stopped due to output limit: still report what was extracted
+                listener.valuesExtracted(this, counting.tokenCount(), counting.valueCount());
+                throw e;
+            }
+            listener.valuesExtracted(this, counting.tokenCount(), counting.valueCount());
+            return;
+        }
+        _extractFiltered(p, p, out, rawInput, rawOffset, rawEnd);
+    }
+
+    /**
+     * @param p Parser to read tokens from
+     * @param srcParser Parser that actually decodes content: same as {@code p}, unless
+     *    latter is a wrapper (for instrumentation)
+     */
+    private void _extractFiltered(JsonParser p, JsonParser srcParser, TextOutput out,
+            byte[] rawInput, int rawOffset, int rawEnd)
+        throws IOException
+    {
+        if (_trackBranches()) {
+            FilteringParserWalker.extract(filter, p, srcParser, out, features,
+                    rawInput, rawOffset, rawEnd);
+            return;
+        }
+        final ParserBase rawParser = ScalarValues.rawParser(srcParser, rawInput);
         try (JsonParser fp = new FilteringParserDelegate(p, filter,
                 TokenFilter.Inclusion.ONLY_INCLUDE_ALL, true)) {
             while (fp.nextToken() != null) {
-                if (includeToken(fp.currentTokenId())) {
-                    String text = fp.getText();
-                    if (text.isEmpty()) {
-                        continue;
-                    }
-                    if (sb.length() > 0) {
-                        sb.append(' ');
-                    }
-                    sb.append(text);
-                }
+                ScalarValues.append(fp, fp.currentTokenId(), out, rawParser, rawInput, rawOffset,
+                        rawEnd);
+            }
+        }
+    }
+
+    /**
+     * Helper method for extracting given UTF-8 input using {@link RawUtf8Scanner}
+     * (instrumented if listener is installed).
+     *
+     * @return Whether extracted content was truncated due to output limit
+     */
+    private boolean _scan(byte[] input, int offset, int len, TextOutput out) throws IOException {
+        if (outputLimit == null) {
+            _scanCounted(input, offset, len, out);
+            return false;
+        }
+        final LimitingTextOutput limiting = new LimitingTextOutput(out, outputLimit);
+        try {
+            _scanCounted(input, offset, len, limiting);
+        } catch (LimitingTextOutput.LimitReached e) {
+            // fine: content up to limit has been extracted
+        }
+        return limiting.isTruncated();
+    }
+
+    private void _scanCounted(byte[] input, int offset, int len, TextOutput out) throws IOException {
+        if (listener != null) {
+            final CountingTextOutput counting = new CountingTextOutput(out);
+            try {
+                RawUtf8Scanner.extract(filter, input, offset, len, counting, features);
+            } catch (LimitingTextOutput.LimitReached e) {
+                listener.valuesExtracted(this, counting.tokenCount(), counting.valueCount());
+                throw e;
             }
+            listener.valuesExtracted(this, counting.tokenCount(), counting.valueCount());
+            return;
+        }
+        RawUtf8Scanner.extract(filter, input, offset, len, out, features);
+    }
+
+    /**
+     * Helper method for checking whether given (UTF-8) input should be processed using
+     * {@link RawUtf8Scanner} instead of Jackson parser.
+     */
+    private boolean _useRawScanner(byte[] input, int offset, int len) {
+        if ((features & RAW_SCANNING_FEATURES) == 0) {
+            return false;
         }
-        return sb.toString();
+        // Caller has verified first byte is '{' or '[': but need to rule out
+        // UTF-16LE/UTF-32LE (JSON spec requires UTF-8 but Jackson auto-detects)
+        return (len < 2) || (input[offset+1] != 0);
     }
 
-    private byte[] _extractAsBytes(JsonParser p, int jsonLength) throws IOException {
-        // !!! TODO: implement more efficiently
-        return _extractAsString(p, jsonLength).getBytes(StandardCharsets.UTF_8);
+    /**
+     * Helper method for checking whether branches of the filter need to be tracked
+     * (for early termination and/or detection of duplicates): if so, parser-based
+     * extraction uses {@link FilteringParserWalker} instead of
+     * {@link FilteringParserDelegate}.
+     */
+    private boolean _trackBranches() {
+        return (features & TRACKING_FEATURES) != 0;
+    }
+
+
+    private static int _maxLength(String[] docs) {
+        int maxLength = 0;
+        for (String doc : docs) {
+            maxLength = Math.max(maxLength, doc.length());
+        }
+        return maxLength;
+    }
+
+    private static int _maxLength(byte[][] docs) {
+        int maxLength = 0;
+        for (byte[] doc : docs) {
+            maxLength = Math.max(maxLength, doc.length);
+        }
+        return maxLength;
     }
 
     /**
      * Helper method for estimating rough size of output buffer we need, to reduce
-     * need for resizing, but ideally avoiding overallocation.
+     * need for resizing, but ideally avoiding overallocation: based on output to input
+     * length ratio learned from earlier extractions (once there are enough of them),
+     * but never above output limit (if any; may still need to grow when limit is
+     * in different units than output).
      */
     private int estimateResultLength(int jsonLength) {
-        // Estimate that we'll need output buffer that's 1/4 the size of the input
-        int estimate = jsonLength >> 2;
-        // But avoid tiny buffers
-        if (estimate < 100) {
-            return 100;
+        final int estimate = sizeEstimator.estimate(jsonLength);
+        return (outputLimit == null) ? estimate : Math.min(estimate, outputLimit.maxLength());
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods, presence probe
+    /**********************************************************
+     */
+
+    private boolean _probe(JsonFactory f, byte[] json, int offset, int len) throws IOException {
+        if (f != jsonFactory) {
+            try (JsonParser p = f.createParser(json, offset, len)) {
+                return _probe(p, null, 0, 0);
+            }
         }
-        if (estimate > 50_000) {
-            return 50_000;
+        if (_useRawScanner(json, offset, len)) {
+            try {
+                RawUtf8Scanner.extract(filter, json, offset, len, ProbingTextOutput.INSTANCE, features);
+            } catch (ProbingTextOutput.ContentFound e) {
+                return true;
+            }
+            return false;
+        }
+        try (JsonParser p = jsonFactory.createParser(json, offset, len)) {
+            // Raw input passed so String values need not be decoded
+            return _probe(p, json, offset, offset + len);
         }
-        return estimate;
     }
 
-    private boolean includeToken(int id) {
-        switch (id) {
-        case JsonTokenId.ID_STRING:
-        case JsonTokenId.ID_NUMBER_FLOAT:
-        case JsonTokenId.ID_NUMBER_INT:
-        case JsonTokenId.ID_FALSE:
-        case JsonTokenId.ID_TRUE:
+    /**
+     * Method for checking whether given parser has any included content, using same
+     * filter (and token loop) as extraction, but with no output; stops as soon as
+     * content is found.
+     */
+    private boolean _probe(JsonParser p, byte[] rawInput, int rawOffset, int rawEnd)
+            throws IOException {
+        try {
+            _extractFiltered(p, p, ProbingTextOutput.INSTANCE, rawInput, rawOffset, rawEnd);
+        } catch (ProbingTextOutput.ContentFound e) {
             return true;
-        default:
-            return false;
         }
+        return false;
     }
 }
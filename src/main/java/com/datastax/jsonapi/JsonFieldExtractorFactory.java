@@ -1,28 +1,307 @@
 package com.datastax.jsonapi;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Factory for constructing reusable {@link JsonFieldExtractor} instances.
+ *<p>
+ * Factory instances are immutable; configuration changes are done using
+ * "mutant factory" methods ({@code withXxx()}) that create new instances.
+ * {@link ExtractorFeature}s enabled are passed to extractors built, as are binary
+ * formats (see {@link #withBinaryFormat(JsonFactory)}) accepted in addition to JSON.
+ * Factory may optionally be configured to cache extractors it builds (see
+ * {@link #withCache(int)}): if so, extractors for equivalent path definitions
+ * are shared. Since cached extractors are built with settings of the factory,
+ * factories created from a caching factory by other "mutant factory" methods get
+ * a new, empty cache (of the same maximum size).
+ * An {@link ExtractionListener} may also be installed for all extractors
+ * built (see {@link #withListener(ExtractionListener)}), as may a limit on length of
+ * content they extract (see {@link #withOutputLimit(OutputLimit)}). Finally, extractors
+ * may share a pool of parser and output buffers (see {@link #withBufferPool(int)}),
+ * as well as filters built for identical parts of path definitions (see
+ * {@link #withFilterSharing(int)}).
  */
 public class JsonFieldExtractorFactory {
-    private final JsonFactory jsonFactory;
+    /**
+     * Detector for formats of byte-based input documents accepted by extractors built
+     */
+    private final InputFormatDetector formats;
+
+    /**
+     * Bit set of {@link ExtractorFeature}s enabled
+     */
+    private final int features;
+
+    /**
+     * Cache for extractors, if caching enabled; {@code null} if not.
+     */
+    private final ExtractorCache cache;
+
+    /**
+     * Listener for extractors built to notify, if any; {@code null} if none.
+     */
+    private final ExtractionListener listener;
+
+    /**
+     * Limit for length of content extractors built extract, if any; {@code null} if none.
+     */
+    private final OutputLimit outputLimit;
+
+    /**
+     * Pool of buffers shared by extractors built, if pooling enabled; {@code null} if not.
+     */
+    private final BufferPool bufferPool;
+
+    /**
+     * Interner for sharing filters (for identical inclusion subtrees) between extractors
+     * built, if sharing enabled; {@code null} if not.
+     */
+    private final FilterInterner filterInterner;
 
-    private JsonFieldExtractorFactory(JsonFactory jf) {
-        jsonFactory = jf;
+    private JsonFieldExtractorFactory(InputFormatDetector formats, int features, ExtractorCache cache,
+            ExtractionListener listener, OutputLimit outputLimit, BufferPool bufferPool,
+            FilterInterner filterInterner) {
+        this.formats = formats;
+        this.features = features;
+        this.cache = cache;
+        this.listener = listener;
+        this.outputLimit = outputLimit;
+        this.bufferPool = bufferPool;
+        this.filterInterner = filterInterner;
     }
 
     public static JsonFieldExtractorFactory construct(JsonFactory jf) {
-        return new JsonFieldExtractorFactory(jf);
+        return new JsonFieldExtractorFactory(InputFormatDetector.forJson(jf),
+                ExtractorFeature.collectDefaults(), null, null, null, null, null);
     }
 
     public static JsonFieldExtractorFactory construct(ObjectMapper mapper) {
         return JsonFieldExtractorFactory.construct(mapper.getFactory());
     }
 
+    /**
+     * "Mutant factory" method for constructing a factory instance that caches up to
+     * specified number of extractors it builds. Cache is keyed both by path definition
+     * as passed and by canonical inclusion tree built from it, so that equivalent
+     * definitions (like {@code "a.b, c"} and {@code "c,a.b"}) share the same
+     * extractor. Cache is concurrent and evicts least-recently used entries (using
+     * CLOCK approximation) when full.
+     *<p>
+     * Note that the cache is not shared with this factory (or any other factory
+     * instances): each call creates a new, empty cache.
+     *
+     * @param maxEntries Maximum number of extractors to cache; must be 1 or above
+     *
+     * @return New factory instance with same settings as this one, but using
+     *    extractor cache of specified size
+     */
+    public JsonFieldExtractorFactory withCache(int maxEntries) {
+        return new JsonFieldExtractorFactory(formats, features, new ExtractorCache(maxEntries),
+                listener, outputLimit, bufferPool, filterInterner);
+    }
+
+    /**
+     * "Mutant factory" method for constructing a factory instance that does not
+     * cache extractors it builds.
+     *
+     * @return Factory instance with same settings as this one, but without caching
+     */
+    public JsonFieldExtractorFactory withoutCache() {
+        if (cache == null) {
+            return this;
+        }
+        return new JsonFieldExtractorFactory(formats, features, null, listener, outputLimit, bufferPool,
+                filterInterner);
+    }
+
+    /**
+     * "Mutant factory" method for constructing a factory instance that has specified
+     * feature enabled for extractors it builds.
+     *
+     * @return Factory instance with specified feature enabled (this instance if
+     *    feature was already enabled)
+     */
+    public JsonFieldExtractorFactory with(ExtractorFeature f) {
+        return _withFeatures(features | f.getMask());
+    }
+
+    /**
+     * "Mutant factory" method for constructing a factory instance that has specified
+     * feature disabled for extractors it builds.
+     *
+     * @return Factory instance with specified feature disabled (this instance if
+     *    feature was already disabled)
+     */
+    public JsonFieldExtractorFactory without(ExtractorFeature f) {
+        return _withFeatures(features & ~f.getMask());
+    }
+
+    public boolean isEnabled(ExtractorFeature f) {
+        return f.enabledIn(features);
+    }
+
+    /**
+     * Method for checking whether Vector API ({@code jdk.incubator.vector}) is
+     * available for {@link ExtractorFeature#VECTORIZED_SCANNING}: if not, the
+     * feature still works but uses scalar (non-vectorized) code.
+     */
+    public static boolean isVectorApiAvailable() {
+        return BlockClassifier.instance().isVectorized();
+    }
+
+    /**
+     * "Mutant factory" method for constructing a factory instance whose extractors
+     * also accept documents in the binary format of given factory (in addition to
+     * JSON and binary formats already accepted), for byte-based input ({@code byte[]}
+     * and {@link java.nio.ByteBuffer}). Supported formats are Smile
+     * ({@code SmileFactory}) and CBOR ({@code CBORFactory}); their modules
+     * ({@code jackson-dataformat-smile}, {@code jackson-dataformat-cbor}) are
+     * optional dependencies.
+     *<p>
+     * Format is detected separately for each document, based on its first bytes:
+     * Smile documents must start with the Smile header (written by default); CBOR
+     * documents with a Map or Array (optionally preceded by "self-describe" tag).
+     * Same path-based filter is used for all formats, so extracted contents are the
+     * same as for the equivalent JSON document. Note that incremental extraction
+     * ({@link JsonFieldExtractor#startSession()}) only accepts JSON.
+     *
+     * @param binaryFactory Factory for binary format (Smile or CBOR) to accept; replaces
+     *    factory configured earlier for the same format, if any
+     *
+     * @return Factory instance that also accepts documents in specified format
+     *
+     * @throws IllegalArgumentException If factory is not for Smile or CBOR
+     */
+    public JsonFieldExtractorFactory withBinaryFormat(JsonFactory binaryFactory) {
+        return new JsonFieldExtractorFactory(formats.withBinaryFactory(binaryFactory),
+                features, _freshCache(), listener, outputLimit, bufferPool, filterInterner);
+    }
+
+    /**
+     * "Mutant factory" method for constructing a factory instance whose extractors
+     * notify given listener of extractions they do (for metrics); see
+     * {@link ExtractionListener} for details.
+     * Individual extractors may also be given a different listener with
+     * {@link JsonFieldExtractor#withListener(ExtractionListener)}.
+     *
+     * @param l Listener to notify; {@code null} for none (in which case
+     *    extractors do no instrumentation)
+     *
+     * @return Factory instance whose extractors notify given listener (this
+     *    instance if it already uses the listener)
+     */
+    public JsonFieldExtractorFactory withListener(ExtractionListener l) {
+        if (l == listener) {
+            return this;
+        }
+        return new JsonFieldExtractorFactory(formats, features, _freshCache(), l, outputLimit,
+                bufferPool, filterInterner);
+    }
+
+    /**
+     * "Mutant factory" method for constructing a factory instance whose extractors
+     * limit length of content they extract from a document as specified: see
+     * {@link OutputLimit} for details.
+     * Individual extractors may also be given a different limit with
+     * {@link JsonFieldExtractor#withOutputLimit(OutputLimit)}.
+     *
+     * @param limit Limit to use; {@code null} for none
+     *
+     * @return Factory instance whose extractors use given limit (this
+     *    instance if it already uses the limit)
+     */
+    public JsonFieldExtractorFactory withOutputLimit(OutputLimit limit) {
+        if (Objects.equals(limit, outputLimit)) {
+            return this;
+        }
+        return new JsonFieldExtractorFactory(formats, features, _freshCache(), listener, limit,
+                bufferPool, filterInterner);
+    }
+
+    /**
+     * "Mutant factory" method for constructing a factory instance whose extractors
+     * share a bounded pool of buffers: Jackson parser buffers (input and text buffers)
+     * and output buffers for aggregating extracted content are leased from the pool for
+     * each extraction and returned after it. Without a pool, Jackson recycles parser
+     * buffers per thread (using {@code ThreadLocal}), which only helps if the same
+     * threads do extractions over and over: with short-lived threads (like virtual
+     * threads, one per task) buffers would be allocated for every extraction.
+     *<p>
+     * Pool is lock-free; if it has no buffers available, new ones are created (and
+     * dropped on return if pool is full), so size should be at least the expected
+     * number of concurrent extractions. Pool is shared with factories created
+     * from the new factory (using other "mutant factory" methods), but not with this
+     * factory. Note that {@link MultiFieldExtractor}s, incremental extraction and
+     * binary formats do not use the pool.
+     *
+     * @param maxSize Maximum number of buffer sets to retain in pool; must be 1 or above
+     *
+     * @return New factory instance with same settings as this one, but whose
+     *    extractors use a (new) shared buffer pool of specified size
+     */
+    public JsonFieldExtractorFactory withBufferPool(int maxSize) {
+        return new JsonFieldExtractorFactory(formats, features, _freshCache(), listener, outputLimit,
+                new BufferPool(formats.jsonFactory(), maxSize), filterInterner);
+    }
+
+    /**
+     * "Mutant factory" method for constructing a factory instance whose extractors
+     * do not use a buffer pool (but rely on Jackson per-thread buffer recycling).
+     *
+     * @return Factory instance with same settings as this one, but without buffer pool
+     */
+    public JsonFieldExtractorFactory withoutBufferPool() {
+        if (bufferPool == null) {
+            return this;
+        }
+        return new JsonFieldExtractorFactory(formats, features, _freshCache(), listener, outputLimit,
+                null, filterInterner);
+    }
+
+    /**
+     * "Mutant factory" method for constructing a factory instance whose extractors
+     * share filters built for identical inclusion subtrees: for example, extractors
+     * for {@code "metadata.tags, title"} and {@code "metadata.tags, body"} share filter
+     * for {@code "metadata"} (and everything under it). This reduces memory usage when
+     * there are lots of extractors with overlapping path definitions (unlike caching,
+     * see {@link #withCache(int)}, which only shares extractors for equivalent
+     * definitions as a whole).
+     *<p>
+     * Up to specified number of distinct filters (graph nodes) are retained for sharing;
+     * once the limit is reached, filters for new subtrees are not shared. Retained filters
+     * are shared with factories created from the new factory (using other "mutant factory"
+     * methods, since filters do not depend on other settings), but not with this factory.
+     * Note that {@link MultiFieldExtractor}s do not share filters.
+     *
+     * @param maxNodes Maximum number of distinct filters to retain; must be 1 or above
+     *
+     * @return New factory instance with same settings as this one, but whose
+     *    extractors share filters, using a new (empty) set of retained filters
+     */
+    public JsonFieldExtractorFactory withFilterSharing(int maxNodes) {
+        return new JsonFieldExtractorFactory(formats, features, _freshCache(), listener, outputLimit,
+                bufferPool, new FilterInterner(maxNodes));
+    }
+
+    /**
+     * "Mutant factory" method for constructing a factory instance whose extractors
+     * do not share filters (each extractor builds its own).
+     *
+     * @return Factory instance with same settings as this one, but without filter sharing
+     */
+    public JsonFieldExtractorFactory withoutFilterSharing() {
+        if (filterInterner == null) {
+            return this;
+        }
+        return new JsonFieldExtractorFactory(formats, features, _freshCache(), listener, outputLimit,
+                bufferPool, null);
+    }
+
     /**
      * Factory method for constructing {@link JsonFieldExtractor} for paths specified
      * by a comma-separated list of dotted-notation paths.
@@ -35,7 +314,15 @@ public class JsonFieldExtractorFactory {
      * @return Extractor based on path definition
      */
     public JsonFieldExtractor buildExtractor(String commaSeparatedInclusionPaths) {
-        return JsonFieldExtractor.construct(jsonFactory, commaSeparatedInclusionPaths);
+        if (cache == null) {
+            return _build(PathBasedFilterFactory.inclusionTreeForPaths(commaSeparatedInclusionPaths));
+        }
+        JsonFieldExtractor extr = cache.findByDefinition(commaSeparatedInclusionPaths);
+        if (extr == null) {
+            extr = _findOrBuild(commaSeparatedInclusionPaths,
+                    PathBasedFilterFactory.inclusionTreeForPaths(commaSeparatedInclusionPaths));
+        }
+        return extr;
     }
 
     /**
@@ -50,6 +337,175 @@ public class JsonFieldExtractorFactory {
      * @return Extractor based on path definition
      */
     public JsonFieldExtractor buildExtractor(List<String> inclusionPaths) {
-        return JsonFieldExtractor.construct(jsonFactory, inclusionPaths);
+        if (cache == null) {
+            return _build(PathBasedFilterFactory.buildInclusionTree(inclusionPaths));
+        }
+        JsonFieldExtractor extr = cache.findByDefinition(inclusionPaths);
+        if (extr == null) {
+            // Must copy the List used as key, to guard against later modifications
+            extr = _findOrBuild(List.copyOf(inclusionPaths),
+                    PathBasedFilterFactory.buildInclusionTree(inclusionPaths));
+        }
+        return extr;
+    }
+
+    /**
+     * Factory method for constructing {@link MultiFieldExtractor} that extracts
+     * contents for multiple fields in a single pass over the document: each field
+     * defined by a comma-separated list of dotted-notation paths (same as with
+     * {@link #buildExtractor(String)}).
+     * Note that multi-field extractors are not cached.
+     *
+     * @param fieldInclusionPaths Inclusion path definitions for each field (at most
+     *    {@link MultiFieldExtractor#MAX_FIELDS})
+     *
+     * @return Extractor based on path definitions
+     */
+    public MultiFieldExtractor buildMultiExtractor(List<String> fieldInclusionPaths) {
+        List<PathBasedFilterFactory.InclusionTreeNode> trees = new ArrayList<>(fieldInclusionPaths.size());
+        for (String paths : fieldInclusionPaths) {
+            trees.add(PathBasedFilterFactory.inclusionTreeForPaths(paths));
+        }
+        return MultiFieldExtractor.construct(formats, trees);
+    }
+
+    /*
+    /**********************************************************
+    /* Cache statistics
+    /**********************************************************
+     */
+
+    /**
+     * @return Whether this factory caches extractors it builds
+     */
+    public boolean isCaching() {
+        return cache != null;
+    }
+
+    /**
+     * @return Number of {@code buildExtractor} calls that returned cached extractor
+     *    for exactly same path definition; 0 if caching not enabled
+     */
+    public long cacheHitCount() {
+        return (cache == null) ? 0L : cache.hitCount();
+    }
+
+    /**
+     * @return Number of {@code buildExtractor} calls that returned cached extractor
+     *    built for an equivalent (but not identical) path definition; 0 if caching
+     *    not enabled
+     */
+    public long cacheEquivalentHitCount() {
+        return (cache == null) ? 0L : cache.equivalentHitCount();
+    }
+
+    /**
+     * @return Number of {@code buildExtractor} calls that had to build a new
+     *    extractor; 0 if caching not enabled
+     */
+    public long cacheMissCount() {
+        return (cache == null) ? 0L : cache.missCount();
+    }
+
+    /**
+     * @return Number of distinct extractors currently cached; 0 if caching not enabled
+     */
+    public int cachedExtractorCount() {
+        return (cache == null) ? 0 : cache.size();
+    }
+
+    /*
+    /**********************************************************
+    /* Buffer pool statistics
+    /**********************************************************
+     */
+
+    /**
+     * @return Whether extractors this factory builds use a shared buffer pool
+     */
+    public boolean isBufferPooling() {
+        return bufferPool != null;
+    }
+
+    /**
+     * @return Number of buffer sets currently available in pool (that is, not in use
+     *    by extractions); 0 if pooling not enabled
+     */
+    public int pooledBufferCount() {
+        return (bufferPool == null) ? 0 : bufferPool.pooledCount();
+    }
+
+    /**
+     * @return Number of buffer sets pool has had to create, due to it having no
+     *    buffers available; 0 if pooling not enabled
+     */
+    public long bufferPoolCreatedCount() {
+        return (bufferPool == null) ? 0L : bufferPool.createdCount();
+    }
+
+    /*
+    /**********************************************************
+    /* Filter sharing statistics
+    /**********************************************************
+     */
+
+    /**
+     * @return Whether extractors this factory builds share filters
+     */
+    public boolean isFilterSharing() {
+        return filterInterner != null;
+    }
+
+    /**
+     * @return Number of distinct filters (nodes of filter graphs) retained for sharing
+     *    between extractors; 0 if sharing not enabled
+     */
+    public int retainedFilterNodeCount() {
+        return (filterInterner == null) ? 0 : filterInterner.size();
+    }
+
+    /**
+     * @return Number of times an already built filter was used for an extractor
+     *    built (instead of building a new one); 0 if sharing not enabled
+     */
+    public long sharedFilterNodeCount() {
+        return (filterInterner == null) ? 0L : filterInterner.sharedCount();
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods
+    /**********************************************************
+     */
+
+    /**
+     * @return New, empty cache of the same maximum size as this factory has, if caching
+     *    is enabled; {@code null} if not. Used for factories with different settings,
+     *    which can not reuse extractors cached by this factory.
+     */
+    private ExtractorCache _freshCache() {
+        return (cache == null) ? null : new ExtractorCache(cache.maxEntries());
+    }
+
+    private JsonFieldExtractorFactory _withFeatures(int newFeatures) {
+        if (newFeatures == features) {
+            return this;
+        }
+        return new JsonFieldExtractorFactory(formats, newFeatures, _freshCache(), listener, outputLimit,
+                bufferPool, filterInterner);
+    }
+
+    private JsonFieldExtractor _build(PathBasedFilterFactory.InclusionTreeNode inclusionTree) {
+        return JsonFieldExtractor.construct(formats, inclusionTree, features, listener, outputLimit,
+                bufferPool, filterInterner);
+    }
+
+    private JsonFieldExtractor _findOrBuild(Object definition,
+            PathBasedFilterFactory.InclusionTreeNode inclusionTree) {
+        JsonFieldExtractor extr = cache.findByInclusionTree(definition, inclusionTree);
+        if (extr == null) {
+            extr = cache.add(definition, inclusionTree, _build(inclusionTree));
+        }
+        return extr;
     }
 }
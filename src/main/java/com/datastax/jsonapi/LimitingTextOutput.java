@@ -0,0 +1,234 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+
+/**
+ * {@link TextOutput} decorator that enforces {@link OutputLimit}: keeps track of
+ * length of content (including separators) passed to delegate, measured in units
+ * of the limit, and once a value would not fit, passes as much of it as fits (cut at
+ * a character boundary) and stops extraction by throwing {@link LimitReached}, which
+ * {@link JsonFieldExtractor} catches.
+ *<p>
+ * Note that output that is exactly as long as the limit is not considered truncated
+ * unless there is more content to include: so extraction only stops on the first
+ * value that does not fit.
+ */
+final class LimitingTextOutput extends TextOutput {
+    /**
+     * Signal used to stop extraction once limit is reached: stackless, so it is cheap
+     * to throw, and never escapes {@link JsonFieldExtractor}.
+     */
+    final static class LimitReached extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final static LimitReached INSTANCE = new LimitReached();
+
+        private LimitReached() {
+            super("Output limit reached", null, false, false);
+        }
+    }
+
+    private final TextOutput delegate;
+
+    private final int maxLength;
+
+    private final boolean countBytes;
+
+    private int length;
+
+    private boolean truncated;
+
+    // Number of units in the part of value that fits, as calculated by the last
+    // call to one of "_fitting" methods
+    private int fittingUnits;
+
+    LimitingTextOutput(TextOutput delegate, OutputLimit limit) {
+        this.delegate = delegate;
+        maxLength = limit.maxLength();
+        countBytes = (limit.unit() == OutputLimit.Unit.UTF8_BYTES);
+    }
+
+    /*
+    /**********************************************************
+    /* Accessors
+    /**********************************************************
+     */
+
+    /**
+     * @return Whether some of content was left out due to limit
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /*
+    /**********************************************************
+    /* TextOutput implementation
+    /**********************************************************
+     */
+
+    @Override
+    public void appendValue(char[] src, int offset, int len) throws IOException {
+        if (len > 0) {
+            final int room = _room();
+            // Each char encodes as at most 3 bytes (surrogate pairs as 4 bytes)
+            if ((countBytes ? (len * 3) : len) <= room) {
+                delegate.appendValue(src, offset, len);
+                length += _separatorLength() + (countBytes ? _utf8Length(src, offset, len) : len);
+                return;
+            }
+            final int fitting = countBytes ? _fittingCharsAsUtf8(src, offset, len, room)
+                    : _fittingChars(src, offset, len, room);
+            if (fitting == len) {
+                delegate.appendValue(src, offset, len);
+                length += _separatorLength() + fittingUnits;
+                return;
+            }
+            if (fitting > 0) {
+                delegate.appendValue(src, offset, fitting);
+                length += _separatorLength() + fittingUnits;
+            }
+            _truncate();
+        }
+    }
+
+    @Override
+    public void appendUtf8Value(byte[] src, int offset, int len) throws IOException {
+        if (len > 0) {
+            final int room = _room();
+            // Each byte decodes into at most one char
+            if (len <= room) {
+                delegate.appendUtf8Value(src, offset, len);
+                length += _separatorLength() + (countBytes ? len : _charLength(src, offset, len));
+                return;
+            }
+            final int fitting = countBytes ? _fittingUtf8(src, offset, room)
+                    : _fittingUtf8AsChars(src, offset, len, room);
+            if (fitting > 0) {
+                delegate.appendUtf8Value(src, offset, fitting);
+                length += _separatorLength() + fittingUnits;
+            }
+            _truncate();
+        }
+    }
+
+    @Override
+    public void appendAsciiValue(byte[] src, int offset, int len) throws IOException {
+        if (len > 0) {
+            final int room = _room();
+            if (len <= room) {
+                delegate.appendAsciiValue(src, offset, len);
+                length += _separatorLength() + len;
+                return;
+            }
+            if (room > 0) {
+                delegate.appendAsciiValue(src, offset, room);
+                length += _separatorLength() + room;
+            }
+            _truncate();
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods
+    /**********************************************************
+     */
+
+    // Separator is only added between values (length not yet updated for the value)
+    private int _separatorLength() {
+        return (length > 0) ? 1 : 0;
+    }
+
+    // Room left for the next value (not including separator needed)
+    private int _room() {
+        return maxLength - length - _separatorLength();
+    }
+
+    private void _truncate() {
+        truncated = true;
+        throw LimitReached.INSTANCE;
+    }
+
+    private int _fittingChars(char[] src, int offset, int len, int room) {
+        int fitting = Math.min(len, Math.max(0, room));
+        // Do not split surrogate pairs
+        if ((fitting > 0) && (fitting < len) && Character.isHighSurrogate(src[offset + fitting - 1])) {
+            --fitting;
+        }
+        fittingUnits = fitting;
+        return fitting;
+    }
+
+    // Number of chars that fit when encoded as UTF-8 (same way as Utf8Util.encode() does)
+    private int _fittingCharsAsUtf8(char[] src, int offset, int len, int room) {
+        int units = 0;
+        int i = 0;
+        while (i < len) {
+            final char c = src[offset + i];
+            int chars = 1;
+            int bytes;
+            if (c < 0x80) {
+                bytes = 1;
+            } else if (c < 0x800) {
+                bytes = 2;
+            } else if (Character.isHighSurrogate(c) && (i + 1 < len)
+                    && Character.isLowSurrogate(src[offset + i + 1])) {
+                chars = 2;
+                bytes = 4;
+            } else if (Character.isSurrogate(c)) {
+                bytes = 1;
+            } else {
+                bytes = 3;
+            }
+            if (units + bytes > room) {
+                break;
+            }
+            units += bytes;
+            i += chars;
+        }
+        fittingUnits = units;
+        return i;
+    }
+
+    private int _utf8Length(char[] src, int offset, int len) {
+        _fittingCharsAsUtf8(src, offset, len, Integer.MAX_VALUE);
+        return fittingUnits;
+    }
+
+    // Number of bytes that fit, without splitting multi-byte sequences
+    private int _fittingUtf8(byte[] src, int offset, int room) {
+        int fitting = Math.max(0, room);
+        // "room" is less than length so there is always a byte following
+        while ((fitting > 0) && ((src[offset + fitting] & 0xC0) == 0x80)) {
+            --fitting;
+        }
+        fittingUnits = fitting;
+        return fitting;
+    }
+
+    // Number of bytes that fit when decoded into chars (same way as Utf8Util.decode() does)
+    private int _fittingUtf8AsChars(byte[] src, int offset, int len, int room) {
+        int units = 0;
+        int i = 0;
+        for (; i < len; ++i) {
+            final int b = src[offset + i];
+            if ((b & 0xC0) == 0x80) { // continuation byte, part of preceding char
+                continue;
+            }
+            // 4-byte sequences decode into surrogate pairs
+            final int chars = ((b & 0xF8) == 0xF0) ? 2 : 1;
+            if (units + chars > room) {
+                break;
+            }
+            units += chars;
+        }
+        fittingUnits = units;
+        return i;
+    }
+
+    private int _charLength(byte[] src, int offset, int len) {
+        _fittingUtf8AsChars(src, offset, len, Integer.MAX_VALUE);
+        return fittingUnits;
+    }
+}
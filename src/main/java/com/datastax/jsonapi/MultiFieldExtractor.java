@@ -0,0 +1,404 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.JsonTokenId;
+import com.fasterxml.jackson.core.base.ParserBase;
+
+/**
+ * Composite extractor that extracts contents for multiple fields (each with its own set
+ * of inclusion paths) from a JSON document in a single pass: instead of parsing the
+ * document once per {@link JsonFieldExtractor}, a merged inclusion tree is walked once
+ * and each included leaf value is routed to every field whose paths include it.
+ * Results for each field are identical to those of a {@link JsonFieldExtractor}
+ * built from the same path definition.
+ *<p>
+ * Instances are created via {@link JsonFieldExtractorFactory#buildMultiExtractor(List)};
+ * they are thread-safe and can be shared. At most {@link #MAX_FIELDS} fields are supported.
+ * Multi-field extraction only uses the input formats of the factory (binary formats
+ * enabled with {@link JsonFieldExtractorFactory#withBinaryFormat(JsonFactory)} included):
+ * {@link ExtractorFeature}s, extraction listener, output limit and buffer pool configured
+ * for the factory are not used.
+ */
+public class MultiFieldExtractor {
+    /**
+     * Maximum number of fields supported (one bit of routing mask per field)
+     */
+    public final static int MAX_FIELDS = 64;
+
+    private final InputFormatDetector formats;
+
+    private final RoutingNode root;
+
+    private final int fieldCount;
+
+    /**
+     * Output to input length ratios learned from extractions, one per field (since
+     * fields typically differ in how much content they include), used for sizing
+     * output buffers
+     */
+    private final OutputSizeEstimator[] sizeEstimators;
+
+    private MultiFieldExtractor(InputFormatDetector formats, RoutingNode root, int fieldCount) {
+        this.formats = formats;
+        this.root = root;
+        this.fieldCount = fieldCount;
+        sizeEstimators = new OutputSizeEstimator[fieldCount];
+        for (int i = 0; i < fieldCount; ++i) {
+            sizeEstimators[i] = new OutputSizeEstimator();
+        }
+    }
+
+    static MultiFieldExtractor construct(InputFormatDetector formats,
+            List<PathBasedFilterFactory.InclusionTreeNode> inclusionTrees) {
+        final int count = inclusionTrees.size();
+        if (count > MAX_FIELDS) {
+            throw new IllegalArgumentException("Too many fields ("+count+"): at most "
+                    +MAX_FIELDS+" supported");
+        }
+        RoutingNode root = new RoutingNode();
+        for (int i = 0; i < count; ++i) {
+            PathBasedFilterFactory.InclusionTreeNode tree = inclusionTrees.get(i);
+            // Note: empty root means "include nothing" (not everything) so skip
+            if (!tree.isEmpty()) {
+                root.mergeChildren(tree, 1L << i);
+            }
+        }
+        return new MultiFieldExtractor(formats, root, count);
+    }
+
+    /*
+    /**********************************************************
+    /* Public API
+    /**********************************************************
+     */
+
+    /**
+     * @return Number of fields extracted: length of result arrays
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Method for extracting contents of all fields from given JSON document.
+     *
+     * @return Extracted contents for each field, in the order field definitions were
+     *    passed; or {@link Optional#empty()} if content is not JSON
+     */
+    public Optional<String[]> extractAsStrings(String json) throws IOException {
+        if (!InputFormatDetector.isJson(json)) {
+            return Optional.empty();
+        }
+        final CharOutputBuffer[] outputs = _charOutputs(json.length());
+        try (JsonParser p = formats.jsonFactory().createParser(json)) {
+            new Walker(p, outputs, null, 0, 0).walkRoot(root);
+        }
+        return Optional.of(_toStrings(json.length(), outputs));
+    }
+
+    public Optional<String[]> extractAsStrings(byte[] json) throws IOException {
+        final JsonFactory f = formats.factoryFor(json, 0, json.length);
+        if (f == null) {
+            return Optional.empty();
+        }
+        final CharOutputBuffer[] outputs = _charOutputs(json.length);
+        try (JsonParser p = f.createParser(json)) {
+            new Walker(p, outputs, null, 0, 0).walkRoot(root);
+        }
+        return Optional.of(_toStrings(json.length, outputs));
+    }
+
+    /**
+     * Method for extracting contents of all fields from JSON document contained in given
+     * {@link ByteBuffer} (between its position and limit).
+     * Position of the buffer is not modified.
+     */
+    public Optional<String[]> extractAsStrings(ByteBuffer json) throws IOException {
+        final JsonFactory f = formats.factoryFor(json);
+        if (f == null) {
+            return Optional.empty();
+        }
+        final int len = json.remaining();
+        final CharOutputBuffer[] outputs = _charOutputs(len);
+        try (JsonParser p = _createParser(f, json)) {
+            new Walker(p, outputs, null, 0, 0).walkRoot(root);
+        }
+        return Optional.of(_toStrings(len, outputs));
+    }
+
+    /**
+     * Method for extracting contents of all fields from given JSON document, as
+     * UTF-8 encoded bytes. String values without escapes are copied as-is from input.
+     *
+     * @return Extracted contents for each field, in the order field definitions were
+     *    passed; or {@link Optional#empty()} if content is not JSON
+     */
+    public Optional<byte[][]> extractAsBytes(byte[] json) throws IOException {
+        final JsonFactory f = formats.factoryFor(json, 0, json.length);
+        if (f == null) {
+            return Optional.empty();
+        }
+        final Utf8OutputBuffer[] outputs = _byteOutputs(json.length);
+        try (JsonParser p = f.createParser(json)) {
+            new Walker(p, outputs, json, 0, json.length).walkRoot(root);
+        }
+        return Optional.of(_toByteArrays(json.length, outputs));
+    }
+
+    /**
+     * Same as {@link #extractAsBytes(byte[])} but for JSON document contained in given
+     * {@link ByteBuffer} (between its position and limit).
+     * Position of the buffer is not modified.
+     */
+    public Optional<byte[][]> extractAsBytes(ByteBuffer json) throws IOException {
+        final JsonFactory f = formats.factoryFor(json);
+        if (f == null) {
+            return Optional.empty();
+        }
+        final int len = json.remaining();
+        final Utf8OutputBuffer[] outputs = _byteOutputs(len);
+        try (JsonParser p = _createParser(f, json)) {
+            if (json.hasArray()) {
+                final int offset = json.arrayOffset() + json.position();
+                new Walker(p, outputs, json.array(), offset, offset + len).walkRoot(root);
+            } else {
+                new Walker(p, outputs, null, 0, 0).walkRoot(root);
+            }
+        }
+        return Optional.of(_toByteArrays(len, outputs));
+    }
+
+    /*
+    /**********************************************************
+    /* Internal helper methods
+    /**********************************************************
+     */
+
+    private JsonParser _createParser(JsonFactory f, ByteBuffer json) throws IOException {
+        if (json.hasArray()) {
+            return f.createParser(json.array(), json.arrayOffset() + json.position(),
+                    json.remaining());
+        }
+        return f.createParser(InputFormatDetector.inputStreamFor(json));
+    }
+
+    private CharOutputBuffer[] _charOutputs(int jsonLength) {
+        CharOutputBuffer[] outputs = new CharOutputBuffer[fieldCount];
+        for (int i = 0; i < fieldCount; ++i) {
+            outputs[i] = new CharOutputBuffer(sizeEstimators[i].estimate(jsonLength));
+        }
+        return outputs;
+    }
+
+    private Utf8OutputBuffer[] _byteOutputs(int jsonLength) {
+        Utf8OutputBuffer[] outputs = new Utf8OutputBuffer[fieldCount];
+        for (int i = 0; i < fieldCount; ++i) {
+            outputs[i] = new Utf8OutputBuffer(sizeEstimators[i].estimate(jsonLength));
+        }
+        return outputs;
+    }
+
+    private String[] _toStrings(int jsonLength, CharOutputBuffer[] outputs) {
+        String[] result = new String[outputs.length];
+        for (int i = 0; i < outputs.length; ++i) {
+            sizeEstimators[i].record(jsonLength, outputs[i].length());
+            result[i] = outputs[i].toString();
+        }
+        return result;
+    }
+
+    private byte[][] _toByteArrays(int jsonLength, Utf8OutputBuffer[] outputs) {
+        byte[][] result = new byte[outputs.length][];
+        for (int i = 0; i < outputs.length; ++i) {
+            sizeEstimators[i].record(jsonLength, outputs[i].length());
+            result[i] = outputs[i].toByteArray();
+        }
+        return result;
+    }
+
+    /*
+    /**********************************************************
+    /* Helper types
+    /**********************************************************
+     */
+
+    /**
+     * Node of merged inclusion tree: contains child nodes for properties that
+     * continue paths for one or more fields, and bit mask of fields for which
+     * path ends at this node (meaning the whole value is included).
+     */
+    static final class RoutingNode {
+        private Map<String, RoutingNode> children;
+
+        /**
+         * Bit mask of fields for which this node is a leaf (value fully included)
+         */
+        long leafMask;
+
+        void mergeChildren(PathBasedFilterFactory.InclusionTreeNode tree, long fieldBit) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            for (Map.Entry<String, PathBasedFilterFactory.InclusionTreeNode> entry
+                    : tree.getChildren().entrySet()) {
+                RoutingNode child = children.computeIfAbsent(entry.getKey(), k -> new RoutingNode());
+                PathBasedFilterFactory.InclusionTreeNode childTree = entry.getValue();
+                if (childTree.isEmpty()) {
+                    child.leafMask |= fieldBit;
+                } else {
+                    child.mergeChildren(childTree, fieldBit);
+                }
+            }
+        }
+
+        RoutingNode find(String property) {
+            return (children == null) ? null : children.get(property);
+        }
+
+        boolean hasChildren() {
+            return children != null;
+        }
+    }
+
+    /**
+     * Helper class that walks through content of a single document, routing
+     * included values to outputs of matching fields.
+     */
+    private static final class Walker {
+        private final JsonParser _parser;
+
+        // Output that routes values to outputs of fields that include them
+        private final MaskedOutput _output;
+
+        // Raw UTF-8 input parser reads, if available, for copying String values as-is
+        private final ParserBase _rawParser;
+        private final byte[] _rawInput;
+        private final int _rawOffset;
+        private final int _rawEnd;
+
+        Walker(JsonParser p, TextOutput[] outputs, byte[] rawInput, int rawOffset, int rawEnd) {
+            _parser = p;
+            _output = new MaskedOutput(outputs);
+            _rawParser = ScalarValues.rawParser(p, rawInput);
+            _rawInput = rawInput;
+            _rawOffset = rawOffset;
+            _rawEnd = rawEnd;
+        }
+
+        public void walkRoot(RoutingNode root) throws IOException {
+            JsonToken t;
+            // Similar to JsonParser, allow a sequence of root-level values
+            while ((t = _parser.nextToken()) != null) {
+                _walkValue(t, root, 0L);
+            }
+        }
+
+        /**
+         * @param node Node for paths that continue from this value, if any; {@code null} if none
+         * @param includeMask Bit mask of fields that include this value fully
+         */
+        private void _walkValue(JsonToken t, RoutingNode node, long includeMask)
+            throws IOException
+        {
+            if (node == null) {
+                if (includeMask == 0L) {
+                    _parser.skipChildren();
+                } else {
+                    _collectValue(t, includeMask);
+                }
+            } else if (t == JsonToken.START_OBJECT) {
+                _walkObject(node, includeMask);
+            } else if (t == JsonToken.START_ARRAY) {
+                // Arrays are transparent wrt paths: elements matched same as Array itself
+                while ((t = _parser.nextToken()) != JsonToken.END_ARRAY) {
+                    _walkValue(t, node, includeMask);
+                }
+            } else if (includeMask != 0L) {
+                // Scalars at intermediate levels only included for fields that include all
+                _appendScalar(t.id(), includeMask);
+            }
+        }
+
+        private void _walkObject(RoutingNode node, long includeMask) throws IOException {
+            final JsonParser p = _parser;
+            String name;
+            while ((name = p.nextFieldName()) != null) {
+                final RoutingNode child = node.find(name);
+                if (child == null) {
+                    _walkValue(p.nextToken(), null, includeMask);
+                } else {
+                    _walkValue(p.nextToken(), child.hasChildren() ? child : null,
+                            includeMask | child.leafMask);
+                }
+            }
+        }
+
+        private void _collectValue(JsonToken t, long includeMask) throws IOException {
+            if (!t.isStructStart()) {
+                _appendScalar(t.id(), includeMask);
+                return;
+            }
+            final JsonParser p = _parser;
+            int depth = 1;
+            while (true) {
+                final int id = p.nextToken().id();
+                switch (id) {
+                case JsonTokenId.ID_START_OBJECT:
+                case JsonTokenId.ID_START_ARRAY:
+                    ++depth;
+                    break;
+                case JsonTokenId.ID_END_OBJECT:
+                case JsonTokenId.ID_END_ARRAY:
+                    if (--depth == 0) {
+                        return;
+                    }
+                    break;
+                default:
+                    _appendScalar(id, includeMask);
+                }
+            }
+        }
+
+        private void _appendScalar(int tokenId, long includeMask) throws IOException {
+            _output.includeMask = includeMask;
+            ScalarValues.append(_parser, tokenId, _output, _rawParser, _rawInput, _rawOffset, _rawEnd);
+        }
+    }
+
+    /**
+     * {@link TextOutput} that appends values to outputs of fields indicated by
+     * a bit mask (set before each value).
+     */
+    private static final class MaskedOutput extends TextOutput {
+        private final TextOutput[] _outputs;
+
+        long includeMask;
+
+        MaskedOutput(TextOutput[] outputs) {
+            _outputs = outputs;
+        }
+
+        @Override
+        public void appendValue(char[] src, int offset, int len) throws IOException {
+            for (long mask = includeMask; mask != 0L; mask &= (mask - 1)) {
+                _outputs[Long.numberOfTrailingZeros(mask)].appendValue(src, offset, len);
+            }
+        }
+
+        @Override
+        public void appendUtf8Value(byte[] src, int offset, int len) throws IOException {
+            for (long mask = includeMask; mask != 0L; mask &= (mask - 1)) {
+                _outputs[Long.numberOfTrailingZeros(mask)].appendUtf8Value(src, offset, len);
+            }
+        }
+    }
+}
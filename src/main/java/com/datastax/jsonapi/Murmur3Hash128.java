@@ -0,0 +1,130 @@
+package com.datastax.jsonapi;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming implementation of 128-bit MurmurHash3 (x64 variant, seed 0): content is
+ * fed in arbitrarily sized chunks, and result is the same as for hashing all of it
+ * at once (and same as other implementations of the algorithm, like Guava's
+ * {@code Hashing.murmur3_128()}).
+ * Full 16-byte blocks are processed directly from source arrays; only partial
+ * blocks are buffered.
+ *<p>
+ * Instances are not thread-safe, and can only calculate a single hash.
+ */
+final class Murmur3Hash128 {
+    private final static long C1 = 0x87c37b91114253d5L;
+    private final static long C2 = 0x4cf5ad432745937fL;
+
+    private final static VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private final static int BLOCK_LENGTH = 16;
+
+    private long h1, h2;
+
+    // Total number of bytes hashed
+    private long length;
+
+    // Bytes of the incomplete block, if any
+    private final byte[] pending = new byte[BLOCK_LENGTH];
+
+    private int pendingLength;
+
+    public void update(byte b) {
+        pending[pendingLength++] = b;
+        ++length;
+        if (pendingLength == BLOCK_LENGTH) {
+            _block(pending, 0);
+            pendingLength = 0;
+        }
+    }
+
+    public void update(byte[] src, int offset, int len) {
+        length += len;
+        final int end = offset + len;
+        if (pendingLength > 0) {
+            final int count = Math.min(len, BLOCK_LENGTH - pendingLength);
+            System.arraycopy(src, offset, pending, pendingLength, count);
+            offset += count;
+            pendingLength += count;
+            if (pendingLength < BLOCK_LENGTH) {
+                return;
+            }
+            _block(pending, 0);
+            pendingLength = 0;
+        }
+        for (final int lastBlock = end - BLOCK_LENGTH; offset <= lastBlock; offset += BLOCK_LENGTH) {
+            _block(src, offset);
+        }
+        if (offset < end) {
+            pendingLength = end - offset;
+            System.arraycopy(src, offset, pending, 0, pendingLength);
+        }
+    }
+
+    /**
+     * @return Number of bytes hashed so far
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Method for calculating hash of all content fed; should only be called once.
+     */
+    public ContentHash finish() {
+        long k1 = 0L, k2 = 0L;
+        for (int i = pendingLength - 1; i >= BLOCK_LENGTH / 2; --i) {
+            k2 = (k2 << 8) | (pending[i] & 0xFF);
+        }
+        for (int i = Math.min(pendingLength, BLOCK_LENGTH / 2) - 1; i >= 0; --i) {
+            k1 = (k1 << 8) | (pending[i] & 0xFF);
+        }
+        if (pendingLength > BLOCK_LENGTH / 2) {
+            h2 ^= _mixK2(k2);
+        }
+        if (pendingLength > 0) {
+            h1 ^= _mixK1(k1);
+        }
+        long a = h1 ^ length;
+        long b = h2 ^ length;
+        a += b;
+        b += a;
+        a = _fmix(a);
+        b = _fmix(b);
+        a += b;
+        b += a;
+        return new ContentHash(a, b);
+    }
+
+    private void _block(byte[] src, int offset) {
+        final long k1 = (long) LONG_LE.get(src, offset);
+        final long k2 = (long) LONG_LE.get(src, offset + 8);
+        h1 ^= _mixK1(k1);
+        h1 = Long.rotateLeft(h1, 27) + h2;
+        h1 = h1 * 5 + 0x52dce729;
+        h2 ^= _mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31) + h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    private static long _mixK1(long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long _mixK2(long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long _fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,322 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pipeline for extracting contents of all documents in a (possibly multi-gigabyte)
+ * newline-delimited JSON (NDJSON) file, using a single {@link JsonFieldExtractor}.
+ * File is memory-mapped and split at line boundaries into segments that are processed
+ * in parallel (one task per segment, run on an {@link Executor}). Each line is
+ * bulk-copied from the mapped buffer into a reusable per-segment {@code byte[]}, so
+ * that it is extracted the same way as any other {@code byte[]} document
+ * (including {@link ExtractorFeature#RAW_UTF8_SCANNING} and raw copying of String
+ * values, which need array access to input); extracted contents are written into
+ * a reusable per-segment buffer as well, so heap usage does not depend on file size.
+ *<p>
+ * Empty (or all-whitespace) lines are skipped; leading whitespace and trailing
+ * carriage return of lines are ignored.
+ *<p>
+ * Instances are immutable and thread-safe; configuration is changed using
+ * "mutant factory" methods that create new instances.
+ */
+public class NdjsonFileExtractor {
+    /**
+     * Callback interface for receiving extraction results.
+     */
+    @FunctionalInterface
+    public interface LineResultHandler {
+        /**
+         * Method called with result of extracting contents of a single line. Calls for
+         * lines within a segment are made in order, but calls for different segments
+         * are made concurrently, from multiple threads.
+         *
+         * @param lineOffset Offset of the first byte of the line within file
+         * @param result Extracted contents as UTF-8 encoded bytes (between position and
+         *    limit); or {@code null} if line was not JSON. Buffer is reused: contents are
+         *    only valid during the call, and must be copied if needed later.
+         */
+        void handleResult(long lineOffset, ByteBuffer result) throws IOException;
+    }
+
+    // Mappings are limited to 2GB; but keep them smaller to limit address space use
+    private final static long MAX_SEGMENT_SIZE = 1L << 30;
+
+    private final static int INITIAL_OUTPUT_BUFFER_SIZE = 8000;
+
+    private final static int INITIAL_LINE_BUFFER_SIZE = 8000;
+
+    private final JsonFieldExtractor extractor;
+
+    private final Executor executor;
+
+    private final int parallelism;
+
+    private NdjsonFileExtractor(JsonFieldExtractor extractor, Executor executor, int parallelism) {
+        this.extractor = extractor;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Factory method for constructing pipeline with default settings: using
+     * {@link ForkJoinPool#commonPool()}, with as many segments as there are
+     * available processors.
+     */
+    public static NdjsonFileExtractor construct(JsonFieldExtractor extractor) {
+        return new NdjsonFileExtractor(Objects.requireNonNull(extractor), ForkJoinPool.commonPool(),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /*
+    /**********************************************************
+    /* Mutant factories
+    /**********************************************************
+     */
+
+    public NdjsonFileExtractor withExecutor(Executor executor) {
+        return new NdjsonFileExtractor(extractor, Objects.requireNonNull(executor), parallelism);
+    }
+
+    /**
+     * @param parallelism Number of segments to split files into (more may be used for
+     *    files too big to map as that many segments); 1 or above
+     */
+    public NdjsonFileExtractor withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be 1 or above (was "+parallelism+")");
+        }
+        return new NdjsonFileExtractor(extractor, executor, parallelism);
+    }
+
+    public int parallelism() { return parallelism; }
+
+    /*
+    /**********************************************************
+    /* Public API
+    /**********************************************************
+     */
+
+    /**
+     * Method for extracting contents of all lines of given NDJSON file, passing results to
+     * given handler. Blocks until all lines have been processed. If extraction of any line
+     * (or result handling) fails, processing of all segments stops, and the first failure
+     * is thrown.
+     *
+     * @return Statistics for the run: output length is in bytes
+     */
+    public BulkExtractionStats extract(Path ndjsonFile, LineResultHandler handler)
+        throws IOException
+    {
+        final long start = System.nanoTime();
+        final Run run = new Run(handler);
+        try (FileChannel channel = FileChannel.open(ndjsonFile, StandardOpenOption.READ)) {
+            final List<CompletableFuture<Void>> futures = new ArrayList<>();
+            final long[] boundaries = _segmentBoundaries(channel);
+            for (int i = 1; i < boundaries.length; ++i) {
+                final long segStart = boundaries[i-1];
+                final long segLength = boundaries[i] - segStart;
+                if (segLength == 0L) { // line longer than nominal segment
+                    continue;
+                }
+                final MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                        segStart, segLength);
+                futures.add(CompletableFuture.runAsync(() -> run.processSegment(segStart, segment),
+                        executor));
+            }
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException e) {
+                    run.fail(e.getCause());
+                }
+            }
+        }
+        run.throwIfFailed();
+        return new BulkExtractionStats(run.lineCount.sum(), run.nonJsonCount.sum(),
+                run.inputBytes.sum(), run.outputLength.sum(), System.nanoTime() - start);
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods
+    /**********************************************************
+     */
+
+    /**
+     * Method for splitting file into segments of (about) equal size, each starting
+     * at the beginning of a line.
+     *
+     * @return Offsets of segment boundaries: first one is 0 and last one the file size;
+     *    offsets may repeat for lines longer than nominal segment size
+     */
+    private long[] _segmentBoundaries(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        // Nominal size at most half the maximum, to leave room for extending to line end
+        final long maxNominal = MAX_SEGMENT_SIZE / 2;
+        final long minSegments = (size + maxNominal - 1) / maxNominal;
+        final int segments = (int) Math.max(1L, Math.max(parallelism, minSegments));
+        final long[] boundaries = new long[segments + 1];
+        final ByteBuffer buf = ByteBuffer.allocate(4096);
+        for (int i = 1; i < segments; ++i) {
+            final long nominal = Math.max(boundaries[i-1], size * i / segments);
+            boundaries[i] = _nextLineStart(channel, nominal, buf);
+        }
+        boundaries[segments] = size;
+        for (int i = 1; i <= segments; ++i) {
+            if ((boundaries[i] - boundaries[i-1]) > MAX_SEGMENT_SIZE) {
+                throw new IOException("Line(s) starting at offset #"+boundaries[i-1]
+                        +" too long to map (over "+MAX_SEGMENT_SIZE+" bytes)");
+            }
+        }
+        return boundaries;
+    }
+
+    /**
+     * @return Offset of the first line that starts at or after given offset (or
+     *    end of file if none)
+     */
+    private static long _nextLineStart(FileChannel channel, long offset, ByteBuffer buf)
+        throws IOException
+    {
+        if (offset == 0L) {
+            return 0L;
+        }
+        // Line starts at offset if preceded by linefeed
+        long pos = offset - 1;
+        while (true) {
+            buf.clear();
+            final int count = channel.read(buf, pos);
+            if (count <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < count; ++i) {
+                if (buf.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += count;
+        }
+    }
+
+    /**
+     * State of a single {@link #extract} call.
+     */
+    private final class Run {
+        private final LineResultHandler handler;
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        final LongAdder lineCount = new LongAdder();
+
+        final LongAdder nonJsonCount = new LongAdder();
+
+        final LongAdder inputBytes = new LongAdder();
+
+        final LongAdder outputLength = new LongAdder();
+
+        Run(LineResultHandler handler) {
+            this.handler = handler;
+        }
+
+        void processSegment(long segmentOffset, ByteBuffer segment) {
+            // Reused copy of current line (grown as needed)
+            byte[] line = new byte[INITIAL_LINE_BUFFER_SIZE];
+            ByteBuffer out = ByteBuffer.allocate(INITIAL_OUTPUT_BUFFER_SIZE);
+            long lines = 0L, nonJson = 0L, outputTotal = 0L;
+            try {
+                final int end = segment.limit();
+                int ptr = 0;
+                while ((ptr < end) && (failure.get() == null)) {
+                    final int lineStart = ptr;
+                    while ((ptr < end) && (segment.get(ptr) != '\n')) {
+                        ++ptr;
+                    }
+                    final int lineEnd = ptr++; // skip linefeed
+                    int start = lineStart;
+                    while ((start < lineEnd) && _isWhitespace(segment.get(start))) {
+                        ++start;
+                    }
+                    int last = lineEnd;
+                    if ((last > start) && (segment.get(last-1) == '\r')) {
+                        --last;
+                    }
+                    if (start == last) { // blank line
+                        continue;
+                    }
+                    ++lines;
+                    final int lineLength = last - start;
+                    if (lineLength > line.length) {
+                        line = new byte[Math.max(lineLength, line.length * 2)];
+                    }
+                    segment.get(start, line, 0, lineLength);
+                    out.clear();
+                    int count;
+                    while (true) {
+                        try {
+                            count = extractor._extractTo(line, 0, lineLength, out);
+                            break;
+                        } catch (BufferOverflowException e) {
+                            out = ByteBuffer.allocate(out.capacity() * 2);
+                        }
+                    }
+                    if (count == JsonFieldExtractor.NOT_JSON) {
+                        ++nonJson;
+                        handler.handleResult(segmentOffset + lineStart, null);
+                    } else {
+                        outputTotal += count;
+                        out.flip();
+                        handler.handleResult(segmentOffset + lineStart, out);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            } finally {
+                lineCount.add(lines);
+                nonJsonCount.add(nonJson);
+                inputBytes.add(segment.limit());
+                outputLength.add(outputTotal);
+            }
+        }
+
+        void fail(Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+
+        void throwIfFailed() throws IOException {
+            final Throwable t = failure.get();
+            if (t == null) {
+                return;
+            }
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new UncheckedIOException(new IOException(t));
+        }
+    }
+
+    private static boolean _isWhitespace(byte b) {
+        return (b == ' ') || (b == '\t') || (b == '\r');
+    }
+}
@@ -0,0 +1,80 @@
+package com.datastax.jsonapi;
+
+/**
+ * Immutable definition of maximum length of content a {@link JsonFieldExtractor}
+ * extracts from a single document (see
+ * {@link JsonFieldExtractor#withOutputLimit(OutputLimit)} and
+ * {@link JsonFieldExtractorFactory#withOutputLimit(OutputLimit)}).
+ * Length may be measured either in {@code char}s or in UTF-8 encoded bytes,
+ * regardless of type of output ({@code String}, {@code byte[]}, sinks):
+ * this allows matching limits downstream processing has.
+ *<p>
+ * Once the limit is reached, extraction stops: the last value is cut so that output
+ * is as long as possible without exceeding the limit, but never in the middle of a
+ * character (multi-byte UTF-8 sequence or surrogate pair).
+ */
+public final class OutputLimit {
+    /**
+     * Units in which output length is measured
+     */
+    public enum Unit {
+        /**
+         * Length measured in Java {@code char}s (UTF-16 code units): characters outside
+         * of Basic Multilingual Plane count as 2
+         */
+        CHARS,
+
+        /**
+         * Length measured in bytes of UTF-8 encoding: 1 - 4 bytes per character
+         */
+        UTF8_BYTES;
+    }
+
+    private final int maxLength;
+
+    private final Unit unit;
+
+    private OutputLimit(int maxLength, Unit unit) {
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("Invalid maxLength ("+maxLength+"): can not be negative");
+        }
+        this.maxLength = maxLength;
+        this.unit = unit;
+    }
+
+    /**
+     * Factory method for limit measured in {@code char}s
+     */
+    public static OutputLimit chars(int maxLength) {
+        return new OutputLimit(maxLength, Unit.CHARS);
+    }
+
+    /**
+     * Factory method for limit measured in UTF-8 encoded bytes
+     */
+    public static OutputLimit utf8Bytes(int maxLength) {
+        return new OutputLimit(maxLength, Unit.UTF8_BYTES);
+    }
+
+    public int maxLength() { return maxLength; }
+
+    public Unit unit() { return unit; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof OutputLimit)) return false;
+        OutputLimit other = (OutputLimit) o;
+        return (maxLength == other.maxLength) && (unit == other.unit);
+    }
+
+    @Override
+    public int hashCode() {
+        return maxLength * 31 + unit.ordinal();
+    }
+
+    @Override
+    public String toString() {
+        return "[OutputLimit: "+maxLength+" "+unit+"]";
+    }
+}
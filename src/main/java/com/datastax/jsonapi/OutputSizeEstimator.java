@@ -0,0 +1,131 @@
+package com.datastax.jsonapi;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Helper class used by {@link JsonFieldExtractor} for learning the ratio of output
+ * (extracted content) length to input (document) length, to be able to size output
+ * buffers so that they need neither be resized nor be much bigger than needed.
+ *<p>
+ * Ratio is tracked as an exponentially weighted moving average (along with mean
+ * deviation), in fixed-point format; both are packed in a single {@code volatile long}
+ * so that they are always consistent. Updates are not atomic: concurrent updates
+ * may be lost, which is fine for estimation, and keeps recording very cheap.
+ * Until enough samples have been recorded, a fixed estimate is used.
+ *<p>
+ * Once warmed up, only a random sample (1 in {@link #UPDATE_SAMPLE_RATE}) of recorded
+ * lengths updates the averages, so that the shared {@code state} is not written
+ * (and its cache line bounced between cores) on every extraction; totals are
+ * still updated for all.
+ */
+final class OutputSizeEstimator {
+    // Ratios are fixed-point values with 16 bits of fraction
+    private final static int RATIO_SHIFT = 16;
+
+    // Output can be longer than input only by a bit (separators): cap samples
+    private final static int MAX_RATIO = 4 << RATIO_SHIFT;
+
+    // Weight of each new sample for moving averages: 1/8
+    private final static int WEIGHT_SHIFT = 3;
+
+    // Number of samples needed before estimates are based on them
+    private final static int MIN_SAMPLES = 8;
+
+    // After warm-up, 1 in this many recorded lengths updates averages (power of 2)
+    final static int UPDATE_SAMPLE_RATE = 16;
+
+    private final static int UPDATE_SAMPLE_MASK = UPDATE_SAMPLE_RATE - 1;
+
+    // Smallest buffer to allocate; same as default StringBuilder capacity
+    private final static int MIN_ESTIMATE = 16;
+
+    // Limits for estimates before enough samples have been recorded
+    private final static int DEFAULT_MIN_ESTIMATE = 100;
+    private final static int DEFAULT_MAX_ESTIMATE = 50_000;
+
+    /**
+     * Moving average of ratio in upper 32 bits, mean deviation in lower 32 bits
+     */
+    private volatile long state;
+
+    private final LongAdder sampleCount = new LongAdder();
+
+    private final LongAdder totalInputLength = new LongAdder();
+
+    private final LongAdder totalOutputLength = new LongAdder();
+
+    // Racily updated copy of sample count, to avoid summing LongAdder for every estimate
+    private volatile boolean warmedUp;
+
+    /**
+     * @return Estimated length of output for input of given length
+     */
+    public int estimate(int inputLength) {
+        if (!warmedUp) {
+            // Estimate that we'll need output buffer that's 1/4 the size of the input
+            // (but avoid tiny and huge buffers)
+            return Math.min(Math.max(inputLength >> 2, DEFAULT_MIN_ESTIMATE), DEFAULT_MAX_ESTIMATE);
+        }
+        final long st = state;
+        // Aim a bit above average to avoid resizing in most cases
+        final long ratio = (st >>> 32) + 2 * (st & 0xFFFFFFFFL);
+        final long estimate = ((inputLength * ratio) >> RATIO_SHIFT) + MIN_ESTIMATE;
+        // Output is rarely longer than input: no point in allocating more
+        return (int) Math.min(estimate, inputLength + MIN_ESTIMATE);
+    }
+
+    /**
+     * Method called after extraction to record actual lengths of input and output.
+     */
+    public void record(int inputLength, int outputLength) {
+        if (inputLength <= 0) {
+            return;
+        }
+        sampleCount.increment();
+        totalInputLength.add(inputLength);
+        totalOutputLength.add(outputLength);
+
+        final boolean warm = warmedUp;
+        if (warm && (ThreadLocalRandom.current().nextInt() & UPDATE_SAMPLE_MASK) != 0) {
+            return;
+        }
+        final int sample = (int) Math.min(((long) outputLength << RATIO_SHIFT) / inputLength,
+                MAX_RATIO);
+        final long st = state;
+        int avg = (int) (st >>> 32);
+        int dev = (int) st;
+        long n = 0L;
+        if (warm) {
+            dev += (Math.abs(sample - avg) - dev) >> WEIGHT_SHIFT;
+            avg += (sample - avg) >> WEIGHT_SHIFT;
+        } else {
+            // Until warmed up, use cumulative values to avoid bias from initial zeroes
+            // (first sample has no prior average to deviate from)
+            n = sampleCount.sum() - 1;
+            if (n <= 0L) {
+                n = 0L;
+                avg = sample;
+                dev = 0;
+            } else {
+                dev = (int) ((dev * n + Math.abs(sample - avg)) / (n + 1));
+                avg = (int) ((avg * n + sample) / (n + 1));
+            }
+        }
+        final long newState = ((long) avg << 32) | (dev & 0xFFFFFFFFL);
+        // Avoid writes when converged
+        if (newState != st) {
+            state = newState;
+        }
+        if (!warm && (n + 1 >= MIN_SAMPLES)) {
+            warmedUp = true;
+        }
+    }
+
+    public OutputSizeStats stats() {
+        final long st = state;
+        final double scale = 1 << RATIO_SHIFT;
+        return new OutputSizeStats(sampleCount.sum(), totalInputLength.sum(),
+                totalOutputLength.sum(), (st >>> 32) / scale, (int) st / scale, warmedUp);
+    }
+}
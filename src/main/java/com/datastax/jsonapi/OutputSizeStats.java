@@ -0,0 +1,78 @@
+package com.datastax.jsonapi;
+
+/**
+ * Immutable snapshot of output size statistics a {@link JsonFieldExtractor} has
+ * learned about its inputs, and uses for sizing output buffers: see
+ * {@link JsonFieldExtractor#outputSizeStats()}.
+ */
+public final class OutputSizeStats {
+    private final long sampleCount;
+
+    private final long totalInputLength;
+
+    private final long totalOutputLength;
+
+    private final double averageRatio;
+
+    private final double ratioDeviation;
+
+    private final boolean active;
+
+    OutputSizeStats(long sampleCount, long totalInputLength, long totalOutputLength,
+            double averageRatio, double ratioDeviation, boolean active) {
+        this.sampleCount = sampleCount;
+        this.totalInputLength = totalInputLength;
+        this.totalOutputLength = totalOutputLength;
+        this.averageRatio = averageRatio;
+        this.ratioDeviation = ratioDeviation;
+        this.active = active;
+    }
+
+    /**
+     * @return Number of extractions recorded
+     */
+    public long sampleCount() { return sampleCount; }
+
+    /**
+     * @return Total length of input documents recorded (in {@code char}s or bytes,
+     *    depending on input type)
+     */
+    public long totalInputLength() { return totalInputLength; }
+
+    /**
+     * @return Total length of extracted contents recorded (in {@code char}s or bytes,
+     *    depending on output type)
+     */
+    public long totalOutputLength() { return totalOutputLength; }
+
+    /**
+     * @return Moving average of output length to input length ratio, weighted
+     *    towards recent extractions
+     */
+    public double averageRatio() { return averageRatio; }
+
+    /**
+     * @return Moving mean deviation of output length to input length ratio
+     */
+    public double ratioDeviation() { return ratioDeviation; }
+
+    /**
+     * @return Whether enough samples have been recorded for output buffers to
+     *    be sized based on learned ratio (instead of the default rule)
+     */
+    public boolean isActive() { return active; }
+
+    /**
+     * @return Ratio of total output length to total input length
+     */
+    public double overallRatio() {
+        return (totalInputLength == 0L) ? 0.0 : ((double) totalOutputLength / totalInputLength);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d samples, ratio %.3f (+/- %.3f; overall %.3f)%s",
+                sampleCount, averageRatio, ratioDeviation, overallRatio(),
+                active ? "" : " (not yet active)");
+    }
+}
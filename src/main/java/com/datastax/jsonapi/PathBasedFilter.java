@@ -2,15 +2,20 @@ package com.datastax.jsonapi;
 
 import com.fasterxml.jackson.core.filter.TokenFilter;
 
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * Base class for {@link TokenFilter} implementations used for filtering
  * intermediate tree levels (for leaves we use "include all" filter).
  * Needs to match path going through, and exclude possible scalar values
  * (so that "a.x.y" will NOT match "a.x", but will match "a.x.y.z", for example).
+ *<p>
+ * In addition to {@link TokenFilter} API, exposes set of matched property
+ * names as indexed "branches", so that callers can keep track of which
+ * branches have been seen (needed for early termination of extraction).
  */
-class PathBasedFilter extends TokenFilter {
+abstract class PathBasedFilter extends TokenFilter {
     /**
      * Different from default implementation as we should NOT allow
      * scalar values to be included at intermediate (branch) level.
@@ -20,6 +25,102 @@ class PathBasedFilter extends TokenFilter {
         return false;
     }
 
+    @Override
+    public TokenFilter includeProperty(String property) {
+        final int ix = branchIndex(property);
+        return (ix < 0) ? null : branchFilter(ix);
+    }
+
+    /**
+     * @return Number of distinct property names (branches) this filter matches
+     */
+    public abstract int branchCount();
+
+    /**
+     * @return Index of the branch matching given property name, if any
+     *    ({@code 0 <= index < branchCount()}); -1 if no match
+     */
+    public abstract int branchIndex(String property);
+
+    /**
+     * Alternative to {@link #branchIndex(String)} for property names available as
+     * UTF-8 encoded bytes (without escapes), to avoid having to construct a {@link String}.
+     */
+    public abstract int branchIndex(byte[] utf8, int offset, int len);
+
+    /**
+     * Alternative to {@link #branchIndex(String)} for property names available as
+     * a substring (from {@code start}, inclusive, to {@code end}, exclusive) of given
+     * {@link String}, to avoid having to construct the substring.
+     */
+    public abstract int branchIndex(String str, int start, int end);
+
+    /**
+     * @return Property name of the branch with given index
+     */
+    public abstract String branchName(int index);
+
+    /**
+     * @return Filter to use for value of property matching branch with given index
+     */
+    public abstract TokenFilter branchFilter(int index);
+
+    /**
+     * Method for checking whether content at given dotted path (starting at
+     * {@code start}) overlaps content included by given filter: that is, whether path
+     * is an included path, a descendant of one, or an ancestor of one. Since arrays are
+     * transparent to path matching, segments that are array indexes (numbers) are
+     * considered both as property names and as indexes (in which case they are skipped).
+     * Walks filter graph without allocating anything.
+     */
+    static boolean overlapsPath(TokenFilter filter, String path, int start) {
+        final int pathEnd = path.length();
+        while (true) {
+            if (filter == TokenFilter.INCLUDE_ALL) {
+                return true;
+            }
+            // "Include nothing" filter
+            if (!(filter instanceof PathBasedFilter)) {
+                return false;
+            }
+            // Path ended at a branch (or is empty, meaning the root): ancestor of
+            // included path(s)
+            if ((start > pathEnd) || (pathEnd == 0)) {
+                return true;
+            }
+            int end = path.indexOf('.', start);
+            if (end < 0) {
+                end = pathEnd;
+            }
+            final PathBasedFilter pathFilter = (PathBasedFilter) filter;
+            final int ix = pathFilter.branchIndex(path, start, end);
+            if (_isIndex(path, start, end)) {
+                if ((ix >= 0) && overlapsPath(pathFilter.branchFilter(ix), path, end + 1)) {
+                    return true;
+                }
+                // As array index, skipped: same filter for the rest of the path
+            } else {
+                if (ix < 0) {
+                    return false;
+                }
+                filter = pathFilter.branchFilter(ix);
+            }
+            start = end + 1;
+        }
+    }
+
+    private static boolean _isIndex(String path, int start, int end) {
+        if (start == end) {
+            return false;
+        }
+        for (int i = start; i < end; ++i) {
+            final char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
 
     /**
      * Specialized implementation that matches just a single path through JSON Object.
@@ -27,10 +128,14 @@ class PathBasedFilter extends TokenFilter {
     static class SinglePathFilter extends PathBasedFilter {
         private final String matchedSegment;
 
+        private final byte[] matchedSegmentUtf8;
+
         private final TokenFilter nextFilter;
 
         public SinglePathFilter(String matchedSegment, TokenFilter nextFilter) {
-            this.matchedSegment = matchedSegment;
+            // Interned so that names from parser (also interned) usually match by identity
+            this.matchedSegment = matchedSegment.intern();
+            this.matchedSegmentUtf8 = matchedSegment.getBytes(StandardCharsets.UTF_8);
             this.nextFilter = nextFilter;
         }
 
@@ -41,21 +146,94 @@ class PathBasedFilter extends TokenFilter {
             }
             return null;
         }
+
+        @Override
+        public int branchCount() {
+            return 1;
+        }
+
+        @Override
+        public int branchIndex(String property) {
+            return property.equals(matchedSegment) ? 0 : -1;
+        }
+
+        @Override
+        public int branchIndex(byte[] utf8, int offset, int len) {
+            return Arrays.equals(matchedSegmentUtf8, 0, matchedSegmentUtf8.length,
+                    utf8, offset, offset + len) ? 0 : -1;
+        }
+
+        @Override
+        public int branchIndex(String str, int start, int end) {
+            final int len = end - start;
+            return ((matchedSegment.length() == len)
+                    && matchedSegment.regionMatches(0, str, start, len)) ? 0 : -1;
+        }
+
+        @Override
+        public String branchName(int index) {
+            return matchedSegment;
+        }
+
+        @Override
+        public TokenFilter branchFilter(int index) {
+            return nextFilter;
+        }
     }
 
     /**
-     * General implementation that matches multiple paths through JSON Object.
+     * General implementation that matches multiple paths through JSON Object,
+     * using a {@link PropertyNameMatcher} compiled for the set of property names.
      */
     static class MultiPathFilter extends PathBasedFilter {
-        private final Map<String, TokenFilter> nextFilters;
+        private final PropertyNameMatcher matcher;
+
+        private final TokenFilter[] branchFilters;
 
-        public MultiPathFilter(Map<String, TokenFilter> nextFilters) {
-            this.nextFilters = nextFilters;
+        /**
+         * @param matcher Matcher for property names of branches
+         * @param branchFilters Filters for branches, in the same order as names of
+         *    {@code matcher}
+         */
+        public MultiPathFilter(PropertyNameMatcher matcher, TokenFilter[] branchFilters) {
+            this.matcher = matcher;
+            this.branchFilters = branchFilters;
         }
 
         @Override
         public TokenFilter includeProperty(String property) {
-            return nextFilters.get(property);
+            final int ix = matcher.matchName(property);
+            return (ix < 0) ? null : branchFilters[ix];
+        }
+
+        @Override
+        public int branchCount() {
+            return branchFilters.length;
+        }
+
+        @Override
+        public int branchIndex(String property) {
+            return matcher.matchName(property);
+        }
+
+        @Override
+        public int branchIndex(byte[] utf8, int offset, int len) {
+            return matcher.matchName(utf8, offset, len);
+        }
+
+        @Override
+        public int branchIndex(String str, int start, int end) {
+            return matcher.matchName(str, start, end);
+        }
+
+        @Override
+        public String branchName(int index) {
+            return matcher.name(index);
+        }
+
+        @Override
+        public TokenFilter branchFilter(int index) {
+            return branchFilters[index];
         }
     }
 }
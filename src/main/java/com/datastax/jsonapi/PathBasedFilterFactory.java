@@ -37,24 +37,52 @@ class PathBasedFilterFactory {
      *</code>
      */
     public static TokenFilter filterForPaths(String csPaths) {
-        csPaths = csPaths.trim();
-        // Empty String -> match nothing; caller needs to check
-        if (csPaths.isEmpty()) {
-            return EMPTY_DOC_FILTER;
-        }
-        return filterForPaths(Arrays.asList(COMMA_SEPARATOR.split(csPaths)));
+        return filterForInclusionTree(inclusionTreeForPaths(csPaths));
     }
 
     public static TokenFilter filterForPaths(List<String> csPaths) {
-        // First: build a minimal inclusion tree, needed for construction of filters
-        InclusionTreeNode roots = buildInclusionTree(csPaths);
+        return filterForInclusionTree(buildInclusionTree(csPaths));
+    }
+
+    /**
+     * Factory method for constructing {@link TokenFilter} from minimal inclusion tree
+     * (as constructed by {@link #inclusionTreeForPaths(String)} or
+     * {@link #buildInclusionTree(List)}).
+     */
+    public static TokenFilter filterForInclusionTree(InclusionTreeNode roots) {
+        return filterForInclusionTree(roots, null);
+    }
+
+    /**
+     * Factory method for constructing {@link TokenFilter} from minimal inclusion tree,
+     * sharing filters for subtrees with other filters built using the same
+     * {@link FilterInterner} (if one given).
+     *
+     * @param interner Interner to use for sharing filters, if any; {@code null} if none
+     */
+    static TokenFilter filterForInclusionTree(InclusionTreeNode roots, FilterInterner interner) {
         if (roots.isEmpty()) {
             return EMPTY_DOC_FILTER;
         }
-        return buildFilterFromInclusionTree(roots);
+        return buildFilterFromInclusionTree(roots, interner);
     }
 
-    private static InclusionTreeNode buildInclusionTree(List<String> paths)
+    /**
+     * Method for building minimal inclusion tree out of comma-separated list of
+     * dotted-notation paths. Resulting tree is canonical: equivalent path definitions
+     * (ones that only differ by ordering, whitespace or redundant longer paths)
+     * result in equal trees.
+     */
+    public static InclusionTreeNode inclusionTreeForPaths(String csPaths) {
+        csPaths = csPaths.trim();
+        // Empty String -> match nothing; caller needs to check
+        if (csPaths.isEmpty()) {
+            return new InclusionTreeNode();
+        }
+        return buildInclusionTree(Arrays.asList(COMMA_SEPARATOR.split(csPaths)));
+    }
+
+    static InclusionTreeNode buildInclusionTree(List<String> paths)
     {
         InclusionTreeNode root = new InclusionTreeNode();
         for (String path : paths) {
@@ -85,37 +113,58 @@ class PathBasedFilterFactory {
 
     /**
      * Method for building a {@link TokenFilter} from a given inclusion tree.
+     * Branches are ordered by name, so that equal trees result in identical
+     * filter graphs: this is needed for sharing filters of subtrees.
      *
      * @param node Current tree node to build filter for
+     * @param interner Interner to use for sharing filters, if any; {@code null} if none
      *
      * @return Filter for the given node
      */
-    private static TokenFilter buildFilterFromInclusionTree(InclusionTreeNode node) {
+    private static TokenFilter buildFilterFromInclusionTree(InclusionTreeNode node,
+            FilterInterner interner) {
         if (node.isEmpty()) {
             return TokenFilter.INCLUDE_ALL;
         }
         Map<String, InclusionTreeNode> childNodes = node.getChildren();
-        // Optimize single-path case
-        if (childNodes.size() == 1) {
-            Map.Entry<String, InclusionTreeNode> entry = childNodes.entrySet().iterator().next();
-            return new PathBasedFilter.SinglePathFilter(entry.getKey(),
-                    buildFilterFromInclusionTree(entry.getValue()));
+        final String[] names = childNodes.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        TokenFilter[] filters = new TokenFilter[names.length];
+        for (int i = 0; i < filters.length; ++i) {
+            filters[i] = buildFilterFromInclusionTree(childNodes.get(names[i]), interner);
         }
-        Map<String, TokenFilter> filters = new HashMap<>();
-        for (Map.Entry<String, InclusionTreeNode> entry : childNodes.entrySet()) {
-            filters.put(entry.getKey(), buildFilterFromInclusionTree(entry.getValue()));
+        return (interner == null) ? createPathFilter(names, filters) : interner.intern(names, filters);
+    }
+
+    /**
+     * Method for constructing filter for given branches (property names and filters
+     * for their values, in the same order).
+     */
+    static PathBasedFilter createPathFilter(String[] names, TokenFilter[] branchFilters) {
+        // Optimize single-path case
+        if (names.length == 1) {
+            return new PathBasedFilter.SinglePathFilter(names[0], branchFilters[0]);
         }
-        return new PathBasedFilter.MultiPathFilter(filters);
+        // Otherwise compile matcher for names; filters in the same order
+        PropertyNameMatcher matcher = PropertyNameMatcher.construct(Arrays.asList(names));
+        return new PathBasedFilter.MultiPathFilter(matcher, branchFilters);
     }
 
     /**
      * Helper type used for creating "minimal" set of inclusion paths starting
      * from a root node. Order of creating paths doesn't matter; longer paths
      * will be pruned regardless of ordering.
+     *<p>
+     * Trees are compared by value (see {@link #equals} and {@link #hashCode}), so
+     * they can be used as keys for caching things built from path definitions:
+     * but should only be used as such once fully built.
      */
     static class InclusionTreeNode {
         private Map<String, InclusionTreeNode> next;
 
+        // Lazily calculated hash code; 0 means "not yet calculated"
+        private int hashCode;
+
         public InclusionTreeNode() { }
 
         public boolean isEmpty() {
@@ -142,6 +191,31 @@ class PathBasedFilterFactory {
         public void clear() {
             next = null;
         }
+
+        @Override
+        public int hashCode() {
+            int h = hashCode;
+            if (h == 0) {
+                h = (next == null) ? 1 : next.hashCode();
+                if (h == 0) {
+                    h = 1;
+                }
+                hashCode = h;
+            }
+            return h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof InclusionTreeNode)) return false;
+            InclusionTreeNode other = (InclusionTreeNode) o;
+            if (next == null) {
+                return (other.next == null);
+            }
+            return (other.next != null) && (hashCode() == other.hashCode())
+                    && next.equals(other.next);
+        }
     }
 
     /**
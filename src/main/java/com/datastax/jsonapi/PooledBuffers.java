@@ -0,0 +1,65 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.core.util.BufferRecycler;
+
+/**
+ * Set of reusable buffers leased from a {@link BufferPool} for a single extraction
+ * (or batch of extractions): Jackson {@link BufferRecycler} (for parser input and
+ * text buffers, as well as buffers of sink outputs) plus output buffers for
+ * aggregating extracted content.
+ *<p>
+ * Instances are only used by one thread at a time (between acquire and release).
+ */
+final class PooledBuffers extends BufferRecycler {
+    /**
+     * Output buffers that have grown beyond this (in {@code char}s or bytes) are
+     * not retained when buffers are returned to pool, so that pooled buffers
+     * do not hold on to memory needed for an occasional large document.
+     */
+    final static int MAX_RETAINED_OUTPUT_LENGTH = 64 * 1024;
+
+    private CharOutputBuffer charOutput;
+
+    private Utf8OutputBuffer utf8Output;
+
+    /**
+     * Method for getting (empty) output buffer for {@code char}s: existing one if
+     * retained from earlier use, otherwise a new one.
+     */
+    public CharOutputBuffer charOutput(int initialCapacity) {
+        CharOutputBuffer out = charOutput;
+        if (out == null) {
+            charOutput = out = new CharOutputBuffer(initialCapacity, this);
+        } else {
+            out.reset();
+        }
+        return out;
+    }
+
+    /**
+     * Method for getting (empty) output buffer for UTF-8 encoded bytes: existing one
+     * if retained from earlier use, otherwise a new one.
+     */
+    public Utf8OutputBuffer utf8Output(int initialCapacity) {
+        Utf8OutputBuffer out = utf8Output;
+        if (out == null) {
+            utf8Output = out = new Utf8OutputBuffer(initialCapacity, this);
+        } else {
+            out.reset();
+        }
+        return out;
+    }
+
+    /**
+     * Method called before buffers are returned to pool, to drop output buffers
+     * that have grown too big to retain.
+     */
+    void trim() {
+        if ((charOutput != null) && (charOutput.capacity() > MAX_RETAINED_OUTPUT_LENGTH)) {
+            charOutput = null;
+        }
+        if ((utf8Output != null) && (utf8Output.capacity() > MAX_RETAINED_OUTPUT_LENGTH)) {
+            utf8Output = null;
+        }
+    }
+}
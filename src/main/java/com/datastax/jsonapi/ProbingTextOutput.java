@@ -0,0 +1,43 @@
+package com.datastax.jsonapi;
+
+/**
+ * {@link TextOutput} used for checking whether a document has any included content
+ * (see {@link JsonFieldExtractor#hasIncludedContent(String)}): nothing is aggregated,
+ * but the first non-empty value stops extraction by throwing {@link ContentFound},
+ * which {@link JsonFieldExtractor} catches.
+ *<p>
+ * Since it has no state, a single shared instance is used.
+ */
+final class ProbingTextOutput extends TextOutput {
+    final static ProbingTextOutput INSTANCE = new ProbingTextOutput();
+
+    /**
+     * Signal used to stop extraction once content is found: stackless, so it is cheap
+     * to throw, and never escapes {@link JsonFieldExtractor}.
+     */
+    final static class ContentFound extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final static ContentFound INSTANCE = new ContentFound();
+
+        private ContentFound() {
+            super("Included content found", null, false, false);
+        }
+    }
+
+    private ProbingTextOutput() { }
+
+    @Override
+    public void appendValue(char[] src, int offset, int len) {
+        if (len > 0) {
+            throw ContentFound.INSTANCE;
+        }
+    }
+
+    @Override
+    public void appendUtf8Value(byte[] src, int offset, int len) {
+        if (len > 0) {
+            throw ContentFound.INSTANCE;
+        }
+    }
+}
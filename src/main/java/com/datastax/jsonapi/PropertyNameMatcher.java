@@ -0,0 +1,215 @@
+package com.datastax.jsonapi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable matcher for a small fixed set of property names, "compiled" when
+ * filters are built: names are mapped to indexes ({@code 0 <= index < size()}, in
+ * order names were passed) using an open-addressing hash table, for which
+ * multiplier and size are chosen to make hashing perfect (collision-free) whenever
+ * possible. With perfect hashing, both matches and misses need a single hash
+ * slot lookup and at most one name comparison.
+ *<p>
+ * Names are interned, same as Jackson parsers do by default for property names
+ * ({@code JsonFactory.Feature.INTERN_FIELD_NAMES}), so that comparison of matching
+ * names is usually an identity check.
+ *<p>
+ * In addition to matching {@link String}s, names may also be matched against
+ * UTF-8 encoded bytes directly, to avoid constructing {@code String}s for names
+ * when scanning raw input.
+ */
+final class PropertyNameMatcher {
+    // Odd multipliers to try for (multiplicative) hashing, Fibonacci first
+    private final static int[] MULTIPLIERS = {
+            0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0x7FEB352D
+    };
+
+    // How many times bigger than minimum table is allowed, to find perfect hashing
+    private final static int MAX_SIZE_FACTOR = 8;
+
+    private final String[] names;
+
+    private final byte[][] utf8Names;
+
+    /**
+     * Hash table slots: index of name for slot; -1 for empty slots
+     */
+    private final int[] slots;
+
+    private final int multiplier;
+
+    private final int shift;
+
+    /**
+     * Whether hashing is collision-free: if so, no probing is needed
+     */
+    private final boolean perfect;
+
+    private PropertyNameMatcher(String[] names, int[] slots, int multiplier, int shift,
+            boolean perfect) {
+        this.names = names;
+        this.slots = slots;
+        this.multiplier = multiplier;
+        this.shift = shift;
+        this.perfect = perfect;
+        utf8Names = new byte[names.length][];
+        for (int i = 0; i < names.length; ++i) {
+            utf8Names[i] = names[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @param names Distinct property names to match
+     */
+    public static PropertyNameMatcher construct(Collection<String> names) {
+        final String[] interned = new String[names.size()];
+        int i = 0;
+        for (String name : names) {
+            interned[i++] = name.intern();
+        }
+        // Need at least one empty slot for misses to terminate when probing
+        final int minBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(interned.length));
+        final int maxBits = minBits + Integer.numberOfTrailingZeros(MAX_SIZE_FACTOR);
+        for (int bits = minBits; bits <= maxBits; ++bits) {
+            for (int mult : MULTIPLIERS) {
+                int[] slots = _buildSlots(interned, mult, bits, true);
+                if (slots != null) {
+                    return new PropertyNameMatcher(interned, slots, mult, 32 - bits, true);
+                }
+            }
+        }
+        // No luck: fall back to linear probing, with half-full table
+        final int bits = minBits + 1;
+        return new PropertyNameMatcher(interned, _buildSlots(interned, MULTIPLIERS[0], bits, false),
+                MULTIPLIERS[0], 32 - bits, false);
+    }
+
+    /**
+     * @return Hash table for given settings; or, if {@code perfectOnly} is true and
+     *    there are collisions, {@code null}
+     */
+    private static int[] _buildSlots(String[] names, int multiplier, int bits, boolean perfectOnly) {
+        final int[] slots = new int[1 << bits];
+        final int mask = slots.length - 1;
+        Arrays.fill(slots, -1);
+        for (int i = 0; i < names.length; ++i) {
+            int slot = (names[i].hashCode() * multiplier) >>> (32 - bits);
+            while (slots[slot] >= 0) {
+                if (perfectOnly) {
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i;
+        }
+        return slots;
+    }
+
+    /*
+    /**********************************************************
+    /* Public API
+    /**********************************************************
+     */
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int index) {
+        return names[index];
+    }
+
+    /**
+     * @return Index of given name, if matched; -1 if not
+     */
+    public int matchName(String name) {
+        int slot = (name.hashCode() * multiplier) >>> shift;
+        int ix = slots[slot];
+        if (perfect) {
+            // Note: String.equals() checks identity first
+            return ((ix >= 0) && names[ix].equals(name)) ? ix : -1;
+        }
+        final int mask = slots.length - 1;
+        while (ix >= 0) {
+            if (names[ix].equals(name)) {
+                return ix;
+            }
+            slot = (slot + 1) & mask;
+            ix = slots[slot];
+        }
+        return -1;
+    }
+
+    /**
+     * Method for matching name given as a substring of a {@link String} (like a
+     * segment of a dotted path), without constructing the substring.
+     *
+     * @return Index of given name, if matched; -1 if not
+     */
+    public int matchName(String str, int start, int end) {
+        // Same as String.hashCode() for the substring
+        int hash = 0;
+        for (int i = start; i < end; ++i) {
+            hash = 31 * hash + str.charAt(i);
+        }
+        final int len = end - start;
+        int slot = (hash * multiplier) >>> shift;
+        int ix = slots[slot];
+        if (perfect) {
+            return ((ix >= 0) && _matches(ix, str, start, len)) ? ix : -1;
+        }
+        final int mask = slots.length - 1;
+        while (ix >= 0) {
+            if (_matches(ix, str, start, len)) {
+                return ix;
+            }
+            slot = (slot + 1) & mask;
+            ix = slots[slot];
+        }
+        return -1;
+    }
+
+    /**
+     * Method for matching name given as UTF-8 encoded bytes (without escapes).
+     *
+     * @return Index of given name, if matched; -1 if not
+     */
+    public int matchName(byte[] utf8, int offset, int len) {
+        // For ASCII names, String.hashCode() is easy to calculate from bytes
+        final int end = offset + len;
+        int hash = 0;
+        for (int ptr = offset; ptr < end; ++ptr) {
+            final byte b = utf8[ptr];
+            if (b < 0) { // non-ASCII: rare, just decode
+                return matchName(new String(utf8, offset, len, StandardCharsets.UTF_8));
+            }
+            hash = 31 * hash + b;
+        }
+        int slot = (hash * multiplier) >>> shift;
+        int ix = slots[slot];
+        if (perfect) {
+            return ((ix >= 0) && _matches(ix, utf8, offset, end)) ? ix : -1;
+        }
+        final int mask = slots.length - 1;
+        while (ix >= 0) {
+            if (_matches(ix, utf8, offset, end)) {
+                return ix;
+            }
+            slot = (slot + 1) & mask;
+            ix = slots[slot];
+        }
+        return -1;
+    }
+
+    private boolean _matches(int ix, byte[] utf8, int offset, int end) {
+        final byte[] exp = utf8Names[ix];
+        return Arrays.equals(exp, 0, exp.length, utf8, offset, end);
+    }
+
+    private boolean _matches(int ix, String str, int start, int len) {
+        final String exp = names[ix];
+        return (exp.length() == len) && exp.regionMatches(0, str, start, len);
+    }
+}
@@ -0,0 +1,716 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+
+/**
+ * Alternate extraction engine (enabled with {@link ExtractorFeature#RAW_UTF8_SCANNING})
+ * that scans UTF-8 encoded JSON content directly, instead of using Jackson
+ * {@code JsonParser}. It evaluates the same {@link TokenFilter} graph as the default
+ * engine, calling filter methods the same way {@code FilteringParserDelegate} does,
+ * but only decodes property names at levels that the filter graph matches, and
+ * only decodes values that are included.
+ *<p>
+ * Excluded Objects and Arrays are skipped at byte level, tracking only nesting
+ * depth and String (and escape) state: this is where most of the speed-up for
+ * sparse extraction comes from.
+ *<p>
+ * If {@link ExtractorFeature#VECTORIZED_SCANNING} is enabled, excluded Objects and
+ * Arrays are instead skipped using {@link StructuralIndex}.
+ *<p>
+ * Supports {@link ExtractorFeature#EARLY_TERMINATION} and
+ * {@link ExtractorFeature#STRICT_DUPLICATE_PATH_PROPERTIES} the same way as
+ * {@link FilteringParserWalker}.
+ *<p>
+ * Instances are not thread-safe, and are only used for a single extraction.
+ */
+final class RawUtf8Scanner {
+    // Byte classes used for fast skipping of excluded Objects/Arrays
+    private final static int SKIP_OTHER = 0;
+    private final static int SKIP_QUOTE = 1;
+    private final static int SKIP_OPEN = 2;
+    private final static int SKIP_CLOSE = 3;
+
+    private final static byte[] SKIP_CLASSES = new byte[256];
+    static {
+        SKIP_CLASSES['"'] = SKIP_QUOTE;
+        SKIP_CLASSES['{'] = SKIP_OPEN;
+        SKIP_CLASSES['['] = SKIP_OPEN;
+        SKIP_CLASSES['}'] = SKIP_CLOSE;
+        SKIP_CLASSES[']'] = SKIP_CLOSE;
+    }
+
+    private final byte[] _input;
+
+    private final int _inputStart;
+
+    private final int _inputEnd;
+
+    private int _inputPtr;
+
+    private final TextOutput _output;
+
+    private final boolean _earlyTermination;
+
+    private final boolean _strictDuplicates;
+
+    /**
+     * Index used for skipping excluded Objects and Arrays, if enabled;
+     * {@code null} if not
+     */
+    private final StructuralIndex _index;
+
+    /**
+     * Offset of the first byte of String value found by the last call
+     * to {@link #_findStringEnd()}
+     */
+    private int _stringStart;
+
+    /**
+     * Set by {@link #_findStringEnd()} to indicate whether String contained
+     * backslash escapes
+     */
+    private boolean _stringHasEscapes;
+
+    // Lazily allocated buffer for decoding names, escaped values
+    private char[] _charBuffer;
+
+    private RawUtf8Scanner(byte[] input, int offset, int len, TextOutput output,
+            int features) {
+        _input = input;
+        _inputStart = offset;
+        _inputPtr = offset;
+        _inputEnd = offset + len;
+        _output = output;
+        _earlyTermination = ExtractorFeature.EARLY_TERMINATION.enabledIn(features);
+        _strictDuplicates = ExtractorFeature.STRICT_DUPLICATE_PATH_PROPERTIES.enabledIn(features);
+        _index = ExtractorFeature.VECTORIZED_SCANNING.enabledIn(features)
+                ? new StructuralIndex(input, offset, len) : null;
+    }
+
+    /**
+     * Main entry point: scans given UTF-8 encoded JSON content, appending included
+     * values into given output.
+     */
+    public static void extract(TokenFilter rootFilter, byte[] input, int offset, int len,
+            TextOutput output, int features)
+        throws IOException
+    {
+        new RawUtf8Scanner(input, offset, len, output, features)._scanRoot(rootFilter);
+    }
+
+    /*
+    /**********************************************************
+    /* Filter-based traversal
+    /**********************************************************
+     */
+
+    private void _scanRoot(TokenFilter filter) throws IOException {
+        // Similar to JsonParser, allow a sequence of root-level values; except
+        // that with early termination we stop after the first one
+        int index = 0;
+        int ch;
+        while ((ch = _nextNonWsOrEnd()) >= 0) {
+            ++_inputPtr;
+            _handleValue(ch, filter.includeRootValue(index++), true);
+            if (_earlyTermination) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Method called with the first byte of a value (already consumed), and
+     * filter to apply to the value; {@code null} to indicate exclusion.
+     */
+    private void _handleValue(int ch, TokenFilter filter, boolean rootLevel) throws IOException {
+        if (filter == null) {
+            _skipValue(ch);
+        } else if (filter == TokenFilter.INCLUDE_ALL) {
+            _collectValue(ch);
+        } else if (ch == '{') {
+            filter = filter.filterStartObject();
+            if (filter == null) {
+                _skipContainer();
+            } else if (filter == TokenFilter.INCLUDE_ALL) {
+                _collectContainer();
+            } else {
+                _scanObject(filter, rootLevel);
+            }
+        } else if (ch == '[') {
+            filter = filter.filterStartArray();
+            if (filter == null) {
+                _skipContainer();
+            } else if (filter == TokenFilter.INCLUDE_ALL) {
+                _collectContainer();
+            } else {
+                _scanArray(filter);
+            }
+        } else {
+            // Scalars only included via INCLUDE_ALL (PathBasedFilter excludes
+            // them at intermediate levels)
+            _skipValue(ch);
+        }
+    }
+
+    private void _scanObject(TokenFilter filter, boolean rootLevel) throws IOException {
+        int ch = _nextNonWs();
+        if (ch == '}') {
+            return;
+        }
+        // Names of path filters can be matched without constructing Strings
+        final PathBasedFilter pathFilter = (filter instanceof PathBasedFilter)
+                ? (PathBasedFilter) filter : null;
+        // Branch tracking only needed for early termination, duplicate detection
+        final boolean track = (_earlyTermination || _strictDuplicates) && _isTrackable(pathFilter);
+        int remaining = track ? pathFilter.branchCount() : -1;
+        long seen = 0L;
+
+        while (true) {
+            if (ch != '"') {
+                _reportUnexpected(ch, "expected double-quote to start property name");
+            }
+            TokenFilter next;
+            if (pathFilter == null) {
+                next = filter.includeProperty(_parseName());
+            } else {
+                final int ix = _matchName(pathFilter);
+                if (ix < 0) {
+                    next = null;
+                } else {
+                    if (track) {
+                        final long bit = 1L << ix;
+                        if ((seen & bit) == 0L) {
+                            seen |= bit;
+                            --remaining;
+                        } else if (_strictDuplicates) {
+                            _reportError("Duplicate field '"+pathFilter.branchName(ix)+"'");
+                        }
+                    }
+                    next = pathFilter.branchFilter(ix);
+                }
+            }
+            ch = _nextNonWs();
+            if (ch != ':') {
+                _reportUnexpected(ch, "expected a colon to separate property name and value");
+            }
+            _handleValue(_nextNonWs(), next, false);
+            if ((remaining == 0) && _earlyTermination) {
+                // Nothing more to find at root level: can stop right away
+                if (rootLevel) {
+                    return;
+                }
+                // Nested Object: skip the rest, unless need to check for duplicates
+                if (!_strictDuplicates) {
+                    _skipContainer();
+                    return;
+                }
+            }
+            ch = _nextNonWs();
+            if (ch == '}') {
+                return;
+            }
+            if (ch != ',') {
+                _reportUnexpected(ch, "expected comma or '}' after Object entry");
+            }
+            ch = _nextNonWs();
+        }
+    }
+
+    private void _scanArray(TokenFilter filter) throws IOException {
+        int ch = _nextNonWs();
+        if (ch == ']') {
+            return;
+        }
+        int index = 0;
+        while (true) {
+            _handleValue(ch, filter.includeElement(index++), false);
+            ch = _nextNonWs();
+            if (ch == ']') {
+                return;
+            }
+            if (ch != ',') {
+                _reportUnexpected(ch, "expected comma or ']' after Array element");
+            }
+            ch = _nextNonWs();
+        }
+    }
+
+    private static boolean _isTrackable(PathBasedFilter pathFilter) {
+        // One bit per branch
+        return (pathFilter != null) && (pathFilter.branchCount() <= 64);
+    }
+
+    /*
+    /**********************************************************
+    /* Inclusion of full subtrees
+    /**********************************************************
+     */
+
+    private void _collectValue(int ch) throws IOException {
+        if ((ch == '{') || (ch == '[')) {
+            _collectContainer();
+        } else if (ch == '"') {
+            final int end = _findStringEnd();
+            _inputPtr = end + 1;
+            _collectString(end);
+        } else {
+            _collectScalar(ch);
+        }
+    }
+
+    /**
+     * Method for including all leaf values of an Object or Array, start marker
+     * of which has been consumed. Since there is no filtering, no tracking of
+     * context is needed: Strings followed by a colon are property names (skipped),
+     * others values.
+     */
+    private void _collectContainer() throws IOException {
+        int depth = 1;
+        while (true) {
+            final int ch = _nextNonWs();
+            switch (ch) {
+            case '{':
+            case '[':
+                ++depth;
+                break;
+            case '}':
+            case ']':
+                if (--depth == 0) {
+                    return;
+                }
+                break;
+            case ',':
+                break;
+            case '"':
+                final int end = _findStringEnd();
+                _inputPtr = end + 1;
+                // Property name or value?
+                if (_nextNonWsOrEnd() == ':') {
+                    ++_inputPtr;
+                } else {
+                    _collectString(end);
+                }
+                break;
+            default:
+                _collectScalar(ch);
+            }
+        }
+    }
+
+    /**
+     * @param end Offset of the closing double-quote of the String value, as returned
+     *    by the preceding call to {@link #_findStringEnd()}
+     */
+    private void _collectString(int end) throws IOException {
+        final int start = _stringStart;
+        if (_stringHasEscapes) {
+            final int len = _decodeString(start, end);
+            _output.appendValue(_charBuffer, 0, len);
+        } else {
+            _output.appendUtf8Value(_input, start, end - start);
+        }
+    }
+
+    private void _collectScalar(int ch) throws IOException {
+        final int start = _inputPtr - 1;
+        switch (ch) {
+        case 't':
+            _matchLiteral("rue");
+            _output.appendAsciiValue(_input, start, 4);
+            return;
+        case 'f':
+            _matchLiteral("alse");
+            _output.appendAsciiValue(_input, start, 5);
+            return;
+        case 'n':
+            _matchLiteral("ull");
+            return;
+        case '-':
+        case '0': case '1': case '2': case '3': case '4':
+        case '5': case '6': case '7': case '8': case '9':
+            _matchNumber(ch);
+            _output.appendAsciiValue(_input, start, _inputPtr - start);
+            return;
+        default:
+            _reportUnexpected(ch, "expected a valid value");
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Skipping of excluded content
+    /**********************************************************
+     */
+
+    private void _skipValue(int ch) throws IOException {
+        switch (ch) {
+        case '{':
+        case '[':
+            _skipContainer();
+            return;
+        case '"':
+            _inputPtr = _findStringEnd() + 1;
+            return;
+        case 't':
+            _matchLiteral("rue");
+            return;
+        case 'f':
+            _matchLiteral("alse");
+            return;
+        case 'n':
+            _matchLiteral("ull");
+            return;
+        case '-':
+        case '0': case '1': case '2': case '3': case '4':
+        case '5': case '6': case '7': case '8': case '9':
+            _skipNumber();
+            return;
+        default:
+            _reportUnexpected(ch, "expected a valid value");
+        }
+    }
+
+    /**
+     * Method for skipping the rest of an Object or Array start marker of which has been
+     * consumed. Only tracks nesting depth and String state: does not validate contents.
+     */
+    private void _skipContainer() throws IOException {
+        if (_index != null) {
+            final int ptr = _index.skipContainer(_inputPtr - 1);
+            if (ptr >= 0) {
+                _inputPtr = ptr;
+                return;
+            }
+            // Unexpected end-of-input: scan byte by byte for accurate error reporting
+        }
+        final byte[] buf = _input;
+        final int end = _inputEnd;
+        int ptr = _inputPtr;
+        int depth = 1;
+
+        while (ptr < end) {
+            switch (SKIP_CLASSES[buf[ptr++] & 0xFF]) {
+            case SKIP_OTHER:
+                continue;
+            case SKIP_QUOTE:
+                while (true) {
+                    if (ptr >= end) {
+                        _inputPtr = ptr;
+                        _reportEOF("in a String value");
+                    }
+                    final byte b = buf[ptr++];
+                    if (b == '"') {
+                        break;
+                    }
+                    if (b == '\\') {
+                        ++ptr;
+                    }
+                }
+                continue;
+            case SKIP_OPEN:
+                ++depth;
+                continue;
+            default: // SKIP_CLOSE
+                if (--depth == 0) {
+                    _inputPtr = ptr;
+                    return;
+                }
+            }
+        }
+        _inputPtr = ptr;
+        _reportEOF("in an Object or Array");
+    }
+
+    /**
+     * Method for skipping an excluded number, first character of which has been
+     * consumed: only finds its end, does not validate it.
+     */
+    private void _skipNumber() {
+        final byte[] buf = _input;
+        final int end = _inputEnd;
+        int ptr = _inputPtr;
+        while (ptr < end) {
+            final byte b = buf[ptr];
+            if (((b >= '0') && (b <= '9')) || (b == '.') || (b == 'e') || (b == 'E')
+                    || (b == '-') || (b == '+')) {
+                ++ptr;
+            } else {
+                break;
+            }
+        }
+        _inputPtr = ptr;
+    }
+
+    /**
+     * Method for finding the end of an included number, first character of which
+     * has been consumed, validating it against JSON number syntax (same as the
+     * default engine does), since it is copied to output as-is.
+     */
+    private void _matchNumber(int ch) throws IOException {
+        final byte[] buf = _input;
+        final int end = _inputEnd;
+        int ptr = _inputPtr;
+        if (ch == '-') {
+            if ((ptr >= end) || !_isDigit(buf[ptr])) {
+                _inputPtr = ptr;
+                _reportInvalidNumber("no digit following minus sign");
+            }
+            ch = buf[ptr++];
+        }
+        if (ch == '0') {
+            if ((ptr < end) && _isDigit(buf[ptr])) {
+                _inputPtr = ptr;
+                _reportInvalidNumber("Leading zeroes not allowed");
+            }
+        } else {
+            ptr = _skipDigits(buf, ptr, end);
+        }
+        if ((ptr < end) && (buf[ptr] == '.')) {
+            final int start = ++ptr;
+            ptr = _skipDigits(buf, ptr, end);
+            if (ptr == start) {
+                _inputPtr = ptr;
+                _reportInvalidNumber("Decimal point not followed by a digit");
+            }
+        }
+        if ((ptr < end) && ((buf[ptr] == 'e') || (buf[ptr] == 'E'))) {
+            if ((++ptr < end) && ((buf[ptr] == '+') || (buf[ptr] == '-'))) {
+                ++ptr;
+            }
+            final int start = ptr;
+            ptr = _skipDigits(buf, ptr, end);
+            if (ptr == start) {
+                _inputPtr = ptr;
+                _reportInvalidNumber("Exponent indicator not followed by a digit");
+            }
+        }
+        _inputPtr = ptr;
+    }
+
+    private static int _skipDigits(byte[] buf, int ptr, int end) {
+        while ((ptr < end) && _isDigit(buf[ptr])) {
+            ++ptr;
+        }
+        return ptr;
+    }
+
+    private static boolean _isDigit(byte b) {
+        return (b >= '0') && (b <= '9');
+    }
+
+    private void _matchLiteral(String rest) throws IOException {
+        final int len = rest.length();
+        if ((_inputPtr + len) > _inputEnd) {
+            _reportEOF("in a literal value");
+        }
+        for (int i = 0; i < len; ++i) {
+            if (_input[_inputPtr + i] != rest.charAt(i)) {
+                _reportError("Unrecognized token: expected '"+((char) _input[_inputPtr-1])+rest+"'");
+            }
+        }
+        _inputPtr += len;
+    }
+
+    /*
+    /**********************************************************
+    /* String handling
+    /**********************************************************
+     */
+
+    /**
+     * Method called when opening double-quote of a String has been consumed, to find
+     * the matching closing double-quote. Does not advance input pointer.
+     *
+     * @return Offset of the closing double-quote
+     */
+    private int _findStringEnd() throws IOException {
+        final byte[] buf = _input;
+        final int end = _inputEnd;
+        int ptr = _inputPtr;
+        _stringStart = ptr;
+
+        // Common case: no escapes
+        while (ptr < end) {
+            final byte b = buf[ptr];
+            if (b == '"') {
+                _stringHasEscapes = false;
+                return ptr;
+            }
+            if (b == '\\') {
+                break;
+            }
+            ++ptr;
+        }
+        while (ptr < end) {
+            final byte b = buf[ptr];
+            if (b == '"') {
+                _stringHasEscapes = true;
+                return ptr;
+            }
+            ptr += (b == '\\') ? 2 : 1;
+        }
+        _inputPtr = end;
+        _reportEOF("in a String value");
+        return -1; // never gets here
+    }
+
+    /**
+     * Method for matching property name (opening double-quote of which has been
+     * consumed) against branches of given filter.
+     *
+     * @return Index of matching branch; -1 if none
+     */
+    private int _matchName(PathBasedFilter pathFilter) throws IOException {
+        final int end = _findStringEnd();
+        final int start = _stringStart;
+        _inputPtr = end + 1;
+        if (_stringHasEscapes) {
+            final int len = _decodeString(start, end);
+            return pathFilter.branchIndex(new String(_charBuffer, 0, len));
+        }
+        return pathFilter.branchIndex(_input, start, end - start);
+    }
+
+    private String _parseName() throws IOException {
+        final int end = _findStringEnd();
+        final int start = _stringStart;
+        _inputPtr = end + 1;
+        if (_stringHasEscapes) {
+            final int len = _decodeString(start, end);
+            return new String(_charBuffer, 0, len);
+        }
+        return new String(_input, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Method for decoding String value with backslash escapes into {@link #_charBuffer}.
+     *
+     * @return Length of decoded String
+     */
+    private int _decodeString(int ptr, final int end) throws IOException {
+        // Each input byte decodes to at most one char
+        char[] buf = _charBuffer;
+        if ((buf == null) || (buf.length < (end - ptr))) {
+            _charBuffer = buf = new char[Math.max(end - ptr, 100)];
+        }
+        final byte[] input = _input;
+        int outPtr = 0;
+
+        while (ptr < end) {
+            // Decode everything up to the next backslash (if any) first
+            int escPtr = ptr;
+            while ((escPtr < end) && (input[escPtr] != '\\')) {
+                ++escPtr;
+            }
+            outPtr = Utf8Util.decode(input, ptr, escPtr, buf, outPtr);
+            if (escPtr == end) {
+                break;
+            }
+            ptr = escPtr + 2; // closing quote guarantees there is a byte after backslash
+            final int c = input[escPtr + 1];
+            switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                buf[outPtr++] = (char) c;
+                break;
+            case 'b':
+                buf[outPtr++] = '\b';
+                break;
+            case 'f':
+                buf[outPtr++] = '\f';
+                break;
+            case 'n':
+                buf[outPtr++] = '\n';
+                break;
+            case 'r':
+                buf[outPtr++] = '\r';
+                break;
+            case 't':
+                buf[outPtr++] = '\t';
+                break;
+            case 'u':
+                if ((ptr + 4) > end) {
+                    _reportError("Invalid Unicode escape: need 4 hex digits");
+                }
+                int value = 0;
+                for (int i = 0; i < 4; ++i) {
+                    final int digit = Character.digit(input[ptr++], 16);
+                    if (digit < 0) {
+                        _reportError("Invalid Unicode escape: expected a hex digit");
+                    }
+                    value = (value << 4) | digit;
+                }
+                buf[outPtr++] = (char) value;
+                break;
+            default:
+                _reportError("Unrecognized character escape '\\"+((char) c)+"'");
+            }
+        }
+        return outPtr;
+    }
+
+    /*
+    /**********************************************************
+    /* Low-level input handling
+    /**********************************************************
+     */
+
+    private int _nextNonWs() throws IOException {
+        final int ch = _nextNonWsOrEnd();
+        if (ch < 0) {
+            _reportEOF("within Object or Array");
+        }
+        ++_inputPtr;
+        return ch;
+    }
+
+    /**
+     * Method that skips whitespace, and returns the next byte (as unsigned int)
+     * if any, or -1 to indicate end-of-input. Note: does NOT advance past
+     * returned byte unless called via {@link #_nextNonWs()} (or root-level loop).
+     */
+    private int _nextNonWsOrEnd() {
+        final byte[] buf = _input;
+        final int end = _inputEnd;
+        int ptr = _inputPtr;
+        while (ptr < end) {
+            final int ch = buf[ptr] & 0xFF;
+            if ((ch != ' ') && (ch != '\n') && (ch != '\r') && (ch != '\t')) {
+                _inputPtr = ptr;
+                return ch;
+            }
+            ++ptr;
+        }
+        _inputPtr = ptr;
+        return -1;
+    }
+
+    /*
+    /**********************************************************
+    /* Error reporting
+    /**********************************************************
+     */
+
+    private void _reportUnexpected(int ch, String msg) throws IOException {
+        _reportError(String.format("Unexpected character ('%c' (code %d)): %s",
+                (char) ch, ch, msg));
+    }
+
+    private void _reportInvalidNumber(String msg) throws IOException {
+        _reportError("Invalid numeric value: "+msg);
+    }
+
+    private void _reportEOF(String msg) throws IOException {
+        _reportError("Unexpected end-of-input "+msg);
+    }
+
+    private void _reportError(String msg) throws IOException {
+        throw new JsonParseException((JsonParser) null, msg+" (at byte offset "+(_inputPtr - _inputStart)+")");
+    }
+}
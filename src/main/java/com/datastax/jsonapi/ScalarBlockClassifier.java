@@ -0,0 +1,53 @@
+package com.datastax.jsonapi;
+
+/**
+ * {@link BlockClassifier} that checks one byte at a time: used when Vector API
+ * is not available.
+ */
+final class ScalarBlockClassifier extends BlockClassifier {
+    // Class of each byte, as mask index + 1 (0 for bytes of no interest)
+    private final static byte[] CLASSES = new byte[256];
+    static {
+        CLASSES['"'] = QUOTES + 1;
+        CLASSES['\\'] = BACKSLASHES + 1;
+        CLASSES['{'] = OPENS + 1;
+        CLASSES['['] = OPENS + 1;
+        CLASSES['}'] = CLOSES + 1;
+        CLASSES[']'] = CLOSES + 1;
+    }
+
+    @Override
+    boolean isVectorized() {
+        return false;
+    }
+
+    @Override
+    void classify(byte[] input, int offset, long[] masks) {
+        classifyScalar(input, offset, BLOCK_SIZE, masks);
+    }
+
+    static void classifyScalar(byte[] input, int offset, int len, long[] masks) {
+        long quotes = 0L, backslashes = 0L, opens = 0L, closes = 0L;
+        for (int i = 0; i < len; ++i) {
+            switch (CLASSES[input[offset + i] & 0xFF]) {
+            case 0:
+                continue;
+            case QUOTES + 1:
+                quotes |= 1L << i;
+                continue;
+            case BACKSLASHES + 1:
+                backslashes |= 1L << i;
+                continue;
+            case OPENS + 1:
+                opens |= 1L << i;
+                continue;
+            default:
+                closes |= 1L << i;
+            }
+        }
+        masks[QUOTES] = quotes;
+        masks[BACKSLASHES] = backslashes;
+        masks[OPENS] = opens;
+        masks[CLOSES] = closes;
+    }
+}
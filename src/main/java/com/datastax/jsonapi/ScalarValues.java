@@ -0,0 +1,111 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonTokenId;
+import com.fasterxml.jackson.core.base.ParserBase;
+import com.fasterxml.jackson.core.json.UTF8StreamJsonParser;
+
+/**
+ * Static helper methods for appending scalar values read by a {@link JsonParser} into
+ * {@link TextOutput}, shared by all parser-based extraction loops
+ * ({@link JsonFieldExtractor}, {@link FilteringParserWalker}, {@link MultiFieldExtractor}).
+ *<p>
+ * If raw UTF-8 input that parser reads is available, String values that contain no
+ * escapes are copied as-is from input, without decoding (and possible re-encoding).
+ */
+final class ScalarValues {
+    private ScalarValues() { }
+
+    /**
+     * Method for checking whether String values may be copied from raw input for
+     * given parser.
+     *
+     * @param srcParser Parser that actually decodes content (not a wrapper)
+     * @param rawInput Raw UTF-8 encoded input that parser reads, if available;
+     *    {@code null} if not
+     *
+     * @return Parser to get token offsets from, if raw copying is possible;
+     *    {@code null} if not
+     */
+    public static ParserBase rawParser(JsonParser srcParser, byte[] rawInput) {
+        // Raw copy only possible if we have access to UTF-8 input that parser reads
+        return ((rawInput != null) && (srcParser instanceof UTF8StreamJsonParser))
+                ? (ParserBase) srcParser : null;
+    }
+
+    /**
+     * Method for appending current scalar token of given parser (if it is a String,
+     * number or boolean value; others are ignored) into given output.
+     *
+     * @param p Parser positioned at the token
+     * @param tokenId Id of the current token
+     * @param out Output to append value to
+     * @param rawParser Parser to get token offset from, if raw copying possible (see
+     *    {@link #rawParser}); {@code null} if not
+     * @param rawInput Raw UTF-8 input that parser reads (if {@code rawParser} given)
+     * @param rawOffset Offset of the first byte of content parser reads within {@code rawInput}
+     * @param rawEnd Offset after the last byte of content parser reads within {@code rawInput}
+     *    (array may contain other bytes after it)
+     */
+    public static void append(JsonParser p, int tokenId, TextOutput out,
+            ParserBase rawParser, byte[] rawInput, int rawOffset, int rawEnd) throws IOException {
+        if (tokenId == JsonTokenId.ID_STRING) {
+            if (rawParser != null) {
+                // Token offset points to the first byte after opening double-quote
+                final int start = rawOffset + (int) rawParser.getTokenCharacterOffset();
+                final int end = findUnescapedStringEnd(rawInput, start, rawEnd);
+                if (end >= 0) {
+                    out.appendUtf8Value(rawInput, start, end - start);
+                    return;
+                }
+            }
+            // Either no raw access or has escapes: need to decode
+        } else if (!_isNonStringScalar(tokenId)) { // null, property names, structural
+            return;
+        }
+        out.appendValue(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+    }
+
+    /**
+     * Helper method for finding the closing double-quote of a String value
+     * starting at given offset in raw UTF-8 input, as long as value contains
+     * no backslash escapes (multi-byte UTF-8 characters never contain either
+     * byte so they need not be decoded). Parser has not necessarily read the value
+     * yet, so it may be unterminated: scan must not go past the end of content.
+     *
+     * @param end Offset after the last byte of content
+     *
+     * @return Index of closing double-quote, if one found (before {@code end}) with
+     *    no preceding backslash; -1 otherwise
+     */
+    static int findUnescapedStringEnd(byte[] input, int ptr, int end) {
+        // Sanity check, to guard against unexpected offset (should never occur)
+        if ((ptr < 1) || (input[ptr-1] != '"')) {
+            return -1;
+        }
+        for (; ptr < end; ++ptr) {
+            final byte b = input[ptr];
+            if (b == '"') {
+                return ptr;
+            }
+            if (b == '\\') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean _isNonStringScalar(int tokenId) {
+        switch (tokenId) {
+        case JsonTokenId.ID_NUMBER_FLOAT:
+        case JsonTokenId.ID_NUMBER_INT:
+        case JsonTokenId.ID_FALSE:
+        case JsonTokenId.ID_TRUE:
+            return true;
+        default:
+            return false;
+        }
+    }
+}
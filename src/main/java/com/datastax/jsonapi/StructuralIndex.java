@@ -0,0 +1,174 @@
+package com.datastax.jsonapi;
+
+/**
+ * Structural index of UTF-8 encoded JSON content, used by {@link RawUtf8Scanner}
+ * (when {@link ExtractorFeature#VECTORIZED_SCANNING} is enabled) for skipping
+ * excluded Objects and Arrays. Similar to "stage 1" of simdjson: input is
+ * classified 64 bytes at a time into bit masks (using {@link BlockClassifier},
+ * vectorized if possible), from which escaped characters and String contents are
+ * masked out using carry-propagating bit operations (instead of byte-by-byte
+ * state machine), leaving bit masks of actual Object/Array start and end markers.
+ * Skipping a container then only requires counting these bits.
+ *<p>
+ * Index is built lazily, block by block, as skipping proceeds: so content after
+ * the last skipped container (like after early termination) is never indexed.
+ * Note that blocks are indexed in order from the start of input, since
+ * String state of a block depends on all preceding blocks.
+ *<p>
+ * Instances are not thread-safe, and are only used for a single extraction.
+ */
+final class StructuralIndex {
+    private final static int BLOCK_SIZE = BlockClassifier.BLOCK_SIZE;
+
+    private final static long EVEN_BITS = 0x5555_5555_5555_5555L;
+
+    private final BlockClassifier _classifier;
+
+    private final byte[] _input;
+
+    private final int _inputEnd;
+
+    private final long[] _masks = new long[BlockClassifier.MASK_COUNT];
+
+    /**
+     * Offset of the first byte of current (last indexed) block
+     */
+    private int _blockStart;
+
+    /**
+     * Object/Array start and end markers (outside of Strings) within current block
+     */
+    private long _opens, _closes;
+
+    /**
+     * Carry from previous block: 1 if the first byte of block is escaped
+     * (by an odd-length sequence of backslashes at the end of previous block)
+     */
+    private long _prevEscaped;
+
+    /**
+     * Carry from previous block: all ones if previous block ended within a String,
+     * all zeroes if not
+     */
+    private long _prevInString;
+
+    StructuralIndex(byte[] input, int offset, int len) {
+        this(BlockClassifier.instance(), input, offset, len);
+    }
+
+    StructuralIndex(BlockClassifier classifier, byte[] input, int offset, int len) {
+        _classifier = classifier;
+        _input = input;
+        _inputEnd = offset + len;
+        // No block indexed yet: "current" block is the (empty) one before input
+        _blockStart = offset - BLOCK_SIZE;
+    }
+
+    /**
+     * Method for finding the end of Object or Array that starts at given offset.
+     *
+     * @param openPtr Offset of the start marker ({@code '{'} or {@code '['}); must be
+     *    at or after the last offset passed to this method
+     *
+     * @return Offset right after the matching end marker; or -1 if end of input
+     *    reached before it
+     */
+    int skipContainer(int openPtr) {
+        while (openPtr >= (_blockStart + BLOCK_SIZE)) {
+            if (!_nextBlock()) {
+                return -1;
+            }
+        }
+        // Only consider markers after the start marker
+        final int shift = openPtr - _blockStart + 1;
+        final long after = (shift == BLOCK_SIZE) ? 0L : (-1L << shift);
+        long opens = _opens & after;
+        long closes = _closes & after;
+        int depth = 1;
+
+        while (true) {
+            final int closeCount = Long.bitCount(closes);
+            if (closeCount < depth) {
+                // Can not reach depth 0 within this block: no need to check markers in order
+                depth += Long.bitCount(opens) - closeCount;
+            } else {
+                long markers = opens | closes;
+                while (markers != 0L) {
+                    final long bit = markers & -markers;
+                    if ((closes & bit) != 0L) {
+                        if (--depth == 0) {
+                            return _blockStart + Long.numberOfTrailingZeros(bit) + 1;
+                        }
+                    } else {
+                        ++depth;
+                    }
+                    markers ^= bit;
+                }
+            }
+            if (!_nextBlock()) {
+                return -1;
+            }
+            opens = _opens;
+            closes = _closes;
+        }
+    }
+
+    /**
+     * @return Whether index uses vectorized block classification
+     */
+    boolean isVectorized() {
+        return _classifier.isVectorized();
+    }
+
+    /**
+     * Method for indexing the next block of input.
+     *
+     * @return True if there was a next block to index; false if end of input reached
+     */
+    private boolean _nextBlock() {
+        final int start = _blockStart + BLOCK_SIZE;
+        final int len = _inputEnd - start;
+        if (len <= 0) {
+            return false;
+        }
+        _blockStart = start;
+        final long[] masks = _masks;
+        if (len >= BLOCK_SIZE) {
+            _classifier.classify(_input, start, masks);
+        } else {
+            _classifier.classifyPartial(_input, start, len, masks);
+        }
+        final long quotes = masks[BlockClassifier.QUOTES] & ~_findEscaped(masks[BlockClassifier.BACKSLASHES]);
+        // Bits between opening (inclusive) and closing (exclusive) double-quotes
+        final long inString = _prefixXor(quotes) ^ _prevInString;
+        _prevInString = inString >> 63;
+        _opens = masks[BlockClassifier.OPENS] & ~inString;
+        _closes = masks[BlockClassifier.CLOSES] & ~inString;
+        return true;
+    }
+
+    /**
+     * Method for finding characters escaped by backslashes: ones preceded by an
+     * odd-length sequence of backslashes (algorithm from simdjson).
+     */
+    private long _findEscaped(long backslashes) {
+        backslashes &= ~_prevEscaped;
+        final long followsEscape = (backslashes << 1) | _prevEscaped;
+        final long oddSequenceStarts = backslashes & ~EVEN_BITS & ~followsEscape;
+        final long sequencesStartingOnEvenBits = oddSequenceStarts + backslashes;
+        // Carry out of the addition: sequence continues to the end of block
+        _prevEscaped = (Long.compareUnsigned(sequencesStartingOnEvenBits, oddSequenceStarts) < 0) ? 1L : 0L;
+        final long invertMask = sequencesStartingOnEvenBits << 1;
+        return (EVEN_BITS ^ invertMask) & followsEscape;
+    }
+
+    private static long _prefixXor(long bits) {
+        bits ^= bits << 1;
+        bits ^= bits << 2;
+        bits ^= bits << 4;
+        bits ^= bits << 8;
+        bits ^= bits << 16;
+        bits ^= bits << 32;
+        return bits;
+    }
+}
@@ -0,0 +1,42 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+
+/**
+ * Abstraction for target into which extracted leaf values are aggregated:
+ * implementations exist both for textual ({@code char}) and UTF-8 encoded
+ * ({@code byte}) aggregation, into internal buffers or caller-provided sinks.
+ *<p>
+ * Values are separated by a single space; empty values are ignored altogether
+ * (so no separators are added for them either).
+ */
+abstract class TextOutput {
+    /**
+     * Method for appending a value contained in given {@code char} array.
+     */
+    public abstract void appendValue(char[] src, int offset, int len) throws IOException;
+
+    /**
+     * Method for appending a value contained in given {@code byte} array, as valid
+     * UTF-8 (with no escaping or other encoding).
+     */
+    public abstract void appendUtf8Value(byte[] src, int offset, int len) throws IOException;
+
+    /**
+     * Method for appending an ASCII-only value contained in given {@code byte}
+     * array: typically numbers or boolean literals.
+     * Default implementation simply calls {@link #appendUtf8Value}.
+     */
+    public void appendAsciiValue(byte[] src, int offset, int len) throws IOException {
+        appendUtf8Value(src, offset, len);
+    }
+
+    /**
+     * Accessor for pooled buffers (see {@link BufferPool}) this output uses, if any:
+     * if so, same buffers are to be used by parser that reads content extracted.
+     * Default implementation returns {@code null}.
+     */
+    PooledBuffers pooledBuffers() {
+        return null;
+    }
+}
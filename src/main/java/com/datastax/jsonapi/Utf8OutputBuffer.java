@@ -0,0 +1,118 @@
+package com.datastax.jsonapi;
+
+import java.util.Arrays;
+
+/**
+ * Simple growable byte buffer used for aggregating extracted leaf values
+ * as UTF-8 encoded bytes: either by copying already-encoded (raw) UTF-8
+ * content, or by encoding {@code char}s as they are appended.
+ */
+final class Utf8OutputBuffer extends TextOutput {
+    private final static byte BYTE_SPACE = (byte) ' ';
+
+    private byte[] buffer;
+
+    private int length;
+
+    // Pooled buffers this buffer belongs to, if any
+    private final PooledBuffers pooledBuffers;
+
+    Utf8OutputBuffer(int initialCapacity) {
+        this(initialCapacity, null);
+    }
+
+    Utf8OutputBuffer(int initialCapacity, PooledBuffers pooledBuffers) {
+        buffer = new byte[Math.max(16, initialCapacity)];
+        this.pooledBuffers = pooledBuffers;
+    }
+
+    /*
+    /**********************************************************
+    /* Accessors
+    /**********************************************************
+     */
+
+    public int length() {
+        return length;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    @Override
+    PooledBuffers pooledBuffers() {
+        return pooledBuffers;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Method for clearing contents, to allow reuse of the buffer.
+     */
+    public void reset() {
+        length = 0;
+    }
+
+    /*
+    /**********************************************************
+    /* TextOutput implementation
+    /**********************************************************
+     */
+
+    @Override
+    public void appendValue(char[] src, int offset, int len) {
+        if (len > 0) {
+            // Worst case: 3 bytes per char (surrogate pairs take 4 bytes for 2 chars);
+            // plus one for separator
+            _ensureRoom(len * 3 + 1);
+            _appendSeparatorIfNeeded();
+            _appendChars(src, offset, len);
+        }
+    }
+
+    @Override
+    public void appendUtf8Value(byte[] src, int offset, int len) {
+        if (len > 0) {
+            _ensureRoom(len + 1);
+            _appendSeparatorIfNeeded();
+            System.arraycopy(src, offset, buffer, length, len);
+            length += len;
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods
+    /**********************************************************
+     */
+
+    private void _appendSeparatorIfNeeded() {
+        if (length > 0) {
+            buffer[length++] = BYTE_SPACE;
+        }
+    }
+
+    // Caller must ensure there is enough room (3 bytes per char)
+    private void _appendChars(char[] src, int offset, int len) {
+        length = Utf8Util.encode(src, offset, offset + len, buffer, length);
+    }
+
+    private void _ensureRoom(int needed) {
+        if ((length + needed) > buffer.length) {
+            _grow(needed);
+        }
+    }
+
+    private void _grow(int minAdditional) {
+        final int minLength = length + minAdditional;
+        // Grow by 50% (but at least as much as needed)
+        int newLength = buffer.length + (buffer.length >> 1);
+        if (newLength < minLength) {
+            newLength = minLength;
+        }
+        buffer = Arrays.copyOf(buffer, newLength);
+    }
+}
@@ -0,0 +1,196 @@
+package com.datastax.jsonapi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import com.fasterxml.jackson.core.util.BufferRecycler;
+
+/**
+ * Base class for {@link TextOutput} implementations that write extracted leaf values
+ * as UTF-8 encoded bytes into a caller-provided sink, keeping count of bytes written.
+ * Raw UTF-8 content is written as-is; {@code char}s are encoded into an intermediate
+ * buffer (obtained from Jackson {@link BufferRecycler}) which is flushed as it fills up.
+ *<p>
+ * {@link #finish()} must be called once extraction is complete (to flush buffered
+ * content), and {@link #release()} after that (whether extraction succeeded or not).
+ */
+abstract class Utf8SinkOutput extends TextOutput {
+    // Larger raw values are written directly, bypassing the buffer
+    private final static int MAX_BUFFERED_RAW_LENGTH = 500;
+
+    private final BufferRecycler bufferRecycler;
+
+    private byte[] buffer;
+
+    private int bufferPtr;
+
+    private int count;
+
+    protected Utf8SinkOutput(BufferRecycler bufferRecycler) {
+        this.bufferRecycler = bufferRecycler;
+        buffer = bufferRecycler.allocByteBuffer(BufferRecycler.BYTE_WRITE_ENCODING_BUFFER);
+    }
+
+    /**
+     * Factory method for constructing output that writes to given {@link OutputStream}.
+     */
+    public static Utf8SinkOutput forStream(OutputStream out, BufferRecycler bufferRecycler) {
+        return new StreamOutput(out, bufferRecycler);
+    }
+
+    /**
+     * Factory method for constructing output that writes to given {@link ByteBuffer},
+     * starting at its current position. If there is not enough room,
+     * {@link java.nio.BufferOverflowException} is thrown.
+     */
+    public static Utf8SinkOutput forByteBuffer(ByteBuffer out, BufferRecycler bufferRecycler) {
+        return new ByteBufferOutput(out, bufferRecycler);
+    }
+
+    /*
+    /**********************************************************
+    /* Accessors, life-cycle
+    /**********************************************************
+     */
+
+    /**
+     * @return Number of bytes written, including separators
+     */
+    public int count() {
+        return count;
+    }
+
+    public void finish() throws IOException {
+        _flushBuffer();
+    }
+
+    @Override
+    PooledBuffers pooledBuffers() {
+        return (bufferRecycler instanceof PooledBuffers) ? (PooledBuffers) bufferRecycler : null;
+    }
+
+    public void release() {
+        byte[] buf = buffer;
+        if (buf != null) {
+            buffer = null;
+            bufferRecycler.releaseByteBuffer(BufferRecycler.BYTE_WRITE_ENCODING_BUFFER, buf);
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* TextOutput implementation
+    /**********************************************************
+     */
+
+    @Override
+    public void appendValue(char[] src, int offset, int len) throws IOException {
+        if (len > 0) {
+            _appendSeparatorIfNeeded();
+            final byte[] buf = buffer;
+            final int end = offset + len;
+            while (offset < end) {
+                // 3 bytes per char is always enough
+                final int maxChars = (buf.length - bufferPtr) / 3;
+                if (maxChars < 2) {
+                    _flushBuffer();
+                    continue;
+                }
+                int chunkEnd = Math.min(end, offset + maxChars);
+                // Do not split surrogate pairs
+                if ((chunkEnd < end) && Character.isHighSurrogate(src[chunkEnd-1])) {
+                    --chunkEnd;
+                }
+                final int newPtr = Utf8Util.encode(src, offset, chunkEnd, buf, bufferPtr);
+                count += newPtr - bufferPtr;
+                bufferPtr = newPtr;
+                offset = chunkEnd;
+            }
+        }
+    }
+
+    @Override
+    public void appendUtf8Value(byte[] src, int offset, int len) throws IOException {
+        if (len > 0) {
+            _appendSeparatorIfNeeded();
+            if (len > MAX_BUFFERED_RAW_LENGTH) {
+                _flushBuffer();
+                _write(src, offset, len);
+            } else {
+                if ((bufferPtr + len) > buffer.length) {
+                    _flushBuffer();
+                }
+                System.arraycopy(src, offset, buffer, bufferPtr, len);
+                bufferPtr += len;
+            }
+            count += len;
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Abstract methods for sub-classes
+    /**********************************************************
+     */
+
+    protected abstract void _write(byte[] src, int offset, int len) throws IOException;
+
+    /*
+    /**********************************************************
+    /* Internal methods
+    /**********************************************************
+     */
+
+    private void _appendSeparatorIfNeeded() throws IOException {
+        if (count > 0) {
+            if (bufferPtr >= buffer.length) {
+                _flushBuffer();
+            }
+            buffer[bufferPtr++] = (byte) ' ';
+            ++count;
+        }
+    }
+
+    private void _flushBuffer() throws IOException {
+        if (bufferPtr > 0) {
+            final int len = bufferPtr;
+            bufferPtr = 0;
+            _write(buffer, 0, len);
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Concrete implementations
+    /**********************************************************
+     */
+
+    private final static class StreamOutput extends Utf8SinkOutput {
+        private final OutputStream out;
+
+        StreamOutput(OutputStream out, BufferRecycler bufferRecycler) {
+            super(bufferRecycler);
+            this.out = out;
+        }
+
+        @Override
+        protected void _write(byte[] src, int offset, int len) throws IOException {
+            out.write(src, offset, len);
+        }
+    }
+
+    private final static class ByteBufferOutput extends Utf8SinkOutput {
+        private final ByteBuffer out;
+
+        ByteBufferOutput(ByteBuffer out, BufferRecycler bufferRecycler) {
+            super(bufferRecycler);
+            this.out = out;
+        }
+
+        @Override
+        protected void _write(byte[] src, int offset, int len) {
+            out.put(src, offset, len);
+        }
+    }
+}
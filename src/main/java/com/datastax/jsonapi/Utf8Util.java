@@ -0,0 +1,96 @@
+package com.datastax.jsonapi;
+
+/**
+ * Static helper methods for dealing with UTF-8 encoded content.
+ */
+final class Utf8Util {
+    private Utf8Util() { }
+
+    /**
+     * Method for decoding UTF-8 encoded content into given {@code char} array.
+     * Caller must ensure there is enough room in destination array: each
+     * byte decodes into at most one {@code char} so
+     * {@code srcEnd - srcPtr} is always enough.
+     *<p>
+     * Invalid (or truncated) byte sequences are decoded leniently, without
+     * reporting an error.
+     *
+     * @return Offset in destination array after the last decoded character
+     */
+    public static int decode(byte[] src, int srcPtr, final int srcEnd,
+            char[] dst, int dstPtr) {
+        while (srcPtr < srcEnd) {
+            int c = src[srcPtr++];
+            if (c >= 0) {
+                dst[dstPtr++] = (char) c;
+                continue;
+            }
+            if ((c & 0xE0) == 0xC0) { // 2 bytes
+                c = ((c & 0x1F) << 6) | _continuation(src, srcPtr++, srcEnd);
+            } else if ((c & 0xF0) == 0xE0) { // 3 bytes
+                c = ((c & 0x0F) << 12) | (_continuation(src, srcPtr++, srcEnd) << 6)
+                        | _continuation(src, srcPtr++, srcEnd);
+            } else if ((c & 0xF8) == 0xF0) { // 4 bytes: surrogate pair
+                c = ((c & 0x07) << 18) | (_continuation(src, srcPtr++, srcEnd) << 12)
+                        | (_continuation(src, srcPtr++, srcEnd) << 6)
+                        | _continuation(src, srcPtr++, srcEnd);
+                dst[dstPtr++] = Character.highSurrogate(c);
+                c = Character.lowSurrogate(c);
+            } else { // invalid lead byte: replace
+                c = 0xFFFD;
+            }
+            dst[dstPtr++] = (char) c;
+        }
+        return dstPtr;
+    }
+
+    /**
+     * Method for encoding given {@code char}s as UTF-8 into given {@code byte} array.
+     * Caller must ensure there is enough room in destination array: 3 bytes per
+     * {@code char} is always enough (surrogate pairs encode into 4 bytes).
+     * Unpaired surrogates are replaced with {@code '?'}, the same way
+     * {@code String.getBytes(StandardCharsets.UTF_8)} does.
+     *
+     * @return Offset in destination array after the last encoded byte
+     */
+    public static int encode(char[] src, int srcPtr, final int srcEnd,
+            byte[] dst, int dstPtr) {
+        // Tight loop for the common ASCII case first
+        while (srcPtr < srcEnd) {
+            char c = src[srcPtr];
+            if (c >= 0x80) {
+                break;
+            }
+            dst[dstPtr++] = (byte) c;
+            ++srcPtr;
+        }
+        while (srcPtr < srcEnd) {
+            int c = src[srcPtr++];
+            if (c < 0x80) {
+                dst[dstPtr++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[dstPtr++] = (byte) (0xC0 | (c >> 6));
+                dst[dstPtr++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate((char) c) && (srcPtr < srcEnd)
+                    && Character.isLowSurrogate(src[srcPtr])) {
+                c = Character.toCodePoint((char) c, src[srcPtr++]);
+                dst[dstPtr++] = (byte) (0xF0 | (c >> 18));
+                dst[dstPtr++] = (byte) (0x80 | ((c >> 12) & 0x3F));
+                dst[dstPtr++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[dstPtr++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate((char) c)) {
+                dst[dstPtr++] = (byte) '?';
+            } else {
+                dst[dstPtr++] = (byte) (0xE0 | (c >> 12));
+                dst[dstPtr++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[dstPtr++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return dstPtr;
+    }
+
+    private static int _continuation(byte[] src, int ptr, int end) {
+        // Truncated sequence: exact bits do not matter much
+        return (ptr < end) ? (src[ptr] & 0x3F) : 0x3F;
+    }
+}
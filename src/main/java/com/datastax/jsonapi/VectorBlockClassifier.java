@@ -0,0 +1,92 @@
+package com.datastax.jsonapi;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link BlockClassifier} that uses Vector API ({@code jdk.incubator.vector})
+ * to classify 16, 32 or 64 bytes at a time (depending on preferred vector size
+ * of the platform).
+ *<p>
+ * NOTE: compiled separately (with {@code --add-modules jdk.incubator.vector}), and
+ * only loaded (reflectively, by {@link BlockClassifier}) if module is available.
+ *<p>
+ * NOTE: lane masks are not converted using {@code VectorMask.toLong()} since it is
+ * not an intrinsic on JDK 17 (and would be slower than scalar classification); instead
+ * each lane is mapped to a distinct bit within its byte, after which bytes of each
+ * 8-lane group are summed with a multiplication and groups combined with a
+ * lane-wise OR reduction.
+ */
+final class VectorBlockClassifier extends BlockClassifier {
+    private final static VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private final static int LANES = SPECIES.length();
+
+    // '[' and '{' (as well as ']' and '}') only differ by this bit
+    private final static byte CASE_BIT = 0x20;
+
+    private final static long SUM_BYTES = 0x0101_0101_0101_0101L;
+
+    // Bit of each lane within its byte: 1, 2, 4, ..., 128, 1, 2, ...
+    private final static ByteVector LANE_BITS;
+
+    // Shift of 8-lane groups for each part of block
+    private final static LongVector[] GROUP_SHIFTS;
+    static {
+        final byte[] bits = new byte[LANES];
+        for (int i = 0; i < LANES; ++i) {
+            bits[i] = (byte) (1 << (i & 7));
+        }
+        LANE_BITS = ByteVector.fromArray(SPECIES, bits, 0);
+        final VectorSpecies<Long> longs = SPECIES.withLanes(long.class);
+        final int parts = Math.max(1, BLOCK_SIZE / LANES);
+        GROUP_SHIFTS = new LongVector[parts];
+        final long[] shifts = new long[longs.length()];
+        for (int part = 0; part < parts; ++part) {
+            for (int i = 0; i < shifts.length; ++i) {
+                shifts[i] = (part * LANES) + (i * 8);
+            }
+            GROUP_SHIFTS[part] = LongVector.fromArray(longs, shifts, 0);
+        }
+    }
+
+    VectorBlockClassifier() {
+        if ((LANES < 8) || (BLOCK_SIZE % LANES) != 0) {
+            throw new IllegalStateException("Unsupported vector length: "+LANES);
+        }
+    }
+
+    @Override
+    boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    void classify(byte[] input, int offset, long[] masks) {
+        long quotes = 0L, backslashes = 0L, opens = 0L, closes = 0L;
+        for (int i = 0, part = 0; i < BLOCK_SIZE; i += LANES, ++part) {
+            final ByteVector v = ByteVector.fromArray(SPECIES, input, offset + i);
+            final LongVector shifts = GROUP_SHIFTS[part];
+            quotes |= _bits(v.eq((byte) '"'), shifts);
+            backslashes |= _bits(v.eq((byte) '\\'), shifts);
+            final ByteVector folded = v.or(CASE_BIT);
+            opens |= _bits(folded.eq((byte) '{'), shifts);
+            closes |= _bits(folded.eq((byte) '}'), shifts);
+        }
+        masks[QUOTES] = quotes;
+        masks[BACKSLASHES] = backslashes;
+        masks[OPENS] = opens;
+        masks[CLOSES] = closes;
+    }
+
+    private static long _bits(VectorMask<Byte> mask, LongVector shifts) {
+        return ByteVector.zero(SPECIES).blend(LANE_BITS, mask).reinterpretAsLongs()
+                .lanewise(VectorOperators.MUL, SUM_BYTES)
+                .lanewise(VectorOperators.LSHR, 56)
+                .lanewise(VectorOperators.LSHL, shifts)
+                .reduceLanes(VectorOperators.OR);
+    }
+}
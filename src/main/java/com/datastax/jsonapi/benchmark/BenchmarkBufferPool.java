@@ -0,0 +1,155 @@
+package com.datastax.jsonapi.benchmark;
+
+import com.datastax.jsonapi.JsonFieldExtractor;
+import com.datastax.jsonapi.JsonFieldExtractorFactory;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark for comparing buffer recycling strategies (Jackson per-thread
+ * recycling vs shared pool, see {@link JsonFieldExtractorFactory#withBufferPool(int)})
+ * when extractions are run at high concurrency, either by a fixed pool of platform
+ * threads or by virtual threads (one per task). Each operation submits
+ * {@link #TASKS} extraction tasks and waits for all of them to complete; scores
+ * are per extraction.
+ *<p>
+ * Virtual threads require JDK 21+ (they are created reflectively): on older JDKs
+ * executor {@code "virtual"} falls back to creating a new platform thread per task,
+ * which has the same effect on per-thread recycling (with higher thread start cost).
+ * Running with GC profiler ({@code -prof gc}) shows the difference in number of GCs
+ * (allocation rate reported does not fully cover threads that have terminated).
+ */
+@BenchmarkMode(Mode.Throughput)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Measurement(iterations = 3, time = 3)
+@Warmup(iterations = 2, time = 3)
+public class BenchmarkBufferPool
+{
+    final static int TASKS = 1000;
+
+    final static int PLATFORM_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String executor;
+
+    @Param({"threadLocal", "pool"})
+    public String recycling;
+
+    @Param({"4KB", "32KB"})
+    public String docSize;
+
+    private String doc;
+
+    private JsonFieldExtractor extractor;
+
+    private ExecutorService executorService;
+
+    private final AtomicLong outputLength = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException
+    {
+        SyntheticDocs docs = SyntheticDocs.generate(BenchmarkScaling.parseSize(docSize), 4, 10,
+                0.1, 42L);
+        doc = new String(docs.document(), StandardCharsets.UTF_8);
+        JsonFieldExtractorFactory extractorFactory = JsonFieldExtractorFactory.construct(new JsonMapper());
+        if ("pool".equals(recycling)) {
+            extractorFactory = extractorFactory.withBufferPool(Runtime.getRuntime().availableProcessors() * 4);
+        }
+        extractor = extractorFactory.buildExtractor(docs.paths());
+        executorService = "virtual".equals(executor) ? _virtualThreadExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() throws InterruptedException
+    {
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public long extractConcurrently() throws InterruptedException
+    {
+        final CountDownLatch done = new CountDownLatch(TASKS);
+        for (int i = 0; i < TASKS; ++i) {
+            executorService.execute(() -> {
+                try {
+                    outputLength.addAndGet(extractor.extractAsString(doc).get().length());
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return outputLength.get();
+    }
+
+    private static ExecutorService _virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("WARNING: virtual threads not available (JDK 21+ needed),"
+                    +" using new platform thread per task");
+            return new ThreadPerTaskExecutor();
+        }
+    }
+
+    /**
+     * Minimal executor that starts a new (platform) thread for each task, used
+     * in place of virtual threads on pre-21 JDKs.
+     */
+    private final static class ThreadPerTaskExecutor extends AbstractExecutorService
+    {
+        private volatile boolean shutdown;
+
+        @Override
+        public void execute(Runnable task) {
+            Thread t = new Thread(task);
+            t.setDaemon(true);
+            t.start();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
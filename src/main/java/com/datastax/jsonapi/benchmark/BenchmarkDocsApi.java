@@ -1,16 +1,23 @@
 package com.datastax.jsonapi.benchmark;
 
+import com.datastax.jsonapi.ExtractorFeature;
 import com.datastax.jsonapi.JsonFieldExtractor;
 import com.datastax.jsonapi.JsonFieldExtractorFactory;
+import com.datastax.jsonapi.MultiFieldExtractor;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Field extraction test using "example.json" from Docs API tests.
@@ -28,8 +35,38 @@ public class BenchmarkDocsApi
 
     private JsonFieldExtractor docsApiExtractorBig;
 
+    private JsonFieldExtractor docsApiExtractorSmallRaw;
+
+    private JsonFieldExtractor docsApiExtractorBigRaw;
+
+    private JsonFieldExtractor docsApiExtractorSmallEarly;
+
+    private JsonFieldExtractor docsApiExtractorSmallRawEarly;
+
+    // Multiple fields, extracted either separately or in a single pass
+    private final static List<String> MULTI_FIELDS = Arrays.asList(
+            "quiz.sport.q1.question, quiz.sport.q1.answer",
+            "quiz.nests.q1",
+            "products.food",
+            "products.electronics.Pixel_3a.price, products.food.Apple.price");
+
+    private JsonFieldExtractor[] multiFieldExtractors;
+
+    private MultiFieldExtractor multiFieldExtractor;
+
+    // Extractors that also accept binary formats (Smile, CBOR)
+    private JsonFieldExtractor docsApiExtractorSmallBinary;
+
+    private JsonFieldExtractor docsApiExtractorBigBinary;
+
+    private SmileMapper SMILE_MAPPER;
+
     private byte[] exampleDocJson;
 
+    private byte[] exampleDocSmile;
+
+    private byte[] exampleDocCbor;
+
     @Setup(Level.Trial) // read once and for all
     public void prepare() throws IOException
     {
@@ -42,6 +79,10 @@ public class BenchmarkDocsApi
                     .writeValueAsBytes(doc);
             // and for fancies, re-parse, discard (ensures we have valid JSON as output)
             MAPPER.readTree(exampleDocJson);
+
+            SMILE_MAPPER = new SmileMapper();
+            exampleDocSmile = SMILE_MAPPER.writeValueAsBytes(doc);
+            exampleDocCbor = new CBORMapper().writeValueAsBytes(doc);
         }
         JsonFieldExtractorFactory extractorFactory
                 = JsonFieldExtractorFactory.construct(MAPPER);
@@ -50,12 +91,50 @@ public class BenchmarkDocsApi
         docsApiExtractorBig = extractorFactory.buildExtractor(
                 "quiz.nests, products.food");
 
+        JsonFieldExtractorFactory rawExtractorFactory
+                = extractorFactory.with(ExtractorFeature.RAW_UTF8_SCANNING);
+        docsApiExtractorSmallRaw = rawExtractorFactory.buildExtractor(
+                "products.electronics.Pixel_3a, quiz.sport.q1.answer");
+        docsApiExtractorBigRaw = rawExtractorFactory.buildExtractor(
+                "quiz.nests, products.food");
+
+        docsApiExtractorSmallEarly = extractorFactory.with(ExtractorFeature.EARLY_TERMINATION)
+                .buildExtractor("products.electronics.Pixel_3a, quiz.sport.q1.answer");
+        docsApiExtractorSmallRawEarly = rawExtractorFactory.with(ExtractorFeature.EARLY_TERMINATION)
+                .buildExtractor("products.electronics.Pixel_3a, quiz.sport.q1.answer");
+
+        JsonFieldExtractorFactory binaryExtractorFactory = extractorFactory
+                .withBinaryFormat(SMILE_MAPPER.getFactory())
+                .withBinaryFormat(new CBORMapper().getFactory());
+        docsApiExtractorSmallBinary = binaryExtractorFactory.buildExtractor(
+                "products.electronics.Pixel_3a, quiz.sport.q1.answer");
+        docsApiExtractorBigBinary = binaryExtractorFactory.buildExtractor(
+                "quiz.nests, products.food");
+
+        multiFieldExtractors = new JsonFieldExtractor[MULTI_FIELDS.size()];
+        for (int i = 0; i < multiFieldExtractors.length; ++i) {
+            multiFieldExtractors[i] = extractorFactory.buildExtractor(MULTI_FIELDS.get(i));
+        }
+        multiFieldExtractor = extractorFactory.buildMultiExtractor(MULTI_FIELDS);
+        String[] multiResult = multiFieldExtractor.extractAsStrings(exampleDocJson).get();
+        for (int i = 0; i < multiFieldExtractors.length; ++i) {
+            _verifyExtraction(multiFieldExtractors[i], multiResult[i].trim());
+        }
+
         // Verify that we can extract the fields we want
-        String text = docsApiExtractorSmall.extractAsString(exampleDocJson).get().trim();
         final String EXP = "Huston Rocket Pixel Google 3a 600";
-        if (!text.equals(EXP)) {
-            throw new IllegalStateException("Invalid extracted text: expected '"+EXP+"', got '"
-                    +text+"' (length "+text.length()+")");
+        _verifyExtraction(docsApiExtractorSmall, EXP);
+        _verifyExtraction(docsApiExtractorSmallRaw, EXP);
+        _verifyExtraction(docsApiExtractorSmallEarly, EXP);
+        _verifyExtraction(docsApiExtractorSmallRawEarly, EXP);
+        // and that raw scanning produces same results as default
+        _verifyExtraction(docsApiExtractorBigRaw,
+                docsApiExtractorBig.extractAsString(exampleDocJson).get());
+        // and that binary formats produce same results as JSON
+        for (byte[] binaryDoc : Arrays.asList(exampleDocSmile, exampleDocCbor)) {
+            _verifyExtraction(docsApiExtractorSmallBinary, binaryDoc, EXP);
+            _verifyExtraction(docsApiExtractorBigBinary, binaryDoc,
+                    docsApiExtractorBig.extractAsString(exampleDocJson).get());
         }
     }
 
@@ -73,6 +152,20 @@ public class BenchmarkDocsApi
         return _validate(bh, count);
     }
 
+    /**
+     * No-operations case of simply scanning through Smile-encoded Document
+     */
+    @Benchmark
+    public int smileScanOnly(Blackhole bh) throws IOException {
+        int count = 0;
+        try (JsonParser p = SMILE_MAPPER.createParser(exampleDocSmile)) {
+            while (p.nextToken() != null) {
+                ++count;
+            }
+        }
+        return _validate(bh, count);
+    }
+
     @Benchmark
     public int jsonReadTree(Blackhole bh) throws IOException {
         JsonNode doc = MAPPER.readTree(exampleDocJson);
@@ -91,8 +184,134 @@ public class BenchmarkDocsApi
         return _validate(bh, text.length());
     }
 
+    /**
+     * Extraction as UTF-8 bytes, using native byte-output implementation.
+     */
+    @Benchmark
+    public int jsonReadAndExtractTinyAsBytes(Blackhole bh) throws IOException {
+        byte[] text = docsApiExtractorSmall.extractAsBytes(exampleDocJson).get();
+        return _validate(bh, text.length);
+    }
+
+    @Benchmark
+    public int jsonReadAndExtractMostAsBytes(Blackhole bh) throws IOException {
+        byte[] text = docsApiExtractorBig.extractAsBytes(exampleDocJson).get();
+        return _validate(bh, text.length);
+    }
+
+    /**
+     * Extraction as UTF-8 bytes, the way it was implemented originally: extract
+     * as {@code String}, then encode. Used as the baseline for byte-output cases.
+     */
+    @Benchmark
+    public int jsonReadAndExtractTinyAsBytesViaString(Blackhole bh) throws IOException {
+        byte[] text = docsApiExtractorSmall.extractAsString(exampleDocJson).get()
+                .getBytes(StandardCharsets.UTF_8);
+        return _validate(bh, text.length);
+    }
+
+    @Benchmark
+    public int jsonReadAndExtractMostAsBytesViaString(Blackhole bh) throws IOException {
+        byte[] text = docsApiExtractorBig.extractAsString(exampleDocJson).get()
+                .getBytes(StandardCharsets.UTF_8);
+        return _validate(bh, text.length);
+    }
+
+    /**
+     * Extraction using raw UTF-8 scanning engine (skips excluded content at byte level)
+     */
+    @Benchmark
+    public int jsonRawScanAndExtractTiny(Blackhole bh) throws IOException {
+        String text = docsApiExtractorSmallRaw.extractAsString(exampleDocJson).get();
+        return _validate(bh, text.length());
+    }
+
+    @Benchmark
+    public int jsonRawScanAndExtractMost(Blackhole bh) throws IOException {
+        String text = docsApiExtractorBigRaw.extractAsString(exampleDocJson).get();
+        return _validate(bh, text.length());
+    }
+
+    /**
+     * Extraction with early termination (rest of Objects skipped once all
+     * their inclusion paths have been seen)
+     */
+    @Benchmark
+    public int jsonReadAndExtractTinyEarlyExit(Blackhole bh) throws IOException {
+        String text = docsApiExtractorSmallEarly.extractAsString(exampleDocJson).get();
+        return _validate(bh, text.length());
+    }
+
+    @Benchmark
+    public int jsonRawScanAndExtractTinyEarlyExit(Blackhole bh) throws IOException {
+        String text = docsApiExtractorSmallRawEarly.extractAsString(exampleDocJson).get();
+        return _validate(bh, text.length());
+    }
+
+    /**
+     * Extraction of multiple fields: either with separate extractors (parsing
+     * document once per field), or in a single pass
+     */
+    @Benchmark
+    public int jsonReadAndExtractFieldsSeparately(Blackhole bh) throws IOException {
+        int length = 0;
+        for (JsonFieldExtractor extr : multiFieldExtractors) {
+            length += extr.extractAsString(exampleDocJson).get().length();
+        }
+        return _validate(bh, length);
+    }
+
+    @Benchmark
+    public int jsonReadAndExtractFieldsSinglePass(Blackhole bh) throws IOException {
+        int length = 0;
+        for (String text : multiFieldExtractor.extractAsStrings(exampleDocJson).get()) {
+            length += text.length();
+        }
+        return _validate(bh, length);
+    }
+
+    /**
+     * Extraction from binary formats (same document, as Smile and CBOR); compare
+     * to {@link #jsonReadAndExtractTiny} and {@link #jsonReadAndExtractMost}
+     */
+    @Benchmark
+    public int smileReadAndExtractTiny(Blackhole bh) throws IOException {
+        String text = docsApiExtractorSmallBinary.extractAsString(exampleDocSmile).get();
+        return _validate(bh, text.length());
+    }
+
+    @Benchmark
+    public int smileReadAndExtractMost(Blackhole bh) throws IOException {
+        String text = docsApiExtractorBigBinary.extractAsString(exampleDocSmile).get();
+        return _validate(bh, text.length());
+    }
+
+    @Benchmark
+    public int cborReadAndExtractTiny(Blackhole bh) throws IOException {
+        String text = docsApiExtractorSmallBinary.extractAsString(exampleDocCbor).get();
+        return _validate(bh, text.length());
+    }
+
+    @Benchmark
+    public int cborReadAndExtractMost(Blackhole bh) throws IOException {
+        String text = docsApiExtractorBigBinary.extractAsString(exampleDocCbor).get();
+        return _validate(bh, text.length());
+    }
+
     // // // Helper methods
 
+    private void _verifyExtraction(JsonFieldExtractor extr, String exp) throws IOException {
+        _verifyExtraction(extr, exampleDocJson, exp);
+    }
+
+    private void _verifyExtraction(JsonFieldExtractor extr, byte[] doc, String exp) throws IOException {
+        String text = extr.extractAsString(doc).get().trim();
+        if (!text.equals(exp)) {
+            throw new IllegalStateException("Invalid extracted text: expected '"+exp+"', got '"
+                    +text+"' (length "+text.length()+")");
+        }
+    }
+
     private int _validate(Blackhole bh, int bogusResult) {
         if (bogusResult <= 0) {
             throw new IllegalStateException("Invalid (bogus) result "+bogusResult+": must be > 0");
@@ -0,0 +1,102 @@
+package com.datastax.jsonapi.benchmark;
+
+import com.datastax.jsonapi.JsonFieldExtractor;
+import com.datastax.jsonapi.JsonFieldExtractorFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Batch extraction test using variants of "example.json" from Docs API tests:
+ * compares per-document extraction calls with batch extraction.
+ * Scores are per document (not per batch).
+ */
+@BenchmarkMode(Mode.Throughput)
+@State(Scope.Benchmark)
+@Fork(value = 3)
+@Measurement(iterations = 3, time = 3)
+@Warmup(iterations = 1, time = 3)
+public class BenchmarkDocsApiBatch
+{
+    private final static int BATCH_SIZE = 100;
+
+    private JsonFieldExtractor docsApiExtractorSmall;
+
+    private JsonFieldExtractor docsApiExtractorBig;
+
+    private byte[][] exampleDocs;
+
+    @Setup(Level.Trial) // read once and for all
+    public void prepare() throws IOException
+    {
+        ObjectMapper mapper = new JsonMapper();
+        JsonNode doc;
+        try (InputStream in = getClass().getResourceAsStream("/jmh/docsapi-example.json")) {
+            doc = mapper.readTree(in);
+        }
+        // Create variants with different leaf values, and alternate between compact
+        // and indented output to get some variation in length as well
+        exampleDocs = new byte[BATCH_SIZE][];
+        for (int i = 0; i < BATCH_SIZE; ++i) {
+            ObjectNode variant = doc.deepCopy();
+            ((ObjectNode) variant.at("/quiz/sport/q1")).put("answer", "Huston Rocket #"+i);
+            ((ObjectNode) variant.at("/products/food/Apple")).put("price", 0.5 + i);
+            exampleDocs[i] = ((i & 1) == 0)
+                    ? mapper.writeValueAsBytes(variant)
+                    : mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(variant);
+        }
+        JsonFieldExtractorFactory extractorFactory
+                = JsonFieldExtractorFactory.construct(mapper);
+        docsApiExtractorSmall = extractorFactory.buildExtractor(
+                "products.electronics.Pixel_3a, quiz.sport.q1.answer");
+        docsApiExtractorBig = extractorFactory.buildExtractor(
+                "quiz.nests, products.food");
+
+        // Verify that batch and per-document extraction produce same results
+        for (JsonFieldExtractor extr : Arrays.asList(docsApiExtractorSmall, docsApiExtractorBig)) {
+            String[] batch = extr.extractAllAsString(exampleDocs);
+            for (int i = 0; i < BATCH_SIZE; ++i) {
+                String single = extr.extractAsString(exampleDocs[i]).get();
+                if (!single.equals(batch[i])) {
+                    throw new IllegalStateException("Batch result #"+i+" differs: expected '"
+                            +single+"', got '"+batch[i]+"'");
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void extractTinyPerDocument(Blackhole bh) throws IOException {
+        for (byte[] doc : exampleDocs) {
+            bh.consume(docsApiExtractorSmall.extractAsString(doc).get());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void extractTinyBatch(Blackhole bh) throws IOException {
+        bh.consume(docsApiExtractorSmall.extractAllAsString(exampleDocs));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void extractMostPerDocument(Blackhole bh) throws IOException {
+        for (byte[] doc : exampleDocs) {
+            bh.consume(docsApiExtractorBig.extractAsString(doc).get());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void extractMostBatch(Blackhole bh) throws IOException {
+        bh.consume(docsApiExtractorBig.extractAllAsString(exampleDocs));
+    }
+}
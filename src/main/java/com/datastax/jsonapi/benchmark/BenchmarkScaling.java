@@ -0,0 +1,144 @@
+package com.datastax.jsonapi.benchmark;
+
+import com.datastax.jsonapi.ExtractorFeature;
+import com.datastax.jsonapi.JsonFieldExtractor;
+import com.datastax.jsonapi.JsonFieldExtractorFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+
+/**
+ * Scaling test using synthetic documents (see {@link SyntheticDocs}): varies
+ * document size, nesting depth, number of inclusion paths and fraction of document
+ * included, to show how extraction cost scales with each.
+ *<p>
+ * In addition to operations (documents) per second, throughput is reported as
+ * input megabytes per second (secondary result {@code ":inputMB"}; reported with unit
+ * of "ops/s" by JMH), which is comparable across document sizes.
+ * Full parameter space is big: it is usually best to run a subset, like
+ *<pre>
+ *   java -jar target/microbenchmarks.jar BenchmarkScaling -p docSize=5MB -p depth=4
+ *</pre>
+ * See {@link BenchmarkScalingThreads} for scaling by number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Measurement(iterations = 3, time = 2)
+@Warmup(iterations = 2, time = 2)
+public class BenchmarkScaling
+{
+    @Param({"50KB", "500KB", "5MB"})
+    public String docSize;
+
+    @Param({"2", "8"})
+    public int depth;
+
+    @Param({"1", "10", "200"})
+    public int pathCount;
+
+    @Param({"0.01", "0.1", "0.5"})
+    public double matchedFraction;
+
+    private ObjectMapper MAPPER;
+
+    private byte[] doc;
+
+    private JsonFieldExtractor extractor;
+
+    private JsonFieldExtractor rawExtractor;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException
+    {
+        MAPPER = new JsonMapper();
+        SyntheticDocs docs = SyntheticDocs.generate(parseSize(docSize), depth, pathCount,
+                matchedFraction, 42L);
+        doc = docs.document();
+        JsonFieldExtractorFactory extractorFactory = JsonFieldExtractorFactory.construct(MAPPER);
+        extractor = extractorFactory.buildExtractor(docs.paths());
+        rawExtractor = extractorFactory.with(ExtractorFeature.RAW_UTF8_SCANNING)
+                .buildExtractor(docs.paths());
+
+        // Verify that both engines extract the same (and that content is valid JSON)
+        MAPPER.readTree(doc);
+        String exp = extractor.extractAsString(doc).get();
+        String act = rawExtractor.extractAsString(doc).get();
+        if (!exp.equals(act)) {
+            throw new IllegalStateException("Raw scanning extracted different content (length "
+                    +act.length()+") than default (length "+exp.length()+")");
+        }
+    }
+
+    /**
+     * Per-thread counter of input processed, for reporting throughput as MB/s
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class InputCounter {
+        public double inputMB;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            inputMB = 0.0;
+        }
+
+        void add(byte[] doc) {
+            inputMB += doc.length / (1024.0 * 1024.0);
+        }
+    }
+
+    /**
+     * No-operations case of simply scanning through JSON Document
+     */
+    @Benchmark
+    public int jsonScanOnly(InputCounter counter) throws IOException {
+        int count = 0;
+        try (JsonParser p = MAPPER.createParser(doc)) {
+            while (p.nextToken() != null) {
+                ++count;
+            }
+        }
+        counter.add(doc);
+        return count;
+    }
+
+    @Benchmark
+    public void jsonReadAndExtract(Blackhole bh, InputCounter counter) throws IOException {
+        bh.consume(extractor.extractAsString(doc).get());
+        counter.add(doc);
+    }
+
+    @Benchmark
+    public void jsonReadAndExtractAsBytes(Blackhole bh, InputCounter counter) throws IOException {
+        bh.consume(extractor.extractAsBytes(doc).get());
+        counter.add(doc);
+    }
+
+    @Benchmark
+    public void jsonRawScanAndExtract(Blackhole bh, InputCounter counter) throws IOException {
+        bh.consume(rawExtractor.extractAsString(doc).get());
+        counter.add(doc);
+    }
+
+    /**
+     * Helper method for parsing sizes like "50KB" and "5MB" (or plain number of bytes)
+     */
+    static int parseSize(String size) {
+        size = size.trim().toUpperCase();
+        int multiplier = 1;
+        if (size.endsWith("KB")) {
+            multiplier = 1024;
+        } else if (size.endsWith("MB")) {
+            multiplier = 1024 * 1024;
+        }
+        if (multiplier > 1) {
+            size = size.substring(0, size.length() - 2).trim();
+        }
+        return Integer.parseInt(size) * multiplier;
+    }
+}
@@ -0,0 +1,100 @@
+package com.datastax.jsonapi.benchmark;
+
+import com.datastax.jsonapi.ExtractorFeature;
+import com.datastax.jsonapi.JsonFieldExtractor;
+import com.datastax.jsonapi.JsonFieldExtractorFactory;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+
+/**
+ * Scaling test for concurrent extraction: same synthetic document (see
+ * {@link SyntheticDocs}) extracted by shared extractors from 1, 16 and 64 threads,
+ * to expose contention (and allocation/GC pressure that grows with concurrency).
+ * Document shape defaults to a "typical" case but may be changed with
+ * {@code -p} options (like {@link BenchmarkScaling}).
+ *<p>
+ * Scores are aggregate over all threads; secondary result {@code ":inputMB"} gives
+ * throughput as input megabytes per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Measurement(iterations = 3, time = 3)
+@Warmup(iterations = 2, time = 3)
+public class BenchmarkScalingThreads
+{
+    @Param({"500KB"})
+    public String docSize;
+
+    @Param({"4"})
+    public int depth;
+
+    @Param({"20"})
+    public int pathCount;
+
+    @Param({"0.1"})
+    public double matchedFraction;
+
+    private byte[] doc;
+
+    private JsonFieldExtractor extractor;
+
+    private JsonFieldExtractor rawExtractor;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException
+    {
+        SyntheticDocs docs = SyntheticDocs.generate(BenchmarkScaling.parseSize(docSize),
+                depth, pathCount, matchedFraction, 42L);
+        doc = docs.document();
+        JsonFieldExtractorFactory extractorFactory = JsonFieldExtractorFactory.construct(new JsonMapper());
+        extractor = extractorFactory.buildExtractor(docs.paths());
+        rawExtractor = extractorFactory.with(ExtractorFeature.RAW_UTF8_SCANNING)
+                .buildExtractor(docs.paths());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void extract01Thread(Blackhole bh, BenchmarkScaling.InputCounter counter) throws IOException {
+        _extract(bh, counter, extractor);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void extract16Threads(Blackhole bh, BenchmarkScaling.InputCounter counter) throws IOException {
+        _extract(bh, counter, extractor);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void extract64Threads(Blackhole bh, BenchmarkScaling.InputCounter counter) throws IOException {
+        _extract(bh, counter, extractor);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void rawScan01Thread(Blackhole bh, BenchmarkScaling.InputCounter counter) throws IOException {
+        _extract(bh, counter, rawExtractor);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void rawScan16Threads(Blackhole bh, BenchmarkScaling.InputCounter counter) throws IOException {
+        _extract(bh, counter, rawExtractor);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void rawScan64Threads(Blackhole bh, BenchmarkScaling.InputCounter counter) throws IOException {
+        _extract(bh, counter, rawExtractor);
+    }
+
+    private void _extract(Blackhole bh, BenchmarkScaling.InputCounter counter,
+            JsonFieldExtractor extr) throws IOException {
+        bh.consume(extr.extractAsString(doc).get());
+        counter.add(doc);
+    }
+}
@@ -0,0 +1,86 @@
+package com.datastax.jsonapi.benchmark;
+
+import com.datastax.jsonapi.ExtractorFeature;
+import com.datastax.jsonapi.JsonFieldExtractor;
+import com.datastax.jsonapi.JsonFieldExtractorFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+
+/**
+ * Comparison of {@link ExtractorFeature#VECTORIZED_SCANNING} to plain
+ * {@link ExtractorFeature#RAW_UTF8_SCANNING} (and default engine) on multi-megabyte
+ * synthetic documents (see {@link SyntheticDocs}), where most content is skipped.
+ * Benchmark JVM is started with {@code --add-modules jdk.incubator.vector} so that
+ * vectorized classification is used if the platform supports it.
+ *<p>
+ * Throughput is also reported as input megabytes per second
+ * (secondary result {@code ":inputMB"}), like with {@link BenchmarkScaling}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@Measurement(iterations = 3, time = 2)
+@Warmup(iterations = 2, time = 2)
+public class BenchmarkVectorizedScanning
+{
+    @Param({"1MB", "5MB", "20MB"})
+    public String docSize;
+
+    @Param({"0.01", "0.1"})
+    public double matchedFraction;
+
+    private byte[] doc;
+
+    private JsonFieldExtractor extractor;
+
+    private JsonFieldExtractor rawExtractor;
+
+    private JsonFieldExtractor vectorExtractor;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException
+    {
+        ObjectMapper mapper = new JsonMapper();
+        SyntheticDocs docs = SyntheticDocs.generate(BenchmarkScaling.parseSize(docSize), 4, 10,
+                matchedFraction, 42L);
+        doc = docs.document();
+        JsonFieldExtractorFactory extractorFactory = JsonFieldExtractorFactory.construct(mapper);
+        extractor = extractorFactory.buildExtractor(docs.paths());
+        rawExtractor = extractorFactory.with(ExtractorFeature.RAW_UTF8_SCANNING)
+                .buildExtractor(docs.paths());
+        vectorExtractor = extractorFactory.with(ExtractorFeature.VECTORIZED_SCANNING)
+                .buildExtractor(docs.paths());
+
+        String exp = extractor.extractAsString(doc).get();
+        String act = vectorExtractor.extractAsString(doc).get();
+        if (!exp.equals(act)) {
+            throw new IllegalStateException("Vectorized scanning extracted different content (length "
+                    +act.length()+") than default (length "+exp.length()+")");
+        }
+        if (!JsonFieldExtractorFactory.isVectorApiAvailable()) {
+            System.err.println("WARNING: Vector API not available, vectorized scanning uses scalar fallback");
+        }
+    }
+
+    @Benchmark
+    public void jsonReadAndExtract(Blackhole bh, BenchmarkScaling.InputCounter counter) throws IOException {
+        bh.consume(extractor.extractAsString(doc).get());
+        counter.add(doc);
+    }
+
+    @Benchmark
+    public void jsonRawScanAndExtract(Blackhole bh, BenchmarkScaling.InputCounter counter) throws IOException {
+        bh.consume(rawExtractor.extractAsString(doc).get());
+        counter.add(doc);
+    }
+
+    @Benchmark
+    public void jsonVectorizedScanAndExtract(Blackhole bh, BenchmarkScaling.InputCounter counter) throws IOException {
+        bh.consume(vectorExtractor.extractAsString(doc).get());
+        counter.add(doc);
+    }
+}
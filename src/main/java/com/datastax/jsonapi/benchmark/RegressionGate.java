@@ -0,0 +1,228 @@
+package com.datastax.jsonapi.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Regression gate for benchmarks: runs {@link BenchmarkDocsApi} scenarios (by default)
+ * with JMH GC profiler, and compares allocation per operation (bytes/op, from
+ * {@code gc.alloc.rate.norm}) and, optionally, throughput (ops/s) against a baseline
+ * file, failing (with non-zero exit code) if either degrades past configured tolerance,
+ * or if any baseline benchmark included in the run produced no results.
+ *<p>
+ * Usually run using Maven profile {@code benchmark-gate}:
+ *<pre>
+ *   mvn -P benchmark-gate clean verify
+ *   mvn -P benchmark-gate clean verify -Dgate.update=true  # to (re)write baseline
+ *</pre>
+ * Configuration is done with system properties:
+ *<ul>
+ * <li>{@code gate.baseline}: Path of baseline file (default {@code jmh-baseline.properties})</li>
+ * <li>{@code gate.include}: Regular expression for benchmarks to run (default: all of {@link BenchmarkDocsApi})</li>
+ * <li>{@code gate.allocTolerance}: Maximum allowed relative increase in bytes/op (default 0.10)</li>
+ * <li>{@code gate.throughputTolerance}: Maximum allowed relative decrease in ops/s; negative
+ *   (default) to disable throughput check. If enabled, benchmarks are run with more forks
+ *   and iterations, and a decrease only fails the gate if it also exceeds the score
+ *   errors (99.9% confidence intervals) of both baseline and current run; even so,
+ *   it should only be enabled on the machine where baseline was produced</li>
+ * <li>{@code gate.update}: If {@code true}, baseline file is (over)written with results
+ *   instead of comparing</li>
+ *</ul>
+ * Note that unlike throughput, allocation per operation is mostly independent of
+ * hardware (and stable between runs), so it is meaningful to check even against
+ * baseline produced elsewhere, with a single short fork.
+ */
+public class RegressionGate
+{
+    final static String KEY_OPS = ".opsPerSec";
+    final static String KEY_OPS_ERROR = ".opsPerSecError";
+    final static String KEY_ALLOC = ".bytesPerOp";
+
+    private final static String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    /**
+     * Allocation changes below this many bytes per operation are ignored, to avoid
+     * failures for (near) allocation-free cases
+     */
+    private final static double ALLOC_SLACK_BYTES = 64.0;
+
+    public static void main(String[] args) throws Exception
+    {
+        final Path baselineFile = Paths.get(System.getProperty("gate.baseline", "jmh-baseline.properties"));
+        final String include = System.getProperty("gate.include",
+                BenchmarkDocsApi.class.getSimpleName() + "\\.");
+        final double allocTolerance = Double.parseDouble(System.getProperty("gate.allocTolerance", "0.10"));
+        final double opsTolerance = Double.parseDouble(System.getProperty("gate.throughputTolerance", "-1"));
+        final boolean update = Boolean.getBoolean("gate.update");
+        // Throughput varies between forks too much for a single one to be comparable
+        final boolean checkOps = update || (opsTolerance >= 0.0);
+
+        Options opts = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .forks(checkOps ? 3 : 1)
+                .warmupIterations(checkOps ? 3 : 2)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(checkOps ? 5 : 3)
+                .measurementTime(TimeValue.seconds(2))
+                .build();
+        Map<String, Double> current = collect(new org.openjdk.jmh.runner.Runner(opts).run());
+
+        if (update) {
+            writeBaseline(baselineFile, current);
+            System.out.printf("Wrote baseline for %d benchmarks into '%s'%n",
+                    current.size() / 2, baselineFile);
+            return;
+        }
+        List<String> failures = compare(_included(readBaseline(baselineFile), include), current,
+                allocTolerance, opsTolerance);
+        if (!failures.isEmpty()) {
+            System.err.printf("Benchmark regression gate FAILED (%d problems):%n", failures.size());
+            for (String failure : failures) {
+                System.err.println("  " + failure);
+            }
+            System.exit(1);
+        }
+        System.out.println("Benchmark regression gate passed");
+    }
+
+    /**
+     * Helper method for extracting metrics to check from JMH results:
+     * keys are simple benchmark name with suffix {@link #KEY_OPS}, {@link #KEY_OPS_ERROR}
+     * or {@link #KEY_ALLOC}.
+     */
+    static Map<String, Double> collect(Collection<RunResult> results)
+    {
+        Map<String, Double> metrics = new TreeMap<>();
+        for (RunResult result : results) {
+            String name = result.getParams().getBenchmark();
+            name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+            final Result<?> ops = result.getPrimaryResult();
+            metrics.put(name + KEY_OPS, ops.getScore());
+            // NaN if not enough iterations to calculate
+            final double opsError = ops.getScoreError();
+            metrics.put(name + KEY_OPS_ERROR, Double.isNaN(opsError) ? 0.0 : opsError);
+            Result<?> alloc = result.getSecondaryResults().get(ALLOC_METRIC);
+            if (alloc != null) {
+                metrics.put(name + KEY_ALLOC, alloc.getScore());
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Method for comparing results against baseline. Throughput is only compared if
+     * {@code opsTolerance} is non-negative.
+     *
+     * @return Descriptions of metrics that have degraded past tolerance, or that
+     *    are in baseline but missing from results; empty List if none
+     */
+    static List<String> compare(Map<String, Double> baseline, Map<String, Double> current,
+            double allocTolerance, double opsTolerance)
+    {
+        List<String> failures = new ArrayList<>();
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key) && !key.endsWith(KEY_OPS_ERROR)) {
+                String desc = String.format("%s: baseline %.1f, missing from results",
+                        key, baseline.get(key));
+                System.out.println("FAIL " + desc);
+                failures.add(desc);
+            }
+        }
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            final String key = entry.getKey();
+            if (key.endsWith(KEY_OPS_ERROR)) { // checked along with score
+                continue;
+            }
+            final double value = entry.getValue();
+            final Double base = baseline.get(key);
+            if (base == null) {
+                System.out.printf("(no baseline for '%s' (%.1f): skipping)%n", key, value);
+                continue;
+            }
+            final double change = (base == 0.0) ? 0.0 : (value - base) / base;
+            final boolean failed;
+            if (key.endsWith(KEY_ALLOC)) {
+                failed = (value - base > ALLOC_SLACK_BYTES) && (change > allocTolerance);
+            } else if (opsTolerance < 0.0) {
+                continue;
+            } else {
+                // Must also be a difference beyond errors of both measurements
+                final String errorKey = key.substring(0, key.length() - KEY_OPS.length()) + KEY_OPS_ERROR;
+                final double errors = baseline.getOrDefault(errorKey, 0.0)
+                        + current.getOrDefault(errorKey, 0.0);
+                failed = (-change > opsTolerance) && (base - value > errors);
+            }
+            String desc = String.format("%s: baseline %.1f, now %.1f (%+.1f%%)",
+                    key, base, value, 100.0 * change);
+            System.out.println((failed ? "FAIL " : "ok   ") + desc);
+            if (failed) {
+                failures.add(desc);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * @return Baseline entries for benchmarks that are included in the run
+     */
+    private static Map<String, Double> _included(Map<String, Double> baseline, String include)
+    {
+        // JMH matches pattern against fully-qualified name, so this is approximate;
+        // but included benchmarks always match
+        final Pattern p = Pattern.compile(include);
+        Map<String, Double> included = new TreeMap<>();
+        for (Map.Entry<String, Double> entry : baseline.entrySet()) {
+            final String key = entry.getKey();
+            final String name = key.substring(0, key.lastIndexOf('.'));
+            if (p.matcher(BenchmarkDocsApi.class.getPackage().getName() + "." + name).find()) {
+                included.put(key, entry.getValue());
+            }
+        }
+        return included;
+    }
+
+    static Map<String, Double> readBaseline(Path file) throws IOException
+    {
+        Properties props = new Properties();
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(r);
+        }
+        Map<String, Double> baseline = new TreeMap<>();
+        for (String key : props.stringPropertyNames()) {
+            baseline.put(key, Double.valueOf(props.getProperty(key).trim()));
+        }
+        return baseline;
+    }
+
+    static void writeBaseline(Path file, Map<String, Double> metrics) throws IOException
+    {
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("# Benchmark regression gate baseline: see RegressionGate\n");
+            w.write("# Throughput (opsPerSec, with its error) is hardware-specific; allocation (bytesPerOp) mostly not\n");
+            for (Map.Entry<String, Double> entry : metrics.entrySet()) {
+                w.write(String.format(Locale.ROOT, "%s=%.1f%n", entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+}
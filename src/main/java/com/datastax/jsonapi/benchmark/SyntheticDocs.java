@@ -0,0 +1,181 @@
+package com.datastax.jsonapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic generator of synthetic JSON documents (and matching inclusion paths)
+ * for scaling benchmarks, so that document size, nesting depth, number of inclusion
+ * paths and fraction of content matched can be varied independently.
+ *<p>
+ * Document is a root-level Object with one section per inclusion path
+ * ({@code "s0"}, {@code "s1"}, ...); each section is a chain of nested Objects
+ * ({@code "n"}) down to specified depth, ending with an Object that has two
+ * properties: {@code "in"} (included by path) and {@code "out"} (excluded sibling).
+ * Both contain Arrays of small "records" (Objects with String, number, boolean and
+ * Array values), sized so that {@code "in"} Objects together have the requested
+ * fraction of document size. So for depth of 3, paths are like {@code "s0.n.n.in"},
+ * and the filter has to descend through all levels of all sections (instead of
+ * skipping whole sections).
+ *<p>
+ * Same arguments (including seed) always produce the same document.
+ */
+public class SyntheticDocs
+{
+    private final static String[] WORDS = {
+            "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf",
+            "hotel", "india", "juliet", "kilo", "lima", "mike", "november",
+            "oscar", "papa", "quebec", "romeo", "sierra", "tango", "uniform",
+            "victor", "whiskey", "xray", "yankee", "zulu",
+            // to have some non-ASCII and escaped content as well
+            "café", "naïve", "über", "東京", "tab\there", "\"quoted\""
+    };
+
+    private final static JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final byte[] _document;
+
+    private final List<String> _paths;
+
+    private final int _includedBytes;
+
+    private SyntheticDocs(byte[] document, List<String> paths, int includedBytes) {
+        _document = document;
+        _paths = paths;
+        _includedBytes = includedBytes;
+    }
+
+    /**
+     * @param docSize Approximate size of document to generate, in bytes
+     * @param depth Nesting depth of included content (1 or above): number of
+     *    Objects from (but not including) the root Object to the one containing
+     *    {@code "in"} and {@code "out"}
+     * @param pathCount Number of inclusion paths (and sections) to generate
+     * @param matchedFraction Approximate fraction (0.0 - 1.0) of document that
+     *    is to be included by paths
+     * @param seed Seed for random number generator used for contents
+     */
+    public static SyntheticDocs generate(int docSize, int depth, int pathCount,
+            double matchedFraction, long seed)
+        throws IOException
+    {
+        if (depth < 1 || pathCount < 1 || matchedFraction < 0.0 || matchedFraction > 1.0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid arguments: depth=%d, pathCount=%d, matchedFraction=%s",
+                    depth, pathCount, matchedFraction));
+        }
+        final Random rnd = new Random(seed);
+        final int sectionSize = Math.max(1, docSize / pathCount);
+        final int inSize = (int) (sectionSize * matchedFraction);
+        final int outSize = sectionSize - inSize;
+        final List<String> paths = new ArrayList<>(pathCount);
+        int includedBytes = 0;
+
+        ByteArrayBuilder bytes = new ByteArrayBuilder(docSize + 1000);
+        try (JsonGenerator g = JSON_FACTORY.createGenerator(bytes)) {
+            g.writeStartObject();
+            for (int i = 0; i < pathCount; ++i) {
+                StringBuilder path = new StringBuilder("s").append(i);
+                g.writeFieldName(path.toString());
+                g.writeStartObject();
+                for (int level = 1; level < depth; ++level) {
+                    path.append(".n");
+                    g.writeFieldName("n");
+                    g.writeStartObject();
+                }
+                path.append(".in");
+                paths.add(path.toString());
+                // Alternate order of included and excluded content, to avoid
+                // all included content preceding excluded (or vice versa)
+                if ((i & 1) == 0) {
+                    includedBytes += _writeRecords(g, bytes, "in", inSize, rnd);
+                    _writeRecords(g, bytes, "out", outSize, rnd);
+                } else {
+                    _writeRecords(g, bytes, "out", outSize, rnd);
+                    includedBytes += _writeRecords(g, bytes, "in", inSize, rnd);
+                }
+                for (int level = 0; level < depth; ++level) {
+                    g.writeEndObject();
+                }
+            }
+            g.writeEndObject();
+        }
+        return new SyntheticDocs(bytes.toByteArray(), paths, includedBytes);
+    }
+
+    /**
+     * @return Generated document as UTF-8 encoded JSON
+     */
+    public byte[] document() {
+        return _document;
+    }
+
+    /**
+     * @return Inclusion paths, one per section of document
+     */
+    public List<String> paths() {
+        return _paths;
+    }
+
+    /**
+     * @return Inclusion paths as comma-separated String
+     */
+    public String pathsAsString() {
+        return String.join(", ", _paths);
+    }
+
+    /**
+     * @return Approximate number of bytes of document included by paths
+     */
+    public int includedBytes() {
+        return _includedBytes;
+    }
+
+    /**
+     * Helper method for writing an Array of records as value of given property,
+     * until (approximately) given number of bytes is written.
+     *
+     * @return Actual number of bytes written
+     */
+    private static int _writeRecords(JsonGenerator g, ByteArrayBuilder bytes,
+            String name, int maxBytes, Random rnd)
+        throws IOException
+    {
+        g.flush();
+        final int start = bytes.size();
+        final int end = start + maxBytes;
+        g.writeFieldName(name);
+        g.writeStartArray();
+        for (int id = 0; ; ++id) {
+            g.flush();
+            if (bytes.size() >= end) {
+                break;
+            }
+            g.writeStartObject();
+            g.writeNumberField("id", id);
+            g.writeStringField("name", _word(rnd) + " " + _word(rnd));
+            g.writeNumberField("score", rnd.nextInt(100000) / 100.0);
+            g.writeBooleanField("active", rnd.nextBoolean());
+            g.writeFieldName("tags");
+            g.writeStartArray();
+            for (int j = 0, count = rnd.nextInt(4); j < count; ++j) {
+                g.writeString(_word(rnd));
+            }
+            g.writeEndArray();
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.flush();
+        return bytes.size() - start;
+    }
+
+    private static String _word(Random rnd) {
+        return WORDS[rnd.nextInt(WORDS.length)];
+    }
+}
@@ -0,0 +1,184 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Tests for extraction from binary format (Smile, CBOR) documents: results must
+ * match those for the equivalent JSON documents.
+ */
+public class BinaryFormatTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final SmileMapper SMILE_MAPPER = new SmileMapper();
+
+    private final CBORMapper CBOR_MAPPER = new CBORMapper();
+
+    private final CBORMapper CBOR_TAGGED_MAPPER = CBORMapper.builder()
+            .enable(CBORGenerator.Feature.WRITE_TYPE_HEADER)
+            .build();
+
+    private final JsonFieldExtractorFactory JSON_FACTORY
+            = JsonFieldExtractorFactory.construct(MAPPER);
+
+    private final JsonFieldExtractorFactory BINARY_FACTORY = JSON_FACTORY
+            .withBinaryFormat(new SmileFactory())
+            .withBinaryFormat(new CBORFactory());
+
+    @Test
+    public void testSimpleDocs() throws Exception {
+        _verifySame("{'a':1,'b':{'c':'x','d':[1,2.5]},'e':true,'f':false,'g':null}",
+                "a, b.c", "b", "e, f, g, x", "");
+        _verifySame("[{'a':1,'b':[2,[3]]},{'a':[4,{'a':5}]},6]", "a", "b", "a.a, b");
+        _verifySame("{'a':'Caf\\u00e9 \\\\ \\'q\\'','b':['\u00dcmlaut','\\u20ac','\uD83D\uDE00'],"
+                +"'\u00e9':{'x':'y'}}",
+                "a, b", "\u00e9.x");
+        _verifySame("{}", "a");
+        _verifySame("[]", "a");
+    }
+
+    @Test
+    public void testDocsApiExample() throws Exception {
+        final byte[] doc;
+        try (InputStream in = getClass().getResourceAsStream("/jmh/docsapi-example.json")) {
+            doc = in.readAllBytes();
+        }
+        _verifySame(new String(doc, StandardCharsets.UTF_8),
+                "products.electronics.Pixel_3a, quiz.sport.q1.answer",
+                "quiz.nests, products.food", "quiz", "products.food.Apple, products.food.Orange",
+                "no.such.path", "products");
+    }
+
+    // Format is detected per document, so mixed batches work too
+    @Test
+    public void testMixedBatch() throws Exception {
+        final String json = a2q("{'a':{'b':'x'},'c':3}");
+        final byte[][] docs = new byte[][] {
+            json.getBytes(StandardCharsets.UTF_8),
+            _smile(json),
+            "not json".getBytes(StandardCharsets.UTF_8),
+            _cbor(json),
+            new byte[0],
+        };
+        final JsonFieldExtractor extr = BINARY_FACTORY.buildExtractor("a.b, c");
+        assertThat(extr.extractAllAsString(docs))
+                .containsExactly("x 3", "x 3", null, "x 3", null);
+        assertThat(Arrays.asList(extr.extractAllAsBytes(docs)).stream()
+                .map(b -> (b == null) ? null : new String(b, StandardCharsets.UTF_8)))
+                .containsExactly("x 3", "x 3", null, "x 3", null);
+    }
+
+    // Without binary formats enabled, binary documents are not accepted
+    @Test
+    public void testBinaryNotEnabled() throws Exception {
+        final String json = a2q("{'a':1}");
+        final JsonFieldExtractor extr = JSON_FACTORY.buildExtractor("a");
+        assertThat(extr.extractAsString(_smile(json))).isEqualTo(Optional.empty());
+        assertThat(extr.extractAsString(_cbor(json))).isEqualTo(Optional.empty());
+
+        final JsonFieldExtractor smileOnly = JSON_FACTORY.withBinaryFormat(new SmileFactory())
+                .buildExtractor("a");
+        assertThat(smileOnly.extractAsString(_smile(json))).isEqualTo(Optional.of("1"));
+        assertThat(smileOnly.extractAsString(_cbor(json))).isEqualTo(Optional.empty());
+        assertThat(smileOnly.extractTo(_cbor(json), new StringBuilder()))
+                .isEqualTo(JsonFieldExtractor.NOT_JSON);
+
+        // Smile without header can not be detected
+        final SmileMapper noHeaderMapper = new SmileMapper(SmileFactory.builder()
+                .disable(SmileGenerator.Feature.WRITE_HEADER)
+                .build());
+        assertThat(smileOnly.extractAsString(noHeaderMapper.writeValueAsBytes(MAPPER.readTree(json))))
+                .isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void testInvalidFactory() throws Exception {
+        try {
+            JSON_FACTORY.withBinaryFormat(new JsonFactory());
+            fail("Should not pass");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("Unsupported binary format 'JSON'");
+        }
+    }
+
+    @Test
+    public void testMultiFieldExtraction() throws Exception {
+        final String json = a2q("{'a':{'b':'x','c':[1,2]},'d':'y'}");
+        final List<String> fields = Arrays.asList("a.b", "a, d", "d");
+        final MultiFieldExtractor extr = BINARY_FACTORY.buildMultiExtractor(fields);
+        final String[] exp = extr.extractAsStrings(json).get();
+        for (byte[] doc : Arrays.asList(_smile(json), _cbor(json), _cborTagged(json))) {
+            assertThat(extr.extractAsStrings(doc).get()).isEqualTo(exp);
+            assertThat(extr.extractAsStrings(_directBuffer(doc)).get()).isEqualTo(exp);
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Helper methods
+    /**********************************************************
+     */
+
+    private void _verifySame(String jsonDef, String... pathDefs) throws Exception {
+        final String json = a2q(jsonDef);
+        final List<byte[]> binaryDocs = Arrays.asList(_smile(json), _cbor(json), _cborTagged(json));
+        for (ExtractorFeature feature : new ExtractorFeature[] {
+                ExtractorFeature.RAW_UTF8_SCANNING, ExtractorFeature.EARLY_TERMINATION }) {
+            final JsonFieldExtractorFactory f = BINARY_FACTORY.with(feature);
+            for (String paths : pathDefs) {
+                final JsonFieldExtractor extr = f.buildExtractor(paths);
+                final Optional<String> exp = extr.extractAsString(json);
+                assertThat(exp).isPresent();
+                final byte[] expBytes = exp.get().getBytes(StandardCharsets.UTF_8);
+                for (byte[] doc : binaryDocs) {
+                    assertThat(extr.extractAsString(doc)).isEqualTo(exp);
+                    assertThat(extr.extractAsString(ByteBuffer.wrap(doc))).isEqualTo(exp);
+                    assertThat(extr.extractAsString(_directBuffer(doc))).isEqualTo(exp);
+                    assertThat(extr.extractAsBytes(doc).get()).isEqualTo(expBytes);
+                    assertThat(extr.extractAsBytes(_directBuffer(doc)).get()).isEqualTo(expBytes);
+
+                    ByteBuffer out = ByteBuffer.allocate(expBytes.length + 10);
+                    assertThat(extr.extractTo(doc, out)).isEqualTo(expBytes.length);
+                    assertThat(Arrays.copyOf(out.array(), out.position())).isEqualTo(expBytes);
+                }
+            }
+        }
+    }
+
+    private byte[] _smile(String json) throws Exception {
+        return SMILE_MAPPER.writeValueAsBytes(MAPPER.readTree(json));
+    }
+
+    private byte[] _cbor(String json) throws Exception {
+        return CBOR_MAPPER.writeValueAsBytes(MAPPER.readTree(json));
+    }
+
+    private byte[] _cborTagged(String json) throws Exception {
+        return CBOR_TAGGED_MAPPER.writeValueAsBytes(MAPPER.readTree(json));
+    }
+
+    private static ByteBuffer _directBuffer(byte[] doc) {
+        ByteBuffer bb = ByteBuffer.allocateDirect(doc.length);
+        bb.put(doc).flip();
+        return bb;
+    }
+}
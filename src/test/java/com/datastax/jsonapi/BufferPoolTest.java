@@ -0,0 +1,170 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.BufferRecycler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link BufferPool} and its use by extractors
+ * (see {@link JsonFieldExtractorFactory#withBufferPool(int)}).
+ */
+public class BufferPoolTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonFieldExtractorFactory DEFAULT_FACTORY
+            = JsonFieldExtractorFactory.construct(MAPPER);
+
+    private final static String DOC = a2q("{'a':'abc','b':{'c':'d\\u00e9f','d':12345},'e':[true,'x']}");
+
+    @Test
+    public void testAcquireAndRelease() {
+        BufferPool pool = new BufferPool(MAPPER.getFactory(), 2);
+        PooledBuffers b1 = pool.acquire();
+        PooledBuffers b2 = pool.acquire();
+        PooledBuffers b3 = pool.acquire();
+        assertThat(pool.createdCount()).isEqualTo(3);
+        assertThat(pool.pooledCount()).isEqualTo(0);
+        pool.release(b1);
+        pool.release(b2);
+        // Pool full: dropped
+        pool.release(b3);
+        assertThat(pool.pooledCount()).isEqualTo(2);
+        PooledBuffers b = pool.acquire();
+        assertThat(b).isIn(b1, b2);
+        assertThat(pool.createdCount()).isEqualTo(3);
+
+        assertThatThrownBy(() -> new BufferPool(MAPPER.getFactory(), 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testOutputBuffersRetained() {
+        PooledBuffers buffers = new PooledBuffers();
+        CharOutputBuffer chars = buffers.charOutput(100);
+        chars.appendValue("abc".toCharArray(), 0, 3);
+        assertThat(buffers.charOutput(100)).isSameAs(chars);
+        assertThat(chars.length()).isEqualTo(0);
+        assertThat(chars.pooledBuffers()).isSameAs(buffers);
+
+        // But oversized ones are not retained
+        Utf8OutputBuffer bytes = buffers.utf8Output(100);
+        byte[] big = new byte[PooledBuffers.MAX_RETAINED_OUTPUT_LENGTH + 1];
+        bytes.appendUtf8Value(big, 0, big.length);
+        buffers.trim();
+        assertThat(buffers.utf8Output(100)).isNotSameAs(bytes);
+        assertThat(buffers.charOutput(100)).isSameAs(chars);
+    }
+
+    @Test
+    public void testSameResultsWithPool() throws Exception {
+        final JsonFieldExtractorFactory pooledFactory = DEFAULT_FACTORY.withBufferPool(4);
+        assertThat(pooledFactory.isBufferPooling()).isTrue();
+        assertThat(DEFAULT_FACTORY.isBufferPooling()).isFalse();
+        assertThat(pooledFactory.withoutBufferPool().isBufferPooling()).isFalse();
+
+        // Long enough to be read using Reader
+        StringBuilder sb = new StringBuilder("{\"a\":[");
+        for (int i = 0; i < 5000; ++i) {
+            sb.append("\"value").append(i).append("\",");
+        }
+        final String longDoc = sb.append("0]}").toString();
+
+        for (String paths : new String[] { "a, b.c", "e", "b" }) {
+            JsonFieldExtractor exp = DEFAULT_FACTORY.buildExtractor(paths);
+            JsonFieldExtractor act = pooledFactory.buildExtractor(paths);
+            for (String doc : new String[] { DOC, longDoc }) {
+                final byte[] utf8 = doc.getBytes(StandardCharsets.UTF_8);
+                final String expStr = exp.extractAsString(doc).get();
+                assertThat(act.extractAsString(doc).get()).isEqualTo(expStr);
+                assertThat(act.extractAsString(utf8).get()).isEqualTo(expStr);
+                assertThat(act.extractAsBytes(doc).get()).isEqualTo(expStr.getBytes(StandardCharsets.UTF_8));
+                ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length);
+                direct.put(utf8).flip();
+                assertThat(act.extractAsString(direct).get()).isEqualTo(expStr);
+                assertThat(act.extractAllAsString(new String[] { doc, doc })).containsExactly(expStr, expStr);
+
+                StringBuilder out = new StringBuilder();
+                act.extractTo(utf8, out);
+                assertThat(out.toString()).isEqualTo(expStr);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                act.extractTo(doc, bytes);
+                assertThat(bytes.toString(StandardCharsets.UTF_8)).isEqualTo(expStr);
+            }
+        }
+        // Sequential extractions only ever need one set of buffers
+        assertThat(pooledFactory.bufferPoolCreatedCount()).isEqualTo(1);
+        assertThat(pooledFactory.pooledBufferCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRecyclingAcrossThreads() throws Exception {
+        final JsonFieldExtractorFactory pooledFactory = DEFAULT_FACTORY.withBufferPool(4);
+        final JsonFieldExtractor extr = pooledFactory.buildExtractor("a, b.c");
+        // New thread for each extraction: buffers still recycled
+        final String[] results = new String[10];
+        for (int i = 0; i < results.length; ++i) {
+            final int index = i;
+            Thread t = new Thread(() -> {
+                try {
+                    results[index] = extr.extractAsString(DOC).get();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            t.start();
+            t.join();
+        }
+        assertThat(results).containsOnly("abc déf");
+        assertThat(pooledFactory.bufferPoolCreatedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testConcurrentExtraction() throws Exception {
+        final JsonFieldExtractor extr = DEFAULT_FACTORY.withBufferPool(2).buildExtractor("a, b, e");
+        final String exp = "abc déf 12345 true x";
+        ExecutorService exec = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; ++i) {
+                final boolean bytes = (i & 1) == 0;
+                results.add(exec.submit(() -> bytes
+                        ? exp.equals(new String(extr.extractAsBytes(DOC).get(), StandardCharsets.UTF_8))
+                        : exp.equals(extr.extractAsString(DOC).get())));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+    @Test
+    public void testParserUsesPooledRecycler() throws Exception {
+        BufferPool pool = new BufferPool(MAPPER.getFactory(), 1);
+        PooledBuffers buffers = pool.acquire();
+        // Longer than default token buffer (2000 chars) so we can tell it was parser's
+        final String doc = "{\"a\":\"" + "x".repeat(5000) + "\"}";
+        try (JsonParser p = pool.createParser(buffers, doc)) {
+            while (p.nextToken() != null) { }
+        }
+        // Parser's token buffer released into pooled recycler (and not thread-local one)
+        char[] buf = buffers.allocCharBuffer(BufferRecycler.CHAR_TOKEN_BUFFER);
+        assertThat(buf.length).isGreaterThanOrEqualTo(doc.length());
+    }
+}
@@ -0,0 +1,178 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Tests for {@link BulkExtractor}: results must match those of the underlying
+ * {@link JsonFieldExtractor}, regardless of batching and ordering settings.
+ */
+public class BulkExtractorTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonFieldExtractorFactory EXTRACTOR_FACTORY
+            = JsonFieldExtractorFactory.construct(MAPPER);
+
+    @Test
+    public void testUnordered() throws Exception {
+        final JsonFieldExtractor extr = EXTRACTOR_FACTORY.buildExtractor("a, b.c");
+        final List<byte[]> docs = _documents(1000);
+        final ConcurrentHashMap<Long, String> results = new ConcurrentHashMap<>();
+
+        BulkExtractionStats stats = BulkExtractor.construct(extr)
+                .withBatchSize(7)
+                .run(docs.iterator(), (index, result) -> {
+                    if (results.put(index, (result == null) ? "null" : result) != null) {
+                        throw new IOException("Duplicate result for #"+index);
+                    }
+                });
+        _verifyStats(stats, docs);
+        assertThat(results.size()).isEqualTo(docs.size());
+        for (int i = 0; i < docs.size(); ++i) {
+            assertThat(results.get((long) i)).isEqualTo(_expected(extr, docs.get(i)));
+        }
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        final JsonFieldExtractor extr = EXTRACTOR_FACTORY.buildExtractor("a, b.c");
+        final List<byte[]> docs = _documents(1000);
+        ExecutorService exec = Executors.newFixedThreadPool(4);
+        try {
+            for (int batchSize : new int[] { 1, 3, 64, 2000 }) {
+                final List<String> results = new ArrayList<>();
+                final AtomicLong nextIndex = new AtomicLong();
+                BulkExtractionStats stats = BulkExtractor.construct(extr)
+                        .withExecutor(exec)
+                        .withBatchSize(batchSize)
+                        .withMaxInFlightBatches(3)
+                        .withOrderPreserved(true)
+                        .run(docs.stream(), (index, result) -> {
+                            if (index != nextIndex.getAndIncrement()) {
+                                throw new IOException("Out of order result #"+index);
+                            }
+                            results.add((result == null) ? "null" : result);
+                        });
+                _verifyStats(stats, docs);
+                assertThat(results.size()).isEqualTo(docs.size());
+                for (int i = 0; i < docs.size(); ++i) {
+                    assertThat(results.get(i)).isEqualTo(_expected(extr, docs.get(i)));
+                }
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+    // Running tasks on calling thread must work too (with no concurrency)
+    @Test
+    public void testSameThreadExecutor() throws Exception {
+        final JsonFieldExtractor extr = EXTRACTOR_FACTORY.buildExtractor("b");
+        final List<byte[]> docs = _documents(50);
+        final List<String> results = new ArrayList<>();
+        BulkExtractionStats stats = BulkExtractor.construct(extr)
+                .withExecutor(Runnable::run)
+                .withBatchSize(4)
+                .withMaxInFlightBatches(1)
+                .run(docs.spliterator(), (index, result) -> results.add(result));
+        _verifyStats(stats, docs);
+        assertThat(results.size()).isEqualTo(docs.size());
+        assertThat(results.get(3)).isEqualTo("x3 true");
+    }
+
+    @Test
+    public void testEmptySource() throws Exception {
+        BulkExtractionStats stats = BulkExtractor.construct(EXTRACTOR_FACTORY.buildExtractor("a"))
+                .run(new ArrayList<byte[]>().iterator(), (index, result) -> fail("Should not be called"));
+        assertThat(stats.documentCount()).isEqualTo(0L);
+        assertThat(stats.inputBytes()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testHandlerFailure() throws Exception {
+        final List<byte[]> docs = _documents(500);
+        for (boolean ordered : new boolean[] { false, true }) {
+            try {
+                BulkExtractor.construct(EXTRACTOR_FACTORY.buildExtractor("a"))
+                    .withBatchSize(10)
+                    .withOrderPreserved(ordered)
+                    .run(docs.iterator(), (index, result) -> {
+                        if (index == 123) {
+                            throw new IOException("Fail at #"+index);
+                        }
+                    });
+                fail("Should not pass");
+            } catch (IOException e) {
+                assertThat(e.getMessage()).contains("Fail at #123");
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidSettings() throws Exception {
+        BulkExtractor bulk = BulkExtractor.construct(EXTRACTOR_FACTORY.buildExtractor("a"));
+        try {
+            bulk.withBatchSize(0);
+            fail("Should not pass");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("Batch size");
+        }
+        try {
+            bulk.withMaxInFlightBatches(0);
+            fail("Should not pass");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("in-flight");
+        }
+        assertThat(bulk.withBatchSize(10).withOrderPreserved(true).batchSize()).isEqualTo(10);
+        assertThat(bulk.withOrderPreserved(true).isOrderPreserved()).isEqualTo(true);
+    }
+
+    /*
+    /**********************************************************
+    /* Helper methods
+    /**********************************************************
+     */
+
+    // Documents of varying content; every 10th one not JSON
+    private List<byte[]> _documents(int count) {
+        List<byte[]> docs = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            final String doc = ((i % 10) == 9) ? "not json #"+i
+                    : a2q("{'a':"+i+",'b':{'c':'x"+i+"','d':true},'e':[1,2,3]}");
+            docs.add(doc.getBytes(StandardCharsets.UTF_8));
+        }
+        return docs;
+    }
+
+    private String _expected(JsonFieldExtractor extr, byte[] doc) throws IOException {
+        return extr.extractAsString(doc).orElse("null");
+    }
+
+    private void _verifyStats(BulkExtractionStats stats, List<byte[]> docs) {
+        long bytes = 0L;
+        long nonJson = 0L;
+        for (byte[] doc : docs) {
+            bytes += doc.length;
+            if (doc[0] != '{') {
+                ++nonJson;
+            }
+        }
+        assertThat(stats.documentCount()).isEqualTo((long) docs.size());
+        assertThat(stats.nonJsonCount()).isEqualTo(nonJson);
+        assertThat(stats.inputBytes()).isEqualTo(bytes);
+    }
+}
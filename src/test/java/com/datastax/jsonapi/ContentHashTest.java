@@ -0,0 +1,143 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for calculating {@link ContentHash} of extracted content
+ * (see {@link JsonFieldExtractor#extractHash(String)}).
+ */
+public class ContentHashTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonFieldExtractorFactory DEFAULT_FACTORY
+            = JsonFieldExtractorFactory.construct(MAPPER);
+
+    private final static String DOC
+            = a2q("{'a':'abc','b':{'c':'d\\u00e9f \\uD83D\\uDE00','d':12345},'e':[true,'x']}");
+
+    @Test
+    public void testKnownHashes() {
+        // Same as other MurmurHash3 (x64, 128-bit) implementations
+        assertThat(ContentHash.of("").toHexString()).isEqualTo("00000000000000000000000000000000");
+        ContentHash hash = ContentHash.of("hell");
+        assertThat(hash.asLong()).isEqualTo(0x629942693e10f867L);
+        assertThat(hash.secondLong()).isEqualTo(0x92db0b82baeb5347L);
+        hash = ContentHash.of("The quick brown fox jumps over the lazy dog");
+        assertThat(hash.asLong()).isEqualTo(0xe34bbc7bbc071b6cL);
+        assertThat(hash.secondLong()).isEqualTo(0x7a433ca9c49a9347L);
+        assertThat(hash.toHexString()).isEqualTo("6c1b07bc7bbc4be347939ac4a93c437a");
+        assertThat(ContentHash.of("The quick brown fox jumps over the lazy cog").asLong())
+                .isEqualTo(0x658ca970ff85269aL);
+    }
+
+    @Test
+    public void testStreamingSameAsWhole() {
+        final byte[] data = new byte[100];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) (i * 7);
+        }
+        for (int len = 0; len <= data.length; ++len) {
+            final ContentHash exp = ContentHash.of(Arrays.copyOf(data, len));
+            // Feed in chunks of varying sizes
+            for (int chunk = 1; chunk <= 20; ++chunk) {
+                Murmur3Hash128 hash = new Murmur3Hash128();
+                for (int offset = 0; offset < len; offset += chunk) {
+                    if (chunk == 1) {
+                        hash.update(data[offset]);
+                    } else {
+                        hash.update(data, offset, Math.min(chunk, len - offset));
+                    }
+                }
+                assertThat(hash.finish()).isEqualTo(exp);
+            }
+        }
+    }
+
+    @Test
+    public void testHashOfExtracted() throws Exception {
+        for (String paths : new String[] { "a, b", "b.c", "e", "x", "a, b.d, e" }) {
+            JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor(paths);
+            final String exp = extr.extractAsString(DOC).get();
+            final ContentHash expHash = ContentHash.of(exp);
+            final byte[] utf8 = DOC.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length);
+            direct.put(utf8).flip();
+
+            assertThat(extr.extractHash(DOC).get()).isEqualTo(expHash);
+            assertThat(extr.extractHash(utf8).get()).isEqualTo(expHash);
+            assertThat(extr.extractHash(ByteBuffer.wrap(utf8)).get()).isEqualTo(expHash);
+            assertThat(extr.extractHash(direct).get()).isEqualTo(expHash);
+
+            for (ExtractionResult<String> result : Arrays.asList(
+                    extr.extractAsStringWithHash(DOC).get(),
+                    extr.extractAsStringWithHash(utf8).get(),
+                    extr.extractAsStringWithHash(direct).get())) {
+                assertThat(result.value()).isEqualTo(exp);
+                assertThat(result.hash()).isEqualTo(expHash);
+            }
+            // Also with raw scanning
+            JsonFieldExtractor rawExtr = DEFAULT_FACTORY.with(ExtractorFeature.RAW_UTF8_SCANNING)
+                    .buildExtractor(paths);
+            assertThat(rawExtr.extractHash(utf8).get()).isEqualTo(expHash);
+        }
+        // No hash for results of regular extraction
+        assertThat(DEFAULT_FACTORY.buildExtractor("a").extractAsStringResult(DOC).get().hash()).isNull();
+    }
+
+    @Test
+    public void testLongValues() throws Exception {
+        // Longer than encoding chunk, with surrogate pairs spanning chunk boundaries
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            sb.append((i % 3 == 0) ? "😀" : "xé");
+        }
+        final String value = sb.toString();
+        final String doc = MAPPER.writeValueAsString(MAPPER.createObjectNode()
+                .put("a", value).put("b", 1));
+        JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a, b");
+        final ContentHash exp = ContentHash.of(value+" 1");
+        assertThat(extr.extractHash(doc).get()).isEqualTo(exp);
+        assertThat(extr.extractHash(doc.getBytes(StandardCharsets.UTF_8)).get()).isEqualTo(exp);
+        assertThat(extr.extractAsStringWithHash(doc).get().hash()).isEqualTo(exp);
+    }
+
+    @Test
+    public void testChangeDetection() throws Exception {
+        JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a, b.c");
+        final ContentHash hash = extr.extractHash(DOC).get();
+        // Changes to non-included content do not change hash, others do
+        assertThat(extr.extractHash(DOC.replace("12345", "6")).get()).isEqualTo(hash);
+        assertThat(extr.extractHash(DOC.replace("abc", "abd")).get()).isNotEqualTo(hash);
+        // Separators are included so boundaries of values matter
+        assertThat(extr.extractHash("{\"a\":\"ab\",\"b\":{\"c\":\"c\"}}").get())
+                .isNotEqualTo(extr.extractHash("{\"a\":\"a\",\"b\":{\"c\":\"bc\"}}").get());
+    }
+
+    @Test
+    public void testWithOutputLimit() throws Exception {
+        JsonFieldExtractor extr = DEFAULT_FACTORY.withOutputLimit(OutputLimit.chars(6))
+                .buildExtractor("a, b");
+        ExtractionResult<String> result = extr.extractAsStringWithHash(DOC).get();
+        assertThat(result.value()).isEqualTo("abc dé");
+        assertThat(result.isTruncated()).isTrue();
+        assertThat(result.hash()).isEqualTo(ContentHash.of("abc dé"));
+        assertThat(extr.extractHash(DOC).get()).isEqualTo(result.hash());
+    }
+
+    @Test
+    public void testNotJson() throws Exception {
+        JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a");
+        assertThat(extr.extractHash("abc")).isEmpty();
+        assertThat(extr.extractHash(new byte[0])).isEmpty();
+        assertThat(extr.extractAsStringWithHash("")).isEmpty();
+    }
+}
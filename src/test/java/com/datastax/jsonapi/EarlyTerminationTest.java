@@ -0,0 +1,152 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Tests for {@link ExtractorFeature#EARLY_TERMINATION} and
+ * {@link ExtractorFeature#STRICT_DUPLICATE_PATH_PROPERTIES}, with both the
+ * default (parser based) and raw UTF-8 scanning engines.
+ */
+public class EarlyTerminationTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonFieldExtractorFactory DEFAULT_FACTORY
+            = JsonFieldExtractorFactory.construct(MAPPER);
+
+    private final JsonFieldExtractorFactory EARLY_FACTORY
+            = DEFAULT_FACTORY.with(ExtractorFeature.EARLY_TERMINATION);
+
+    private final JsonFieldExtractorFactory STRICT_FACTORY
+            = DEFAULT_FACTORY.with(ExtractorFeature.STRICT_DUPLICATE_PATH_PROPERTIES);
+
+    private final JsonFieldExtractorFactory EARLY_STRICT_FACTORY
+            = EARLY_FACTORY.with(ExtractorFeature.STRICT_DUPLICATE_PATH_PROPERTIES);
+
+    @Test
+    public void testSameResultsAsFullParse() throws Exception {
+        final byte[] doc;
+        try (InputStream in = getClass().getResourceAsStream("/jmh/docsapi-example.json")) {
+            doc = in.readAllBytes();
+        }
+        for (String paths : new String[] {
+                "products.electronics.Pixel_3a, quiz.sport.q1.answer",
+                "quiz.nests, products.food",
+                "quiz",
+                "products.food.Apple, products.food.Orange",
+                "no.such.path",
+        }) {
+            _verifySame(doc, paths);
+        }
+        _verifySame(_utf8("{'a':{'x':1,'b':[1,{'c':2}],'c':3},'b':[{'c':4,'d':5},{'d':6,'c':7}]}"),
+                "a.b, a.c, b.c");
+        _verifySame(_utf8("[{'a':1,'b':2},{'b':3,'a':4}]"), "a");
+    }
+
+    @Test
+    public void testStopsAfterAllPathsSeen() throws Exception {
+        // Invalid content after included properties is never reached
+        final String json = "{'a':1,'b':{'c':'x','d':true},'skip':[1,2 @@@";
+        for (JsonFieldExtractorFactory f : _factories(EARLY_FACTORY)) {
+            JsonFieldExtractor extr = f.buildExtractor("a, b.c");
+            assertThat(extr.extractAsString(_utf8(json)).get()).isEqualTo("1 x");
+            assertThat(extr.extractAsBytes(_utf8(json)).get()).isEqualTo(_utf8("1 x"));
+            assertThat(extr.extractAsString(a2q(json)).get()).isEqualTo("1 x");
+        }
+        // but without early termination, must fail
+        _verifyFail(DEFAULT_FACTORY.buildExtractor("a, b.c"), json, "Unexpected character");
+    }
+
+    @Test
+    public void testSkipsRestOfNestedObjects() throws Exception {
+        // Rest of nested Objects skipped: duplicates therein ignored
+        final String json = "{'a':[{'b':1,'b':2},{'c':3,'b':4}],'d':{'b':5,'b':6}}";
+        for (JsonFieldExtractorFactory f : _factories(EARLY_FACTORY)) {
+            assertThat(f.buildExtractor("a.b, d.b").extractAsString(_utf8(json)).get())
+                    .isEqualTo("1 4 5");
+        }
+    }
+
+    @Test
+    public void testLenientDuplicates() throws Exception {
+        final String json = "{'a':1,'x':0,'a':2}";
+        // With early termination, first occurrence completes the branch
+        for (JsonFieldExtractorFactory f : _factories(EARLY_FACTORY)) {
+            assertThat(f.buildExtractor("a").extractAsString(_utf8(json)).get()).isEqualTo("1");
+        }
+        // but if not all branches seen, subsequent duplicates still included
+        for (JsonFieldExtractorFactory f : _factories(EARLY_FACTORY)) {
+            assertThat(f.buildExtractor("a, b").extractAsString(_utf8(json)).get()).isEqualTo("1 2");
+        }
+        // Default: all included
+        assertThat(DEFAULT_FACTORY.buildExtractor("a").extractAsString(_utf8(json)).get())
+                .isEqualTo("1 2");
+    }
+
+    @Test
+    public void testStrictDuplicates() throws Exception {
+        for (JsonFieldExtractorFactory f : _factories(STRICT_FACTORY)) {
+            JsonFieldExtractor extr = f.buildExtractor("a, b.c");
+            _verifyFail(extr, "{'a':1,'x':0,'a':2}", "Duplicate field 'a'");
+            _verifyFail(extr, "{'b':{'c':1,'c':2}}", "Duplicate field 'c'");
+            // Duplicates of excluded properties are fine
+            assertThat(extr.extractAsString(_utf8("{'x':1,'x':2,'a':3,'b':{'c':4,'d':5,'d':6}}")).get())
+                    .isEqualTo("3 4");
+            // as are those within included subtrees
+            assertThat(extr.extractAsString(_utf8("{'a':{'x':1,'x':2}}")).get())
+                    .isEqualTo("1 2");
+        }
+        for (JsonFieldExtractorFactory f : _factories(EARLY_STRICT_FACTORY)) {
+            JsonFieldExtractor extr = f.buildExtractor("a, b.c");
+            _verifyFail(extr, "{'a':1,'a':2,'b':{'c':3}}", "Duplicate field 'a'");
+            // Nested Objects checked fully
+            _verifyFail(extr, "{'b':{'c':1,'c':2},'a':3}", "Duplicate field 'c'");
+            // but content after termination is not
+            assertThat(extr.extractAsString(_utf8("{'a':1,'b':{'c':2},'a':3}")).get())
+                    .isEqualTo("1 2");
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Helper methods
+    /**********************************************************
+     */
+
+    private JsonFieldExtractorFactory[] _factories(JsonFieldExtractorFactory f) {
+        return new JsonFieldExtractorFactory[] {
+                f, f.with(ExtractorFeature.RAW_UTF8_SCANNING)
+        };
+    }
+
+    private void _verifySame(byte[] json, String paths) throws Exception {
+        final String exp = DEFAULT_FACTORY.buildExtractor(paths).extractAsString(json).get();
+        for (JsonFieldExtractorFactory f : _factories(EARLY_FACTORY)) {
+            JsonFieldExtractor extr = f.buildExtractor(paths);
+            assertThat(extr.extractAsString(json).get()).isEqualTo(exp);
+            assertThat(extr.extractAsBytes(json).get()).isEqualTo(exp.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void _verifyFail(JsonFieldExtractor extr, String json, String expMsg) throws Exception {
+        try {
+            extr.extractAsString(_utf8(json));
+            fail("Should not pass: "+json);
+        } catch (JsonParseException e) {
+            assertThat(e.getMessage()).contains(expMsg);
+        }
+    }
+
+    private static byte[] _utf8(String json) {
+        return a2q(json).getBytes(StandardCharsets.UTF_8);
+    }
+}
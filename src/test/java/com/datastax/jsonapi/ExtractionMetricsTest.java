@@ -0,0 +1,120 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ExtractionListener} instrumentation (using {@link ExtractionMetrics}).
+ */
+public class ExtractionMetricsTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonFieldExtractorFactory DEFAULT_FACTORY
+            = JsonFieldExtractorFactory.construct(MAPPER);
+
+    private final static String DOC = a2q("{'a':1,'b':{'c':'x','d':true},'skip':[1,2,{'e':3}]}");
+
+    @Test
+    public void testNoListenerByDefault() {
+        JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a");
+        assertThat(extr.listener()).isNull();
+        ExtractionMetrics metrics = new ExtractionMetrics();
+        assertThat(extr.withListener(metrics).listener()).isSameAs(metrics);
+        assertThat(extr.withListener(null)).isSameAs(extr);
+    }
+
+    @Test
+    public void testCountsWithParser() throws Exception {
+        final ExtractionMetrics metrics = new ExtractionMetrics();
+        JsonFieldExtractor extr = DEFAULT_FACTORY.withListener(metrics).buildExtractor("a, b.c");
+        assertThat(extr.extractAsString(DOC).get()).isEqualTo("1 x");
+
+        assertThat(metrics.documentCount()).isEqualTo(1);
+        assertThat(metrics.rejectedCount()).isEqualTo(0);
+        assertThat(metrics.totalInputLength()).isEqualTo(DOC.length());
+        assertThat(metrics.totalOutputLength()).isEqualTo(3);
+        assertThat(metrics.valuesIncluded()).isEqualTo(2);
+        // All tokens of document are read, including ones within skipped content
+        assertThat(metrics.tokensSeen()).isEqualTo(_tokenCount(DOC));
+        assertThat(metrics.totalNanos()).isGreaterThan(0L);
+        assertThat(metrics.latencyPercentileNanos(99.0)).isGreaterThan(0L);
+        long histogramTotal = 0L;
+        for (long count : metrics.latencyHistogram()) {
+            histogramTotal += count;
+        }
+        assertThat(histogramTotal).isEqualTo(1L);
+    }
+
+    @Test
+    public void testCountsWithEarlyTermination() throws Exception {
+        final ExtractionMetrics metrics = new ExtractionMetrics();
+        JsonFieldExtractor extr = DEFAULT_FACTORY.with(ExtractorFeature.EARLY_TERMINATION)
+                .withListener(metrics)
+                .buildExtractor("a, b.c");
+        assertThat(extr.extractAsBytes(_utf8(DOC)).get()).isEqualTo(_utf8("1 x"));
+        assertThat(metrics.valuesIncluded()).isEqualTo(2);
+        // Parsing stops before "skip"
+        assertThat(metrics.tokensSeen()).isLessThan(_tokenCount(DOC));
+        assertThat(metrics.totalOutputLength()).isEqualTo(3);
+    }
+
+    @Test
+    public void testCountsWithRawScanning() throws Exception {
+        final ExtractionMetrics metrics = new ExtractionMetrics();
+        JsonFieldExtractor extr = DEFAULT_FACTORY.with(ExtractorFeature.RAW_UTF8_SCANNING)
+                .withListener(metrics)
+                .buildExtractor("a, b.c");
+        assertThat(extr.extractAsString(_utf8(DOC)).get()).isEqualTo("1 x");
+        assertThat(metrics.valuesIncluded()).isEqualTo(2);
+        // tokens not known for raw scanning
+        assertThat(metrics.tokensSeen()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testRejectsAndSinksAndBatches() throws Exception {
+        final ExtractionMetrics metrics = new ExtractionMetrics();
+        JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("b").withListener(metrics);
+
+        assertThat(extr.extractAsString("not json")).isEmpty();
+        assertThat(extr.extractTo(_utf8("123"), new StringBuilder()))
+                .isEqualTo(JsonFieldExtractor.NOT_JSON);
+        assertThat(metrics.rejectedCount()).isEqualTo(2);
+        assertThat(metrics.documentCount()).isEqualTo(0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertThat(extr.extractTo(DOC, bytes)).isEqualTo(6);
+        assertThat(metrics.documentCount()).isEqualTo(1);
+        assertThat(metrics.totalOutputLength()).isEqualTo(6);
+
+        extr.extractAllAsString(new String[] { DOC, "x", DOC });
+        assertThat(metrics.documentCount()).isEqualTo(3);
+        assertThat(metrics.rejectedCount()).isEqualTo(3);
+        assertThat(metrics.valuesIncluded()).isEqualTo(6);
+
+        metrics.reset();
+        assertThat(metrics.documentCount()).isEqualTo(0);
+        assertThat(metrics.latencyPercentileNanos(50.0)).isEqualTo(0L);
+    }
+
+    private int _tokenCount(String json) throws Exception {
+        int count = 0;
+        try (JsonParser p = MAPPER.createParser(json)) {
+            while (p.nextToken() != null) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    private byte[] _utf8(String json) {
+        return a2q(json).getBytes(StandardCharsets.UTF_8);
+    }
+}
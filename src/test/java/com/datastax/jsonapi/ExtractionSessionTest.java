@@ -0,0 +1,199 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Tests for {@link ExtractionSession}: results for documents fed in chunks must
+ * match those of {@link JsonFieldExtractor} for full documents.
+ */
+public class ExtractionSessionTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonFieldExtractorFactory DEFAULT_FACTORY
+            = JsonFieldExtractorFactory.construct(MAPPER);
+
+    private final JsonFieldExtractorFactory EARLY_FACTORY
+            = DEFAULT_FACTORY.with(ExtractorFeature.EARLY_TERMINATION);
+
+    private final JsonFieldExtractorFactory EARLY_STRICT_FACTORY
+            = EARLY_FACTORY.with(ExtractorFeature.STRICT_DUPLICATE_PATH_PROPERTIES);
+
+    @Test
+    public void testSimpleDocs() throws Exception {
+        _verifySame("{'a':1,'b':{'c':'x','d':[1,2]},'e':true}", "a, b.c", "b", "e, x", "");
+        _verifySame("[{'a':1,'b':[2,[3]]},{'a':[4,{'a':5}]},6]", "a", "b", "a.a, b");
+        _verifySame("{'a':1} {'a':2,'b':3} [{'b':4}]", "a", "b");
+        _verifySame("{'a':{'b':{'c':{'d':{'e':{'f':{'g':{'h':{'i':{'j':{'k':{'l':{'m':{'n':{'o':"
+                +"{'p':{'q':{'r':'deep'}}}}}}}}}}}}}}}}},'z':1}", "a.b.c.d.e.f.g.h.i.j.k.l.m.n.o.p.q.r, z");
+    }
+
+    @Test
+    public void testDirectByteBuffers() throws Exception {
+        final byte[] doc = a2q("{'a':1,'b':{'c':'x','d':[1,2]},'e':true}").getBytes(StandardCharsets.UTF_8);
+        final JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a, b.d");
+        ExtractionSession session = extr.startSession();
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(doc.length);
+        for (int i = 0; i < doc.length; i += 5) {
+            buffer.clear();
+            buffer.put(doc, i, Math.min(5, doc.length - i)).flip();
+            session.feed(buffer);
+            assertThat(buffer.position()).isEqualTo(0);
+        }
+        assertThat(session.extractedLength()).isEqualTo(5);
+        assertThat(session.finish()).isEqualTo(Optional.of("1 1 2"));
+    }
+
+    @Test
+    public void testNonAscii() throws Exception {
+        _verifySame("{'a':'Caf\\u00e9 \\\\ \\'q\\'','b':['\u00dcmlaut','\\u20ac','\uD83D\uDE00'],"
+                +"'c':{'d':'\\uD83D\\uDE01 \u00e9 \u20ac \uD83D\uDE02'},'\u00e9':'x'}",
+                "a, b", "c", "b, c.d, \u00e9");
+    }
+
+    @Test
+    public void testDocsApiExample() throws Exception {
+        final byte[] doc;
+        try (InputStream in = getClass().getResourceAsStream("/jmh/docsapi-example.json")) {
+            doc = in.readAllBytes();
+        }
+        _verifySame(doc, "products.electronics.Pixel_3a, quiz.sport.q1.answer",
+                "quiz.nests, products.food", "quiz", "products.food.Apple, products.food.Orange",
+                "no.such.path", "products");
+    }
+
+    // With early termination, rest of the input is not even parsed
+    @Test
+    public void testEarlyTermination() throws Exception {
+        final String doc = a2q("{'a':{'x':1,'b':2,'y':3},'c':4,'d':5} GARBAGE");
+        ExtractionSession session = EARLY_FACTORY.buildExtractor("a.b, c").startSession();
+        _feed(session, doc.getBytes(StandardCharsets.UTF_8), 3);
+        assertThat(session.finish()).isEqualTo(Optional.of("2 4"));
+
+        // but without it, parsing fails
+        session = DEFAULT_FACTORY.buildExtractor("a.b, c").startSession();
+        try {
+            _feed(session, doc.getBytes(StandardCharsets.UTF_8), 3);
+            session.finish();
+            fail("Should not pass");
+        } catch (JsonParseException e) {
+            assertThat(e.getMessage()).contains("Unexpected character ('G'");
+        }
+    }
+
+    @Test
+    public void testDuplicateDetection() throws Exception {
+        ExtractionSession session = EARLY_STRICT_FACTORY.buildExtractor("a.b, c").startSession();
+        try {
+            _feed(session, a2q("{'a':{'b':1,'x':2,'b':3},'c':4}").getBytes(StandardCharsets.UTF_8), 5);
+            session.finish();
+            fail("Should not pass");
+        } catch (JsonParseException e) {
+            assertThat(e.getMessage()).contains("Duplicate field 'b'");
+        }
+    }
+
+    @Test
+    public void testNonJSONAndInvalid() throws Exception {
+        final JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a");
+        ExtractionSession session = extr.startSession();
+        session.feed("not json".getBytes(StandardCharsets.UTF_8), 0, 8);
+        assertThat(session.finish()).isEqualTo(Optional.empty());
+
+        session = extr.startSession();
+        assertThat(session.finish()).isEqualTo(Optional.empty());
+
+        // Truncated document
+        session = extr.startSession();
+        session.feed(a2q("{'a':[1,2").getBytes(StandardCharsets.UTF_8), 0, 8);
+        try {
+            session.finish();
+            fail("Should not pass");
+        } catch (JsonParseException e) {
+            assertThat(e.getMessage()).contains("end-of-input");
+        }
+        assertThat(session.result().isCompletedExceptionally()).isTrue();
+    }
+
+    @Test
+    public void testAsFlowSubscriber() throws Exception {
+        final byte[] doc = a2q("{'a':'abcdefghijklmnopqrstuvwxyz','b':[1,2,3],'c':{'d':true}}")
+                .getBytes(StandardCharsets.UTF_8);
+        final JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a, c.d");
+        ExtractionSession session = extr.startSession();
+        try (SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(session);
+            for (int i = 0; i < doc.length; i += 4) {
+                publisher.submit(ByteBuffer.wrap(doc, i, Math.min(4, doc.length - i)));
+            }
+        }
+        assertThat(session.result().get(5, TimeUnit.SECONDS))
+                .isEqualTo(extr.extractAsString(doc));
+
+        // and errors are reported via result
+        session = extr.startSession();
+        try (SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(session);
+            publisher.submit(ByteBuffer.wrap(doc, 0, 10));
+            publisher.closeExceptionally(new IOException("Connection reset"));
+        }
+        try {
+            session.result().get(5, TimeUnit.SECONDS);
+            fail("Should not pass");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause().getMessage()).contains("Connection reset");
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Helper methods
+    /**********************************************************
+     */
+
+    private void _verifySame(String json, String... pathDefs) throws Exception {
+        _verifySame(a2q(json).getBytes(StandardCharsets.UTF_8), pathDefs);
+    }
+
+    private void _verifySame(byte[] json, String... pathDefs) throws Exception {
+        for (JsonFieldExtractorFactory f : Arrays.asList(DEFAULT_FACTORY, EARLY_FACTORY)) {
+            for (String paths : pathDefs) {
+                final JsonFieldExtractor extr = f.buildExtractor(paths);
+                final Optional<String> exp = extr.extractAsString(json);
+                for (int chunkSize : new int[] { 1, 2, 7, 100, json.length }) {
+                    ExtractionSession session = extr.startSession();
+                    _feed(session, json, chunkSize);
+                    assertThat(session.finish()).isEqualTo(exp);
+                    assertThat(session.result().getNow(null)).isEqualTo(exp);
+                }
+            }
+        }
+    }
+
+    // Feeds in chunks using a reused buffer, to ensure chunks are not retained
+    private void _feed(ExtractionSession session, byte[] json, int chunkSize) throws IOException {
+        final byte[] buffer = new byte[chunkSize];
+        for (int i = 0; i < json.length; i += chunkSize) {
+            final int len = Math.min(chunkSize, json.length - i);
+            System.arraycopy(json, i, buffer, 0, len);
+            session.feed(buffer, 0, len);
+            Arrays.fill(buffer, (byte) '?');
+        }
+    }
+}
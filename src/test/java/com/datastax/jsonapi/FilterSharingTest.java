@@ -0,0 +1,92 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for sharing of filters between extractors
+ * (see {@link JsonFieldExtractorFactory#withFilterSharing(int)}).
+ */
+public class FilterSharingTest {
+    private final JsonFieldExtractorFactory DEFAULT_FACTORY
+            = JsonFieldExtractorFactory.construct(new ObjectMapper());
+
+    private final static String DOC = a2q("{'metadata':{'tags':['x','y'],'owner':'bob'},"
+            +"'content':{'body':'text','title':'T'},'extra':1}");
+
+    @Test
+    public void testNoSharingByDefault() throws Exception {
+        assertThat(DEFAULT_FACTORY.isFilterSharing()).isFalse();
+        assertThat(DEFAULT_FACTORY.retainedFilterNodeCount()).isEqualTo(0);
+        TokenFilter f1 = _branch(DEFAULT_FACTORY.buildExtractor("metadata.tags, extra").filter(), "metadata");
+        TokenFilter f2 = _branch(DEFAULT_FACTORY.buildExtractor("metadata.tags, content").filter(), "metadata");
+        assertThat(f1).isNotSameAs(f2);
+    }
+
+    @Test
+    public void testSharedSubtrees() throws Exception {
+        final JsonFieldExtractorFactory factory = DEFAULT_FACTORY.withFilterSharing(100);
+        assertThat(factory.isFilterSharing()).isTrue();
+        assertThat(factory.withoutFilterSharing().isFilterSharing()).isFalse();
+
+        JsonFieldExtractor e1 = factory.buildExtractor("metadata.tags, content.body");
+        // "metadata", "content" and root
+        assertThat(factory.retainedFilterNodeCount()).isEqualTo(3);
+        JsonFieldExtractor e2 = factory.buildExtractor("extra, metadata.tags");
+        // only new root
+        assertThat(factory.retainedFilterNodeCount()).isEqualTo(4);
+        assertThat(factory.sharedFilterNodeCount()).isEqualTo(1);
+        JsonFieldExtractor e3 = factory.buildExtractor("content.body,metadata.tags");
+        // Same as first: whole graph shared
+        assertThat(factory.retainedFilterNodeCount()).isEqualTo(4);
+        assertThat(e3.filter()).isSameAs(e1.filter());
+
+        assertThat(_branch(e2.filter(), "metadata")).isSameAs(_branch(e1.filter(), "metadata"));
+        assertThat(_branch(e3.filter(), "content")).isSameAs(_branch(e1.filter(), "content"));
+
+        // And extraction still works the same
+        assertThat(e1.extractAsString(DOC).get()).isEqualTo("x y text");
+        assertThat(e2.extractAsString(DOC).get()).isEqualTo("x y 1");
+
+        // Sharing also applies to mutant factories
+        JsonFieldExtractorFactory rawFactory = factory.with(ExtractorFeature.RAW_UTF8_SCANNING);
+        assertThat(rawFactory.buildExtractor("metadata.tags, content.body").filter()).isSameAs(e1.filter());
+        assertThat(rawFactory.retainedFilterNodeCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void testSameResults() throws Exception {
+        final JsonFieldExtractorFactory factory = DEFAULT_FACTORY.withFilterSharing(100);
+        for (String paths : new String[] { "metadata", "metadata.tags", "metadata, content.title",
+                "content.body, content.title, extra", "extra", "x.y, metadata.owner", "" }) {
+            assertThat(factory.buildExtractor(paths).extractAsString(DOC))
+                .isEqualTo(DEFAULT_FACTORY.buildExtractor(paths).extractAsString(DOC));
+        }
+    }
+
+    @Test
+    public void testMaxNodes() throws Exception {
+        final JsonFieldExtractorFactory factory = DEFAULT_FACTORY.withFilterSharing(2);
+        JsonFieldExtractor e1 = factory.buildExtractor("a.b.c");
+        assertThat(factory.retainedFilterNodeCount()).isEqualTo(2);
+        JsonFieldExtractor e2 = factory.buildExtractor("a.b.c");
+        // Root not retained, but rest of graph is shared
+        assertThat(e2.filter()).isNotSameAs(e1.filter());
+        assertThat(_branch(e2.filter(), "a")).isSameAs(_branch(e1.filter(), "a"));
+        assertThat(factory.retainedFilterNodeCount()).isEqualTo(2);
+
+        assertThatThrownBy(() -> DEFAULT_FACTORY.withFilterSharing(0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private TokenFilter _branch(TokenFilter filter, String name) {
+        PathBasedFilter pathFilter = (PathBasedFilter) filter;
+        return pathFilter.branchFilter(pathFilter.branchIndex(name));
+    }
+}
@@ -0,0 +1,121 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonFieldExtractorFactoryTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonFieldExtractorFactory EXTRACTOR_FACTORY
+            = JsonFieldExtractorFactory.construct(MAPPER);
+
+    /*
+    /**********************************************************
+    /* Extractor caching
+    /**********************************************************
+     */
+
+    @Test
+    public void testNoCachingByDefault() throws Exception {
+        assertThat(EXTRACTOR_FACTORY.isCaching()).isFalse();
+        assertThat(EXTRACTOR_FACTORY.buildExtractor("a.b"))
+                .isNotSameAs(EXTRACTOR_FACTORY.buildExtractor("a.b"));
+        assertThat(EXTRACTOR_FACTORY.cacheMissCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testCachingSameDefinition() throws Exception {
+        JsonFieldExtractorFactory f = EXTRACTOR_FACTORY.withCache(10);
+        assertThat(f.isCaching()).isTrue();
+
+        JsonFieldExtractor extr = f.buildExtractor("a.b, c");
+        assertThat(f.buildExtractor("a.b, c")).isSameAs(extr);
+        assertThat(f.buildExtractor("a.b, c")).isSameAs(extr);
+        assertThat(f.cacheMissCount()).isEqualTo(1L);
+        assertThat(f.cacheHitCount()).isEqualTo(2L);
+        assertThat(f.cacheEquivalentHitCount()).isEqualTo(0L);
+        assertThat(f.cachedExtractorCount()).isEqualTo(1);
+
+        // and with no caching, back to separate instances
+        JsonFieldExtractorFactory f2 = f.withoutCache();
+        assertThat(f2.isCaching()).isFalse();
+        assertThat(f2.buildExtractor("a.b, c")).isNotSameAs(extr);
+    }
+
+    @Test
+    public void testCachingEquivalentDefinitions() throws Exception {
+        JsonFieldExtractorFactory f = EXTRACTOR_FACTORY.withCache(10);
+        JsonFieldExtractor extr = f.buildExtractor("a.b, c");
+
+        assertThat(f.buildExtractor("c,a.b")).isSameAs(extr);
+        assertThat(f.buildExtractor(" c , a.b, ")).isSameAs(extr);
+        // redundant longer path pruned too
+        assertThat(f.buildExtractor("c.x, a.b, c")).isSameAs(extr);
+        assertThat(f.buildExtractor(Arrays.asList("c", "a.b"))).isSameAs(extr);
+        assertThat(f.cacheMissCount()).isEqualTo(1L);
+        assertThat(f.cacheEquivalentHitCount()).isEqualTo(4L);
+
+        // but different paths are different
+        JsonFieldExtractor extr2 = f.buildExtractor("a.b, c.d");
+        assertThat(extr2).isNotSameAs(extr);
+        assertThat(f.buildExtractor("a.c, b")).isNotSameAs(extr);
+        assertThat(f.cacheMissCount()).isEqualTo(3L);
+        assertThat(f.cachedExtractorCount()).isEqualTo(3);
+
+        // and empty ones are all the same
+        JsonFieldExtractor empty = f.buildExtractor("");
+        assertThat(empty.isEmpty()).isTrue();
+        assertThat(f.buildExtractor(" , ")).isSameAs(empty);
+        assertThat(f.buildExtractor(Arrays.asList())).isSameAs(empty);
+    }
+
+    @Test
+    public void testCachingWithMutableList() throws Exception {
+        JsonFieldExtractorFactory f = EXTRACTOR_FACTORY.withCache(10);
+        List<String> paths = new ArrayList<>(Arrays.asList("a", "b"));
+        JsonFieldExtractor extr = f.buildExtractor(paths);
+        // Modifying List passed must not affect cached entry
+        paths.add("c");
+        JsonFieldExtractor extr2 = f.buildExtractor(paths);
+        assertThat(extr2).isNotSameAs(extr);
+        assertThat(f.buildExtractor(Arrays.asList("a", "b"))).isSameAs(extr);
+    }
+
+    @Test
+    public void testCacheEviction() throws Exception {
+        JsonFieldExtractorFactory f = EXTRACTOR_FACTORY.withCache(5);
+        for (int i = 0; i < 100; ++i) {
+            JsonFieldExtractor extr = f.buildExtractor("path"+i);
+            assertThat(extr.extractAsString("{\"path"+i+"\":"+i+"}").get())
+                    .isEqualTo(String.valueOf(i));
+            assertThat(f.cachedExtractorCount()).isLessThanOrEqualTo(5);
+        }
+        assertThat(f.cacheMissCount()).isEqualTo(100L);
+    }
+
+    // Equivalent definitions must share extractor even after evictions
+    @Test
+    public void testCacheEvictionWithEquivalentDefinitions() throws Exception {
+        JsonFieldExtractorFactory f = EXTRACTOR_FACTORY.withCache(3);
+        final Random r = new Random(123);
+        for (int i = 0; i < 1000; ++i) {
+            final int n = r.nextInt(6);
+            final String def1 = "a"+n+", b"+n;
+            final String def2 = "b"+n+",a"+n;
+            if (r.nextBoolean()) {
+                assertThat(f.buildExtractor(def1)).isSameAs(f.buildExtractor(def2));
+            } else {
+                assertThat(f.buildExtractor(def2)).isSameAs(f.buildExtractor(def1));
+            }
+            assertThat(f.cachedExtractorCount()).isLessThanOrEqualTo(3);
+        }
+    }
+}
@@ -1,25 +1,33 @@
 package com.datastax.jsonapi;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 
 public class JsonFieldExtractorTest {
     private final ObjectMapper MAPPER = new ObjectMapper();
 
     private final JsonFieldExtractorFactory EXTRACTOR_FACTORY
             = JsonFieldExtractorFactory.construct(MAPPER);
+
+    private final JsonFieldExtractorFactory RAW_SCANNING_FACTORY
+            = EXTRACTOR_FACTORY.with(ExtractorFeature.RAW_UTF8_SCANNING);
     /*
     /**********************************************************
     /* Basic Object tests
@@ -161,6 +169,303 @@ public class JsonFieldExtractorTest {
         }
     }
 
+    /*
+    /**********************************************************
+    /* Extraction as UTF-8 bytes
+    /**********************************************************
+     */
+
+    @Test
+    public void testExtractAsBytesSimple() throws Exception {
+        JsonFieldExtractor extr = EXTRACTOR_FACTORY.buildExtractor("a, d");
+        final String doc = a2q("{'a':{'b':1,'c':true,'x':[false,null,'']},'d':'xyz','e':'abc'}");
+        final byte[] exp = "1 true false xyz".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(extr.extractAsBytes(doc).get()).isEqualTo(exp);
+        assertThat(extr.extractAsBytes(doc.getBytes(StandardCharsets.UTF_8)).get()).isEqualTo(exp);
+        assertThat(extr.extractAsBytes(ByteBuffer.wrap(doc.getBytes(StandardCharsets.UTF_8))).get())
+                .isEqualTo(exp);
+    }
+
+    // Raw-copied and decoded/re-encoded values must produce identical output
+    @Test
+    public void testExtractAsBytesNonAscii() throws Exception {
+        JsonFieldExtractor extr = EXTRACTOR_FACTORY.buildExtractor("a, b, c");
+        final String doc = a2q("{'a':'Caf\\u00e9 \\\\ \\'q\\'','b':['\u00dcmlaut','\\u20ac','\uD83D\uDE00'],"
+                +"'c':'\\uD83D\\uDE01 \u00e9 \u20ac \uD83D\uDE02','x':'skip'}");
+        final String expText = "Caf\u00e9 \\ \"q\" \u00dcmlaut \u20ac \uD83D\uDE00 \uD83D\uDE01 \u00e9 \u20ac \uD83D\uDE02";
+        final byte[] exp = expText.getBytes(StandardCharsets.UTF_8);
+
+        assertThat(extr.extractAsString(doc).get()).isEqualTo(expText);
+        // String input needs encoding; byte[] input is (partially) raw-copied
+        assertThat(extr.extractAsBytes(doc).get()).isEqualTo(exp);
+        assertThat(extr.extractAsBytes(doc.getBytes(StandardCharsets.UTF_8)).get()).isEqualTo(exp);
+    }
+
+    @Test
+    public void testExtractAsBytesDocsApiExample() throws Exception {
+        JsonFieldExtractor extr = EXTRACTOR_FACTORY.buildExtractor("quiz.nests, products.food");
+        final byte[] doc;
+        try (InputStream in = getClass().getResourceAsStream("/jmh/docsapi-example.json")) {
+            doc = in.readAllBytes();
+        }
+        assertThat(extr.extractAsBytes(doc).get())
+                .isEqualTo(extr.extractAsString(doc).get().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+    /**********************************************************
+    /* Extraction from ByteBuffers
+    /**********************************************************
+     */
+
+    @Test
+    public void testExtractFromByteBuffers() throws Exception {
+        JsonFieldExtractor extr = EXTRACTOR_FACTORY.buildExtractor("a.b, c");
+        final byte[] doc = a2q("{'a':{'b':'x\u00e9','c':3},'c':[1,true]}").getBytes(StandardCharsets.UTF_8);
+        final String exp = "x\u00e9 1 true";
+
+        // Heap buffer, slice with non-zero array offset and non-zero position
+        byte[] padded = new byte[doc.length + 10];
+        System.arraycopy(doc, 0, padded, 7, doc.length);
+        ByteBuffer heap = ByteBuffer.wrap(padded, 3, doc.length + 4).slice();
+        heap.position(4);
+        heap.limit(4 + doc.length);
+        _verifyByteBufferExtraction(extr, heap, exp);
+
+        // Direct buffer
+        ByteBuffer direct = ByteBuffer.allocateDirect(doc.length + 2);
+        direct.put((byte) 'x').put(doc).flip();
+        direct.position(1);
+        _verifyByteBufferExtraction(extr, direct, exp);
+
+        // Read-only heap buffer (no accessible array)
+        _verifyByteBufferExtraction(extr, ByteBuffer.wrap(doc).asReadOnlyBuffer(), exp);
+    }
+
+    // Raw copy of String values must not look past the end of the slice for closing quote
+    @Test
+    public void testByteBufferSliceWithUnterminatedString() throws Exception {
+        final String value = "x".repeat(1000);
+        final byte[] padded = a2q("{'a':'"+value+"'}").getBytes(StandardCharsets.UTF_8);
+        // Slice ends within the String value, but array has closing quote after it
+        final int sliceLength = padded.length - 100;
+        for (JsonFieldExtractorFactory f : Arrays.asList(EXTRACTOR_FACTORY,
+                EXTRACTOR_FACTORY.with(ExtractorFeature.EARLY_TERMINATION))) {
+            JsonFieldExtractor extr = f.buildExtractor("a");
+            ByteBuffer slice = ByteBuffer.wrap(padded, 0, sliceLength);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                extr.extractTo(slice, bytes);
+                fail("Should not pass with unterminated String");
+            } catch (JsonParseException e) {
+                assertThat(e.getMessage()).contains("end-of-input");
+            }
+            // Nothing beyond the slice may be copied
+            assertThat(bytes.size()).isEqualTo(0);
+            try {
+                extr.hasIncludedContent(slice);
+                fail("Should not pass with unterminated String");
+            } catch (JsonParseException e) {
+                assertThat(e.getMessage()).contains("end-of-input");
+            }
+        }
+        assertThat(ScalarValues.findUnescapedStringEnd(padded, 6, sliceLength)).isEqualTo(-1);
+        assertThat(ScalarValues.findUnescapedStringEnd(padded, 6, padded.length))
+            .isEqualTo(padded.length - 2);
+    }
+
+    private void _verifyByteBufferExtraction(JsonFieldExtractor extr, ByteBuffer bb, String exp)
+            throws IOException {
+        final int pos = bb.position();
+        assertThat(extr.extractAsString(bb).get()).isEqualTo(exp);
+        assertThat(extr.extractAsBytes(bb).get()).isEqualTo(exp.getBytes(StandardCharsets.UTF_8));
+        // Position of buffer must not change
+        assertThat(bb.position()).isEqualTo(pos);
+    }
+
+    /*
+    /**********************************************************
+    /* Extraction into caller-provided sinks
+    /**********************************************************
+     */
+
+    @Test
+    public void testExtractToAppendable() throws Exception {
+        final String doc = _sinkTestDoc();
+        final String exp = EXTRACTOR_FACTORY.buildExtractor("a, b.c").extractAsString(doc).get();
+        final byte[] docBytes = doc.getBytes(StandardCharsets.UTF_8);
+
+        for (JsonFieldExtractorFactory f : Arrays.asList(EXTRACTOR_FACTORY, RAW_SCANNING_FACTORY)) {
+            JsonFieldExtractor extr = f.buildExtractor("a, b.c");
+            // Existing content is retained (and not counted)
+            StringBuilder sb = new StringBuilder("x:");
+            assertThat(extr.extractTo(docBytes, sb)).isEqualTo(exp.length());
+            assertThat(sb.toString()).isEqualTo("x:" + exp);
+
+            StringWriter w = new StringWriter();
+            assertThat(extr.extractTo(doc, w)).isEqualTo(exp.length());
+            assertThat(w.toString()).isEqualTo(exp);
+
+            // and generic Appendable
+            StringBuffer sbuf = new StringBuffer();
+            assertThat(extr.extractTo(ByteBuffer.wrap(docBytes), sbuf)).isEqualTo(exp.length());
+            assertThat(sbuf.toString()).isEqualTo(exp);
+        }
+    }
+
+    @Test
+    public void testExtractToOutputStream() throws Exception {
+        final String doc = _sinkTestDoc();
+        final byte[] exp = EXTRACTOR_FACTORY.buildExtractor("a, b.c").extractAsBytes(doc).get();
+        final byte[] docBytes = doc.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(docBytes.length);
+        direct.put(docBytes).flip();
+
+        for (JsonFieldExtractorFactory f : Arrays.asList(EXTRACTOR_FACTORY, RAW_SCANNING_FACTORY)) {
+            JsonFieldExtractor extr = f.buildExtractor("a, b.c");
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            assertThat(extr.extractTo(doc, bytes)).isEqualTo(exp.length);
+            assertThat(bytes.toByteArray()).isEqualTo(exp);
+
+            bytes = new ByteArrayOutputStream();
+            assertThat(extr.extractTo(docBytes, bytes)).isEqualTo(exp.length);
+            assertThat(bytes.toByteArray()).isEqualTo(exp);
+
+            bytes = new ByteArrayOutputStream();
+            assertThat(extr.extractTo(direct, bytes)).isEqualTo(exp.length);
+            assertThat(bytes.toByteArray()).isEqualTo(exp);
+        }
+    }
+
+    @Test
+    public void testExtractToByteBuffer() throws Exception {
+        final String doc = _sinkTestDoc();
+        final byte[] exp = EXTRACTOR_FACTORY.buildExtractor("a, b.c").extractAsBytes(doc).get();
+        final byte[] docBytes = doc.getBytes(StandardCharsets.UTF_8);
+
+        for (JsonFieldExtractorFactory f : Arrays.asList(EXTRACTOR_FACTORY, RAW_SCANNING_FACTORY)) {
+            JsonFieldExtractor extr = f.buildExtractor("a, b.c");
+            for (ByteBuffer out : Arrays.asList(ByteBuffer.allocate(exp.length + 10),
+                    ByteBuffer.allocateDirect(exp.length + 10))) {
+                out.put((byte) 'x');
+                assertThat(extr.extractTo(docBytes, out)).isEqualTo(exp.length);
+                assertThat(out.position()).isEqualTo(exp.length + 1);
+                out.flip().get();
+                byte[] actual = new byte[out.remaining()];
+                out.get(actual);
+                assertThat(actual).isEqualTo(exp);
+
+                // Not enough room: position reset
+                out.clear().position(20);
+                try {
+                    extr.extractTo(doc, out);
+                    fail("Should not pass with too small buffer");
+                } catch (BufferOverflowException e) {
+                    assertThat(out.position()).isEqualTo(20);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testExtractToNonJSON() throws Exception {
+        JsonFieldExtractor extr = EXTRACTOR_FACTORY.buildExtractor("a");
+        StringBuilder sb = new StringBuilder();
+        assertThat(extr.extractTo("not json", sb)).isEqualTo(JsonFieldExtractor.NOT_JSON);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertThat(extr.extractTo("not json".getBytes(StandardCharsets.UTF_8), bytes))
+                .isEqualTo(JsonFieldExtractor.NOT_JSON);
+        assertThat(extr.extractTo(ByteBuffer.allocate(0), ByteBuffer.allocate(10)))
+                .isEqualTo(JsonFieldExtractor.NOT_JSON);
+        assertThat(sb.length()).isEqualTo(0);
+        assertThat(bytes.size()).isEqualTo(0);
+    }
+
+    /*
+    /**********************************************************
+    /* Batch extraction
+    /**********************************************************
+     */
+
+    @Test
+    public void testBatchExtraction() throws Exception {
+        final String[] docs = new String[] {
+                a2q("{'a':1,'b':{'c':'x','d':'y'}}"),
+                "not json",
+                a2q("{'b':{'c':'\\u00e9t\\u00e9'},'a':[true,'long text value, longer than others']}"),
+                a2q("{'x':3}"),
+                a2q("[{'a':'z'}]"),
+        };
+        final String[] exp = new String[] { "1 x", null, "\u00e9t\u00e9 true long text value, longer than others", "", "z" };
+        final byte[][] docBytes = new byte[docs.length][];
+        for (int i = 0; i < docs.length; ++i) {
+            docBytes[i] = docs[i].getBytes(StandardCharsets.UTF_8);
+        }
+
+        for (JsonFieldExtractorFactory f : Arrays.asList(EXTRACTOR_FACTORY, RAW_SCANNING_FACTORY)) {
+            JsonFieldExtractor extr = f.buildExtractor("a, b.c");
+            assertThat(extr.extractAllAsString(docs)).isEqualTo(exp);
+            assertThat(extr.extractAllAsString(Arrays.asList(docs))).isEqualTo(Arrays.asList(exp));
+            assertThat(extr.extractAllAsString(docBytes)).isEqualTo(exp);
+
+            byte[][] bytes = extr.extractAllAsBytes(docBytes);
+            assertThat(bytes.length).isEqualTo(exp.length);
+            for (int i = 0; i < exp.length; ++i) {
+                if (exp[i] == null) {
+                    assertThat(bytes[i] == null).isTrue();
+                } else {
+                    assertThat(bytes[i]).isEqualTo(exp[i].getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        assertThat(EXTRACTOR_FACTORY.buildExtractor("a").extractAllAsString(new String[0]).length)
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void testOutputSizeStats() throws Exception {
+        final String doc = a2q("{'a':'0123456789','b':'"+"x".repeat(88)+"'}");
+        final int outputLength = 10;
+
+        JsonFieldExtractor extr = EXTRACTOR_FACTORY.buildExtractor("a");
+        OutputSizeStats stats = extr.outputSizeStats();
+        assertThat(stats.sampleCount()).isEqualTo(0L);
+        assertThat(stats.isActive()).isFalse();
+
+        for (int i = 0; i < 20; ++i) {
+            assertThat(extr.extractAsString(doc).get().length()).isEqualTo(outputLength);
+        }
+        stats = extr.outputSizeStats();
+        assertThat(stats.sampleCount()).isEqualTo(20L);
+        assertThat(stats.isActive()).isTrue();
+        assertThat(stats.totalInputLength()).isEqualTo(20L * doc.length());
+        assertThat(stats.totalOutputLength()).isEqualTo(20L * outputLength);
+        final double expRatio = (double) outputLength / doc.length();
+        assertThat(stats.averageRatio()).isBetween(expRatio - 0.001, expRatio + 0.001);
+        assertThat(stats.overallRatio()).isBetween(expRatio - 0.001, expRatio + 0.001);
+        assertThat(stats.ratioDeviation()).isLessThan(0.01);
+
+        // Estimates now based on learned ratio: for much bigger input, no longer capped
+        OutputSizeEstimator estimator = new OutputSizeEstimator();
+        assertThat(estimator.estimate(1_000_000)).isEqualTo(50_000);
+        for (int i = 0; i < 20; ++i) {
+            estimator.record(1000, 250 + (i % 2) * 500);
+        }
+        assertThat(estimator.estimate(1_000_000)).isBetween(500_000, 1_000_016);
+        assertThat(estimator.estimate(0)).isEqualTo(16);
+    }
+
+    // Test document with values long enough to need multiple chunks of intermediate buffers
+    private String _sinkTestDoc() {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 3000; ++i) {
+            longValue.append("ab\u00e9\u20ac\uD83D\uDE00 ");
+        }
+        return a2q("{'a':['"+longValue+"','short',12.5,true],'b':{'c':'x\\\\y\u00e9','d':'skip'},"
+                +"'c':'"+longValue+"'}");
+    }
+
     /*
     /**********************************************************
     /* Non-JSON validation
@@ -175,6 +480,7 @@ public class JsonFieldExtractorTest {
         final byte[] docBytes = "Some text".getBytes("UTF-8");
         assertThat(extr.extractAsString(docBytes)).isEqualTo(Optional.empty());
         assertThat(extr.extractAsString(ByteBuffer.wrap(docBytes))).isEqualTo(Optional.empty());
+        assertThat(extr.extractAsBytes(docBytes)).isEqualTo(Optional.empty());
     }
 
     /*
@@ -228,7 +534,15 @@ public class JsonFieldExtractorTest {
     private String filterAsText(String json, String paths) throws IOException {
         json = a2q(json); // just so tests can use single quotes
         JsonFieldExtractor extr = EXTRACTOR_FACTORY.buildExtractor(paths);
-        return extr.extractAsString(json).get();
+        String text = extr.extractAsString(json).get();
+
+        // Verify raw-scanning engine produces same results
+        final byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        JsonFieldExtractor rawExtr = RAW_SCANNING_FACTORY.buildExtractor(paths);
+        assertThat(rawExtr.extractAsString(jsonBytes).get()).isEqualTo(text);
+        assertThat(rawExtr.extractAsBytes(jsonBytes).get())
+                .isEqualTo(text.getBytes(StandardCharsets.UTF_8));
+        return text;
     }
 
     protected static String a2q(String json) {
@@ -0,0 +1,143 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Tests for {@link MultiFieldExtractor}: results for each field must match
+ * those of {@link JsonFieldExtractor} built with the same paths.
+ */
+public class MultiFieldExtractorTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonFieldExtractorFactory EXTRACTOR_FACTORY
+            = JsonFieldExtractorFactory.construct(MAPPER);
+
+    @Test
+    public void testSimpleFields() throws Exception {
+        MultiFieldExtractor extr = EXTRACTOR_FACTORY.buildMultiExtractor(
+                Arrays.asList("a", "b.c, d", "x"));
+        assertThat(extr.fieldCount()).isEqualTo(3);
+        assertThat(extr.extractAsStrings(a2q("{'a':1,'b':{'c':'x','e':3},'d':[true,'y']}")).get())
+                .isEqualTo(new String[] { "1", "x true y", "" });
+    }
+
+    // Same leaf may be routed to multiple fields, via same or different paths
+    @Test
+    public void testOverlappingFields() throws Exception {
+        final String doc = "{'first':123,'a':{'b':{'x':{'z':'value'},'y':[1,{'x':2}]},'c':true},"
+                +"'arr':[{'name':'Bob','age':20},{'name':'Jack','age':30}],'y':2}";
+        _verifySame(doc, "a", "a.b.x", "a, a.b.x", "a.b.x.z, arr.name", "arr, y", "arr.name",
+                "a.c", "a.b.y.x", "a.b.y", "first, a.b");
+    }
+
+    @Test
+    public void testEmptyAndMissingFields() throws Exception {
+        _verifySame("{'a':1,'b':{'c':2}}", "", " , ", "a.x", "b.c", "x.y.z");
+        MultiFieldExtractor extr = EXTRACTOR_FACTORY.buildMultiExtractor(Collections.emptyList());
+        assertThat(extr.extractAsStrings(a2q("{'a':1}")).get().length).isEqualTo(0);
+    }
+
+    @Test
+    public void testArraysAndRootValues() throws Exception {
+        _verifySame("[{'a':1,'b':[2,[3]]},{'a':[4,{'a':5}]},6]", "a", "b", "a.a", "a, b");
+        _verifySame("{'a':1} {'a':2,'b':3} [{'b':4}]", "a", "b");
+    }
+
+    @Test
+    public void testNonAscii() throws Exception {
+        _verifySame("{'a':'Caf\\u00e9 \\\\ \\'q\\'','b':['\u00dcmlaut','\\u20ac','\uD83D\uDE00'],"
+                +"'c':{'d':'\\uD83D\\uDE01 \u00e9 \u20ac \uD83D\uDE02'},'x':'skip'}",
+                "a, b", "c", "b, c.d");
+    }
+
+    @Test
+    public void testDocsApiExample() throws Exception {
+        final byte[] doc;
+        try (InputStream in = getClass().getResourceAsStream("/jmh/docsapi-example.json")) {
+            doc = in.readAllBytes();
+        }
+        _verifySame(doc, "products.electronics.Pixel_3a, quiz.sport.q1.answer",
+                "quiz.nests, products.food", "quiz", "products.food.Apple, products.food.Orange",
+                "no.such.path", "products");
+    }
+
+    @Test
+    public void testNonJSON() throws Exception {
+        MultiFieldExtractor extr = EXTRACTOR_FACTORY.buildMultiExtractor(Arrays.asList("a", "b"));
+        assertThat(extr.extractAsStrings("not json")).isEqualTo(Optional.empty());
+        assertThat(extr.extractAsStrings(new byte[0])).isEqualTo(Optional.empty());
+        assertThat(extr.extractAsBytes(ByteBuffer.wrap("x".getBytes(StandardCharsets.UTF_8))))
+                .isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void testTooManyFields() throws Exception {
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i <= MultiFieldExtractor.MAX_FIELDS; ++i) {
+            fields.add("f"+i);
+        }
+        try {
+            EXTRACTOR_FACTORY.buildMultiExtractor(fields);
+            fail("Should not pass");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("Too many fields");
+        }
+        // but one less is fine
+        fields.remove(0);
+        MultiFieldExtractor extr = EXTRACTOR_FACTORY.buildMultiExtractor(fields);
+        String[] result = extr.extractAsStrings(a2q("{'f64':'last','f1':'first'}")).get();
+        assertThat(result[0]).isEqualTo("first");
+        assertThat(result[63]).isEqualTo("last");
+    }
+
+    /*
+    /**********************************************************
+    /* Helper methods
+    /**********************************************************
+     */
+
+    private void _verifySame(String json, String... fields) throws Exception {
+        _verifySame(a2q(json).getBytes(StandardCharsets.UTF_8), fields);
+    }
+
+    private void _verifySame(byte[] json, String... fields) throws Exception {
+        MultiFieldExtractor multi = EXTRACTOR_FACTORY.buildMultiExtractor(Arrays.asList(fields));
+        final String[] exp = new String[fields.length];
+        final byte[][] expBytes = new byte[fields.length][];
+        for (int i = 0; i < fields.length; ++i) {
+            exp[i] = EXTRACTOR_FACTORY.buildExtractor(fields[i]).extractAsString(json).get();
+            expBytes[i] = exp[i].getBytes(StandardCharsets.UTF_8);
+        }
+        assertThat(multi.extractAsStrings(json).get()).isEqualTo(exp);
+        assertThat(multi.extractAsStrings(new String(json, StandardCharsets.UTF_8)).get()).isEqualTo(exp);
+        assertThat(multi.extractAsStrings(ByteBuffer.wrap(json)).get()).isEqualTo(exp);
+
+        _verifyBytes(multi.extractAsBytes(json).get(), expBytes);
+        ByteBuffer direct = ByteBuffer.allocateDirect(json.length);
+        direct.put(json).flip();
+        _verifyBytes(multi.extractAsBytes(direct).get(), expBytes);
+        assertThat(direct.position()).isEqualTo(0);
+    }
+
+    private void _verifyBytes(byte[][] actual, byte[][] exp) {
+        assertThat(actual.length).isEqualTo(exp.length);
+        for (int i = 0; i < exp.length; ++i) {
+            assertThat(actual[i]).isEqualTo(exp[i]);
+        }
+    }
+}
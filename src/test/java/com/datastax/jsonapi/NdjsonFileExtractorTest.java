@@ -0,0 +1,147 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Tests for {@link NdjsonFileExtractor}: results for each line must match those of
+ * the underlying {@link JsonFieldExtractor}, regardless of segmentation.
+ */
+public class NdjsonFileExtractorTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonFieldExtractorFactory EXTRACTOR_FACTORY
+            = JsonFieldExtractorFactory.construct(MAPPER);
+
+    @Test
+    public void testSegmentation() throws Exception {
+        final JsonFieldExtractor extr = EXTRACTOR_FACTORY.buildExtractor("a, b.c");
+        final StringBuilder sb = new StringBuilder();
+        final Map<Long, String> expected = new TreeMap<>();
+        for (int i = 0; i < 500; ++i) {
+            final long offset = sb.toString().getBytes(StandardCharsets.UTF_8).length;
+            String line;
+            switch (i % 7) {
+            case 3:
+                line = "not json "+i;
+                break;
+            case 5: // blank lines are skipped
+                sb.append(((i % 2) == 0) ? "\n" : "  \r\n");
+                continue;
+            case 6: // long line, longer than some segments
+                line = a2q("{'a':'"+"x\u00e9".repeat(i * 10)+"','b':{'c':"+i+"}}");
+                break;
+            default:
+                line = a2q("{'a':"+i+",'b':{'c':'\u20ac"+i+"','d':'skip'}}");
+            }
+            final String json = line.trim();
+            expected.put(offset, (json.startsWith("{") ? extr.extractAsString(json).get() : "null"));
+            sb.append(line).append(((i % 3) == 0) ? "\r\n" : "\n");
+        }
+        // last line without linefeed
+        final long lastOffset = sb.toString().getBytes(StandardCharsets.UTF_8).length;
+        sb.append(a2q("  {'a':'last'}"));
+        expected.put(lastOffset, "last");
+
+        final Path file = _writeFile(sb.toString());
+        try {
+            for (int parallelism : new int[] { 1, 2, 7, 100 }) {
+                final Map<Long, String> results = new ConcurrentHashMap<>();
+                BulkExtractionStats stats = NdjsonFileExtractor.construct(extr)
+                        .withParallelism(parallelism)
+                        .extract(file, (offset, result) -> {
+                            String str = (result == null) ? "null"
+                                    : StandardCharsets.UTF_8.decode(result).toString();
+                            if (results.put(offset, str) != null) {
+                                throw new IOException("Duplicate result for line at #"+offset);
+                            }
+                        });
+                assertThat(new TreeMap<>(results)).isEqualTo(expected);
+                assertThat(stats.documentCount()).isEqualTo((long) expected.size());
+                assertThat(stats.nonJsonCount()).isEqualTo(
+                        expected.values().stream().filter("null"::equals).count());
+                assertThat(stats.inputBytes()).isEqualTo(Files.size(file));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRawScanningUsedForLines() throws Exception {
+        // Excluded Array is malformed: only noticed by parser, not by raw scanner that
+        // skips it at byte level; so this verifies which engine extracts lines
+        final String line = a2q("{'a':'abc','b':[tru]}");
+        final Path file = _writeFile(line+"\n"+line+"\n");
+        try {
+            final JsonFieldExtractor rawExtr = EXTRACTOR_FACTORY.with(ExtractorFeature.RAW_UTF8_SCANNING)
+                    .buildExtractor("a");
+            final Map<Long, String> results = new ConcurrentHashMap<>();
+            NdjsonFileExtractor.construct(rawExtr)
+                .extract(file, (offset, result) ->
+                    results.put(offset, StandardCharsets.UTF_8.decode(result).toString()));
+            assertThat(results).containsEntry(0L, "abc").hasSize(2);
+
+            try {
+                NdjsonFileExtractor.construct(EXTRACTOR_FACTORY.buildExtractor("a"))
+                    .extract(file, (offset, result) -> { });
+                fail("Should not pass with parser-based extraction");
+            } catch (JsonParseException e) {
+                assertThat(e.getMessage()).contains("Unrecognized token");
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        final Path file = _writeFile("");
+        try {
+            BulkExtractionStats stats = NdjsonFileExtractor.construct(EXTRACTOR_FACTORY.buildExtractor("a"))
+                    .extract(file, (offset, result) -> fail("Should not be called"));
+            assertThat(stats.documentCount()).isEqualTo(0L);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testHandlerFailure() throws Exception {
+        final Path file = _writeFile(a2q("{'a':1}\n{'a':2}\n{'a':3}\n"));
+        try {
+            NdjsonFileExtractor.construct(EXTRACTOR_FACTORY.buildExtractor("a"))
+                .withExecutor(Runnable::run)
+                .extract(file, (offset, result) -> {
+                    if (result.get(result.position()) == '2') {
+                        throw new IOException("Fail at #"+offset);
+                    }
+                });
+            fail("Should not pass");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).contains("Fail at #8");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private Path _writeFile(String contents) throws IOException {
+        Path file = Files.createTempFile("ndjson-test", ".json");
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
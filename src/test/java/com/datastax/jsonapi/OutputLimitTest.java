@@ -0,0 +1,132 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link OutputLimit} handling (truncation of extracted content).
+ */
+public class OutputLimitTest {
+    private final JsonFieldExtractorFactory DEFAULT_FACTORY
+            = JsonFieldExtractorFactory.construct(new ObjectMapper());
+
+    // "é" is 1 char/2 bytes; emoji (U+1F600) 2 chars/4 bytes
+    private final static String DOC = a2q("{'a':'abc','b':{'c':'déf','d':12345},'e':'x😀y'}");
+
+    // Extractors using different engines
+    private List<JsonFieldExtractor> _extractors(String paths, OutputLimit limit) {
+        return List.of(DEFAULT_FACTORY.withOutputLimit(limit).buildExtractor(paths),
+                DEFAULT_FACTORY.with(ExtractorFeature.RAW_UTF8_SCANNING).withOutputLimit(limit)
+                    .buildExtractor(paths),
+                DEFAULT_FACTORY.with(ExtractorFeature.EARLY_TERMINATION).withOutputLimit(limit)
+                    .buildExtractor(paths));
+    }
+
+    @Test
+    public void testConfiguration() {
+        assertThat(DEFAULT_FACTORY.buildExtractor("a").outputLimit()).isNull();
+        JsonFieldExtractor extr = DEFAULT_FACTORY.withOutputLimit(OutputLimit.chars(10)).buildExtractor("a");
+        assertThat(extr.outputLimit()).isEqualTo(OutputLimit.chars(10));
+        assertThat(extr.withOutputLimit(OutputLimit.chars(10))).isSameAs(extr);
+        assertThat(extr.withOutputLimit(null).outputLimit()).isNull();
+        assertThat(OutputLimit.utf8Bytes(10)).isNotEqualTo(OutputLimit.chars(10));
+        assertThatThrownBy(() -> OutputLimit.chars(-1))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testNoLimit() throws Exception {
+        ExtractionResult<String> result = DEFAULT_FACTORY.buildExtractor("a, b, e")
+                .extractAsStringResult(DOC).get();
+        assertThat(result.value()).isEqualTo("abc déf 12345 x😀y");
+        assertThat(result.isTruncated()).isFalse();
+    }
+
+    @Test
+    public void testCharLimit() throws Exception {
+        final String full = "abc déf 12345 x😀y";
+        for (int limit = 0; limit <= full.length() + 1; ++limit) {
+            String exp = full.substring(0, Math.min(limit, full.length())).trim();
+            // Would split surrogate pair?
+            if (!exp.isEmpty() && Character.isHighSurrogate(exp.charAt(exp.length() - 1))) {
+                exp = exp.substring(0, exp.length() - 1);
+            }
+            for (JsonFieldExtractor extr : _extractors("a, b, e", OutputLimit.chars(limit))) {
+                ExtractionResult<String> result = extr.extractAsStringResult(DOC).get();
+                assertThat(result.value()).isEqualTo(exp);
+                assertThat(result.isTruncated()).isEqualTo(limit < full.length());
+                // Same for other input types
+                assertThat(extr.extractAsStringResult(DOC.getBytes(StandardCharsets.UTF_8)).get().value())
+                    .isEqualTo(exp);
+                assertThat(extr.extractAsString(ByteBuffer.wrap(DOC.getBytes(StandardCharsets.UTF_8))).get())
+                    .isEqualTo(exp);
+                StringBuilder sb = new StringBuilder();
+                assertThat(extr.extractTo(DOC, sb)).isEqualTo(exp.length());
+                assertThat(sb.toString()).isEqualTo(exp);
+            }
+        }
+    }
+
+    @Test
+    public void testUtf8ByteLimit() throws Exception {
+        final byte[] full = "abc déf 12345 x😀y".getBytes(StandardCharsets.UTF_8);
+        final byte[] doc = DOC.getBytes(StandardCharsets.UTF_8);
+        for (int limit = 0; limit <= full.length + 1; ++limit) {
+            int expLength = Math.min(limit, full.length);
+            // Do not split multi-byte characters (or leave trailing separator)
+            while ((expLength < full.length) && (expLength > 0)
+                    && ((full[expLength] & 0xC0) == 0x80)) {
+                --expLength;
+            }
+            if ((expLength > 0) && (full[expLength - 1] == ' ')) {
+                --expLength;
+            }
+            final String exp = new String(full, 0, expLength, StandardCharsets.UTF_8);
+            for (JsonFieldExtractor extr : _extractors("a, b, e", OutputLimit.utf8Bytes(limit))) {
+                ExtractionResult<byte[]> result = extr.extractAsBytesResult(doc).get();
+                assertThat(new String(result.value(), StandardCharsets.UTF_8)).isEqualTo(exp);
+                assertThat(result.isTruncated()).isEqualTo(limit < full.length);
+                // Limit in bytes applies to String output too
+                assertThat(extr.extractAsStringResult(doc).get().value()).isEqualTo(exp);
+                assertThat(extr.extractAsBytesResult(DOC).get().value()).isEqualTo(result.value());
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                assertThat(extr.extractTo(doc, bytes)).isEqualTo(expLength);
+                assertThat(bytes.toByteArray()).isEqualTo(result.value());
+            }
+        }
+    }
+
+    @Test
+    public void testStopsParsing() throws Exception {
+        // Invalid content after limit reached is never parsed
+        final String doc = "{\"a\":\"abcdef\",\"b\":[1,2 @@@";
+        for (JsonFieldExtractor extr : _extractors("a, b", OutputLimit.chars(3))) {
+            ExtractionResult<String> result = extr.extractAsStringResult(doc).get();
+            assertThat(result.value()).isEqualTo("abc");
+            assertThat(result.isTruncated()).isTrue();
+        }
+    }
+
+    @Test
+    public void testBatchAndListener() throws Exception {
+        final ExtractionMetrics metrics = new ExtractionMetrics();
+        JsonFieldExtractor extr = DEFAULT_FACTORY.withListener(metrics)
+                .withOutputLimit(OutputLimit.chars(5))
+                .buildExtractor("a, b");
+        assertThat(extr.extractAllAsString(new String[] { DOC, "{\"a\":\"x\"}" }))
+            .containsExactly("abc d", "x");
+        assertThat(metrics.documentCount()).isEqualTo(2);
+        assertThat(metrics.totalOutputLength()).isEqualTo(6);
+        assertThat(metrics.valuesIncluded()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,115 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for checking overlap of (updated) paths with inclusion paths
+ * (see {@link JsonFieldExtractor#overlapsPath(String)}).
+ */
+public class PathOverlapTest {
+    private final JsonFieldExtractorFactory DEFAULT_FACTORY
+            = JsonFieldExtractorFactory.construct(new ObjectMapper());
+
+    @Test
+    public void testSinglePath() {
+        JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a.b");
+        // Path itself, descendants and ancestors overlap
+        assertThat(extr.overlapsPath("a.b")).isTrue();
+        assertThat(extr.overlapsPath("a.b.c")).isTrue();
+        assertThat(extr.overlapsPath("a")).isTrue();
+
+        // but siblings and unrelated paths do not
+        assertThat(extr.overlapsPath("a.c")).isFalse();
+        assertThat(extr.overlapsPath("a.bb")).isFalse();
+        assertThat(extr.overlapsPath("b")).isFalse();
+        assertThat(extr.overlapsPath("ab")).isFalse();
+        assertThat(extr.overlapsPath("b.a.b")).isFalse();
+    }
+
+    @Test
+    public void testMultiplePaths() {
+        JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("name, address.street, address.city.name,"
+                +" tags");
+        for (String path : new String[] { "name", "name.first", "address", "address.street",
+                "address.city", "address.city.name", "address.city.name.x", "tags" }) {
+            assertThat(extr.overlapsPath(path)).as(path).isTrue();
+        }
+        for (String path : new String[] { "age", "names", "address.zip", "address.city.code",
+                "city", "street" }) {
+            assertThat(extr.overlapsPath(path)).as(path).isFalse();
+        }
+    }
+
+    @Test
+    public void testRootPath() {
+        // Empty path is the whole document: overlaps any inclusion path
+        assertThat(DEFAULT_FACTORY.buildExtractor("a.b").overlapsPath("")).isTrue();
+        assertThat(DEFAULT_FACTORY.buildExtractor("a, c.d").overlapsPath("")).isTrue();
+        assertThat(DEFAULT_FACTORY.buildExtractor("a, c.d").overlapsAnyPath(Arrays.asList("x", "")))
+            .isTrue();
+    }
+
+    @Test
+    public void testArrayIndexes() {
+        JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a.b, c");
+        // Arrays are transparent to matching, so indexes may be skipped
+        assertThat(extr.overlapsPath("a.0")).isTrue();
+        assertThat(extr.overlapsPath("a.0.b")).isTrue();
+        assertThat(extr.overlapsPath("a.1.2.b.x")).isTrue();
+        assertThat(extr.overlapsPath("c.3")).isTrue();
+        assertThat(extr.overlapsPath("a.0.c")).isFalse();
+        assertThat(extr.overlapsPath("0.c")).isTrue();
+        assertThat(extr.overlapsPath("0.d")).isFalse();
+        assertThat(extr.overlapsPath("a.x0.b")).isFalse();
+
+        // But numeric segments may also be property names
+        extr = DEFAULT_FACTORY.buildExtractor("a.1.x, a.2");
+        assertThat(extr.overlapsPath("a.1.x")).isTrue();
+        assertThat(extr.overlapsPath("a.1.y")).isFalse();
+        // "a.2" may be index 2 of array "a", so overlaps "a.1.x" too
+        assertThat(extr.overlapsPath("a.2.y")).isTrue();
+        assertThat(extr.overlapsPath("a.3.1.x")).isTrue();
+        assertThat(extr.overlapsPath("a.3.y")).isFalse();
+    }
+
+    @Test
+    public void testAnyPath() {
+        JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a.b, c.d");
+        assertThat(extr.overlapsAnyPath(Arrays.asList("x", "a.c", "c.d.e"))).isTrue();
+        assertThat(extr.overlapsAnyPath(Arrays.asList("x", "a.c", "c.e"))).isFalse();
+        assertThat(extr.overlapsAnyPath(new LinkedHashSet<>(Arrays.asList("x", "c")))).isTrue();
+        assertThat(extr.overlapsAnyPath(new LinkedHashSet<>(Arrays.asList("x", "d")))).isFalse();
+        assertThat(extr.overlapsAnyPath(Collections.emptyList())).isFalse();
+    }
+
+    @Test
+    public void testEmptyExtractor() {
+        JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("");
+        assertThat(extr.isEmpty()).isTrue();
+        assertThat(extr.overlapsPath("a")).isFalse();
+        assertThat(extr.overlapsPath("")).isFalse();
+    }
+
+    @Test
+    public void testConsistentWithExtraction() throws Exception {
+        // Check that updating non-overlapping paths does not change extracted content
+        JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a.b, c");
+        final String doc = a2q("{'a':[{'b':'x','c':'y'}],'c':'z','d':'w'}");
+        final String exp = extr.extractAsString(doc).get();
+        assertThat(extr.overlapsPath("d")).isFalse();
+        assertThat(extr.extractAsString(doc.replace("\"w\"", "\"changed\"")).get()).isEqualTo(exp);
+        assertThat(extr.overlapsPath("a.0.c")).isFalse();
+        assertThat(extr.extractAsString(doc.replace("\"y\"", "\"changed\"")).get()).isEqualTo(exp);
+        assertThat(extr.overlapsPath("a.0.b")).isTrue();
+        assertThat(extr.extractAsString(doc.replace("\"x\"", "\"changed\"")).get()).isNotEqualTo(exp);
+    }
+}
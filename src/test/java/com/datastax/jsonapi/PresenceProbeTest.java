@@ -0,0 +1,107 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for checking whether documents have any included content
+ * (see {@link JsonFieldExtractor#hasIncludedContent(String)}).
+ */
+public class PresenceProbeTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonFieldExtractorFactory DEFAULT_FACTORY
+            = JsonFieldExtractorFactory.construct(MAPPER);
+
+    private final static String[] DOCS = new String[] {
+            a2q("{'a':'abc','b':{'c':'x','d':12},'e':[true,'']}"),
+            a2q("{'a':'','b':{'c':'','d':[]},'e':[null,'',{}]}"),
+            a2q("{'x':{'a':'abc'},'b':[{'c':''},{'c':'y'}]}"),
+            a2q("[{'a':1},{'b':2}]"),
+            a2q("{'b':'scalar at branch','e':null}"),
+            "{}",
+            "[]",
+    };
+
+    private final static String[] PATHS = new String[] {
+            "a", "b.c", "b.d", "e", "a, b, e", "x", "x.a, b.c"
+    };
+
+    @Test
+    public void testSameAsExtraction() throws Exception {
+        for (JsonFieldExtractorFactory factory : new JsonFieldExtractorFactory[] {
+                DEFAULT_FACTORY,
+                DEFAULT_FACTORY.with(ExtractorFeature.RAW_UTF8_SCANNING),
+                DEFAULT_FACTORY.with(ExtractorFeature.EARLY_TERMINATION),
+                DEFAULT_FACTORY.with(ExtractorFeature.VECTORIZED_SCANNING)
+                    .with(ExtractorFeature.EARLY_TERMINATION),
+        }) {
+            for (String paths : PATHS) {
+                final JsonFieldExtractor extr = factory.buildExtractor(paths);
+                for (String doc : DOCS) {
+                    final boolean exp = !extr.extractAsString(doc).get().isEmpty();
+                    final byte[] utf8 = doc.getBytes(StandardCharsets.UTF_8);
+                    final ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length);
+                    direct.put(utf8).flip();
+                    final String desc = "paths '"+paths+"', doc "+doc;
+
+                    assertThat(extr.hasIncludedContent(doc)).as(desc).isEqualTo(exp);
+                    assertThat(extr.hasIncludedContent(utf8)).as(desc).isEqualTo(exp);
+                    assertThat(extr.hasIncludedContent(ByteBuffer.wrap(utf8))).as(desc).isEqualTo(exp);
+                    assertThat(extr.hasIncludedContent(direct)).as(desc).isEqualTo(exp);
+                    assertThat(direct.position()).isEqualTo(0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryFormat() throws Exception {
+        final JsonFieldExtractorFactory factory = DEFAULT_FACTORY.withBinaryFormat(new SmileFactory());
+        final SmileMapper smileMapper = new SmileMapper();
+        final byte[] doc = smileMapper.writeValueAsBytes(MAPPER.readTree(DOCS[2]));
+        assertThat(factory.buildExtractor("b.c").hasIncludedContent(doc)).isTrue();
+        assertThat(factory.buildExtractor("a").hasIncludedContent(doc)).isFalse();
+    }
+
+    @Test
+    public void testStopsAtFirstContent() throws Exception {
+        // Malformed content after the first included value is never read
+        final String doc = a2q("{'a':'abc','b':[,1]}");
+        final JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a, b");
+        assertThat(extr.hasIncludedContent(doc)).isTrue();
+        assertThat(extr.hasIncludedContent(doc.getBytes(StandardCharsets.UTF_8))).isTrue();
+        assertThatThrownBy(() -> extr.extractAsString(doc))
+            .isInstanceOf(JsonParseException.class);
+
+        // but if there is no content before it, it is
+        assertThatThrownBy(() -> DEFAULT_FACTORY.buildExtractor("b").hasIncludedContent(doc))
+            .isInstanceOf(JsonParseException.class);
+    }
+
+    @Test
+    public void testNoListenerNotification() throws Exception {
+        final ExtractionMetrics metrics = new ExtractionMetrics();
+        final JsonFieldExtractor extr = DEFAULT_FACTORY.buildExtractor("a").withListener(metrics);
+        assertThat(extr.hasIncludedContent(DOCS[0])).isTrue();
+        assertThat(metrics.documentCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testNotJsonOrEmpty() throws Exception {
+        assertThat(DEFAULT_FACTORY.buildExtractor("a").hasIncludedContent("abc")).isFalse();
+        assertThat(DEFAULT_FACTORY.buildExtractor("a").hasIncludedContent(new byte[0])).isFalse();
+        assertThat(DEFAULT_FACTORY.buildExtractor("").hasIncludedContent("{\"a\":1}")).isFalse();
+    }
+}
@@ -0,0 +1,77 @@
+package com.datastax.jsonapi;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PropertyNameMatcherTest {
+    @Test
+    public void testSmallSets() {
+        _verifyMatcher(Arrays.asList("a", "b"));
+        _verifyMatcher(Arrays.asList("name", "age", "address", "phone"));
+        _verifyMatcher(Arrays.asList("", "x", "xx", "xxx"));
+        // Strings with same hash code ("Aa", "BB") can never be hashed perfectly
+        _verifyMatcher(Arrays.asList("Aa", "BB", "c"));
+    }
+
+    @Test
+    public void testLargeSets() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 500; ++i) {
+            names.add("field"+i);
+            _verifyMatcher(names);
+        }
+    }
+
+    @Test
+    public void testNonAscii() {
+        _verifyMatcher(Arrays.asList("caf\u00e9", "\u20ac", "\uD83D\uDE00", "cafe"));
+    }
+
+    @Test
+    public void testInterning() {
+        PropertyNameMatcher matcher = PropertyNameMatcher.construct(
+                Arrays.asList(new String("abc"), new String("def")));
+        assertThat(matcher.name(0) == "abc").isEqualTo(true);
+        assertThat(matcher.name(1) == "def").isEqualTo(true);
+    }
+
+    private void _verifyMatcher(List<String> names) {
+        PropertyNameMatcher matcher = PropertyNameMatcher.construct(names);
+        assertThat(matcher.size()).isEqualTo(names.size());
+        for (int i = 0; i < names.size(); ++i) {
+            final String name = names.get(i);
+            assertThat(matcher.name(i)).isEqualTo(name);
+            assertThat(matcher.matchName(name)).isEqualTo(i);
+            // non-interned copy must match as well
+            assertThat(matcher.matchName(new String(name))).isEqualTo(i);
+            assertThat(_matchBytes(matcher, name)).isEqualTo(i);
+            assertThat(_matchSubstring(matcher, name)).isEqualTo(i);
+
+            assertThat(matcher.matchName(name+"#")).isEqualTo(-1);
+            assertThat(_matchBytes(matcher, name+"#")).isEqualTo(-1);
+            assertThat(matcher.matchName("#"+name)).isEqualTo(-1);
+            assertThat(_matchBytes(matcher, "#"+name)).isEqualTo(-1);
+            assertThat(_matchSubstring(matcher, name+"#")).isEqualTo(-1);
+            assertThat(_matchSubstring(matcher, "#"+name)).isEqualTo(-1);
+        }
+        assertThat(matcher.matchName("no-such-name")).isEqualTo(-1);
+    }
+
+    // Match bytes in the middle of a bigger buffer
+    private int _matchBytes(PropertyNameMatcher matcher, String name) {
+        final byte[] utf8 = ("[\""+name+"\"]").getBytes(StandardCharsets.UTF_8);
+        return matcher.matchName(utf8, 2, utf8.length - 4);
+    }
+
+    // Match substring in the middle of a dotted path
+    private int _matchSubstring(PropertyNameMatcher matcher, String name) {
+        final String path = "x."+name+".y";
+        return matcher.matchName(path, 2, path.length() - 2);
+    }
+}
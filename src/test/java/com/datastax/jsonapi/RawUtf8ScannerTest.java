@@ -0,0 +1,154 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.datastax.jsonapi.JsonFieldExtractorTest.a2q;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Tests for {@link ExtractorFeature#RAW_UTF8_SCANNING}: results must match
+ * those of the default (Jackson parser based) engine.
+ */
+public class RawUtf8ScannerTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonFieldExtractorFactory DEFAULT_FACTORY
+            = JsonFieldExtractorFactory.construct(MAPPER);
+
+    private final JsonFieldExtractorFactory RAW_SCANNING_FACTORY
+            = DEFAULT_FACTORY.with(ExtractorFeature.RAW_UTF8_SCANNING);
+
+    @Test
+    public void testFeatureEnabling() throws Exception {
+        assertThat(DEFAULT_FACTORY.isEnabled(ExtractorFeature.RAW_UTF8_SCANNING)).isFalse();
+        assertThat(RAW_SCANNING_FACTORY.isEnabled(ExtractorFeature.RAW_UTF8_SCANNING)).isTrue();
+        assertThat(RAW_SCANNING_FACTORY.buildExtractor("a")
+                .isEnabled(ExtractorFeature.RAW_UTF8_SCANNING)).isTrue();
+        assertThat(RAW_SCANNING_FACTORY.without(ExtractorFeature.RAW_UTF8_SCANNING)
+                .isEnabled(ExtractorFeature.RAW_UTF8_SCANNING)).isFalse();
+    }
+
+    @Test
+    public void testScalarsAndSkipping() throws Exception {
+        _verifySame("{'a':1,'b':-2.5e+3,'c':true,'d':false,'e':null,'f':'','g':'x'}",
+                "a, b, c, d, e, f, g");
+        _verifySame("{ 'skip' : { 'a' : [ 1, { 'x':'}]' } ], 'b':'\\\\' } , 'a' : 'yes' }", "a");
+        _verifySame("{'a':{'skip':'\\\"{[','b':{'c':[1,[2,[3]]]}},'b':3}", "a.b.c");
+        _verifySame("[{'a':1},{'a':[2,3]},{'b':4}]", "a");
+        _verifySame("{'a':[[{'b':1}],{'b':[2]}],'b':0}", "a.b");
+        // Scalars at intermediate levels are not included
+        _verifySame("{'a':1,'a2':[1,{'b':2}]}", "a.b, a2.b");
+    }
+
+    @Test
+    public void testWhitespace() throws Exception {
+        _verifySame("{\t'a' :\r\n{ 'b' : 'x' , 'c' : [ 1 , 2 ] } \n} \n", "a");
+        _verifySame("{'a':{},'b':[],'c':{'d':{}}}", "a, b, c.d");
+    }
+
+    @Test
+    public void testEscapesAndUnicode() throws Exception {
+        _verifySame("{'a':'\\u00e9t\\u00e9 \\n\\t\\/\\b\\f\\r','b':'\u00e9t\u00e9 \u20ac \uD83D\uDE00',"
+                +"'c':'\\uD83D\\uDE00 mixed \u00e9 \\\"quoted\\\"'}", "a, b, c");
+        // Escaped and non-ASCII property names
+        _verifySame("{'\\u0061':1,'\u00e9':{'\\u00e9t\u00e9':'yes'},'x':'no'}", "a, \u00e9.\u00e9t\u00e9");
+    }
+
+    @Test
+    public void testMultipleRootValues() throws Exception {
+        _verifySame("{'a':1} {'a':2}\n[{'a':3}]", "a");
+    }
+
+    @Test
+    public void testDocsApiExample() throws Exception {
+        final byte[] doc;
+        try (InputStream in = getClass().getResourceAsStream("/jmh/docsapi-example.json")) {
+            doc = in.readAllBytes();
+        }
+        for (String paths : new String[] {
+                "products.electronics.Pixel_3a, quiz.sport.q1.answer",
+                "quiz.nests, products.food",
+                "quiz",
+                "products.food.Apple, products.food.Orange",
+                "no.such.path",
+        }) {
+            _verifySame(doc, paths);
+        }
+    }
+
+    @Test
+    public void testHeapByteBuffer() throws Exception {
+        final byte[] doc = a2q("xx{'a':{'b':'abc'},'c':1}yy").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer bb = ByteBuffer.wrap(doc, 2, doc.length - 4);
+        JsonFieldExtractor extr = RAW_SCANNING_FACTORY.buildExtractor("a");
+        assertThat(extr.extractAsString(bb).get()).isEqualTo("abc");
+        assertThat(extr.extractAsBytes(bb).get()).isEqualTo("abc".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testInvalidContent() throws Exception {
+        JsonFieldExtractor extr = RAW_SCANNING_FACTORY.buildExtractor("a");
+        _verifyFail(extr, "{'a':1 'b':2}", "Unexpected character");
+        // Mismatched brackets within included subtree only noticed at the end
+        _verifyFail(extr, "{'a':[1,2}", "Unexpected end-of-input");
+        _verifyFail(extr, "{'a':'abc", "Unexpected end-of-input");
+        _verifyFail(extr, "{'b':{'x':[1,2", "Unexpected end-of-input");
+        _verifyFail(extr, "{'a':tru}", "Unrecognized token");
+        _verifyFail(extr, "{'a':'\\q'}", "Unrecognized character escape");
+        _verifyFail(extr, "{a:1}", "expected double-quote");
+    }
+
+    @Test
+    public void testNumbers() throws Exception {
+        _verifySame("{'a':[0,-0,12,-3.25,1e5,1E+5,2.5e-3,-0.0E0],'b':1}", "a");
+        // Included numbers are validated, same as by the default engine
+        JsonFieldExtractor extr = RAW_SCANNING_FACTORY.buildExtractor("a");
+        _verifyFail(extr, "{'a':01}", "Leading zeroes not allowed");
+        _verifyFail(extr, "{'a':[-]}", "no digit following minus sign");
+        _verifyFail(extr, "{'a':-x}", "no digit following minus sign");
+        _verifyFail(extr, "{'a':1.}", "Decimal point not followed by a digit");
+        _verifyFail(extr, "{'a':[1.e5]}", "Decimal point not followed by a digit");
+        _verifyFail(extr, "{'a':1e}", "Exponent indicator not followed by a digit");
+        _verifyFail(extr, "{'a':1e+}", "Exponent indicator not followed by a digit");
+        for (String doc : new String[] { "{'a':01}", "{'a':[-]}", "{'a':1.}", "{'a':1e+}" }) {
+            _verifyFail(DEFAULT_FACTORY.buildExtractor("a"), doc, "");
+        }
+        // but excluded ones are only skipped
+        assertThat(extr.extractAsString(a2q("{'b':01,'c':[1.],'a':1}").getBytes(StandardCharsets.UTF_8)))
+            .contains("1");
+    }
+
+    /*
+    /**********************************************************
+    /* Helper methods
+    /**********************************************************
+     */
+
+    private void _verifySame(String json, String paths) throws Exception {
+        _verifySame(a2q(json).getBytes(StandardCharsets.UTF_8), paths);
+    }
+
+    private void _verifySame(byte[] json, String paths) throws Exception {
+        final String exp = DEFAULT_FACTORY.buildExtractor(paths).extractAsString(json).get();
+        JsonFieldExtractor extr = RAW_SCANNING_FACTORY.buildExtractor(paths);
+        assertThat(extr.extractAsString(json).get()).isEqualTo(exp);
+        assertThat(extr.extractAsBytes(json).get()).isEqualTo(exp.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void _verifyFail(JsonFieldExtractor extr, String json, String expMsg) throws Exception {
+        try {
+            extr.extractAsString(a2q(json).getBytes(StandardCharsets.UTF_8));
+            fail("Should not pass with invalid content: "+json);
+        } catch (JsonParseException e) {
+            assertThat(e.getMessage()).contains(expMsg);
+        }
+    }
+}
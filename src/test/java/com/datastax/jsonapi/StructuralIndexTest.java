@@ -0,0 +1,184 @@
+package com.datastax.jsonapi;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link StructuralIndex} (and {@link ExtractorFeature#VECTORIZED_SCANNING}
+ * that uses it).
+ */
+public class StructuralIndexTest {
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Characters to build Strings from: ones that need escaping, look like markers
+    private final static String STRING_CHARS = "ab\\\"{}[] é東";
+
+    @Test
+    public void testClassifiersProduceSameMasks() {
+        final BlockClassifier vector = BlockClassifier.instance();
+        final BlockClassifier scalar = new ScalarBlockClassifier();
+        final Random rnd = new Random(123);
+        final byte[] bytes = "\"\\{}[]ab :,".getBytes();
+        final byte[] input = new byte[BlockClassifier.BLOCK_SIZE + 7];
+        final long[] exp = new long[BlockClassifier.MASK_COUNT];
+        final long[] act = new long[BlockClassifier.MASK_COUNT];
+        for (int round = 0; round < 1000; ++round) {
+            for (int i = 0; i < input.length; ++i) {
+                input[i] = bytes[rnd.nextInt(bytes.length)];
+            }
+            final int offset = rnd.nextInt(8);
+            scalar.classify(input, offset, exp);
+            vector.classify(input, offset, act);
+            assertThat(act).isEqualTo(exp);
+        }
+    }
+
+    @Test
+    public void testSkipMatchesParser() throws Exception {
+        final Random rnd = new Random(42);
+        for (int round = 0; round < 50; ++round) {
+            final byte[] doc = _randomDoc(rnd, 3 + (round % 4));
+            _verifySkips(doc, new ScalarBlockClassifier());
+            _verifySkips(doc, BlockClassifier.instance());
+        }
+    }
+
+    @Test
+    public void testEndOfInput() {
+        final byte[] doc = "{\"a\":[1,\"]}\"".getBytes();
+        assertThat(new StructuralIndex(doc, 0, doc.length).skipContainer(0)).isEqualTo(-1);
+        assertThat(new StructuralIndex(doc, 0, doc.length).skipContainer(5)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testSameResultsAsDefault() throws Exception {
+        final byte[] example;
+        try (InputStream in = getClass().getResourceAsStream("/jmh/docsapi-example.json")) {
+            example = in.readAllBytes();
+        }
+        final JsonFieldExtractorFactory defaultFactory = JsonFieldExtractorFactory.construct(MAPPER);
+        final JsonFieldExtractorFactory vectorFactory = defaultFactory.with(ExtractorFeature.VECTORIZED_SCANNING);
+        final Random rnd = new Random(7);
+        final List<byte[]> docs = new ArrayList<>();
+        docs.add(example);
+        for (int i = 0; i < 20; ++i) {
+            docs.add(_randomDoc(rnd, 4));
+        }
+        for (String paths : new String[] {
+                "products.electronics.Pixel_3a, quiz.sport.q1.answer",
+                "quiz.nests, products.food",
+                "k0, k1.k2",
+                "k3.k0.k1, k2",
+        }) {
+            JsonFieldExtractor exp = defaultFactory.buildExtractor(paths);
+            JsonFieldExtractor act = vectorFactory.buildExtractor(paths);
+            for (byte[] doc : docs) {
+                assertThat(act.extractAsString(doc).get()).isEqualTo(exp.extractAsString(doc).get());
+                assertThat(act.extractAsBytes(doc).get()).isEqualTo(exp.extractAsBytes(doc).get());
+            }
+        }
+    }
+
+    @Test
+    public void testWithEarlyTermination() throws Exception {
+        JsonFieldExtractor extr = JsonFieldExtractorFactory.construct(MAPPER)
+                .with(ExtractorFeature.VECTORIZED_SCANNING)
+                .with(ExtractorFeature.EARLY_TERMINATION)
+                .buildExtractor("b");
+        // Invalid content after included properties is never reached
+        assertThat(extr.extractAsString("{\"a\":{\"x\":\"}\"},\"b\":1,\"c\":[[ @@@".getBytes()).get())
+                .isEqualTo("1");
+    }
+
+    /**
+     * Verifies that for every Object and Array in document, index finds the same
+     * end as Jackson parser does
+     */
+    private void _verifySkips(byte[] doc, BlockClassifier classifier) throws Exception {
+        // Add some padding on both sides, to verify offset handling
+        final byte[] padded = new byte[doc.length + 10];
+        System.arraycopy(doc, 0, padded, 3, doc.length);
+        // Find start and end offsets of all containers, in order of start offset
+        final List<int[]> containers = new ArrayList<>();
+        final ArrayDeque<int[]> open = new ArrayDeque<>();
+        try (JsonParser p = MAPPER.createParser(doc)) {
+            JsonToken t;
+            while ((t = p.nextToken()) != null) {
+                final int offset = (int) p.currentTokenLocation().getByteOffset();
+                if (t.isStructStart()) {
+                    int[] container = new int[] { offset, -1 };
+                    containers.add(container);
+                    open.push(container);
+                } else if (t.isStructEnd()) {
+                    open.pop()[1] = offset + 1;
+                }
+            }
+        }
+        for (int[] container : containers) {
+            // Need a new index for each, since skipping only proceeds forward (and
+            // we also test nested containers)
+            final StructuralIndex index = new StructuralIndex(classifier, padded, 3, doc.length);
+            assertThat(index.skipContainer(container[0] + 3)).isEqualTo(container[1] + 3);
+        }
+        // But also verify that skipping all root-level-following containers works
+        final StructuralIndex index = new StructuralIndex(classifier, padded, 3, doc.length);
+        int ptr = 0;
+        for (int[] container : containers) {
+            if (container[0] >= ptr) {
+                ptr = index.skipContainer(container[0] + 3) - 3;
+                assertThat(ptr).isEqualTo(container[1]);
+            }
+        }
+    }
+
+    private byte[] _randomDoc(Random rnd, int depth) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonGenerator g = MAPPER.createGenerator(bytes)) {
+            _writeValue(g, rnd, depth, true);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void _writeValue(JsonGenerator g, Random rnd, int depth, boolean forceObject) throws Exception {
+        final int type = forceObject ? 0 : ((depth > 0) ? rnd.nextInt(5) : (2 + rnd.nextInt(3)));
+        switch (type) {
+        case 0:
+            g.writeStartObject();
+            for (int i = 0, count = rnd.nextInt(5); i < count; ++i) {
+                g.writeFieldName("k" + rnd.nextInt(4));
+                _writeValue(g, rnd, depth - 1, false);
+            }
+            g.writeEndObject();
+            break;
+        case 1:
+            g.writeStartArray();
+            for (int i = 0, count = rnd.nextInt(5); i < count; ++i) {
+                _writeValue(g, rnd, depth - 1, false);
+            }
+            g.writeEndArray();
+            break;
+        case 2:
+            g.writeNumber(rnd.nextInt(1000));
+            break;
+        default:
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0, len = rnd.nextInt(100); i < len; ++i) {
+                sb.append(STRING_CHARS.charAt(rnd.nextInt(STRING_CHARS.length())));
+            }
+            g.writeString(sb.toString());
+        }
+    }
+}